@@ -34,7 +34,7 @@ BLOCK_COMMENT : '/*' .*? '*/' -> skip;
 // Grammar Rules
 program : importDecl* classDecl EOF;
 
-importDecl : IMPORT ID ('.' ID)* ';';
+importDecl : IMPORT name+=ID ('.' name+=ID)* ';';
 
 classDecl : CLASS className=ID ('extends' superName=ID)? '{' varDecl* (methodDecl)* '}';
 
@@ -51,7 +51,7 @@ type : INT '[' ']'    #ArrayType
 
 
 // Regular method declaration
-methodDecl : PUBLIC? STATIC? type methodName=ID '(' paramList? ')' '{' varDecl* stmt* '}';
+methodDecl : (access=PUBLIC)? STATIC? type methodName=ID '(' paramList? ')' '{' varDecl* stmt* '}';
 
 
 paramList : param (',' param)*;
@@ -59,8 +59,8 @@ param : type (paramName=ID | '...' paramName=ID);  // Only allow '...' in params
 
 // Statements
 stmt : '{' stmt* '}'                       #BlockStmt
-     | ID '=' expr ';'                     #AssignStmt
-     | ID '[' expr ']' '=' expr ';'        #ArrayAssignStmt
+     | var=ID '=' expr ';'                 #AssignStmt
+     | var=ID '[' expr ']' '=' expr ';'    #ArrayAssignStmt
      | IF '(' expr ')' stmt (ELSE stmt)?   #IfStmt
      | WHILE '(' expr ')' stmt             #WhileStmt
      | RETURN expr ';'                     #ReturnStmt
@@ -1,5 +1,7 @@
 package pt.up.fe.comp2025;
 
+import pt.up.fe.comp2025.optimization.RemarkWriter;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +12,13 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String DISABLED_PASSES = "disabledPasses";
+    private static final String WATCH = "watch";
+    private static final String TREE_SHAKE = "treeShake";
+    private static final String UNROLL = "unroll";
+    private static final String OPT_LEVEL = "optLevel";
+    private static final String ENABLED_PASSES = "enabledPasses";
+    private static final String REMARKS = "remarks";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +27,13 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("d", CompilerConfig.DISABLED_PASSES);
+        shortToLong.put("w", CompilerConfig.WATCH);
+        shortToLong.put("t", CompilerConfig.TREE_SHAKE);
+        shortToLong.put("u", CompilerConfig.UNROLL);
+        shortToLong.put("O", CompilerConfig.OPT_LEVEL);
+        shortToLong.put("e", CompilerConfig.ENABLED_PASSES);
+        shortToLong.put("R", CompilerConfig.REMARKS);
     }
 
 
@@ -83,6 +99,9 @@ public class CompilerConfig {
                 if (equalSign.equals("=")) {
 
                     value = arg.substring(3);
+                } else {
+                    // Attached value, as in -O2
+                    value = arg.substring(2);
                 }
             }
 
@@ -106,6 +125,8 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        ConfigOptions.getOptLevel(config);
+        ConfigOptions.getRemarksFormat(config).ifPresent(RemarkWriter.Format::fromName);
 
         return config;
     }
@@ -1,8 +1,11 @@
 package pt.up.fe.comp2025;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ConfigOptions {
 
@@ -11,6 +14,13 @@ public class ConfigOptions {
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
     private static final String EXTRA = "extra";
+    private static final String DISABLED_PASSES = "disabledPasses";
+    private static final String WATCH = "watch";
+    private static final String TREE_SHAKE = "treeShake";
+    private static final String UNROLL = "unroll";
+    private static final String OPT_LEVEL = "optLevel";
+    private static final String ENABLED_PASSES = "enabledPasses";
+    private static final String REMARKS = "remarks";
 
     // These methods should be on CompilerConfig, but to avoid rewriting a file
     // that is in the src folder, this new class was added
@@ -31,6 +41,34 @@ public class ConfigOptions {
         return EXTRA;
     }
 
+    public static String getDisabledPasses() {
+        return DISABLED_PASSES;
+    }
+
+    public static String getWatch() {
+        return WATCH;
+    }
+
+    public static String getTreeShake() {
+        return TREE_SHAKE;
+    }
+
+    public static String getUnroll() {
+        return UNROLL;
+    }
+
+    public static String getOptLevel() {
+        return OPT_LEVEL;
+    }
+
+    public static String getEnabledPasses() {
+        return ENABLED_PASSES;
+    }
+
+    public static String getRemarks() {
+        return REMARKS;
+    }
+
     public static Optional<File> getInputFile(Map<String, String> config) {
         var inputFile = config.get(INPUT_FILE);
 
@@ -54,4 +92,68 @@ public class ConfigOptions {
     public static boolean getExtra(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(EXTRA, "false"));
     }
+
+    /**
+     * Names of the analysis passes to skip, given as a comma-separated list (e.g. "VarargCheck,ArrayInit").
+     */
+    public static Set<String> getDisabledPasses(Map<String, String> config) {
+        return Arrays.stream(config.getOrDefault(DISABLED_PASSES, "").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    public static boolean getWatch(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WATCH, "false"));
+    }
+
+    /**
+     * Whether methods unreachable from the entry points of the class, and unused fields, are removed.
+     */
+    public static boolean getTreeShake(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(TREE_SHAKE, "false"));
+    }
+
+    /**
+     * Copies of the body in the main loop of a partially unrolled loop, 0 if loops are not unrolled. Given without a
+     * value, the factor is 4; a factor of 1 only unrolls loops fully.
+     */
+    public static int getUnrollFactor(Map<String, String> config) {
+        var value = config.getOrDefault(UNROLL, "0");
+        return value.equals("true") ? 4 : Integer.parseInt(value);
+    }
+
+    /**
+     * Optimization level, from 0 (no optimizations) to 3. Without an explicit level, "-o" selects level 2.
+     */
+    public static int getOptLevel(Map<String, String> config) {
+        var level = config.get(OPT_LEVEL);
+        if (level != null) {
+            return Math.max(0, Math.min(3, Integer.parseInt(level)));
+        }
+        return getOptimize(config) || config.containsKey("-o") ? 2 : 0;
+    }
+
+    /**
+     * Names of the optimization passes to run regardless of the level, given as a comma-separated list
+     * (e.g. "MethodInliner,LoopUnroller").
+     */
+    public static Set<String> getEnabledPasses(Map<String, String> config) {
+        return Arrays.stream(config.getOrDefault(ENABLED_PASSES, "").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Format of the optimization remarks written next to the input file, "yaml" or "json". Given without a value,
+     * the format is YAML.
+     */
+    public static Optional<String> getRemarksFormat(Map<String, String> config) {
+        var value = config.get(REMARKS);
+        if (value == null) {
+            return Optional.empty();
+        }
+        return Optional.of(value.equals("true") ? "yaml" : value);
+    }
 }
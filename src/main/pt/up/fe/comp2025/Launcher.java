@@ -1,21 +1,28 @@
 package pt.up.fe.comp2025;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2025.backend.JasminBackendImpl;
 import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.Remark;
+import pt.up.fe.comp2025.optimization.RemarkWriter;
 import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsCollections;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.util.List;
 import java.util.Map;
 
 public class Launcher {
 
+    private static final long WATCH_INTERVAL_MS = 500;
+
     public static void main(String[] args) {
         SpecsSystem.programStandardInit();
 
@@ -25,6 +32,12 @@ public class Launcher {
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
+
+        if (ConfigOptions.getWatch(config)) {
+            watch(inputFile, config);
+            return;
+        }
+
         String code = SpecsIo.read(inputFile);
 
         // Parsing stage
@@ -45,19 +58,70 @@ public class Launcher {
 
         // Optimization stage
         JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        semanticsResult = ollirGen.optimize(semanticsResult);
+        TestUtils.noErrors(semanticsResult.getReports());
+
+        // The class is built in memory and the OLLIR passes change it in place, no OLLIR code is written
+        ClassUnit ollirClass = ollirGen.toOllirClass(semanticsResult);
+        TestUtils.noErrors(ollirGen.optimize(ollirClass, config));
 
-        // Print OLLIR code
-        //System.out.println(ollirResult.getOllirCode());
+        // Print OLLIR code, for debugging
+        //System.out.println(OllirPrinter.print(ollirClass));
 
         // Code generation stage
         JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
+        JasminResult jasminResult = jasminGen.toJasmin(ollirClass, config);
         TestUtils.noErrors(jasminResult.getReports());
 
+        var remarksFormat = ConfigOptions.getRemarksFormat(config);
+        if (remarksFormat.isPresent()) {
+            var remarks = SpecsCollections.concat(ollirGen.getRemarks(), jasminGen.getRemarks());
+            writeRemarks(inputFile, remarks, RemarkWriter.Format.fromName(remarksFormat.get()));
+        }
+
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
     }
 
+    /**
+     * Writes the optimization remarks next to the input file, e.g. Foo.opt.yaml for Foo.jmm.
+     */
+    private static void writeRemarks(File inputFile, List<Remark> remarks, RemarkWriter.Format format) {
+        var name = inputFile.getName();
+        var baseName = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+        var remarksFile = new File(inputFile.getAbsoluteFile().getParentFile(),
+                baseName + ".opt." + format.getExtension());
+        SpecsIo.write(remarksFile, RemarkWriter.write(remarks, name, format));
+    }
+
+    /**
+     * Re-analyses the input file every time it changes, printing the semantic reports.
+     * Only the methods that changed since the previous version are analysed again.
+     */
+    private static void watch(File inputFile, Map<String, String> config) {
+        var parser = new JmmParserImpl();
+        var sema = new JmmAnalysisImpl();
+        long lastModified = -1;
+
+        while (true) {
+            long modified = inputFile.lastModified();
+            if (modified != lastModified) {
+                lastModified = modified;
+
+                JmmParserResult parserResult = parser.parse(SpecsIo.read(inputFile), config);
+                if (parserResult.getRootNode() == null) {
+                    parserResult.getReports().forEach(System.out::println);
+                } else {
+                    var semanticsResult = sema.reanalyze(parserResult);
+                    var incremental = sema.getIncrementalAnalysis();
+                    System.out.println("Analysed " + incremental.getAnalysedMethods() + " method(s), reused "
+                            + incremental.getReusedMethods() + ":");
+                    semanticsResult.getReports().forEach(System.out::println);
+                }
+            }
+
+            SpecsSystem.sleep(WATCH_INTERVAL_MS);
+        }
+    }
+
 }
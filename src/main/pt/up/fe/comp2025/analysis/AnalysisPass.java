@@ -5,12 +5,28 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an analysis pass.
  */
 public interface AnalysisPass {
 
+    /**
+     * Every expression has its type annotated in the shared expression type table.
+     */
+    String TYPES = "types";
+
+    /**
+     * Every variable reference resolves to a parameter, local variable or field.
+     */
+    String RESOLVED_VARIABLES = "resolvedVariables";
+
+    /**
+     * Every method call on this class resolves to a declared method.
+     */
+    String RESOLVED_METHODS = "resolvedMethods";
+
     /**
      * Analyses the given node.
      *
@@ -20,4 +36,25 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
-}
\ No newline at end of file
+    /**
+     * @return the name used to refer to this pass (e.g. when enabling or disabling it)
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return the facts that must have been established, without errors, before this pass can run
+     */
+    default Set<String> requires() {
+        return Set.of();
+    }
+
+    /**
+     * @return the facts this pass establishes when it finishes without errors
+     */
+    default Set<String> provides() {
+        return Set.of();
+    }
+
+}
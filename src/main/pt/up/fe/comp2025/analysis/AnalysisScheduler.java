@@ -0,0 +1,195 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Runs analysis passes according to the facts they require and provide.
+ * <p>
+ * A pass depends on every other pass that provides one of the facts it requires, which gives a DAG. Passes whose
+ * dependencies are done run concurrently. When a pass fails (reports an error or throws), only the passes that
+ * (transitively) depend on it are skipped; unrelated passes still run, so their reports are not lost.
+ * <p>
+ * Disabled passes are not run, and do not block their dependents: the facts they would provide are assumed.
+ */
+public class AnalysisScheduler {
+
+    private static final Logger logger = Logger.getLogger(AnalysisScheduler.class.getName());
+
+    public enum Outcome {
+        SUCCEEDED, FAILED, SKIPPED, DISABLED
+    }
+
+    private final List<AnalysisPass> passes;
+    private final Set<String> disabledPasses;
+    private final Map<AnalysisPass, List<AnalysisPass>> dependencies;
+    private final Map<String, Outcome> outcomes;
+    private final Map<String, Long> timings;
+    private final Executor executor;
+
+    /**
+     * @param executor runs the passes, it is shared between runs and not shut down by the scheduler
+     */
+    public AnalysisScheduler(List<? extends AnalysisPass> passes, Set<String> disabledPasses, Executor executor) {
+        this.passes = List.copyOf(passes);
+        this.disabledPasses = Set.copyOf(disabledPasses);
+        this.executor = executor;
+        this.outcomes = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.timings = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.dependencies = buildDependencies();
+    }
+
+    public AnalysisScheduler(List<? extends AnalysisPass> passes, Set<String> disabledPasses) {
+        this(passes, disabledPasses, ForkJoinPool.commonPool());
+    }
+
+    private Map<AnalysisPass, List<AnalysisPass>> buildDependencies() {
+        var providers = new HashMap<String, List<AnalysisPass>>();
+        for (var pass : passes) {
+            for (var fact : pass.provides()) {
+                providers.computeIfAbsent(fact, key -> new ArrayList<>()).add(pass);
+            }
+        }
+
+        var deps = new LinkedHashMap<AnalysisPass, List<AnalysisPass>>();
+        for (var pass : passes) {
+            var passDeps = new ArrayList<AnalysisPass>();
+            for (var fact : pass.requires()) {
+                var factProviders = providers.get(fact);
+                if (factProviders == null) {
+                    throw new IllegalStateException("Analysis pass '" + pass.getName() + "' requires '" + fact
+                            + "', but no pass provides it");
+                }
+                factProviders.stream()
+                        .filter(provider -> provider != pass && !passDeps.contains(provider))
+                        .forEach(passDeps::add);
+            }
+            deps.put(pass, passDeps);
+        }
+
+        return deps;
+    }
+
+    /**
+     * @return the passes in an order where each pass comes after all its dependencies
+     */
+    public List<AnalysisPass> topologicalOrder() {
+        var order = new ArrayList<AnalysisPass>();
+        var state = new HashMap<AnalysisPass, Boolean>(); // false = visiting, true = done
+
+        for (var pass : passes) {
+            visitTopological(pass, state, order);
+        }
+
+        return order;
+    }
+
+    private void visitTopological(AnalysisPass pass, Map<AnalysisPass, Boolean> state, List<AnalysisPass> order) {
+        var current = state.get(pass);
+        if (Boolean.TRUE.equals(current)) {
+            return;
+        }
+        if (Boolean.FALSE.equals(current)) {
+            throw new IllegalStateException("Cyclic dependency between analysis passes involving '"
+                    + pass.getName() + "'");
+        }
+
+        state.put(pass, false);
+        for (var dep : dependencies.get(pass)) {
+            visitTopological(dep, state, order);
+        }
+        state.put(pass, true);
+        order.add(pass);
+    }
+
+    /**
+     * Runs all the passes over the given AST.
+     *
+     * @return the reports of all passes that ran, in the order the passes were given
+     */
+    public List<Report> run(JmmNode root, SymbolTable table) {
+        var order = topologicalOrder();
+        var futures = new HashMap<AnalysisPass, CompletableFuture<List<Report>>>();
+
+        for (var pass : order) {
+            var depFutures = dependencies.get(pass).stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+
+            var future = CompletableFuture.allOf(depFutures)
+                    .thenApplyAsync(ignored -> runPass(pass, root, table), executor);
+
+            futures.put(pass, future);
+        }
+
+        var reports = new ArrayList<Report>();
+        for (var pass : passes) {
+            reports.addAll(futures.get(pass).join());
+        }
+        return reports;
+    }
+
+    private List<Report> runPass(AnalysisPass pass, JmmNode root, SymbolTable table) {
+        var name = pass.getName();
+
+        if (disabledPasses.contains(name)) {
+            outcomes.put(name, Outcome.DISABLED);
+            return List.of();
+        }
+
+        var blocked = dependencies.get(pass).stream()
+                .map(dep -> outcomes.get(dep.getName()))
+                .anyMatch(outcome -> outcome == Outcome.FAILED || outcome == Outcome.SKIPPED);
+        if (blocked) {
+            outcomes.put(name, Outcome.SKIPPED);
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        List<Report> passReports;
+        try {
+            passReports = pass.analyze(root, table);
+        } catch (Exception e) {
+            passReports = List.of(Report.newError(Stage.SEMANTIC,
+                    -1,
+                    -1,
+                    "Problem while executing analysis pass '" + pass.getClass() + "'",
+                    e));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        timings.put(name, elapsed);
+        var failed = passReports.stream().anyMatch(report -> report.getType() == ReportType.ERROR);
+        outcomes.put(name, failed ? Outcome.FAILED : Outcome.SUCCEEDED);
+        logger.fine(() -> "Analysis pass " + name + " took " + elapsed / 1000 + "us" + (failed ? " (failed)" : ""));
+
+        return passReports;
+    }
+
+    /**
+     * @return the outcome of each pass of the last run, by pass name
+     */
+    public Map<String, Outcome> getOutcomes() {
+        synchronized (outcomes) {
+            return new LinkedHashMap<>(outcomes);
+        }
+    }
+
+    /**
+     * @return the time, in nanoseconds, each pass that ran took in the last run, by pass name
+     */
+    public Map<String, Long> getTimings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+}
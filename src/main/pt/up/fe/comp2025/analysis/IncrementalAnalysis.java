@@ -0,0 +1,201 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg;
+import pt.up.fe.comp2025.ast.ExprTypeTable;
+import pt.up.fe.comp2025.ast.NodeHasher;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.specs.util.SpecsCollections;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Semantic analysis that reuses the results of the previous run, for daemon and watch use.
+ * <p>
+ * The new AST is compared with the previous one at {@code MethodDecl} granularity:
+ * <ul>
+ *     <li>if the class-level signature (imports, class header, fields and method headers) changed, everything is
+ *     analysed again;</li>
+ *     <li>otherwise the symbol table is reused (or rebuilt, if only local variable declarations changed), and only
+ *     the methods whose body changed are analysed; the other methods reuse their previous reports, moved to the
+ *     method's new position.</li>
+ * </ul>
+ * Every method is analysed on its own, so an error in one method never hides the reports of another one.
+ */
+public class IncrementalAnalysis {
+
+    private static final Logger logger = Logger.getLogger(IncrementalAnalysis.class.getName());
+
+    private record CachedMethod(long hash, int line, List<Report> reports) {
+    }
+
+    private final Function<SymbolTable, List<AnalysisPass>> passesFactory;
+    private final Map<String, CachedMethod> methods;
+
+    private Long classSignature;
+    private Long tableFingerprint;
+    private SymbolTable table;
+    private List<Report> tableReports;
+
+    private int reusedMethods;
+    private int analysedMethods;
+
+    /**
+     * @param passesFactory creates a fresh set of analysis passes for the given symbol table
+     */
+    public IncrementalAnalysis(Function<SymbolTable, List<AnalysisPass>> passesFactory) {
+        this.passesFactory = passesFactory;
+        this.methods = new HashMap<>();
+    }
+
+    public JmmSemanticsResult analyze(JmmParserResult parserResult) {
+        var root = parserResult.getRootNode();
+        var config = parserResult.getConfig();
+
+        long newSignature = classSignature(root);
+        long newFingerprint = tableFingerprint(root, newSignature);
+
+        if (classSignature == null || classSignature != newSignature) {
+            logger.fine("Class signature changed, analysing every method");
+            methods.clear();
+            rebuildTable(root);
+        } else if (tableFingerprint != newFingerprint) {
+            // Only local variable declarations changed, the methods that declare them have a new hash anyway
+            rebuildTable(root);
+        } else {
+            // The types of the previous AST are no longer needed
+            ExprTypeTable.of(table).clear();
+        }
+        classSignature = newSignature;
+        tableFingerprint = newFingerprint;
+
+        var reports = new ArrayList<Report>(tableReports);
+        var disabledPasses = ConfigOptions.getDisabledPasses(config);
+        var currentMethods = new HashMap<String, CachedMethod>();
+        reusedMethods = 0;
+        analysedMethods = 0;
+
+        for (var method : getMethodDecls(root)) {
+            var key = methodKey(method, currentMethods.keySet());
+            long hash = NodeHasher.hash(method);
+            var cached = methods.get(key);
+
+            List<Report> methodReports;
+            if (cached != null && cached.hash() == hash) {
+                methodReports = shift(cached.reports(), method.getLine() - cached.line());
+                reusedMethods++;
+            } else {
+                var scheduler = new AnalysisScheduler(passesFactory.apply(table), disabledPasses);
+                methodReports = scheduler.run(method, table);
+                analysedMethods++;
+            }
+
+            currentMethods.put(key, new CachedMethod(hash, method.getLine(), methodReports));
+            reports.addAll(methodReports);
+        }
+
+        methods.clear();
+        methods.putAll(currentMethods);
+        logger.fine(() -> "Incremental analysis: " + analysedMethods + " method(s) analysed, "
+                + reusedMethods + " reused");
+
+        return new JmmSemanticsResult(root, table, SpecsCollections.concat(parserResult.getReports(), reports),
+                config);
+    }
+
+    /**
+     * Drops every cached result, so that the next run analyses everything.
+     */
+    public void invalidate() {
+        classSignature = null;
+        tableFingerprint = null;
+        table = null;
+        tableReports = null;
+        methods.clear();
+    }
+
+    /**
+     * @return how many methods reused their previous reports in the last run
+     */
+    public int getReusedMethods() {
+        return reusedMethods;
+    }
+
+    /**
+     * @return how many methods were analysed in the last run
+     */
+    public int getAnalysedMethods() {
+        return analysedMethods;
+    }
+
+    private void rebuildTable(JmmNode root) {
+        var builder = new JmmSymbolTableBuilder();
+        table = builder.build(root);
+        tableReports = List.copyOf(builder.getReports());
+    }
+
+    private static List<JmmNode> getMethodDecls(JmmNode root) {
+        return root.getChildren("ClassDecl").stream()
+                .flatMap(classDecl -> classDecl.getChildren("MethodDecl").stream())
+                .toList();
+    }
+
+    private static String methodKey(JmmNode method, Set<String> usedKeys) {
+        // Repeated names are a semantic error, but still need distinct cache entries
+        var name = method.get("methodName");
+        var key = name;
+        for (int i = 1; usedKeys.contains(key); i++) {
+            key = name + "#" + i;
+        }
+        return key;
+    }
+
+    private static long classSignature(JmmNode root) {
+        return NodeHasher.hash(root, IncrementalAnalysis::isSignatureNode);
+    }
+
+    private static boolean isSignatureNode(JmmNode node) {
+        var parent = node.getParent();
+        if (parent == null || !parent.getKind().equals("MethodDecl")) {
+            return true;
+        }
+
+        // Method headers: return type and parameters
+        return !node.getKind().equals("VarDecl") && !StatementCfg.isStatement(node);
+    }
+
+    private static long tableFingerprint(JmmNode root, long classSignature) {
+        long fingerprint = classSignature;
+        for (var method : getMethodDecls(root)) {
+            for (var local : method.getChildren("VarDecl")) {
+                fingerprint = NodeHasher.combine(fingerprint, NodeHasher.hash(local));
+            }
+            // Separates the locals of consecutive methods
+            fingerprint = NodeHasher.combine(fingerprint, method.getChildren("VarDecl").size());
+        }
+        return fingerprint;
+    }
+
+    private static List<Report> shift(List<Report> reports, int lineDelta) {
+        if (lineDelta == 0) {
+            return reports;
+        }
+
+        var shifted = new ArrayList<Report>(reports.size());
+        for (var report : reports) {
+            var line = report.getLine() < 0 ? report.getLine() : report.getLine() + lineDelta;
+            var newReport = new Report(report.getType(), report.getStage(), line, report.getColumn(),
+                    report.getMessage());
+            report.getException().ifPresent(newReport::setException);
+            shifted.add(newReport);
+        }
+        return shifted;
+    }
+}
@@ -9,6 +9,7 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.ConfigOptions;
 import pt.up.fe.comp2025.analysis.passes.*;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
@@ -21,6 +22,7 @@ import java.util.List;
  */
 public class JmmAnalysisImpl implements JmmAnalysis {
 
+    private final IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis(this::buildPasses);
 
     /**
      * Analysis passes that will be applied to the AST.
@@ -28,8 +30,8 @@ public class JmmAnalysisImpl implements JmmAnalysis {
      * @param table
      * @return
      */
-    private List<AnalysisVisitor> buildPasses(SymbolTable table) {
-        return List.of(new UndeclaredVariable(), new IncompatibleOperandTypes(), new InvalidArrayAccess(), new ConditionTypeCheck(), new ArrayInit(), new VarargCheck(), new UndeclaredMethod(), new MethodArgumentCheck(), new InvalidArrayAssignment(), new InvalidTypeAssignment());
+    private List<AnalysisPass> buildPasses(SymbolTable table) {
+        return List.of(new TypeInference(), new UndeclaredVariable(), new IncompatibleOperandTypes(), new InvalidArrayAccess(), new ConditionTypeCheck(), new ArrayInit(), new VarargCheck(), new UndeclaredMethod(), new MethodArgumentCheck(), new InvalidArrayAssignment(), new InvalidTypeAssignment());
     }
 
     @Override
@@ -47,48 +49,31 @@ public class JmmAnalysisImpl implements JmmAnalysis {
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmSemanticsResult semanticsResult) {
 
-
         var table = semanticsResult.getSymbolTable();
 
-        var analysisVisitors = buildPasses(table);
+        var analysisPasses = buildPasses(table);
 
         var rootNode = semanticsResult.getRootNode();
 
-        var reports = new ArrayList<Report>();
-
-        // This is a simple implementation that assumes all passes are implemented as visitors, each one making a full visit of the AST.
-        // There are other implementations that reduce the number of full AST visits, this is not required for the work, but a nice challenge if you want to try.
-        for (var analysisVisitor : analysisVisitors) {
-            try {
-                var passReports = analysisVisitor.analyze(rootNode, table);
-
-                var hasSymbolTableErrors = passReports.stream()
-                        .anyMatch(report -> report.getType() == ReportType.ERROR);
-
-
-                reports.addAll(passReports);
-
-                // Return early in case of error report
-                if (hasSymbolTableErrors) {
-
-                    return new JmmSemanticsResult(semanticsResult, reports);
-                }
-
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisVisitor.getClass() + "'",
-                        e)
-                );
-
-            }
-
-        }
+        // Passes run as soon as the passes they depend on are done, and a failing pass only
+        // prevents the passes that depend on it from running
+        var scheduler = new AnalysisScheduler(analysisPasses,
+                ConfigOptions.getDisabledPasses(semanticsResult.getConfig()));
 
+        var reports = scheduler.run(rootNode, table);
 
         return new JmmSemanticsResult(semanticsResult, reports);
     }
 
+    /**
+     * Analyses a new version of a previously analysed program, reusing the symbol table and the reports of the
+     * methods that did not change. Meant for daemon and watch use, where the same instance sees every version.
+     */
+    public JmmSemanticsResult reanalyze(JmmParserResult parserResult) {
+        return incrementalAnalysis.analyze(parserResult);
+    }
 
+    public IncrementalAnalysis getIncrementalAnalysis() {
+        return incrementalAnalysis;
+    }
 }
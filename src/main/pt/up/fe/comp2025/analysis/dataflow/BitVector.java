@@ -0,0 +1,148 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Fixed-size dense bit-vector, backed by a {@code long[]}.
+ * <p>
+ * Unlike {@link java.util.BitSet} the size is fixed, which allows "all ones" vectors (the top element of must
+ * analyses) and cheap in-place meets.
+ */
+public class BitVector {
+
+    private final int size;
+    private final long[] words;
+
+    public BitVector(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    private BitVector(BitVector other) {
+        this.size = other.size;
+        this.words = other.words.clone();
+    }
+
+    public static BitVector full(int size) {
+        var vector = new BitVector(size);
+        vector.setAll();
+        return vector;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public void setAll() {
+        Arrays.fill(words, -1L);
+        // Keep the bits past the end cleared, so that equals and cardinality stay exact
+        int tail = size & 63;
+        if (tail != 0) {
+            words[words.length - 1] = (1L << tail) - 1;
+        }
+    }
+
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void or(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public void and(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    public void andNot(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    public void copyFrom(BitVector other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    public BitVector copy() {
+        return new BitVector(this);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return the index of the first set bit at or after the given index, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * @return the indexes of the bits that are set, in increasing order
+     */
+    public IntStream stream() {
+        return IntStream.iterate(nextSetBit(0), index -> index >= 0, index -> nextSetBit(index + 1));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BitVector other)) {
+            return false;
+        }
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            builder.append(get(i) ? '1' : '0');
+        }
+        return builder.toString();
+    }
+}
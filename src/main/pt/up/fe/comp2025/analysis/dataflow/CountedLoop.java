@@ -0,0 +1,221 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+/**
+ * A {@code while} loop of the shape {@code while (i < bound) { ...; i = i + step; }}.
+ * <p>
+ * The counter is a local that is only assigned by the increment at the end of the body, and the step is a positive
+ * literal. The bound is a literal, {@code a.length}, or a local that only holds non-negative values ({@code a.length}
+ * or non-negative literals); neither the local nor the array may be assigned in the loop. A non-negative bound means
+ * {@code bound - k} cannot wrap around for a small {@code k}.
+ */
+public class CountedLoop {
+
+    private final JmmNode loop;
+    private final String counter;
+    private final int step;
+    private final JmmNode bound;
+    private final JmmNode increment;
+    private final OptionalInt start;
+
+    private CountedLoop(JmmNode loop, String counter, int step, JmmNode bound, JmmNode increment,
+                        OptionalInt start) {
+        this.loop = loop;
+        this.counter = counter;
+        this.step = step;
+        this.bound = bound;
+        this.increment = increment;
+        this.start = start;
+    }
+
+    /**
+     * @param method the method that contains the loop
+     * @return the description of the loop, if it is a counted loop
+     */
+    public static Optional<CountedLoop> match(JmmNode loop, JmmNode method) {
+        var slots = new LocalSlots(method);
+
+        var condition = loop.getChild(0);
+        if (!condition.getKind().equals("BinaryOp") || !condition.get("op").equals("<")
+                || !condition.getChild(0).getKind().equals("Identifier")) {
+            return Optional.empty();
+        }
+
+        var counter = condition.getChild(0).get("value");
+        if (!slots.contains(counter)) {
+            return Optional.empty();
+        }
+
+        // The increment is the last statement of the body, and the only assignment to the counter
+        var body = loop.getChild(1);
+        var increment = body.getKind().equals("BlockStmt") && body.getNumChildren() > 0
+                ? body.getChild(body.getNumChildren() - 1)
+                : body;
+        var step = getStep(increment, counter);
+        if (step.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long counterAssignments = loop.getDescendants("AssignStmt").stream()
+                .filter(assign -> assign.get("var").equals(counter))
+                .count();
+        if (counterAssignments != 1) {
+            return Optional.empty();
+        }
+
+        var bound = condition.getChild(1);
+        if (!isInvariantBound(bound, loop, method, slots)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new CountedLoop(loop, counter, step.getAsInt(), bound, increment,
+                getStart(loop, counter)));
+    }
+
+    /**
+     * @return the step of {@code counter = counter + step} or {@code counter = step + counter}
+     */
+    private static OptionalInt getStep(JmmNode stmt, String counter) {
+        if (!stmt.getKind().equals("AssignStmt") || !stmt.get("var").equals(counter)) {
+            return OptionalInt.empty();
+        }
+
+        var value = stmt.getChild(0);
+        if (!value.getKind().equals("BinaryOp") || !value.get("op").equals("+")) {
+            return OptionalInt.empty();
+        }
+
+        for (int i = 0; i < 2; i++) {
+            var operand = value.getChild(i);
+            var other = value.getChild(1 - i);
+            if (other.getKind().equals("Identifier") && other.get("value").equals(counter)) {
+                var step = getInteger(operand);
+                if (step.isPresent() && step.getAsInt() > 0) {
+                    return step;
+                }
+            }
+        }
+
+        return OptionalInt.empty();
+    }
+
+    private static boolean isInvariantBound(JmmNode bound, JmmNode loop, JmmNode method, LocalSlots slots) {
+        switch (bound.getKind()) {
+            case "Integer":
+                return getInteger(bound).isPresent();
+            case "LengthOp": {
+                var array = bound.getChild(0);
+                return array.getKind().equals("Identifier") && slots.contains(array.get("value"))
+                        && !isAssigned(array.get("value"), loop);
+            }
+            case "Identifier": {
+                var name = bound.get("value");
+                if (!slots.contains(name) || slots.isParam(slots.getSlot(name)) || isAssigned(name, loop)) {
+                    return false;
+                }
+
+                var definitions = method.getDescendants("AssignStmt").stream()
+                        .filter(assign -> assign.get("var").equals(name))
+                        .toList();
+                return !definitions.isEmpty() && definitions.stream().allMatch(assign -> {
+                    var value = assign.getChild(0);
+                    return value.getKind().equals("LengthOp")
+                            || getInteger(value).isPresent() && getInteger(value).getAsInt() >= 0;
+                });
+            }
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAssigned(String name, JmmNode loop) {
+        return loop.getDescendants("AssignStmt").stream().anyMatch(assign -> assign.get("var").equals(name));
+    }
+
+    /**
+     * @return the literal the counter is assigned right before the loop, if any
+     */
+    private static OptionalInt getStart(JmmNode loop, String counter) {
+        // In an if, the statement before the loop is the condition or the other branch
+        var parentKind = loop.getParent().getKind();
+        if (!parentKind.equals("BlockStmt") && !parentKind.equals("MethodDecl")) {
+            return OptionalInt.empty();
+        }
+
+        int index = loop.getIndexOfSelf();
+        if (index <= 0) {
+            return OptionalInt.empty();
+        }
+
+        var previous = loop.getParent().getChild(index - 1);
+        if (!previous.getKind().equals("AssignStmt") || !previous.get("var").equals(counter)) {
+            return OptionalInt.empty();
+        }
+        return getInteger(previous.getChild(0));
+    }
+
+    private static OptionalInt getInteger(JmmNode node) {
+        if (!node.getKind().equals("Integer")) {
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseInt(node.get("value")));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * @return how many times the body runs, when both the start and the bound are literals
+     */
+    public OptionalLong getTripCount() {
+        var end = getInteger(bound);
+        if (start.isEmpty() || end.isEmpty()) {
+            return OptionalLong.empty();
+        }
+
+        long distance = (long) end.getAsInt() - start.getAsInt();
+        if (distance <= 0) {
+            return OptionalLong.of(0);
+        }
+        long trips = (distance + step - 1) / step;
+
+        // The last increment would wrap around, and the loop would not stop at the bound
+        if (start.getAsInt() + trips * step > Integer.MAX_VALUE) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(trips);
+    }
+
+    public JmmNode getLoop() {
+        return loop;
+    }
+
+    public String getCounter() {
+        return counter;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public JmmNode getBound() {
+        return bound;
+    }
+
+    /**
+     * @return the statement {@code counter = counter + step}
+     */
+    public JmmNode getIncrement() {
+        return increment;
+    }
+
+    public OptionalInt getStart() {
+        return start;
+    }
+}
@@ -0,0 +1,66 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg.CfgNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definite assignment: which locals have been assigned on every path that reaches a point of the method.
+ * <p>
+ * Bits are indexed by {@link LocalSlots} slot. Parameters are assigned at the entry.
+ */
+public class DefiniteAssignment extends ForwardDataflow {
+
+    private final LocalSlots slots;
+
+    public DefiniteAssignment(StatementCfg cfg, LocalSlots slots) {
+        super(cfg, slots.size(), true);
+        this.slots = slots;
+        solve();
+    }
+
+    @Override
+    protected BitVector entryValue() {
+        var value = new BitVector(slots.size());
+        for (int slot = 0; slot < slots.getNumParams(); slot++) {
+            value.set(slot);
+        }
+        return value;
+    }
+
+    @Override
+    protected void initTransfer(CfgNode node, BitVector gen, BitVector kill) {
+        node.getAssignedVar()
+                .map(slots::getSlot)
+                .filter(slot -> slot >= 0)
+                .ifPresent(gen::set);
+    }
+
+    /**
+     * @return true if the given variable is assigned on every path that reaches the given node
+     */
+    public boolean isAssignedBefore(CfgNode node, String var) {
+        int slot = slots.getSlot(var);
+        return slot >= 0 && getIn(node).get(slot);
+    }
+
+    /**
+     * @return the uses of locals that may happen before the local is assigned, in source order
+     */
+    public List<JmmNode> getUsesBeforeAssignment() {
+        var uses = new ArrayList<JmmNode>();
+        for (var node : cfg.getNodes()) {
+            var in = getIn(node);
+            node.getEvaluated().ifPresent(evaluated -> evaluated.getDescendantsAndSelfStream()
+                    .filter(expr -> expr.getKind().equals("Identifier"))
+                    .filter(identifier -> {
+                        int slot = slots.getSlot(identifier.get("value"));
+                        return slot >= 0 && !in.get(slot);
+                    })
+                    .forEach(uses::add));
+        }
+        return uses;
+    }
+}
@@ -0,0 +1,139 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg.CfgNode;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Iterative solver for forward gen/kill dataflow problems over a {@link StatementCfg}.
+ * <p>
+ * Each node has a gen and a kill set, and {@code out = gen | (in & ~kill)}. For "may" problems the meet is the union
+ * of the predecessors' outs; for "must" problems it is the intersection, and every node starts at the top (all ones)
+ * so that loops do not pessimize the result.
+ */
+public abstract class ForwardDataflow {
+
+    protected final StatementCfg cfg;
+
+    private final int size;
+    private final boolean must;
+    private final BitVector[] gen;
+    private final BitVector[] kill;
+    private final BitVector[] in;
+    private final BitVector[] out;
+
+    protected ForwardDataflow(StatementCfg cfg, int size, boolean must) {
+        this.cfg = cfg;
+        this.size = size;
+        this.must = must;
+
+        int numNodes = cfg.getNodes().size();
+        this.gen = new BitVector[numNodes];
+        this.kill = new BitVector[numNodes];
+        this.in = new BitVector[numNodes];
+        this.out = new BitVector[numNodes];
+    }
+
+    /**
+     * @return the value that holds when the method starts
+     */
+    protected abstract BitVector entryValue();
+
+    /**
+     * Fills the gen and kill sets of the given node.
+     */
+    protected abstract void initTransfer(CfgNode node, BitVector gen, BitVector kill);
+
+    protected void solve() {
+        for (var node : cfg.getNodes()) {
+            int id = node.getId();
+            gen[id] = new BitVector(size);
+            kill[id] = new BitVector(size);
+            initTransfer(node, gen[id], kill[id]);
+            in[id] = must ? BitVector.full(size) : new BitVector(size);
+            out[id] = must ? BitVector.full(size) : new BitVector(size);
+        }
+
+        var entryId = cfg.getEntry().getId();
+        in[entryId] = entryValue();
+        out[entryId] = apply(entryId, in[entryId]);
+
+        // Worklist seeded in reverse postorder: most nodes are final after their first visit
+        List<CfgNode> order = cfg.reversePostorder();
+        var worklist = new ArrayDeque<CfgNode>(order);
+        var queued = new boolean[cfg.getNodes().size()];
+        order.forEach(node -> queued[node.getId()] = true);
+
+        var newIn = new BitVector(size);
+        while (!worklist.isEmpty()) {
+            var node = worklist.poll();
+            int id = node.getId();
+            queued[id] = false;
+
+            if (id == entryId) {
+                continue;
+            }
+
+            meet(node, newIn);
+            in[id].copyFrom(newIn);
+
+            var newOut = apply(id, newIn);
+            if (newOut.equals(out[id])) {
+                continue;
+            }
+            out[id] = newOut;
+
+            for (var successor : node.getSuccessors()) {
+                if (!queued[successor.getId()]) {
+                    queued[successor.getId()] = true;
+                    worklist.add(successor);
+                }
+            }
+        }
+    }
+
+    private void meet(CfgNode node, BitVector result) {
+        var predecessors = node.getPredecessors();
+        if (predecessors.isEmpty()) {
+            // Unreachable code
+            if (must) {
+                result.setAll();
+            } else {
+                result.clearAll();
+            }
+            return;
+        }
+
+        result.copyFrom(out[predecessors.get(0).getId()]);
+        for (int i = 1; i < predecessors.size(); i++) {
+            var predecessorOut = out[predecessors.get(i).getId()];
+            if (must) {
+                result.and(predecessorOut);
+            } else {
+                result.or(predecessorOut);
+            }
+        }
+    }
+
+    private BitVector apply(int id, BitVector value) {
+        var result = value.copy();
+        result.andNot(kill[id]);
+        result.or(gen[id]);
+        return result;
+    }
+
+    /**
+     * @return the facts that hold right before the given node executes
+     */
+    public BitVector getIn(CfgNode node) {
+        return in[node.getId()];
+    }
+
+    /**
+     * @return the facts that hold right after the given node executes
+     */
+    public BitVector getOut(CfgNode node) {
+        return out[node.getId()];
+    }
+}
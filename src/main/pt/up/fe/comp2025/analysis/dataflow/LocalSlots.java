@@ -0,0 +1,67 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.*;
+
+/**
+ * Dense numbering of the parameters and local variables of a method, used as bit indexes by the dataflow analyses.
+ * <p>
+ * Parameters come first, in declaration order, followed by the local variables. Names that are not parameters nor
+ * locals (fields, imported classes) have no slot.
+ */
+public class LocalSlots {
+
+    private final List<String> names;
+    private final Map<String, Integer> slots;
+    private final int numParams;
+
+    public LocalSlots(JmmNode methodDecl) {
+        this.names = new ArrayList<>();
+        this.slots = new HashMap<>();
+
+        methodDecl.getDescendants("Param").forEach(param -> add(param.get("paramName")));
+        this.numParams = names.size();
+
+        methodDecl.getChildren("VarDecl").forEach(local -> add(local.get("varName")));
+    }
+
+    private void add(String name) {
+        // A local that repeats a name is a semantic error, the first declaration wins
+        if (slots.containsKey(name)) {
+            return;
+        }
+        slots.put(name, names.size());
+        names.add(name);
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int size() {
+        return names.size();
+    }
+
+    public int getNumParams() {
+        return numParams;
+    }
+
+    public boolean isParam(int slot) {
+        return slot < numParams;
+    }
+
+    public boolean contains(String name) {
+        return slots.containsKey(name);
+    }
+
+    /**
+     * @return the slot of the given variable, or -1 if it is not a parameter nor a local
+     */
+    public int getSlot(String name) {
+        return slots.getOrDefault(name, -1);
+    }
+
+    public String getName(int slot) {
+        return names.get(slot);
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * The dataflow facts of a single method: its CFG, its local slots, definite assignment and reaching definitions.
+ * <p>
+ * The facts describe the method as it was when this object was created; rewrites of the method body require a new
+ * instance.
+ */
+public class MethodDataflow {
+
+    private final JmmNode methodDecl;
+    private final LocalSlots slots;
+    private final StatementCfg cfg;
+    private final DefiniteAssignment definiteAssignment;
+    private final ReachingDefinitions reachingDefinitions;
+
+    public MethodDataflow(JmmNode methodDecl) {
+        this.methodDecl = methodDecl;
+        this.slots = new LocalSlots(methodDecl);
+        this.cfg = new StatementCfg(methodDecl);
+        this.definiteAssignment = new DefiniteAssignment(cfg, slots);
+        this.reachingDefinitions = new ReachingDefinitions(cfg, slots);
+    }
+
+    public JmmNode getMethodDecl() {
+        return methodDecl;
+    }
+
+    public LocalSlots getSlots() {
+        return slots;
+    }
+
+    public StatementCfg getCfg() {
+        return cfg;
+    }
+
+    public DefiniteAssignment getDefiniteAssignment() {
+        return definiteAssignment;
+    }
+
+    public ReachingDefinitions getReachingDefinitions() {
+        return reachingDefinitions;
+    }
+}
@@ -0,0 +1,131 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg.CfgNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reaching definitions: which assignments of a local may have produced its value at a point of the method.
+ * <p>
+ * There is one definition per {@code AssignStmt} to a local, plus one pseudo-definition per local at the entry,
+ * which stands for the parameter value (or, for locals, for "not assigned yet"). Bits are indexed by definition:
+ * the entry pseudo-definitions take the first {@link LocalSlots#size()} indexes, one per slot.
+ */
+public class ReachingDefinitions extends ForwardDataflow {
+
+    /**
+     * A definition of a local.
+     *
+     * @param index the bit of this definition
+     * @param slot  the slot of the local
+     * @param node  the CFG node of the assignment, or the entry node for the pseudo-definitions
+     */
+    public record Definition(int index, int slot, CfgNode node) {
+
+        public boolean isEntry() {
+            return node.getStatement() == null;
+        }
+
+        /**
+         * @return the assignment statement, or null for entry pseudo-definitions
+         */
+        public JmmNode getAssignment() {
+            return node.getStatement();
+        }
+    }
+
+    private final LocalSlots slots;
+    private final List<Definition> definitions;
+    private final Definition[] definitionsByNode;
+    private final BitVector[] definitionsBySlot;
+
+    public ReachingDefinitions(StatementCfg cfg, LocalSlots slots) {
+        super(cfg, countDefinitions(cfg, slots), false);
+        this.slots = slots;
+        this.definitions = new ArrayList<>();
+        this.definitionsByNode = new Definition[cfg.getNodes().size()];
+
+        for (int slot = 0; slot < slots.size(); slot++) {
+            definitions.add(new Definition(slot, slot, cfg.getEntry()));
+        }
+        for (var node : cfg.getNodes()) {
+            int slot = getDefinedSlot(node, slots);
+            if (slot >= 0) {
+                var definition = new Definition(definitions.size(), slot, node);
+                definitions.add(definition);
+                definitionsByNode[node.getId()] = definition;
+            }
+        }
+
+        this.definitionsBySlot = new BitVector[slots.size()];
+        for (int slot = 0; slot < slots.size(); slot++) {
+            definitionsBySlot[slot] = new BitVector(definitions.size());
+        }
+        for (var definition : definitions) {
+            definitionsBySlot[definition.slot()].set(definition.index());
+        }
+
+        solve();
+    }
+
+    private static int getDefinedSlot(CfgNode node, LocalSlots slots) {
+        return node.getAssignedVar().map(slots::getSlot).orElse(-1);
+    }
+
+    private static int countDefinitions(StatementCfg cfg, LocalSlots slots) {
+        int count = slots.size();
+        for (var node : cfg.getNodes()) {
+            if (getDefinedSlot(node, slots) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    protected BitVector entryValue() {
+        var value = new BitVector(definitions.size());
+        for (int slot = 0; slot < slots.size(); slot++) {
+            value.set(slot);
+        }
+        return value;
+    }
+
+    @Override
+    protected void initTransfer(CfgNode node, BitVector gen, BitVector kill) {
+        var definition = definitionsByNode[node.getId()];
+        if (definition == null) {
+            return;
+        }
+
+        kill.or(definitionsBySlot[definition.slot()]);
+        gen.set(definition.index());
+    }
+
+    public List<Definition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * @return the definition made by the given node, if it assigns a local
+     */
+    public Definition getDefinition(CfgNode node) {
+        return definitionsByNode[node.getId()];
+    }
+
+    /**
+     * @return the definitions of the given variable that reach the given node, empty if it is not a local
+     */
+    public List<Definition> getReaching(CfgNode node, String var) {
+        int slot = slots.getSlot(var);
+        if (slot < 0) {
+            return List.of();
+        }
+
+        var reaching = getIn(node).copy();
+        reaching.and(definitionsBySlot[slot]);
+        return reaching.stream().mapToObj(definitions::get).toList();
+    }
+}
@@ -0,0 +1,250 @@
+package pt.up.fe.comp2025.analysis.dataflow;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.*;
+
+/**
+ * Statement-level control-flow graph of a method body.
+ * <p>
+ * There is one node per simple statement ({@code AssignStmt}, {@code ArrayAssignStmt}, {@code ExprStmt},
+ * {@code ReturnStmt}) and one branch node per {@code IfStmt} and {@code WhileStmt}, which stands for the evaluation
+ * of its condition. {@code BlockStmt}s only sequence their children and have no node of their own. Two extra nodes,
+ * the entry and the exit, delimit the method.
+ */
+public class StatementCfg {
+
+    public static final Set<String> STATEMENT_KINDS = Set.of(
+            "BlockStmt", "AssignStmt", "ArrayAssignStmt", "IfStmt", "WhileStmt", "ReturnStmt", "ExprStmt");
+
+    public static class CfgNode {
+
+        private final int id;
+        private final JmmNode statement;
+        private final List<CfgNode> successors;
+        private final List<CfgNode> predecessors;
+
+        private CfgNode(int id, JmmNode statement) {
+            this.id = id;
+            this.statement = statement;
+            this.successors = new ArrayList<>();
+            this.predecessors = new ArrayList<>();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the statement of this node, or null for the entry and exit nodes
+         */
+        public JmmNode getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return true if this node is the condition of an {@code IfStmt} or {@code WhileStmt}
+         */
+        public boolean isBranch() {
+            return statement != null
+                    && (statement.getKind().equals("IfStmt") || statement.getKind().equals("WhileStmt"));
+        }
+
+        /**
+         * @return the part of the AST that is evaluated when this node executes (the condition, for branches)
+         */
+        public Optional<JmmNode> getEvaluated() {
+            if (statement == null) {
+                return Optional.empty();
+            }
+            return Optional.of(isBranch() ? statement.getChild(0) : statement);
+        }
+
+        /**
+         * @return the name of the variable this node assigns, if it is an {@code AssignStmt}
+         */
+        public Optional<String> getAssignedVar() {
+            if (statement == null || !statement.getKind().equals("AssignStmt")) {
+                return Optional.empty();
+            }
+            return statement.getOptional("var");
+        }
+
+        public List<CfgNode> getSuccessors() {
+            return successors;
+        }
+
+        public List<CfgNode> getPredecessors() {
+            return predecessors;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + (statement == null ? (id == 0 ? "entry" : "exit") : statement.getKind());
+        }
+    }
+
+    private final List<CfgNode> nodes;
+    private final Map<JmmNode, CfgNode> nodesByStatement;
+    private final CfgNode entry;
+    private final CfgNode exit;
+
+    public StatementCfg(JmmNode methodDecl) {
+        this.nodes = new ArrayList<>();
+        this.nodesByStatement = new IdentityHashMap<>();
+        this.entry = newNode(null);
+
+        List<CfgNode> fallthrough = List.of(entry);
+        for (var child : methodDecl.getChildren()) {
+            if (isStatement(child)) {
+                fallthrough = link(child, fallthrough);
+            }
+        }
+
+        // The exit is created last so that node ids follow the source order
+        this.exit = newNode(null);
+        connectAll(fallthrough, exit);
+        nodesByStatement.values().stream()
+                .filter(node -> node.getStatement().getKind().equals("ReturnStmt"))
+                .forEach(node -> connect(node, exit));
+    }
+
+    public static boolean isStatement(JmmNode node) {
+        return STATEMENT_KINDS.contains(node.getKind());
+    }
+
+    private CfgNode newNode(JmmNode statement) {
+        var node = new CfgNode(nodes.size(), statement);
+        nodes.add(node);
+        if (statement != null) {
+            nodesByStatement.put(statement, node);
+        }
+        return node;
+    }
+
+    private static void connect(CfgNode from, CfgNode to) {
+        from.successors.add(to);
+        to.predecessors.add(from);
+    }
+
+    private static void connectAll(List<CfgNode> from, CfgNode to) {
+        for (var node : from) {
+            connect(node, to);
+        }
+    }
+
+    /**
+     * Adds the given statement to the graph, after the given nodes.
+     *
+     * @return the nodes from which control falls through to the next statement
+     */
+    private List<CfgNode> link(JmmNode stmt, List<CfgNode> predecessors) {
+        switch (stmt.getKind()) {
+            case "BlockStmt": {
+                var fallthrough = predecessors;
+                for (var child : stmt.getChildren()) {
+                    fallthrough = link(child, fallthrough);
+                }
+                return fallthrough;
+            }
+            case "IfStmt": {
+                var condition = newNode(stmt);
+                connectAll(predecessors, condition);
+
+                var exits = new ArrayList<>(link(stmt.getChild(1), List.of(condition)));
+                if (stmt.getNumChildren() > 2) {
+                    exits.addAll(link(stmt.getChild(2), List.of(condition)));
+                } else {
+                    exits.add(condition);
+                }
+                return exits;
+            }
+            case "WhileStmt": {
+                var condition = newNode(stmt);
+                connectAll(predecessors, condition);
+
+                var bodyExits = link(stmt.getChild(1), List.of(condition));
+                connectAll(bodyExits, condition);
+                return List.of(condition);
+            }
+            case "ReturnStmt": {
+                // Connected to the exit once it exists
+                var node = newNode(stmt);
+                connectAll(predecessors, node);
+                return List.of();
+            }
+            default: {
+                var node = newNode(stmt);
+                connectAll(predecessors, node);
+                return List.of(node);
+            }
+        }
+    }
+
+    public List<CfgNode> getNodes() {
+        return nodes;
+    }
+
+    public CfgNode getEntry() {
+        return entry;
+    }
+
+    public CfgNode getExit() {
+        return exit;
+    }
+
+    /**
+     * @return the node of the given statement, if it has one
+     */
+    public Optional<CfgNode> getNode(JmmNode statement) {
+        return Optional.ofNullable(nodesByStatement.get(statement));
+    }
+
+    /**
+     * @return the node where the given expression is evaluated, if the expression belongs to this method
+     */
+    public Optional<CfgNode> getEnclosingNode(JmmNode expr) {
+        var current = expr;
+        while (current != null) {
+            var node = nodesByStatement.get(current);
+            if (node != null) {
+                return Optional.of(node);
+            }
+            current = current.getParent();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the nodes in reverse postorder from the entry, which makes forward analyses converge fast
+     */
+    public List<CfgNode> reversePostorder() {
+        var visited = new boolean[nodes.size()];
+        var postorder = new ArrayList<CfgNode>(nodes.size());
+
+        // Iterative DFS, methods can be long enough for recursion to be a problem
+        var stack = new ArrayDeque<Iterator<CfgNode>>();
+        var stackNodes = new ArrayDeque<CfgNode>();
+        visited[entry.id] = true;
+        stack.push(entry.successors.iterator());
+        stackNodes.push(entry);
+
+        while (!stack.isEmpty()) {
+            var successors = stack.peek();
+            if (successors.hasNext()) {
+                var next = successors.next();
+                if (!visited[next.id]) {
+                    visited[next.id] = true;
+                    stack.push(next.successors.iterator());
+                    stackNodes.push(next);
+                }
+            } else {
+                stack.pop();
+                postorder.add(stackNodes.pop());
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+}
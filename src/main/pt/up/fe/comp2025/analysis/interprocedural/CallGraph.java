@@ -0,0 +1,208 @@
+package pt.up.fe.comp2025.analysis.interprocedural;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.*;
+
+/**
+ * Call graph of the methods declared in the class.
+ * <p>
+ * A {@code MethodCall} is resolved to a method of the class when its receiver is {@code this}, a new instance of the
+ * class, or a variable whose type is the class. Every other call (imported classes, inherited methods) is
+ * unresolved, and is recorded as such in the caller. An unresolved call with the name of a method of the class may
+ * still invoke it (e.g. {@code this.self().foo()}), so it is also an edge to that method.
+ */
+public class CallGraph {
+
+    private final Map<String, JmmNode> methods;
+    private final Map<String, Set<String>> callees;
+    private final Map<String, Set<String>> callers;
+    private final Set<String> withUnresolvedCalls;
+
+    public CallGraph(JmmNode root, SymbolTable table) {
+        this.methods = new LinkedHashMap<>();
+        this.callees = new LinkedHashMap<>();
+        this.callers = new LinkedHashMap<>();
+        this.withUnresolvedCalls = new HashSet<>();
+
+        root.getDescendants("MethodDecl").forEach(method -> methods.putIfAbsent(method.get("methodName"), method));
+        for (var name : methods.keySet()) {
+            callees.put(name, new LinkedHashSet<>());
+            callers.put(name, new LinkedHashSet<>());
+        }
+
+        for (var entry : methods.entrySet()) {
+            var caller = entry.getKey();
+            var types = new TypeUtils(table);
+            types.setCurrentMethod(caller);
+
+            for (var call : entry.getValue().getDescendants("MethodCall")) {
+                if (resolve(call, table, types).filter(methods::containsKey).isEmpty()) {
+                    withUnresolvedCalls.add(caller);
+                }
+                getPossibleCallee(call, table, types).filter(methods::containsKey).ifPresent(callee -> {
+                    callees.get(caller).add(callee);
+                    callers.get(callee).add(caller);
+                });
+            }
+        }
+    }
+
+    /**
+     * @param types type utilities set to the method that contains the call
+     * @return the name of the method of this class the call invokes, if it can be resolved
+     */
+    public static Optional<String> resolve(JmmNode call, SymbolTable table, TypeUtils types) {
+        var receiver = call.getChild(0);
+        while (receiver.getKind().equals("Parenthesis")) {
+            receiver = receiver.getChild(0);
+        }
+
+        var methodName = call.get("value");
+        var declared = table.getMethods().contains(methodName);
+
+        switch (receiver.getKind()) {
+            case "This":
+                return declared ? Optional.of(methodName) : Optional.empty();
+            case "GeneralDeclaration":
+                return declared && receiver.get("name").equals(table.getClassName())
+                        ? Optional.of(methodName) : Optional.empty();
+            case "Identifier":
+                if (!isVariable(receiver.get("value"), table, types)) {
+                    // Static call on a class, e.g. io.println(...)
+                    return Optional.empty();
+                }
+                var type = types.getExprType(receiver);
+                return declared && !type.isArray() && type.getName().equals(table.getClassName())
+                        ? Optional.of(methodName) : Optional.empty();
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * @param types type utilities set to the method that contains the call
+     * @return the method of this class the call may invoke: the one it resolves to or, when its receiver cannot be
+     * resolved, the method of the class with the same name
+     */
+    public static Optional<String> getPossibleCallee(JmmNode call, SymbolTable table, TypeUtils types) {
+        var callee = resolve(call, table, types).or(() -> Optional.of(call.get("value")));
+        return callee.filter(name -> table.getMethods().contains(name));
+    }
+
+    private static boolean isVariable(String name, SymbolTable table, TypeUtils types) {
+        var method = types.getCurrentMethod();
+        var params = Objects.requireNonNullElse(table.getParameters(method), List.<Symbol>of());
+        var locals = Objects.requireNonNullElse(table.getLocalVariables(method), List.<Symbol>of());
+        return params.stream().anyMatch(param -> param.getName().equals(name))
+                || locals.stream().anyMatch(local -> local.getName().equals(name))
+                || table.getFields().stream().anyMatch(field -> field.getName().equals(name));
+    }
+
+    /**
+     * @return the names of the methods of the class, in declaration order
+     */
+    public Set<String> getMethods() {
+        return methods.keySet();
+    }
+
+    public JmmNode getMethodDecl(String method) {
+        return methods.get(method);
+    }
+
+    public Set<String> getCallees(String method) {
+        return callees.getOrDefault(method, Set.of());
+    }
+
+    public Set<String> getCallers(String method) {
+        return callers.getOrDefault(method, Set.of());
+    }
+
+    /**
+     * @return true if the method calls code outside of the class (imported or inherited methods)
+     */
+    public boolean hasUnresolvedCalls(String method) {
+        return withUnresolvedCalls.contains(method);
+    }
+
+    /**
+     * @return the methods that can be called, directly or not, from the given methods (including themselves)
+     */
+    public Set<String> getReachable(Collection<String> roots) {
+        var reachable = new LinkedHashSet<String>();
+        var worklist = new ArrayDeque<String>();
+        roots.stream().filter(methods::containsKey).forEach(worklist::add);
+
+        while (!worklist.isEmpty()) {
+            var method = worklist.poll();
+            if (reachable.add(method)) {
+                worklist.addAll(getCallees(method));
+            }
+        }
+
+        return reachable;
+    }
+
+    public boolean isRecursive(String method) {
+        return getStronglyConnectedComponent(method).size() > 1 || getCallees(method).contains(method);
+    }
+
+    private List<String> getStronglyConnectedComponent(String method) {
+        return getStronglyConnectedComponents().stream()
+                .filter(component -> component.contains(method))
+                .findFirst()
+                .orElse(List.of(method));
+    }
+
+    /**
+     * Tarjan's algorithm.
+     *
+     * @return the strongly connected components of the graph, callees before callers (bottom-up order)
+     */
+    public List<List<String>> getStronglyConnectedComponents() {
+        var components = new ArrayList<List<String>>();
+        var index = new HashMap<String, Integer>();
+        var lowLink = new HashMap<String, Integer>();
+        var onStack = new HashSet<String>();
+        var stack = new ArrayDeque<String>();
+
+        for (var method : methods.keySet()) {
+            if (!index.containsKey(method)) {
+                strongConnect(method, index, lowLink, onStack, stack, components);
+            }
+        }
+
+        return components;
+    }
+
+    private void strongConnect(String method, Map<String, Integer> index, Map<String, Integer> lowLink,
+                               Set<String> onStack, Deque<String> stack, List<List<String>> components) {
+        index.put(method, index.size());
+        lowLink.put(method, index.get(method));
+        stack.push(method);
+        onStack.add(method);
+
+        for (var callee : getCallees(method)) {
+            if (!index.containsKey(callee)) {
+                strongConnect(callee, index, lowLink, onStack, stack, components);
+                lowLink.put(method, Math.min(lowLink.get(method), lowLink.get(callee)));
+            } else if (onStack.contains(callee)) {
+                lowLink.put(method, Math.min(lowLink.get(method), index.get(callee)));
+            }
+        }
+
+        if (lowLink.get(method).equals(index.get(method))) {
+            var component = new ArrayList<String>();
+            String member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(member);
+            } while (!member.equals(method));
+            components.add(component);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2025.analysis.interprocedural;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Side effects of a method, including the effects of every method it (transitively) calls.
+ */
+public class MethodSummary {
+
+    private final Set<String> fieldsRead;
+    private final Set<String> fieldsWritten;
+    private final boolean allocatesArrays;
+    private final boolean escapesArrays;
+    private final boolean writesArrays;
+    private final boolean allocatesObjects;
+    private final boolean callsExternal;
+
+    public MethodSummary(Set<String> fieldsRead, Set<String> fieldsWritten, boolean allocatesArrays,
+                         boolean escapesArrays, boolean writesArrays, boolean allocatesObjects,
+                         boolean callsExternal) {
+        this.fieldsRead = Collections.unmodifiableSet(new TreeSet<>(fieldsRead));
+        this.fieldsWritten = Collections.unmodifiableSet(new TreeSet<>(fieldsWritten));
+        this.allocatesArrays = allocatesArrays;
+        this.escapesArrays = escapesArrays;
+        this.writesArrays = writesArrays;
+        this.allocatesObjects = allocatesObjects;
+        this.callsExternal = callsExternal;
+    }
+
+    /**
+     * @return a summary with the effects of both summaries
+     */
+    public MethodSummary union(MethodSummary other) {
+        var read = new TreeSet<>(fieldsRead);
+        read.addAll(other.fieldsRead);
+        var written = new TreeSet<>(fieldsWritten);
+        written.addAll(other.fieldsWritten);
+
+        return new MethodSummary(read, written,
+                allocatesArrays || other.allocatesArrays,
+                escapesArrays || other.escapesArrays,
+                writesArrays || other.writesArrays,
+                allocatesObjects || other.allocatesObjects,
+                callsExternal || other.callsExternal);
+    }
+
+    public Set<String> getFieldsRead() {
+        return fieldsRead;
+    }
+
+    public Set<String> getFieldsWritten() {
+        return fieldsWritten;
+    }
+
+    /**
+     * @return true if the method creates arrays
+     */
+    public boolean allocatesArrays() {
+        return allocatesArrays;
+    }
+
+    /**
+     * @return true if an array leaves the method through a field, a call argument or the return value
+     */
+    public boolean escapesArrays() {
+        return escapesArrays;
+    }
+
+    /**
+     * @return true if the method may store into an array it did not create (a parameter, a field, or an alias)
+     */
+    public boolean writesArrays() {
+        return writesArrays;
+    }
+
+    /**
+     * @return true if the method creates objects, which runs their constructors
+     */
+    public boolean allocatesObjects() {
+        return allocatesObjects;
+    }
+
+    /**
+     * @return true if the method calls code whose effects are unknown (imported classes, inherited methods)
+     */
+    public boolean callsExternal() {
+        return callsExternal;
+    }
+
+    /**
+     * @return true if calling the method cannot change any state visible to the caller
+     */
+    public boolean isSideEffectFree() {
+        return fieldsWritten.isEmpty() && !writesArrays && !allocatesObjects && !callsExternal;
+    }
+
+    /**
+     * @return true if the result of the method only depends on its arguments, and calling it has no side effects
+     */
+    public boolean isPure() {
+        return isSideEffectFree() && fieldsRead.isEmpty();
+    }
+
+    /**
+     * @return true if the method does not write the given field
+     */
+    public boolean preservesField(String field) {
+        return !callsExternal && !fieldsWritten.contains(field);
+    }
+
+    @Override
+    public String toString() {
+        return "MethodSummary{" +
+                "read=" + fieldsRead +
+                ", written=" + fieldsWritten +
+                ", allocatesArrays=" + allocatesArrays +
+                ", escapesArrays=" + escapesArrays +
+                ", writesArrays=" + writesArrays +
+                ", allocatesObjects=" + allocatesObjects +
+                ", callsExternal=" + callsExternal +
+                '}';
+    }
+}
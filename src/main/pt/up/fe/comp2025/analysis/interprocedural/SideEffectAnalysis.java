@@ -0,0 +1,215 @@
+package pt.up.fe.comp2025.analysis.interprocedural;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.dataflow.LocalSlots;
+import pt.up.fe.comp2025.ast.NodeHasher;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Computes a {@link MethodSummary} for every method of the class.
+ * <p>
+ * The effects of each method body on its own are computed first, and cached by the structural hash of the method
+ * (together with the class-level declarations it depends on), so a method that did not change is not analysed
+ * again. Only the methods of the last class analysed stay in the cache. They are then combined bottom-up over the {@link CallGraph}: a method gets the effects of everything it
+ * calls, and all methods of a recursive cycle share the effects of the whole cycle.
+ */
+public class SideEffectAnalysis {
+
+    public static final String ATTRIBUTE = "methodSummaries";
+
+    private record CacheKey(long methodHash, String classDeclarations) {
+    }
+
+    private final Map<CacheKey, MethodSummary> localSummaries;
+
+    public SideEffectAnalysis() {
+        this.localSummaries = new HashMap<>();
+    }
+
+    /**
+     * Computes the summaries and stores them in the symbol table, under {@link #ATTRIBUTE}.
+     *
+     * @return the summary of each method, by name
+     */
+    public Map<String, MethodSummary> analyze(JmmNode root, SymbolTable table) {
+        return analyze(root, table, new CallGraph(root, table));
+    }
+
+    public Map<String, MethodSummary> analyze(JmmNode root, SymbolTable table, CallGraph callGraph) {
+        var classDeclarations = getClassDeclarations(table);
+
+        var local = new HashMap<String, MethodSummary>();
+        var keys = new HashSet<CacheKey>();
+        for (var method : callGraph.getMethods()) {
+            var methodDecl = callGraph.getMethodDecl(method);
+            var key = new CacheKey(NodeHasher.hash(methodDecl), classDeclarations);
+            local.put(method, localSummaries.computeIfAbsent(key, k -> summarize(methodDecl, method, table)));
+            keys.add(key);
+        }
+        // Methods that changed or were removed are dropped, like in the cache of the generated code
+        localSummaries.keySet().retainAll(keys);
+
+        var summaries = new LinkedHashMap<String, MethodSummary>();
+        for (var component : callGraph.getStronglyConnectedComponents()) {
+            // Callees outside the component come earlier in bottom-up order, so they are already summarized
+            var summary = component.stream().map(local::get).reduce(MethodSummary::union).orElseThrow();
+            for (var member : component) {
+                for (var callee : callGraph.getCallees(member)) {
+                    if (!component.contains(callee)) {
+                        summary = summary.union(summaries.get(callee));
+                    }
+                }
+            }
+
+            for (var member : component) {
+                summaries.put(member, summary);
+            }
+        }
+
+        table.putObject(ATTRIBUTE, summaries);
+        return summaries;
+    }
+
+    /**
+     * @return how many method bodies have their effects cached
+     */
+    public int getCachedMethods() {
+        return localSummaries.size();
+    }
+
+    /**
+     * @return the summaries stored in the symbol table by the last analysis, or an empty map if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, MethodSummary> getSummaries(SymbolTable table) {
+        if (!table.getAttributes().contains(ATTRIBUTE)) {
+            return Map.of();
+        }
+        return (Map<String, MethodSummary>) table.getObject(ATTRIBUTE);
+    }
+
+    private static String getClassDeclarations(SymbolTable table) {
+        var fields = table.getFields().stream()
+                .map(field -> TypeUtils.formatType(field.getType()) + " " + field.getName())
+                .collect(Collectors.joining(","));
+        return table.getClassName() + ":" + table.getSuper() + ":" + fields + ":" + table.getMethods();
+    }
+
+    private MethodSummary summarize(JmmNode methodDecl, String method, SymbolTable table) {
+        var slots = new LocalSlots(methodDecl);
+        var fields = table.getFields().stream().map(field -> field.getName()).collect(Collectors.toSet());
+        var types = new TypeUtils(table);
+        types.setCurrentMethod(method);
+
+        var fieldsRead = new HashSet<String>();
+        var fieldsWritten = new HashSet<String>();
+        boolean allocatesArrays = false;
+        boolean escapesArrays = false;
+        boolean writesArrays = false;
+        boolean allocatesObjects = false;
+        boolean callsExternal = false;
+
+        var escapingLocals = new HashSet<String>();
+
+        for (var node : methodDecl.getDescendants()) {
+            switch (node.getKind()) {
+                case "Identifier": {
+                    var name = node.get("value");
+                    if (!slots.contains(name) && fields.contains(name)) {
+                        fieldsRead.add(name);
+                    }
+                    break;
+                }
+                case "AssignStmt": {
+                    var var = node.get("var");
+                    if (!slots.contains(var) && fields.contains(var)) {
+                        fieldsWritten.add(var);
+                        if (escapes(node.getChild(0), table, types, escapingLocals)) {
+                            escapesArrays = true;
+                        }
+                    }
+                    break;
+                }
+                case "ReturnStmt":
+                    if (escapes(node.getChild(0), table, types, escapingLocals)) {
+                        escapesArrays = true;
+                    }
+                    break;
+                case "IntArrayDeclaration":
+                case "ArrayInitializer":
+                    allocatesArrays = true;
+                    break;
+                case "GeneralDeclaration":
+                    allocatesObjects = true;
+                    break;
+                case "MethodCall": {
+                    if (CallGraph.resolve(node, table, types).isEmpty()) {
+                        callsExternal = true;
+                    }
+                    for (int i = 1; i < node.getNumChildren(); i++) {
+                        if (escapes(node.getChild(i), table, types, escapingLocals)) {
+                            escapesArrays = true;
+                        }
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+
+        // Stores into arrays created by this method, that never leave it, are not visible to callers
+        for (var store : methodDecl.getDescendants("ArrayAssignStmt")) {
+            var var = store.get("var");
+            if (!slots.contains(var)) {
+                if (fields.contains(var)) {
+                    fieldsRead.add(var);
+                }
+                writesArrays = true;
+            } else if (slots.isParam(slots.getSlot(var)) || escapingLocals.contains(var)
+                    || !isFreshArray(methodDecl, var)) {
+                writesArrays = true;
+            }
+        }
+
+        return new MethodSummary(fieldsRead, fieldsWritten, allocatesArrays, escapesArrays, writesArrays,
+                allocatesObjects, callsExternal);
+    }
+
+    /**
+     * @return true if the expression is an array that leaves the method when used in an escaping position
+     */
+    private static boolean escapes(JmmNode expr, SymbolTable table, TypeUtils types, Set<String> escapingLocals) {
+        while (expr.getKind().equals("Parenthesis")) {
+            expr = expr.getChild(0);
+        }
+
+        if (expr.getKind().equals("MethodCall")) {
+            // The type of a call is its return type, a call that is not resolved may return an array
+            return CallGraph.resolve(expr, table, types)
+                    .map(callee -> table.getReturnType(callee).isArray())
+                    .orElse(true);
+        }
+        if (!types.getExprType(expr).isArray()) {
+            return false;
+        }
+        if (expr.getKind().equals("Identifier")) {
+            escapingLocals.add(expr.get("value"));
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every assignment to the local creates a new array
+     */
+    private static boolean isFreshArray(JmmNode methodDecl, String var) {
+        return methodDecl.getDescendants("AssignStmt").stream()
+                .filter(assign -> assign.get("var").equals(var))
+                .map(assign -> assign.getChild(0).getKind())
+                .allMatch(kind -> kind.equals("IntArrayDeclaration") || kind.equals("ArrayInitializer"));
+    }
+}
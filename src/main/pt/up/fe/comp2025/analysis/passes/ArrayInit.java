@@ -9,6 +9,7 @@ import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Analyzes array initializations, ensuring type consistency.
@@ -17,6 +18,11 @@ public class ArrayInit extends AnalysisVisitor {
 
     private TypeUtils typeUtils;
 
+    @Override
+    public Set<String> requires() {
+        return Set.of(TYPES, RESOLVED_VARIABLES);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
@@ -9,10 +9,17 @@ import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
+import java.util.Set;
+
 public class InvalidArrayAccess extends AnalysisVisitor {
 
     private TypeUtils typeUtils;
 
+    @Override
+    public Set<String> requires() {
+        return Set.of(TYPES, RESOLVED_VARIABLES);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
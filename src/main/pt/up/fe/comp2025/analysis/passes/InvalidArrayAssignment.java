@@ -11,12 +11,18 @@ import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class InvalidArrayAssignment extends AnalysisVisitor {
 
     private String currentMethod;
     private JmmNode currentMethodNode;
 
+    @Override
+    public Set<String> requires() {
+        return Set.of(TYPES, RESOLVED_VARIABLES);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
@@ -11,12 +11,18 @@ import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class InvalidTypeAssignment extends AnalysisVisitor {
 
     private String currentMethod;
     private TypeUtils typeUtils;
 
+    @Override
+    public Set<String> requires() {
+        return Set.of(TYPES, RESOLVED_VARIABLES);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
@@ -77,6 +83,9 @@ public class InvalidTypeAssignment extends AnalysisVisitor {
     }
 
     private String findAssignedVarName(JmmNode assign, SymbolTable table) {
+        if (assign.hasAttribute("var")) {
+            return assign.get("var");
+        }
         if (assign.hasAttribute("varName")) {
             return assign.get("varName");
         }
@@ -11,12 +11,18 @@ import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.List;
+import java.util.Set;
 
 public class MethodArgumentCheck extends AnalysisVisitor {
 
     private TypeUtils typeUtils;
     private SymbolTable symbolTable;
 
+    @Override
+    public Set<String> requires() {
+        return Set.of(TYPES, RESOLVED_VARIABLES, RESOLVED_METHODS);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.CLASS_DECL, this::visitClassDecl);
@@ -30,6 +36,8 @@ public class MethodArgumentCheck extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+        // Set here as well, the pass may be applied to a single method
+        this.symbolTable = table;
         this.typeUtils = new TypeUtils(table);
         typeUtils.setCurrentMethod(method.get("methodName"));
         return null;
@@ -0,0 +1,55 @@
+package pt.up.fe.comp2025.analysis.passes;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.AnalysisVisitor;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotates every expression of the program with its type, once.
+ * <p>
+ * The types are stored in the shared {@link pt.up.fe.comp2025.ast.ExprTypeTable}, so the checks that run after
+ * this pass (and the OLLIR generation) read them instead of re-walking the expression subtrees. It is the only
+ * pass that stores types, each one resolved in the method the expression is in.
+ */
+public class TypeInference extends AnalysisVisitor {
+
+    private static final List<String> EXPRESSION_KINDS = List.of(
+            "Parenthesis", "ArrayAccess", "MethodCall", "LengthOp", "GeneralDeclaration", "IntArrayDeclaration",
+            "UnaryOp", "BinaryOp", "Boolean", "This", "Integer", "Identifier", "ArrayInitializer");
+
+    private TypeUtils typeUtils;
+
+    @Override
+    public Set<String> provides() {
+        return Set.of(TYPES);
+    }
+
+    @Override
+    public void buildVisitor() {
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+        for (var kind : EXPRESSION_KINDS) {
+            addVisit(kind, this::visitExpr);
+        }
+    }
+
+    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+        this.typeUtils = TypeUtils.annotating(table);
+        typeUtils.setCurrentMethod(method.get("methodName"));
+        return null;
+    }
+
+    private Void visitExpr(JmmNode expr, SymbolTable table) {
+        // Expressions outside of a method have no scope to be resolved in
+        if (typeUtils == null) {
+            return null;
+        }
+
+        typeUtils.getExprType(expr);
+        return null;
+    }
+}
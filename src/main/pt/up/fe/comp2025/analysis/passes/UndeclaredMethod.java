@@ -8,6 +8,7 @@ import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Checks if a method call is to a declared method (either in the current class or its superclass).
@@ -17,6 +18,11 @@ public class UndeclaredMethod extends AnalysisVisitor {
     private String currentMethod;
     private String className;
 
+    @Override
+    public Set<String> provides() {
+        return Set.of(RESOLVED_METHODS);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.CLASS_DECL, this::visitClassDecl);
@@ -30,6 +36,8 @@ public class UndeclaredMethod extends AnalysisVisitor {
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+        // Set here as well, the pass may be applied to a single method
+        className = table.getClassName();
         currentMethod = method.get("methodName");
         return null;
     }
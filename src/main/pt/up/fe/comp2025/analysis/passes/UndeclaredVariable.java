@@ -19,6 +19,11 @@ public class UndeclaredVariable extends AnalysisVisitor {
     // ✅ Add a set of known external utility/static classes
     private static final Set<String> EXTERNAL_CLASSES = Set.of("io","ioPlus");
 
+    @Override
+    public Set<String> provides() {
+        return Set.of(RESOLVED_VARIABLES);
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
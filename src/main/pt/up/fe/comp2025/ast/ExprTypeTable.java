@@ -0,0 +1,63 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Side-table that memoizes the {@link Type} of each expression node.
+ * <p>
+ * Entries are keyed by node identity, so a node that is replaced by an optimization simply misses the table
+ * and gets its type recomputed. A node that is changed or moved in place keeps its entry, so the table is cleared
+ * whenever an optimization changes the AST. The table is stored as an attribute of the symbol table so that every
+ * {@link TypeUtils} created for the same program shares it.
+ */
+public class ExprTypeTable {
+
+    public static final String ATTRIBUTE = "exprTypes";
+
+    private final Map<JmmNode, Type> types;
+
+    private ExprTypeTable() {
+        this.types = Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Returns the side-table attached to the given symbol table, creating it on first use.
+     */
+    public static ExprTypeTable of(SymbolTable table) {
+        synchronized (table) {
+            if (table.getAttributes().contains(ATTRIBUTE)) {
+                return (ExprTypeTable) table.getObject(ATTRIBUTE);
+            }
+
+            var exprTypes = new ExprTypeTable();
+            table.putObject(ATTRIBUTE, exprTypes);
+            return exprTypes;
+        }
+    }
+
+    public Type get(JmmNode expr) {
+        return types.get(expr);
+    }
+
+    public void put(JmmNode expr, Type type) {
+        types.put(expr, type);
+    }
+
+    public boolean contains(JmmNode expr) {
+        return types.containsKey(expr);
+    }
+
+    public int size() {
+        return types.size();
+    }
+
+    public void clear() {
+        types.clear();
+    }
+}
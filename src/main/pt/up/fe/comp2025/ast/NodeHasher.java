@@ -0,0 +1,121 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Structural hashing of AST subtrees.
+ * <p>
+ * The hash only depends on the kinds, the attributes and the shape of the subtree. Source positions are ignored, so
+ * moving a method up or down in the file (e.g. because another method above it grew) does not change its hash.
+ */
+public class NodeHasher {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Set<String> POSITION_ATTRIBUTES = Arrays.stream(NodePosition.values())
+            .map(NodePosition::getString)
+            .collect(Collectors.toSet());
+
+    private NodeHasher() {
+    }
+
+    /**
+     * @return the structural hash of the whole subtree rooted at the given node
+     */
+    public static long hash(JmmNode node) {
+        return hash(node, child -> true);
+    }
+
+    /**
+     * @param include which children (at any depth) take part in the hash
+     * @return the structural hash of the subtree rooted at the given node, without the excluded children
+     */
+    public static long hash(JmmNode node, Predicate<JmmNode> include) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, node.getKind());
+
+        // Attributes are hashed in name order, so the hash does not depend on insertion order
+        var attributes = node.getAttributes().stream()
+                .filter(attribute -> !POSITION_ATTRIBUTES.contains(attribute))
+                .sorted()
+                .toList();
+        for (var attribute : attributes) {
+            hash = mix(hash, attribute);
+            hash = mix(hash, String.valueOf(node.getObject(attribute)));
+        }
+
+        for (var child : node.getChildren()) {
+            if (!include.test(child)) {
+                continue;
+            }
+            hash = mix(hash, hash(child, include));
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return true if both subtrees have the same kinds, attributes and shape, ignoring source positions
+     */
+    public static boolean structurallyEqual(JmmNode first, JmmNode second) {
+        if (!first.getKind().equals(second.getKind()) || first.getNumChildren() != second.getNumChildren()) {
+            return false;
+        }
+
+        var attributes = getAttributes(first);
+        if (!attributes.equals(getAttributes(second))) {
+            return false;
+        }
+        for (var attribute : attributes) {
+            if (!String.valueOf(first.getObject(attribute)).equals(String.valueOf(second.getObject(attribute)))) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < first.getNumChildren(); i++) {
+            if (!structurallyEqual(first.getChild(i), second.getChild(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Set<String> getAttributes(JmmNode node) {
+        return node.getAttributes().stream()
+                .filter(attribute -> !POSITION_ATTRIBUTES.contains(attribute))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Combines two hashes, in an order-dependent way.
+     */
+    public static long combine(long hash, long value) {
+        return mix(hash, value);
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Separator, so that ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xff;
+        return hash * FNV_PRIME;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
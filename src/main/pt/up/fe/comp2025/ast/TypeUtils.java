@@ -12,16 +12,36 @@ import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
  */
 public class TypeUtils {
     private final JmmSymbolTable table;
+    private final ExprTypeTable exprTypes;
+    private final boolean annotates;
     private String currentMethod;
 
     public TypeUtils(SymbolTable table) {
+        this(table, false);
+    }
+
+    private TypeUtils(SymbolTable table, boolean annotates) {
         this.table = (JmmSymbolTable) table;
+        this.exprTypes = ExprTypeTable.of(table);
+        this.annotates = annotates;
+    }
+
+    /**
+     * @return type utilities that also store the types they compute in the shared {@link ExprTypeTable}. Only for
+     * {@link pt.up.fe.comp2025.analysis.passes.TypeInference}, which sets the method of each expression it types
+     */
+    public static TypeUtils annotating(SymbolTable table) {
+        return new TypeUtils(table, true);
     }
 
     public void setCurrentMethod(String currentMethod) {
         this.currentMethod = currentMethod;
     }
 
+    public String getCurrentMethod() {
+        return currentMethod;
+    }
+
     public static Type newIntType() {
         return new Type("int", false);
     }
@@ -82,8 +102,25 @@ public class TypeUtils {
 
     /**
      * Gets the {@link Type} of an arbitrary expression.
+     * <p>
+     * Types annotated by {@link pt.up.fe.comp2025.analysis.passes.TypeInference} are read from the shared
+     * {@link ExprTypeTable}. The type of an identifier depends on the current method, so the others are computed
+     * again on every call.
      */
     public Type getExprType(JmmNode expr) {
+        Type cached = exprTypes.get(expr);
+        if (cached != null) {
+            return cached;
+        }
+
+        Type type = computeExprType(expr);
+        if (annotates) {
+            exprTypes.put(expr, type);
+        }
+        return type;
+    }
+
+    private Type computeExprType(JmmNode expr) {
         String kind = expr.getKind();
         switch (kind) {
             case "Integer":
@@ -99,7 +136,12 @@ public class TypeUtils {
             case "This":
                 return new Type(table.getClassName(), false);
             case "NewArray":
+            case "IntArrayDeclaration":
                 return newIntArrayType();
+            case "GeneralDeclaration":
+                return new Type(expr.get("name"), false);
+            case "LengthOp":
+                return newIntType();
             case "ArrayAccess":
                 return resolveArrayAccessType(expr);
             case "MethodCall":
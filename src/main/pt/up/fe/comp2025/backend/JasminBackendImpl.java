@@ -1,25 +1,62 @@
 package pt.up.fe.comp2025.backend;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.optimization.MethodCache;
+import pt.up.fe.comp2025.optimization.Remark;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of the Jasmin backend.
  */
 public class JasminBackendImpl implements JasminBackend {
 
+    // Kept across compilations so unchanged methods are not generated again
+    private final MethodCache<String, JasminGenerator.MethodCode> cache = new MethodCache<>();
+    private List<Remark> remarks = List.of();
+
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
 
         //System.out.println("Converting OLLIR to Jasmin:\n" + ollirResult.getOllirCode());
 
-        var jasminGenerator = new JasminGenerator(ollirResult);
+        var jasminGenerator = new JasminGenerator(ollirResult.getOllirClass(), cache);
         var jasminCode = jasminGenerator.build();
+        remarks = jasminGenerator.getRemarks();
 
         //System.out.println("Generated Jasmin:\n" + jasminCode);
 
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Converts a class built and optimized in memory (see
+     * {@link pt.up.fe.comp2025.optimization.JmmOptimizationImpl#toOllirClass}), without writing OLLIR code.
+     */
+    public JasminResult toJasmin(ClassUnit ollirClass, Map<String, String> config) {
+        var jasminGenerator = new JasminGenerator(ollirClass, cache);
+        var jasminCode = jasminGenerator.build();
+        remarks = jasminGenerator.getRemarks();
+
+        return new JasminResult(ollirClass.getClassName(), jasminCode, jasminGenerator.getReports(), config);
+    }
+
+    /**
+     * @return the Jasmin code of the methods of the last class converted, by method name
+     */
+    public MethodCache<String, JasminGenerator.MethodCode> getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the instruction selection remarks of the last class converted to Jasmin
+     */
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
 }
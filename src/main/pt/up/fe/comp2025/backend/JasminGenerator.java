@@ -11,6 +11,9 @@ import org.specs.comp.ollir.type.ArrayType;
 import org.specs.comp.ollir.type.ClassType;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.optimization.MethodCache;
+import pt.up.fe.comp2025.optimization.OllirPrinter;
+import pt.up.fe.comp2025.optimization.Remark;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
@@ -21,19 +24,29 @@ import java.util.stream.Collectors;
 import static org.specs.comp.ollir.OperationType.*;
 
 /**
- * Generates Jasmin code from an OllirResult.
+ * Generates Jasmin code from the OLLIR class of an OllirResult, or from a ClassUnit built directly from the AST.
  * <p>
- * One JasminGenerator instance per OllirResult.
+ * One JasminGenerator instance per class. The code of the methods can be kept in a {@link MethodCache} across
+ * generators, keyed by their OLLIR code, their registers and the declarations of the class.
  */
 public class JasminGenerator {
 
     private static final String NL = "\n";
     private static final String TAB = "   ";
+    private static final String PASS_NAME = "InstructionSelection";
 
-    private final OllirResult ollirResult;
+    /**
+     * The Jasmin code of a method, and the remarks made while generating it.
+     */
+    public record MethodCode(String code, List<Remark> remarks) {
+    }
+
+    private final ClassUnit ollirClass;
 
     List<Report> reports;
 
+    private final List<Remark> remarks = new ArrayList<>();
+
     String code;
 
     Method currentMethod;
@@ -44,14 +57,28 @@ public class JasminGenerator {
 
     private final FunctionClassMap<TreeNode, String> generators;
 
+    private final MethodCache<String, MethodCode> cache;
+
     public JasminGenerator(OllirResult ollirResult) {
-    this.ollirResult = ollirResult;
+        this(ollirResult.getOllirClass());
+    }
+
+    public JasminGenerator(ClassUnit ollirClass) {
+        this(ollirClass, new MethodCache<>());
+    }
+
+    /**
+     * @param cache the code of the methods of the previous class generated
+     */
+    public JasminGenerator(ClassUnit ollirClass, MethodCache<String, MethodCode> cache) {
+    this.ollirClass = ollirClass;
+    this.cache = cache;
 
     reports = new ArrayList<>();
     code = null;
     currentMethod = null;
 
-    types = new JasminUtils(ollirResult);
+    types = new JasminUtils(ollirClass);
 
     this.generators = new FunctionClassMap<>();
     generators.put(ClassUnit.class, this::generateClassUnit);
@@ -88,11 +115,18 @@ public class JasminGenerator {
         return reports;
     }
 
+    /**
+     * @return the choices of instructions made for the code of the methods
+     */
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
     public String build() {
 
         // This way, build is idempotent
         if (code == null) {
-            code = apply(ollirResult.getOllirClass());
+            code = apply(ollirClass);
         }
 
         return code;
@@ -104,7 +138,7 @@ public class JasminGenerator {
     var code = new StringBuilder();
 
     // generate class name
-    var className = ollirResult.getOllirClass().getClassName();
+    var className = ollirClass.getClassName();
     code.append(".class ").append(className).append(NL).append(NL);
 
     var fullSuperClass = "java/lang/Object";
@@ -112,7 +146,7 @@ public class JasminGenerator {
     code.append(".super ").append(fullSuperClass).append(NL);
 
     // Generate field declarations
-    for (var field : ollirResult.getOllirClass().getFields()) {
+    for (var field : ollirClass.getFields()) {
         var fieldAccessModifier = types.getModifier(field.getFieldAccessModifier());
         var fieldName = field.getFieldName();
         var fieldType = types.getJasminType(field.getFieldType());
@@ -120,7 +154,7 @@ public class JasminGenerator {
         code.append(".field ").append(fieldAccessModifier).append(fieldName).append(" ").append(fieldType).append(NL);
     }
     
-    if (!ollirResult.getOllirClass().getFields().isEmpty()) {
+    if (!ollirClass.getFields().isEmpty()) {
         code.append(NL); // Add blank line after fields
     }
 
@@ -136,7 +170,9 @@ public class JasminGenerator {
     code.append(defaultConstructor);
 
     // generate code for all other methods
-    for (var method : ollirResult.getOllirClass().getMethods()) {
+    var declarations = classDeclarations();
+    cache.begin();
+    for (var method : ollirClass.getMethods()) {
 
         // Ignore constructor, since there is always one constructor
         // that receives no arguments, and has been already added
@@ -145,12 +181,51 @@ public class JasminGenerator {
             continue;
         }
 
-        code.append(apply(method));
+        var methodCode = cache.get(method.getMethodName(), methodKey(method, declarations),
+                () -> generateMethodCode(method));
+        code.append(methodCode.code());
+        remarks.addAll(methodCode.remarks());
     }
+    cache.end();
 
     return code.toString();
 }
 
+    /**
+     * The declarations of the class the code of a method depends on: its name, imports and fields.
+     */
+    private String classDeclarations() {
+        var declarations = new StringBuilder(ollirClass.getClassName()).append(" extends ")
+                .append(ollirClass.getSuperClass()).append(" imports ").append(ollirClass.getImports());
+        for (var field : ollirClass.getFields()) {
+            declarations.append(" field ").append(field.getFieldName())
+                    .append(OllirPrinter.type(field.getFieldType()));
+        }
+        return declarations.append(NL).toString();
+    }
+
+    private String methodKey(Method method, String declarations) {
+        var key = new StringBuilder(declarations).append(OllirPrinter.method(method));
+
+        // The registers given by the allocation
+        method.getVarTable().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> key.append(entry.getKey()).append(" ")
+                        .append(entry.getValue().getVirtualReg()).append(NL));
+        return key.toString();
+    }
+
+    private MethodCode generateMethodCode(Method method) {
+        int firstRemark = remarks.size();
+        var methodCode = apply(method);
+
+        // Added back by the caller, whether the code is generated or reused
+        var methodRemarks = remarks.subList(firstRemark, remarks.size());
+        var result = new MethodCode(methodCode, List.copyOf(methodRemarks));
+        methodRemarks.clear();
+        return result;
+    }
+
     private String generatePutField(PutFieldInstruction putField) {
     var code = new StringBuilder();
     
@@ -163,7 +238,7 @@ public class JasminGenerator {
     // Generate putfield instruction
     var field = (Operand) putField.getField();
     var fieldName = field.getName();
-    var className = ollirResult.getOllirClass().getClassName();
+    var className = ollirClass.getClassName();
     
     code.append("putfield ").append(className).append("/").append(fieldName).append(" I").append(NL);
     
@@ -179,7 +254,7 @@ private String generateGetField(GetFieldInstruction getField) {
     // Generate getfield instruction
     var field = (Operand) getField.getField();
     var fieldName = field.getName();
-    var className = ollirResult.getOllirClass().getClassName();
+    var className = ollirClass.getClassName();
 
     code.append("getfield ").append(className).append("/").append(fieldName).append(" I").append(NL);
     
@@ -400,51 +475,35 @@ private String generateGetField(GetFieldInstruction getField) {
         System.out.println("Expected: AssignInstruction for 'a = 2' that should generate 'ldc 2' + 'istore_1'");
     }
 
-    // Analyze the instruction sequence to determine label placement
-    Map<String, Integer> labelPlacements = analyzeLabelPlacements(instructions);
+    // Labels come from the OLLIR method, so any layout of the blocks (e.g. rotated loops) is placed correctly
+    var placed = Collections.newSetFromMap(new IdentityHashMap<Instruction, Boolean>());
+    placed.addAll(instructions);
 
     // Generate instructions and place labels
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        System.out.println("Processing instruction " + i + ": " + inst.getClass().getSimpleName());
-        
-        // Create a final variable for the lambda expression
-        final int currentIndex = i;
-        
-        // Check if any labels should be placed before this instruction
-        // Process labels in sorted order for deterministic behavior
-        var sortedLabelEntries = labelPlacements.entrySet().stream()
-                .filter(entry -> entry.getValue() == currentIndex && !placedLabels.contains(entry.getKey()))
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toList());
-                
-        for (var entry : sortedLabelEntries) {
-            String label = entry.getKey();
-            System.out.println("  PLACING LABEL: " + label);
-            code.append(TAB).append(label).append(":").append(NL);
-            placedLabels.add(label);
+    for (var inst : instructions) {
+        for (String label : method.getLabels(inst)) {
+            if (placedLabels.add(label)) {
+                code.append(TAB).append(label).append(":").append(NL);
+            }
         }
-        
+
         // Generate instruction code
         var instCode = StringLines.getLines(apply(inst)).stream()
                 .collect(Collectors.joining(NL + TAB, TAB, NL));
         code.append(instCode);
-        System.out.println("  Generated: " + instCode.trim());
     }
-    
-    // Place any remaining labels at the end - also in sorted order
-    final int instructionSize = instructions.size();
-    var remainingLabels = labelPlacements.entrySet().stream()
-            .filter(entry -> entry.getValue() == instructionSize && !placedLabels.contains(entry.getKey()))
-            .sorted(Map.Entry.comparingByKey())
-            .collect(Collectors.toList());
-            
-    for (var entry : remainingLabels) {
-        String label = entry.getKey();
-        System.out.println("  PLACING END LABEL: " + label);
-        code.append(TAB).append(label).append(":").append(NL);
-        placedLabels.add(label);
+
+    // Labels without an instruction after them close the method
+    var remainingLabels = method.getLabels().entrySet().stream()
+            .filter(entry -> entry.getValue() == null || !placed.contains(entry.getValue()))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+
+    for (String label : remainingLabels) {
+        if (placedLabels.add(label)) {
+            code.append(TAB).append(label).append(":").append(NL);
+        }
     }
 
     code.append(".end method\n");
@@ -507,6 +566,9 @@ private int calculateInstructionStackDepth(Instruction instruction) {
         return calculateCallStackDepth(call);
     } else if (instruction instanceof BinaryOpInstruction) {
         return 2;
+    } else if (instruction instanceof OpCondInstruction) {
+        // Both operands of a comparison are loaded before the branch
+        return 2;
     } else if (instruction instanceof ReturnInstruction) {
         var ret = (ReturnInstruction) instruction;
         if (ret.hasReturnValue()) {
@@ -578,382 +640,6 @@ private int calculateLocalsLimit(Method method) {
     return localsLimit;
 }
 
-private Map<String, Integer> analyzeLabelPlacements(List<Instruction> instructions) {
-    Map<String, Integer> placements = new LinkedHashMap<>();
-    
-    // Detect if this is a complex nested if-else pattern (SwitchStat-like)
-    // Look for multiple ifbody labels with consecutive numbering
-    List<String> ifbodyLabels = new ArrayList<>();
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof CondBranchInstruction) {
-            var condBranch = (CondBranchInstruction) inst;
-            var label = condBranch.getLabel();
-            if (label.startsWith("ifbody")) {
-                ifbodyLabels.add(label);
-            }
-        } else if (inst instanceof SingleOpCondInstruction) {
-            var singleOpCond = (SingleOpCondInstruction) inst;
-            var label = singleOpCond.getLabel();
-            if (label.startsWith("ifbody")) {
-                ifbodyLabels.add(label);
-            }
-        }
-    }
-    
-    // If we have 3+ ifbody labels, it's likely the complex nested pattern
-    boolean isComplexNestedPattern = ifbodyLabels.size() >= 3;
-    
-    if (isComplexNestedPattern) {
-        // Use the complex logic for SwitchStat-like patterns
-        return analyzeLabelPlacementsComplex(instructions);
-    } else {
-        // Use the original simple logic for basic if-else statements
-        return analyzeLabelPlacementsOriginal(instructions);
-    }
-}
-
-private Map<String, Integer> analyzeLabelPlacementsComplex(List<Instruction> instructions) {
-    Map<String, Integer> placements = new LinkedHashMap<>();
-    
-    // Complex nested if-else pattern logic (for SwitchStat)
-    int defaultCaseEnd = -1;
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        if (inst instanceof GotoInstruction) {
-            defaultCaseEnd = i;
-            break;
-        }
-    }
-    
-    if (defaultCaseEnd == -1) {
-        return analyzeLabelPlacementsOriginal(instructions);
-    }
-    
-    int currentPosition = defaultCaseEnd + 1;
-    
-    // Collect and sort conditional labels
-    List<String> conditionalLabels = new ArrayList<>();
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof CondBranchInstruction) {
-            var condBranch = (CondBranchInstruction) inst;
-            var label = condBranch.getLabel();
-            if (label.startsWith("ifbody")) {
-                conditionalLabels.add(label);
-            }
-        } else if (inst instanceof SingleOpCondInstruction) {
-            var singleOpCond = (SingleOpCondInstruction) inst;
-            var label = singleOpCond.getLabel();
-            if (label.startsWith("ifbody")) {
-                conditionalLabels.add(label);
-            }
-        }
-    }
-    
-    // Sort labels by their numeric suffix
-    conditionalLabels.sort((a, b) -> {
-        String numA = a.substring(a.lastIndexOf('_') + 1);
-        String numB = b.substring(b.lastIndexOf('_') + 1);
-        try {
-            return Integer.compare(Integer.parseInt(numA), Integer.parseInt(numB));
-        } catch (NumberFormatException e) {
-            return a.compareTo(b);
-        }
-    });
-    
-    // Place ifbody and endif labels in sequence
-    for (String label : conditionalLabels) {
-        placements.put(label, currentPosition);
-        currentPosition++;
-        
-        String suffix = label.substring(label.lastIndexOf('_'));
-        String endifLabel = "endif" + suffix;
-        placements.put(endifLabel, currentPosition);
-        currentPosition++;
-    }
-    
-    return placements;
-}
-
-
-private Map<String, Integer> analyzeLabelPlacementsOriginal(List<Instruction> instructions) {
-    Map<String, Integer> placements = new LinkedHashMap<>();
-    
-    // Check if this contains while loop patterns
-    boolean hasWhileLoop = false;
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        if (inst instanceof CondBranchInstruction) {
-            var condBranch = (CondBranchInstruction) inst;
-            if (condBranch.getLabel().startsWith("whilebody")) {
-                hasWhileLoop = true;
-                break;
-            }
-        }
-    }
-    
-    if (hasWhileLoop) {
-        return analyzeLabelPlacementsWhileLoop(instructions);
-    }
-    
-    // Handle conditional branch labels (ifbody, then, ELSE, else)
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof CondBranchInstruction) {
-            var condBranch = (CondBranchInstruction) inst;
-            var label = condBranch.getLabel();
-            
-            if (label.startsWith("ifbody") || label.startsWith("then") || 
-                label.startsWith("ELSE") || label.startsWith("else")) {
-                // Place after the next goto
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    if (instructions.get(j) instanceof GotoInstruction) {
-                        placements.put(label, j + 1);
-                        break;
-                    }
-                }
-            }
-        } else if (inst instanceof SingleOpCondInstruction) {
-            var singleOpCond = (SingleOpCondInstruction) inst;
-            var label = singleOpCond.getLabel();
-            
-            if (label.startsWith("ifbody") || label.startsWith("then") || 
-                label.startsWith("ELSE") || label.startsWith("else")) {
-                // Place after the next goto
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    if (instructions.get(j) instanceof GotoInstruction) {
-                        placements.put(label, j + 1);
-                        break;
-                    }
-                }
-            }
-        }
-    }
-    
-    // Handle endif labels - this is the key fix
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof GotoInstruction) {
-            var gotoInst = (GotoInstruction) inst;
-            var label = gotoInst.getLabel();
-            
-            if (label.startsWith("endif") || label.startsWith("ENDIF")) {
-                // Extract the suffix/number to find corresponding then/ifbody label
-                String labelSuffix = "";
-                if (label.contains("_")) {
-                    labelSuffix = label.substring(label.lastIndexOf('_'));
-                } else if (label.matches(".*\\d+$")) {
-                    // Extract number at the end (e.g., "endif0" -> "0")
-                    labelSuffix = label.replaceAll("^[a-zA-Z]+", "");
-                }
-                
-                // Find the corresponding then/ifbody label position
-                String correspondingLabel = null;
-                Integer correspondingPos = null;
-                
-                // Try different label patterns
-                String[] possibleLabels = {
-                    "then" + labelSuffix,
-                    "ifbody" + labelSuffix,
-                    "ifbody_" + labelSuffix
-                };
-                
-                for (String possible : possibleLabels) {
-                    if (placements.containsKey(possible)) {
-                        correspondingLabel = possible;
-                        correspondingPos = placements.get(possible);
-                        break;
-                    }
-                }
-                
-                if (correspondingPos != null) {
-                    // Place endif at the convergence point after the corresponding block
-                    // Look for the next major instruction after the corresponding block
-                    boolean foundPlacement = false;
-                    
-                    for (int j = correspondingPos; j < instructions.size(); j++) {
-                        var nextInst = instructions.get(j);
-                        
-                        // Skip the first instruction at the corresponding position
-                        if (j == correspondingPos) {
-                            continue;
-                        }
-                        
-                        // Place endif before the next control structure, assignment, or return
-                        if (nextInst instanceof CondBranchInstruction ||
-                            nextInst instanceof SingleOpCondInstruction ||
-                            nextInst instanceof ReturnInstruction ||
-                            nextInst instanceof AssignInstruction) {
-                            placements.put(label, j);
-                            foundPlacement = true;
-                            break;
-                        }
-                    }
-                    
-                    // If not placed yet, place at the end
-                    if (!foundPlacement) {
-                        placements.put(label, instructions.size());
-                    }
-                } else {
-                    // Fallback: place before return or at end
-                    boolean placed = false;
-                    for (int j = i + 1; j < instructions.size(); j++) {
-                        var nextInst = instructions.get(j);
-                        if (nextInst instanceof ReturnInstruction) {
-                            placements.put(label, j);
-                            placed = true;
-                            break;
-                        }
-                    }
-                    
-                    if (!placed) {
-                        placements.put(label, instructions.size());
-                    }
-                }
-            }
-        }
-    }
-    
-    return placements;
-}
-
-private Map<String, Integer> analyzeLabelPlacementsWhileLoop(List<Instruction> instructions) {
-    Map<String, Integer> placements = new LinkedHashMap<>();
-    
-
-
-    
-    // Handle while loop specific logic
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof CondBranchInstruction) {
-            var condBranch = (CondBranchInstruction) inst;
-            var label = condBranch.getLabel();
-            
-            if (label.startsWith("whilebody")) {
-                // For while loops, place the whilebody label after the first goto
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    if (instructions.get(j) instanceof GotoInstruction) {
-                        placements.put(label, j + 1);
-
-                        break;
-                    }
-                }
-            } else if (label.startsWith("ifbody") || label.startsWith("then") || 
-                       label.startsWith("ELSE") || label.startsWith("else")) {
-                // For if statements inside while loop, place after the next goto
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    if (instructions.get(j) instanceof GotoInstruction) {
-                        placements.put(label, j + 1);
-
-                        break;
-                    }
-                }
-            }
-        } else if (inst instanceof SingleOpCondInstruction) {
-            var singleOpCond = (SingleOpCondInstruction) inst;
-            var label = singleOpCond.getLabel();
-            
-            if (label.startsWith("ifbody") || label.startsWith("then") || 
-                label.startsWith("ELSE") || label.startsWith("else")) {
-                // For if statements inside while loop, place after the next goto
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    if (instructions.get(j) instanceof GotoInstruction) {
-                        placements.put(label, j + 1);
-
-                        break;
-                    }
-                }
-            }
-        }
-
-    }
-    
-    // Handle goto target labels for while loops
-    for (int i = 0; i < instructions.size(); i++) {
-        var inst = instructions.get(i);
-        
-        if (inst instanceof GotoInstruction) {
-            var gotoInst = (GotoInstruction) inst;
-            var label = gotoInst.getLabel();
-            
-            if (label.startsWith("endwhile")) {
-                // Find the last conditional branch that targets whilebody
-                int lastWhileCondition = -1;
-                for (int j = instructions.size() - 1; j >= i; j--) {
-                    var checkInst = instructions.get(j);
-                    if (checkInst instanceof CondBranchInstruction) {
-                        var condBranch = (CondBranchInstruction) checkInst;
-                        if (condBranch.getLabel().startsWith("whilebody")) {
-                            lastWhileCondition = j;
-                            break;
-                        }
-                    }
-                }
-                
-                if (lastWhileCondition != -1) {
-                    placements.put(label, lastWhileCondition + 1);
-
-                } else {
-                    // Fallback: place before return
-                    for (int j = i + 1; j < instructions.size(); j++) {
-                        var nextInst = instructions.get(j);
-                        if (nextInst instanceof ReturnInstruction) {
-                            placements.put(label, j);
-
-                            break;
-                        }
-                    }
-                    if (!placements.containsKey(label)) {
-                        placements.put(label, instructions.size());
-
-                    }
-                }
-            } else if (label.startsWith("endif")) {
-                // For endif labels inside while loop, place before the next assignment instruction
-                boolean placed = false;
-                for (int j = i + 1; j < instructions.size(); j++) {
-                    var nextInst = instructions.get(j);
-                    if (nextInst instanceof AssignInstruction) {
-                        placements.put(label, j);
-                        placed = true;
-
-                        break;
-                    }
-                }
-                
-                if (!placed) {
-                    // If no assignment found, place before return
-                    for (int j = i + 1; j < instructions.size(); j++) {
-                        var nextInst = instructions.get(j);
-                        if (nextInst instanceof ReturnInstruction) {
-                            placements.put(label, j);
-                            placed = true;
-
-                            break;
-                        }
-                    }
-                }
-                
-                if (!placed) {
-                    placements.put(label, instructions.size());
-
-                }
-            }
-        }
-    }
-    
-
-    
-    return placements;
-}
-
   private String generateAssign(AssignInstruction assign) {
     var code = new StringBuilder();
     
@@ -1045,12 +731,16 @@ private Map<String, Integer> analyzeLabelPlacementsWhileLoop(List<Instruction> i
             
             // If both conditions are met, use iinc
             if (leftIsSameVar && rightIsSmallConstant) {
+                addRemark(Remark.Kind.APPLIED, "Iinc", "used iinc for " + operand.getName() + " = "
+                        + operand.getName() + " + " + constantValue);
 
                 code.append("iinc ").append(registerNumber).append(" ").append(constantValue).append(NL);
 
                 return code.toString();
-            } else {
-
+            } else if (leftIsSameVar && rightOperand instanceof LiteralElement) {
+                addRemark(Remark.Kind.MISSED, "NotIinc", "did not use iinc for " + operand.getName()
+                        + ": the increment " + ((LiteralElement) rightOperand).getLiteral()
+                        + " is outside -128..127");
             }
         }
     }
@@ -1240,6 +930,25 @@ private Map<String, Integer> analyzeLabelPlacementsWhileLoop(List<Instruction> i
         private String generateBinaryOp(BinaryOpInstruction binaryOp) {
         var code = new StringBuilder();
 
+        // Multiplying by 2^k is a left shift by k. Only the operand that is not the literal is loaded,
+        // and literals have no effects, so the order of evaluation does not matter
+        if (binaryOp.getOperation().getOpType() == MUL) {
+            var shift = getPowerOfTwoExponent(binaryOp.getRightOperand());
+            var other = binaryOp.getLeftOperand();
+            if (shift.isEmpty()) {
+                shift = getPowerOfTwoExponent(binaryOp.getLeftOperand());
+                other = binaryOp.getRightOperand();
+            }
+
+            if (shift.isPresent()) {
+                int k = shift.getAsInt();
+                code.append(apply(other));
+                code.append(k <= 5 ? "iconst_" + k : "bipush " + k).append(NL);
+                code.append("ishl").append(NL);
+                return code.toString();
+            }
+        }
+
         // load values on the left and on the right
         code.append(apply(binaryOp.getLeftOperand()));
         code.append(apply(binaryOp.getRightOperand()));
@@ -1252,6 +961,9 @@ private Map<String, Integer> analyzeLabelPlacementsWhileLoop(List<Instruction> i
             case MUL -> "mul";
             case SUB -> "sub";
             case DIV -> "div";
+            case SHL -> "shl";
+            case SHR -> "shr";
+            case SHRR -> "ushr";
             case LTH -> "cmp_lt";
             case GTH -> "cmp_gt";
             case LTE -> "cmp_le";
@@ -1290,6 +1002,24 @@ private Map<String, Integer> analyzeLabelPlacementsWhileLoop(List<Instruction> i
         return code.toString();
     }
 
+    /**
+     * @return k, if the operand is the integer literal 2^k with k > 0
+     */
+    private OptionalInt getPowerOfTwoExponent(Element operand) {
+        if (!(operand instanceof LiteralElement literal)) {
+            return OptionalInt.empty();
+        }
+
+        try {
+            int value = Integer.parseInt(literal.getLiteral());
+            return value > 1 && Integer.bitCount(value) == 1
+                    ? OptionalInt.of(Integer.numberOfTrailingZeros(value))
+                    : OptionalInt.empty();
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
     private String generateReturn(ReturnInstruction returnInst) {
     var code = new StringBuilder();
 
@@ -1497,6 +1227,8 @@ private String generateCondBranch(CondBranchInstruction condBranch) {
             
             var label = condBranch.getLabel();
             code.append(jasminOp).append(" ").append(String.valueOf(label)).append(NL);
+            addRemark(Remark.Kind.APPLIED, "CompareWithZero", "used " + jasminOp
+                    + " to compare with zero, without loading the constant");
             
 
             
@@ -1701,4 +1433,7 @@ private String generateCall(CallInstruction call) {
     return code.toString();
 }
 
-}
\ No newline at end of file
+    private void addRemark(Remark.Kind kind, String name, String message) {
+        remarks.add(new Remark(kind, PASS_NAME, name, currentMethod.getMethodName(), -1, -1, message));
+    }
+}
@@ -0,0 +1,193 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2025.ast.NodeHasher;
+
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * Algebraic simplification of single operations.
+ * <p>
+ * Removes parentheses, and applies identities ({@code x + 0}, {@code x * 1}, {@code x / 1}, {@code !!b}), annihilators ({@code x * 0},
+ * {@code x - x}, {@code x < x}, only when {@code x} has no effects), reassociation of constants
+ * ({@code (x + 1) + 2} to {@code x + 3}). Integer arithmetic wraps around, so reassociating constants never changes
+ * the result.
+ * <p>
+ * Reassociation also gathers the constants of a product into a single literal, which the backend turns into a shift
+ * when it is a power of two.
+ */
+public class AlgebraicSimplifier {
+
+    private int simplifiedCount = 0;
+
+    /**
+     * Works on a node whose operands are already simplified. The returned node may take operands away from the
+     * given node, which must then be replaced by it.
+     *
+     * @return the node the operation can be replaced with, if it can be simplified
+     */
+    public Optional<JmmNode> simplify(JmmNode node) {
+        var result = switch (node.getKind()) {
+            case "BinaryOp" -> simplifyBinaryOp(node);
+            case "UnaryOp" -> simplifyUnaryOp(node);
+            // The tree already encodes precedence, parentheses only hide operands from the other rules
+            case "Parenthesis" -> Optional.of(node.getChild(0));
+            default -> Optional.<JmmNode>empty();
+        };
+
+        result.ifPresent(replacement -> simplifiedCount++);
+        return result;
+    }
+
+    private Optional<JmmNode> simplifyBinaryOp(JmmNode node) {
+        var left = node.getChild(0);
+        var right = node.getChild(1);
+        var op = node.get("op");
+
+        switch (op) {
+            case "+":
+                if (isInteger(right, 0)) return Optional.of(left);
+                if (isInteger(left, 0)) return Optional.of(right);
+                return reassociate(node);
+            case "-":
+                if (isInteger(right, 0)) return Optional.of(left);
+                if (isSamePureExpression(left, right)) return Optional.of(newInteger(0));
+                return reassociate(node);
+            case "*":
+                if (isInteger(right, 1)) return Optional.of(left);
+                if (isInteger(left, 1)) return Optional.of(right);
+                if (isInteger(right, 0) && ConstantFoldingVisitor.isSideEffectFree(left)) {
+                    return Optional.of(newInteger(0));
+                }
+                if (isInteger(left, 0) && ConstantFoldingVisitor.isSideEffectFree(right)) {
+                    return Optional.of(newInteger(0));
+                }
+                return reassociate(node);
+            case "/":
+                return isInteger(right, 1) ? Optional.of(left) : Optional.empty();
+            case "<":
+                return isSamePureExpression(left, right) ? Optional.of(newBoolean(false)) : Optional.empty();
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private Optional<JmmNode> simplifyUnaryOp(JmmNode node) {
+        var operand = node.getChild(0);
+        if (node.get("op").equals("!") && operand.getKind().equals("UnaryOp") && operand.get("op").equals("!")) {
+            return Optional.of(operand.getChild(0));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * {@code (x + a) + b} becomes {@code x + (a + b)}, {@code (x - a) + b} becomes {@code x + (b - a)},
+     * {@code (x + a) - b} becomes {@code x + (a - b)} and {@code (x * a) * b} becomes {@code x * (a * b)}, also with
+     * the constant of an addition or multiplication on the left.
+     */
+    private Optional<JmmNode> reassociate(JmmNode node) {
+        var op = node.get("op");
+        var left = node.getChild(0);
+        var right = node.getChild(1);
+
+        // The constant of the outer operation, and the inner operation
+        JmmNode outerConstant;
+        JmmNode inner;
+        if (isInteger(right) && left.getKind().equals("BinaryOp")) {
+            outerConstant = right;
+            inner = left;
+        } else if (!op.equals("-") && isInteger(left) && right.getKind().equals("BinaryOp")) {
+            outerConstant = left;
+            inner = right;
+        } else {
+            return Optional.empty();
+        }
+
+        var innerOp = inner.get("op");
+        JmmNode x;
+        JmmNode innerConstant;
+        if (isInteger(inner.getChild(1))) {
+            x = inner.getChild(0);
+            innerConstant = inner.getChild(1);
+        } else if (!innerOp.equals("-") && isInteger(inner.getChild(0))) {
+            x = inner.getChild(1);
+            innerConstant = inner.getChild(0);
+        } else {
+            return Optional.empty();
+        }
+
+        int a = getValue(innerConstant);
+        int b = getValue(outerConstant);
+
+        if (op.equals("*") && innerOp.equals("*")) {
+            return Optional.of(newBinaryOp("*", x, newInteger(a * b)));
+        }
+
+        // Additive: x + a + b, x - a + b, x + a - b, x - a - b, all as x + c
+        if ((op.equals("+") || op.equals("-")) && (innerOp.equals("+") || innerOp.equals("-"))) {
+            int innerSigned = innerOp.equals("+") ? a : -a;
+            int outerSigned = op.equals("+") ? b : -b;
+            return Optional.of(newBinaryOp("+", x, newInteger(innerSigned + outerSigned)));
+        }
+
+        return Optional.empty();
+    }
+
+    private static boolean isSamePureExpression(JmmNode left, JmmNode right) {
+        return ConstantFoldingVisitor.isSideEffectFree(left) && NodeHasher.structurallyEqual(left, right);
+    }
+
+    private static boolean isInteger(JmmNode node) {
+        if (!node.getKind().equals("Integer")) {
+            return false;
+        }
+        try {
+            Integer.parseInt(node.get("value"));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isInteger(JmmNode node, int value) {
+        return isInteger(node) && getValue(node) == value;
+    }
+
+    private static int getValue(JmmNode node) {
+        return Integer.parseInt(node.get("value"));
+    }
+
+    private static JmmNode newBinaryOp(String op, JmmNode left, JmmNode right) {
+        JmmNode binaryOp = new JmmNodeImpl(Collections.singletonList("BinaryOp"));
+        binaryOp.put("op", op);
+        // The operands may still belong to the node being simplified, it is replaced right after
+        for (var operand : new JmmNode[]{left, right}) {
+            if (operand.getParent() != null) {
+                operand.getParent().removeChild(operand);
+            }
+            binaryOp.add(operand);
+        }
+        return binaryOp;
+    }
+
+    private static JmmNode newInteger(int value) {
+        JmmNode literal = new JmmNodeImpl(Collections.singletonList("Integer"));
+        literal.put("value", Integer.toString(value));
+        return literal;
+    }
+
+    private static JmmNode newBoolean(boolean value) {
+        JmmNode literal = new JmmNodeImpl(Collections.singletonList("Boolean"));
+        literal.put("value", Boolean.toString(value));
+        return literal;
+    }
+
+    /**
+     * @return how many operations were removed or simplified
+     */
+    public int getSimplifiedCount() {
+        return simplifiedCount;
+    }
+}
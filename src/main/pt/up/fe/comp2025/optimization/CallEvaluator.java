@@ -0,0 +1,234 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.*;
+
+/**
+ * Runs a method of the class at compile time, for literal arguments.
+ * <p>
+ * Only {@code int} and {@code boolean} values are supported: a method that touches arrays, objects, fields or any
+ * call other than a call on {@code this} is not evaluated. Evaluation also gives up after {@link #STEP_BUDGET}
+ * statements and expressions, or {@link #MAX_CALL_DEPTH} nested calls, so a method that loops forever or recurses
+ * deeply is left to run at runtime. The caller must make sure the methods are pure.
+ */
+public class CallEvaluator {
+
+    public static final int STEP_BUDGET = 10000;
+    public static final int MAX_CALL_DEPTH = 64;
+
+    private final Map<String, JmmNode> methods;
+
+    private int steps;
+    private int depth;
+
+    /**
+     * Thrown when the evaluation cannot go on.
+     */
+    private static class GiveUp extends RuntimeException {
+        GiveUp() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A {@code return} was executed.
+     */
+    private record Completion(Object value) {
+    }
+
+    /**
+     * @param methods the methods of the class that may be called, by name
+     */
+    public CallEvaluator(Map<String, JmmNode> methods) {
+        this.methods = methods;
+    }
+
+    /**
+     * @param arguments {@link Integer} or {@link Boolean} values
+     * @return the value the method returns, if it could be computed
+     */
+    public Optional<Object> evaluate(String method, List<Object> arguments) {
+        steps = 0;
+        depth = 0;
+
+        try {
+            return Optional.ofNullable(call(method, arguments));
+        } catch (GiveUp | ArithmeticException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Object call(String name, List<Object> arguments) {
+        var method = methods.get(name);
+        if (method == null || ++depth > MAX_CALL_DEPTH) {
+            throw new GiveUp();
+        }
+
+        var params = method.getDescendants("Param");
+        if (params.size() != arguments.size()) {
+            throw new GiveUp();
+        }
+
+        var env = new HashMap<String, Object>();
+        for (int i = 0; i < params.size(); i++) {
+            env.put(params.get(i).get("paramName"), arguments.get(i));
+        }
+        // Declared, but not assigned yet
+        method.getChildren("VarDecl").forEach(local -> env.putIfAbsent(local.get("varName"), null));
+
+        Object result = null;
+        for (var child : method.getChildren()) {
+            if (child.getKind().equals("VarDecl") || child.getKind().equals("ParamList")
+                    || child.getKind().endsWith("Type")) {
+                continue;
+            }
+
+            var completion = execute(child, env);
+            if (completion != null) {
+                result = completion.value();
+                break;
+            }
+        }
+
+        depth--;
+        return result;
+    }
+
+    /**
+     * @return the completion of a {@code return}, or null
+     */
+    private Completion execute(JmmNode stmt, Map<String, Object> env) {
+        step();
+
+        switch (stmt.getKind()) {
+            case "BlockStmt":
+                for (var child : stmt.getChildren()) {
+                    var completion = execute(child, env);
+                    if (completion != null) {
+                        return completion;
+                    }
+                }
+                return null;
+            case "AssignStmt": {
+                var name = stmt.get("var");
+                if (!env.containsKey(name)) {
+                    // A field
+                    throw new GiveUp();
+                }
+                env.put(name, evaluate(stmt.getChild(0), env));
+                return null;
+            }
+            case "IfStmt":
+                if (asBoolean(evaluate(stmt.getChild(0), env))) {
+                    return execute(stmt.getChild(1), env);
+                }
+                return stmt.getNumChildren() > 2 ? execute(stmt.getChild(2), env) : null;
+            case "WhileStmt":
+                while (asBoolean(evaluate(stmt.getChild(0), env))) {
+                    var completion = execute(stmt.getChild(1), env);
+                    if (completion != null) {
+                        return completion;
+                    }
+                }
+                return null;
+            case "ReturnStmt":
+                return new Completion(evaluate(stmt.getChild(0), env));
+            case "ExprStmt":
+                evaluate(stmt.getChild(0), env);
+                return null;
+            default:
+                throw new GiveUp();
+        }
+    }
+
+    private Object evaluate(JmmNode expr, Map<String, Object> env) {
+        step();
+
+        switch (expr.getKind()) {
+            case "Integer":
+                return Integer.parseInt(expr.get("value"));
+            case "Boolean":
+                return Boolean.parseBoolean(expr.get("value"));
+            case "Parenthesis":
+                return evaluate(expr.getChild(0), env);
+            case "Identifier": {
+                var value = env.get(expr.get("value"));
+                if (value == null) {
+                    // A field, or a local read before it is assigned
+                    throw new GiveUp();
+                }
+                return value;
+            }
+            case "UnaryOp":
+                return !asBoolean(evaluate(expr.getChild(0), env));
+            case "BinaryOp":
+                return evaluateBinary(expr, env);
+            case "MethodCall": {
+                var receiver = expr.getChild(0);
+                while (receiver.getKind().equals("Parenthesis")) {
+                    receiver = receiver.getChild(0);
+                }
+                if (!receiver.getKind().equals("This")) {
+                    throw new GiveUp();
+                }
+
+                var arguments = new ArrayList<>();
+                for (int i = 1; i < expr.getNumChildren(); i++) {
+                    arguments.add(evaluate(expr.getChild(i), env));
+                }
+                // Null for a void method, which then cannot be used as a value
+                return call(expr.get("value"), arguments);
+            }
+            default:
+                throw new GiveUp();
+        }
+    }
+
+    private Object evaluateBinary(JmmNode expr, Map<String, Object> env) {
+        var op = expr.get("op");
+
+        if (op.equals("&&")) {
+            return asBoolean(evaluate(expr.getChild(0), env)) && asBoolean(evaluate(expr.getChild(1), env));
+        }
+
+        int left = asInt(evaluate(expr.getChild(0), env));
+        int right = asInt(evaluate(expr.getChild(1), env));
+        return switch (op) {
+            case "+" -> left + right;
+            case "-" -> left - right;
+            case "*" -> left * right;
+            // Throws on a division by zero, which then happens at runtime
+            case "/" -> left / right;
+            case "<" -> left < right;
+            default -> throw new GiveUp();
+        };
+    }
+
+    private void step() {
+        if (++steps > STEP_BUDGET) {
+            throw new GiveUp();
+        }
+    }
+
+    private static boolean asBoolean(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        throw new GiveUp();
+    }
+
+    private static int asInt(Object value) {
+        if (value instanceof Integer integer) {
+            return integer;
+        }
+        throw new GiveUp();
+    }
+
+    /**
+     * @return how many steps the last evaluation took
+     */
+    public int getSteps() {
+        return steps;
+    }
+}
@@ -5,6 +5,7 @@ import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -17,6 +18,11 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
 
     // Store operations in a map for better extensibility
     private final Map<String, BiFunction<Integer, Integer, Integer>> operationMap;
+    private final Map<String, BiPredicate<Integer, Integer>> comparisonMap;
+
+    // Expressions that can be dropped without losing an effect (no calls, allocations, or possible exceptions)
+    private static final Set<String> SIDE_EFFECT_FREE_KINDS = Set.of(
+            "Integer", "Boolean", "Identifier", "This", "Parenthesis", "UnaryOp", "BinaryOp");
 
     public ConstantFoldingVisitor() {
         // Initialize operations map
@@ -26,6 +32,9 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
         operationMap.put("*", (a, b) -> a * b);
         operationMap.put("/", (a, b) -> b != 0 ? a / b : null);
         operationMap.put("%", (a, b) -> b != 0 ? a % b : null);
+
+        comparisonMap = new HashMap<>();
+        comparisonMap.put("<", (a, b) -> a < b);
     }
 
     public void enableDebug(boolean enable) {
@@ -37,6 +46,7 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
         // Register node visit methods
         addVisit("BinaryOp", this::processBinaryOperation);
         addVisit("UnaryOp", this::processUnaryOperation);
+        addVisit("Parenthesis", this::processUnaryOperation);
 
         // Default visit for all other nodes
         setDefaultVisit(this::processDefaultNode);
@@ -71,24 +81,11 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
             return modified;
         }
 
-        JmmNode leftOperand = node.getChild(0);
-        JmmNode rightOperand = node.getChild(1);
-        String operator = node.get("op");
-
-        if (canBeEvaluated(leftOperand) && canBeEvaluated(rightOperand)) {
-            Integer leftValue = extractIntegerValue(leftOperand);
-            Integer rightValue = extractIntegerValue(rightOperand);
-
-            // Try to evaluate
-            Integer result = evaluateOperation(leftValue, rightValue, operator);
-            if (result != null) {
-                // Create a new literal node with the folded result
-                JmmNode foldedNode = createIntegerLiteralNode(result);
-                node.replace(foldedNode);
-                optimizationCounter++;
-
-                return true;
-            }
+        var folded = fold(node);
+        if (folded.isPresent()) {
+            replace(node, folded.get());
+            optimizationCounter++;
+            return true;
         }
 
         return modified;
@@ -107,22 +104,137 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
             return false;
         }
 
-        // Check if we can evaluate this unary operation
-        String operator = node.get("op");
-        JmmNode operand = node.getChild(0);
+        var folded = fold(node);
+        if (folded.isPresent()) {
+            replace(node, folded.get());
+            optimizationCounter++;
+            return true;
+        }
 
-        if (operator.equals("-") && canBeEvaluated(operand)) {
-            Integer value = extractIntegerValue(operand);
-            if (value != null) {
-                JmmNode foldedNode = createIntegerLiteralNode(-value);
-                node.replace(foldedNode);
-                optimizationCounter++;
+        return modified;
+    }
 
-                return true;
+    /**
+     * Evaluates a single operation whose operands are already folded, without looking at its children's children
+     * and without changing the tree.
+     * <p>
+     * Besides literals, the result may be one of the operands, e.g. {@code true && x} folds to {@code x}. An
+     * operand is only dropped if evaluating it has no effect, and {@code &&} keeps its short-circuit order.
+     *
+     * @return the node the operation can be replaced with, if it can be folded
+     */
+    public Optional<JmmNode> fold(JmmNode node) {
+        switch (node.getKind()) {
+            case "BinaryOp": {
+                if (node.getNumChildren() != 2) {
+                    return Optional.empty();
+                }
+
+                JmmNode leftOperand = node.getChild(0);
+                JmmNode rightOperand = node.getChild(1);
+                String operator = node.get("op");
+
+                if (operator.equals("&&")) {
+                    return foldAnd(leftOperand, rightOperand);
+                }
+
+                if (canBeEvaluated(leftOperand) && canBeEvaluated(rightOperand)) {
+                    Integer leftValue = extractIntegerValue(leftOperand);
+                    Integer rightValue = extractIntegerValue(rightOperand);
+
+                    var comparison = comparisonMap.get(operator);
+                    if (comparison != null && leftValue != null && rightValue != null) {
+                        return Optional.of(createBooleanLiteralNode(comparison.test(leftValue, rightValue)));
+                    }
+
+                    Integer result = evaluateOperation(leftValue, rightValue, operator);
+                    if (result != null) {
+                        return Optional.of(createIntegerLiteralNode(result));
+                    }
+                }
+                return Optional.empty();
             }
+            case "UnaryOp": {
+                if (node.getNumChildren() == 0) {
+                    return Optional.empty();
+                }
+
+                JmmNode operand = node.getChild(0);
+                if (node.get("op").equals("!") && isBooleanLiteral(operand)) {
+                    return Optional.of(createBooleanLiteralNode(!extractBooleanValue(operand)));
+                }
+                if (node.get("op").equals("-") && canBeEvaluated(operand)) {
+                    Integer value = extractIntegerValue(operand);
+                    if (value != null) {
+                        return Optional.of(createIntegerLiteralNode(-value));
+                    }
+                }
+                return Optional.empty();
+            }
+            case "Parenthesis": {
+                // Parentheses around a literal would stop the enclosing operation from folding
+                var inner = node.getChild(0);
+                return canBeEvaluated(inner) || isBooleanLiteral(inner) ? Optional.of(inner) : Optional.empty();
+            }
+            default:
+                return Optional.empty();
         }
+    }
 
-        return modified;
+    private Optional<JmmNode> foldAnd(JmmNode left, JmmNode right) {
+        if (isBooleanLiteral(left)) {
+            // false && x never evaluates x, true && x is x
+            return Optional.of(extractBooleanValue(left) ? right : createBooleanLiteralNode(false));
+        }
+
+        if (isBooleanLiteral(right)) {
+            if (extractBooleanValue(right)) {
+                return Optional.of(left);
+            }
+            // x && false is false, but x still runs
+            return isSideEffectFree(left) ? Optional.of(createBooleanLiteralNode(false)) : Optional.empty();
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return true if evaluating the expression cannot call methods, allocate, or throw
+     */
+    public static boolean isSideEffectFree(JmmNode expr) {
+        return expr.getDescendantsAndSelfStream().allMatch(node -> SIDE_EFFECT_FREE_KINDS.contains(node.getKind())
+                && !(node.getKind().equals("BinaryOp") && (node.get("op").equals("/") || node.get("op").equals("%"))));
+    }
+
+    /**
+     * Replaces the node, also when the replacement is one of its own descendants.
+     */
+    static void replace(JmmNode node, JmmNode replacement) {
+        if (replacement.getParent() != null) {
+            replacement.getParent().removeChild(replacement);
+        }
+        node.replace(replacement);
+    }
+
+    /**
+     * Removes a statement. The branch of an if or the body of a while becomes an empty block instead, the parent
+     * finds its children by position.
+     */
+    static void removeStatement(JmmNode stmt) {
+        var parentKind = stmt.getParent().getKind();
+        if (parentKind.equals("BlockStmt") || parentKind.equals("MethodDecl")) {
+            stmt.delete();
+        } else {
+            replace(stmt, new pt.up.fe.comp.jmm.ast.JmmNodeImpl(Collections.singletonList("BlockStmt")));
+        }
+    }
+
+    private static boolean isBooleanLiteral(JmmNode node) {
+        return node != null && node.getKind().equals("Boolean") && node.hasAttribute("value");
+    }
+
+    private static boolean extractBooleanValue(JmmNode node) {
+        return Boolean.parseBoolean(node.get("value"));
     }
 
     private boolean canBeEvaluated(JmmNode node) {
@@ -167,6 +279,12 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Boolean> {
         return literalNode;
     }
 
+    private JmmNode createBooleanLiteralNode(boolean value) {
+        JmmNode literalNode = new pt.up.fe.comp.jmm.ast.JmmNodeImpl(Collections.singletonList("Boolean"));
+        literalNode.put("value", Boolean.toString(value));
+        return literalNode;
+    }
+
     private void logDebug(String message) {
         if (debugMode) {
             logger.log(Level.INFO, message);
@@ -0,0 +1,204 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg.CfgNode;
+
+import java.util.*;
+
+/**
+ * Removes branches whose condition is a literal, and statements that can never execute.
+ * <p>
+ * {@code if (true)} is replaced by its then-branch, {@code if (false)} by its else-branch (or nothing), and
+ * {@code while (false)} is removed, so no labels or jumps are generated for them. Statements that are not
+ * reachable from the start of the method in the {@link StatementCfg} (after a {@code return}, or after a
+ * {@code while (true)}) are then removed.
+ */
+public class DeadCodeEliminator implements OptimizationPass {
+
+    private int removedBranches = 0;
+    private int removedStatements = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = removedBranches + removedStatements;
+        eliminate(context.getRoot());
+        return removedBranches + removedStatements - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean eliminate(JmmNode root) {
+        var methods = root.getDescendantsAndSelfStream()
+                .filter(node -> node.getKind().equals("MethodDecl"))
+                .toList();
+
+        boolean changed = false;
+        for (var method : methods) {
+            changed |= removeConstantBranches(method);
+            changed |= removeUnreachableStatements(method);
+        }
+        return changed;
+    }
+
+    private boolean removeConstantBranches(JmmNode method) {
+        boolean changed = false;
+
+        // Outer statements first, a branch inside a removed one is gone with it
+        for (var stmt : method.getDescendants()) {
+            if (!isAttached(stmt, method)) {
+                continue;
+            }
+
+            var kind = stmt.getKind();
+            if (!kind.equals("IfStmt") && !kind.equals("WhileStmt")) {
+                continue;
+            }
+
+            var condition = stmt.getChild(0);
+            if (!condition.getKind().equals("Boolean")) {
+                continue;
+            }
+            boolean value = Boolean.parseBoolean(condition.get("value"));
+
+            // Made while the statement is still in the method
+            var remark = Remark.applied(getName(), "ConstantBranchRemoved", stmt, "removed the "
+                    + (kind.equals("IfStmt") ? "if" : "while") + " statement, its condition is always " + value);
+
+            if (kind.equals("IfStmt")) {
+                if (value) {
+                    ConstantFoldingVisitor.replace(stmt, stmt.getChild(1));
+                } else if (stmt.getNumChildren() > 2) {
+                    ConstantFoldingVisitor.replace(stmt, stmt.getChild(2));
+                } else {
+                    ConstantFoldingVisitor.removeStatement(stmt);
+                }
+            } else if (!value) {
+                ConstantFoldingVisitor.removeStatement(stmt);
+            } else {
+                // while (true) stays, what follows it is unreachable
+                continue;
+            }
+
+            remarks.add(remark);
+            removedBranches++;
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean removeUnreachableStatements(JmmNode method) {
+        var cfg = new StatementCfg(method);
+        var reachable = getReachable(cfg.getEntry());
+
+        // The return at the end of the method is kept, the code generators expect a method to end with one
+        var lastReturn = getLastReturn(method);
+
+        var unreachable = new ArrayList<JmmNode>();
+        for (var node : cfg.getNodes()) {
+            var stmt = node.getStatement();
+            if (stmt != null && !reachable.contains(node) && stmt != lastReturn) {
+                unreachable.add(stmt);
+            }
+        }
+
+        int removed = 0;
+        for (var stmt : unreachable) {
+            // The statements of an unreachable if or while are removed with it
+            if (isAttached(stmt, method)) {
+                remarks.add(Remark.applied(getName(), "UnreachableRemoved", stmt,
+                        "removed a statement that can never execute"));
+                ConstantFoldingVisitor.removeStatement(stmt);
+                removed++;
+            }
+        }
+
+        removedStatements += removed;
+        return removed > 0;
+    }
+
+    private static Set<CfgNode> getReachable(CfgNode entry) {
+        var reachable = new HashSet<CfgNode>();
+        var worklist = new ArrayDeque<CfgNode>();
+        worklist.add(entry);
+
+        while (!worklist.isEmpty()) {
+            var node = worklist.poll();
+            if (!reachable.add(node)) {
+                continue;
+            }
+
+            // The graph does not look at conditions, but the loop of a while (true) is only left by a return
+            if (isInfiniteLoop(node)) {
+                var loop = node.getStatement();
+                node.getSuccessors().stream()
+                        .filter(successor -> successor.getStatement() != null
+                                && isAttached(successor.getStatement(), loop))
+                        .forEach(worklist::add);
+            } else {
+                worklist.addAll(node.getSuccessors());
+            }
+        }
+
+        return reachable;
+    }
+
+    private static boolean isInfiniteLoop(CfgNode node) {
+        var stmt = node.getStatement();
+        if (stmt == null || !stmt.getKind().equals("WhileStmt")) {
+            return false;
+        }
+        var condition = stmt.getChild(0);
+        return condition.getKind().equals("Boolean") && Boolean.parseBoolean(condition.get("value"));
+    }
+
+    private static JmmNode getLastReturn(JmmNode method) {
+        var statements = method.getChildren().stream().filter(StatementCfg::isStatement).toList();
+        if (statements.isEmpty()) {
+            return null;
+        }
+
+        var last = statements.get(statements.size() - 1);
+        return last.getKind().equals("ReturnStmt") ? last : null;
+    }
+
+    private static boolean isAttached(JmmNode node, JmmNode method) {
+        var current = node;
+        while (current != null) {
+            if (current == method) {
+                return true;
+            }
+            current = current.getParent();
+        }
+        return false;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (removedBranches == 0 && removedStatements == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Dead Code Elimination: " + removedBranches + " constant branches removed, " + removedStatements
+                        + " unreachable statements removed"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    public int getRemovedBranches() {
+        return removedBranches;
+    }
+
+    public int getRemovedStatements() {
+        return removedStatements;
+    }
+}
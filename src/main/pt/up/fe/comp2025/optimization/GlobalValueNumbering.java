@@ -0,0 +1,388 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.optimization.ssa.ControlFlowGraph.Block;
+import pt.up.fe.comp2025.optimization.ssa.InstructionOperands;
+import pt.up.fe.comp2025.optimization.ssa.SsaForm;
+import pt.up.fe.comp2025.optimization.ssa.SsaForm.Value;
+
+import java.util.*;
+
+/**
+ * Global value numbering over the {@link SsaForm} of each method, to remove the computations whose value is
+ * already in a variable.
+ * <p>
+ * The blocks are numbered in a walk of the dominator tree, and an expression is looked up among the ones computed
+ * in the blocks that dominate it. The operands are compared by value number, so {@code a + b} and {@code b + a},
+ * or two sums of copies of the same value, are the same expression. Arithmetic, comparisons and {@code arraylength}
+ * only depend on their operands and are numbered over the whole dominator tree. An array element also depends on
+ * the stores and calls that run before it, so it is only reused inside its block, until the next store to an array
+ * or call.
+ * <p>
+ * A computation already made is replaced with a copy of the variable that holds it, and the reads of the copy with
+ * the variable itself, which removes the copy. The variable must still hold the value where it is read, a temporary
+ * may be assigned again in between.
+ */
+public class GlobalValueNumbering implements OllirPass {
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.OR, OperationType.XOR, OperationType.ANDB, OperationType.ORB,
+            OperationType.EQ, OperationType.NEQ);
+
+    /**
+     * An expression over value numbers. The block and the memory state are only set for array elements.
+     */
+    private record Expression(String operation, Object left, Object right, String type, Block block, int memory) {
+    }
+
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(ClassUnit classUnit) {
+        int changes = 0;
+
+        var methods = classUnit.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            var method = methods.get(i);
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            var numbering = new MethodNumbering(new SsaForm(method));
+            if (numbering.removed == 0) {
+                continue;
+            }
+
+            methods.set(i, numbering.ssa.toMethod(numbering.replacements));
+            changes += numbering.removed;
+            remarks.add(new Remark(Remark.Kind.APPLIED, getName(), "Numbered", method.getMethodName(), -1, -1,
+                    "removed " + numbering.removed + " computations already made, " + numbering.removedLoads
+                            + " of them array loads"));
+        }
+
+        return changes;
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    /**
+     * The numbering of one method.
+     */
+    private static class MethodNumbering {
+
+        private final SsaForm ssa;
+        private final Map<Instruction, Instruction> replacements = new IdentityHashMap<>();
+
+        // The value number of a value: a literal, or the first value that was computed the same way
+        private final Map<Value, Object> numbers = new HashMap<>();
+        // The computations replaced by a copy, with the value they copy
+        private final Map<Value, Value> copies = new HashMap<>();
+        private final Map<Expression, Value> available = new HashMap<>();
+        // The value each variable holds at the instruction being numbered
+        private final Map<String, Deque<Value>> current = new HashMap<>();
+        private final Map<Value, Integer> reads = new HashMap<>();
+
+        private int removed;
+        private int removedLoads;
+        private int memory;
+
+        MethodNumbering(SsaForm ssa) {
+            this.ssa = ssa;
+            for (var block : ssa.getCfg().getBlocks()) {
+                block.getInstructions().forEach(instruction -> replacements.put(instruction, instruction));
+            }
+            number();
+            removeUnreadCopies();
+        }
+
+        private void number() {
+            // Iterative walk of the dominator tree, as in the SSA renaming
+            var stack = new ArrayDeque<Object>();
+            stack.push(ssa.getCfg().getEntry());
+            while (!stack.isEmpty()) {
+                var top = stack.pop();
+                if (top instanceof Runnable leave) {
+                    leave.run();
+                    continue;
+                }
+
+                var block = (Block) top;
+                var added = new ArrayList<Expression>();
+                var defined = new ArrayList<String>();
+                numberBlock(block, added, defined);
+                stack.push((Runnable) () -> {
+                    added.forEach(available::remove);
+                    defined.forEach(variable -> current.get(variable).pop());
+                });
+
+                var children = ssa.getCfg().getDominated(block);
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+
+        private void numberBlock(Block block, List<Expression> added, List<String> defined) {
+            for (var phi : ssa.getPhis(block)) {
+                define(phi.getResult(), defined);
+            }
+
+            for (var instruction : block.getInstructions()) {
+                var stillRead = new ArrayList<Value>();
+                var replacement = replaceReads(instruction, stillRead);
+
+                var definition = ssa.getDefinition(instruction);
+                var expression = definition.isPresent()
+                        ? getExpression(((AssignInstruction) instruction).getRhs(), instruction, block)
+                        : Optional.<Expression>empty();
+                var held = definition.orElse(null);
+
+                if (definition.isPresent() && expression.isPresent()) {
+                    var value = definition.get();
+                    var leader = lookup(expression.get());
+                    if (leader.isPresent() && holds(leader.get())) {
+                        // Already computed, and still in the variable it was assigned to
+                        numbers.put(value, getNumber(leader.get()));
+                        stillRead.forEach(read -> reads.merge(read, -1, Integer::sum));
+                        removed++;
+                        if (expression.get().block() != null) {
+                            removedLoads++;
+                        }
+
+                        if (leader.get().getVariable().equals(value.getVariable())) {
+                            // The variable already holds the value
+                            replacement = null;
+                            held = leader.get();
+                        } else {
+                            var assign = (AssignInstruction) instruction;
+                            var source = new Operand(leader.get().getVariable(), assign.getDest().getType());
+                            replacement = new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(),
+                                    new SingleOpInstruction(source));
+                            copies.put(value, leader.get());
+                        }
+                    } else {
+                        numbers.put(value, value);
+                        if (available.put(expression.get(), value) == null) {
+                            added.add(expression.get());
+                        }
+                    }
+                } else if (definition.isPresent()) {
+                    numberCopy(definition.get(), (AssignInstruction) instruction);
+                }
+
+                if (writesMemory(instruction)) {
+                    memory++;
+                }
+                if (held != null) {
+                    define(held, defined);
+                }
+                if (replacement == null) {
+                    replacements.remove(instruction);
+                } else {
+                    replacements.put(instruction, replacement);
+                }
+            }
+        }
+
+        private void define(Value value, List<String> defined) {
+            current.computeIfAbsent(value.getVariable(), key -> new ArrayDeque<>()).push(value);
+            defined.add(value.getVariable());
+        }
+
+        /**
+         * @return true if the variable of the value still holds it, at the instruction being numbered
+         */
+        private boolean holds(Value value) {
+            var values = current.get(value.getVariable());
+            return values != null && values.peek() == value;
+        }
+
+        private Optional<Value> lookup(Expression expression) {
+            var found = available.get(expression);
+            if (found == null && COMMUTATIVE.stream().anyMatch(op -> op.name().equals(expression.operation()))) {
+                found = available.get(new Expression(expression.operation(), expression.right(), expression.left(),
+                        expression.type(), expression.block(), expression.memory()));
+            }
+            return Optional.ofNullable(found);
+        }
+
+        /**
+         * A copy has the value number of what it copies.
+         */
+        private void numberCopy(Value value, AssignInstruction assign) {
+            Object number = value;
+            if (assign.getRhs() instanceof SingleOpInstruction singleOp
+                    && !(singleOp.getSingleOperand() instanceof ArrayOperand)) {
+                var operand = getOperandNumber(singleOp.getSingleOperand(), assign);
+                if (operand != null) {
+                    number = operand;
+                }
+            }
+            numbers.put(value, number);
+        }
+
+        private Object getNumber(Value value) {
+            return numbers.getOrDefault(value, value);
+        }
+
+        /**
+         * @return the value number of an operand read by the instruction, or null if it is not a value in SSA form
+         */
+        private Object getOperandNumber(Element element, Instruction instruction) {
+            if (element instanceof LiteralElement literal) {
+                return literal.getLiteral() + "." + literal.getType();
+            }
+            var elements = InstructionOperands.getUses(instruction);
+            var values = ssa.getUses(instruction);
+            for (int i = 0; i < elements.size() && i < values.size(); i++) {
+                if (elements.get(i) == element) {
+                    return values.get(i) == null ? null : getNumber(values.get(i));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the expression the right-hand side computes, if it only depends on values in SSA form
+         */
+        private Optional<Expression> getExpression(Instruction rhs, Instruction assign, Block block) {
+            var type = ((AssignInstruction) assign).getTypeOfAssign().toString();
+
+            if (rhs instanceof BinaryOpInstruction binaryOp) {
+                var left = getOperandNumber(binaryOp.getLeftOperand(), assign);
+                var right = getOperandNumber(binaryOp.getRightOperand(), assign);
+                if (left == null || right == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Expression(binaryOp.getOperation().getOpType().name(), left, right, type,
+                        null, 0));
+            }
+            if (rhs instanceof UnaryOpInstruction unaryOp) {
+                var operand = getOperandNumber(unaryOp.getOperand(), assign);
+                if (operand == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Expression(unaryOp.getOperation().getOpType().name(), operand, null, type,
+                        null, 0));
+            }
+
+            var arrays = ssa.getArrays(assign);
+            if (arrays.size() != 1 || arrays.get(0) == null) {
+                return Optional.empty();
+            }
+            var array = getNumber(arrays.get(0));
+
+            // The length of an array never changes, only the array in the variable
+            if (rhs instanceof ArrayLengthInstruction) {
+                return Optional.of(new Expression("arraylength", array, null, type, null, 0));
+            }
+            if (rhs instanceof SingleOpInstruction singleOp && singleOp.getSingleOperand() instanceof ArrayOperand load
+                    && load.getIndexOperands().size() == 1) {
+                var index = getOperandNumber(load.getIndexOperands().get(0), assign);
+                if (index == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Expression("load", array, index, type, block, memory));
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Calls may store to any array, and two array variables may hold the same array.
+         */
+        private static boolean writesMemory(Instruction instruction) {
+            if (instruction instanceof AssignInstruction assign) {
+                return assign.getDest() instanceof ArrayOperand || writesMemory(assign.getRhs());
+            }
+            return instruction instanceof CallInstruction && !(instruction instanceof ArrayLengthInstruction);
+        }
+
+        /**
+         * Reads of a replaced computation read the variable it copies instead, where that variable still holds it.
+         */
+        private Instruction replaceReads(Instruction instruction, List<Value> stillRead) {
+            var read = new IdentityHashMap<Element, Value>();
+            var elements = InstructionOperands.getUses(instruction);
+            var values = ssa.getUses(instruction);
+            for (int i = 0; i < elements.size() && i < values.size(); i++) {
+                if (values.get(i) != null) {
+                    read.put(elements.get(i), values.get(i));
+                    reads.merge(values.get(i), 1, Integer::sum);
+                }
+            }
+
+            var changed = new boolean[1];
+            var rewritten = InstructionOperands.rewriteUses(instruction, element -> {
+                var value = read.get(element);
+                if (value == null) {
+                    return element;
+                }
+                var source = copies.get(value);
+                if (source == null || !holds(source)) {
+                    stillRead.add(value);
+                    return element;
+                }
+                changed[0] = true;
+                reads.merge(value, -1, Integer::sum);
+                return new Operand(source.getVariable(), element.getType());
+            });
+            return changed[0] ? rewritten : instruction;
+        }
+
+        /**
+         * The copies that are no longer read are removed. A copy read by a phi stays, if the value of the phi is
+         * read in turn.
+         */
+        private void removeUnreadCopies() {
+            var readPhis = getReadPhis();
+            for (var block : ssa.getCfg().getBlocks()) {
+                for (var instruction : block.getInstructions()) {
+                    var definition = ssa.getDefinition(instruction);
+                    if (definition.isEmpty() || !copies.containsKey(definition.get())) {
+                        continue;
+                    }
+                    var value = definition.get();
+                    boolean readByPhi = value.getUsers().stream().anyMatch(readPhis::contains);
+                    if (!readByPhi && reads.getOrDefault(value, 0) == 0) {
+                        replacements.remove(instruction);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The phis are placed wherever two definitions meet, most of them are never read (e.g. of temporaries).
+         *
+         * @return the phis whose value an instruction reads, directly or through other phis
+         */
+        private Set<SsaForm.Phi> getReadPhis() {
+            var read = new HashSet<SsaForm.Phi>();
+            var worklist = new ArrayDeque<SsaForm.Phi>();
+            for (var block : ssa.getCfg().getReversePostorder()) {
+                for (var phi : ssa.getPhis(block)) {
+                    if (phi.getResult().getUsers().stream().anyMatch(Instruction.class::isInstance) && read.add(phi)) {
+                        worklist.add(phi);
+                    }
+                }
+            }
+
+            while (!worklist.isEmpty()) {
+                for (var argument : worklist.poll().getArguments().values()) {
+                    if (argument.getPhi() != null && read.add(argument.getPhi())) {
+                        worklist.add(argument.getPhi());
+                    }
+                }
+            }
+            return read;
+        }
+    }
+}
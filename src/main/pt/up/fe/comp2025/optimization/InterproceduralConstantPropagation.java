@@ -0,0 +1,270 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+import pt.up.fe.comp2025.analysis.interprocedural.MethodSummary;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.*;
+
+/**
+ * Propagates constants across the calls between the methods of the class.
+ * <p>
+ * A call on {@code this} to a pure method ({@link MethodSummary#isPure()}) whose arguments are all literals is run
+ * by the {@link CallEvaluator}, and replaced by the value it returns. A parameter that receives the same literal at
+ * every call site is replaced by that literal in the body of the method, when the parameter is never assigned.
+ * <p>
+ * Only the methods that cannot be called from outside the class are specialized: methods that are not
+ * {@code public} and not {@code main}, in a class that does not extend another one (as for the {@link TreeShaker}).
+ * The summaries of the {@link SideEffectAnalysis} must be in the symbol table.
+ */
+public class InterproceduralConstantPropagation implements OptimizationPass {
+
+    private int evaluatedCalls = 0;
+    private int specializedParams = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = evaluatedCalls + specializedParams;
+        context.getSummaries();
+        propagate(context.getRoot(), context.getTable());
+        return evaluatedCalls + specializedParams - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean propagate(JmmNode root, SymbolTable table) {
+        var callGraph = new CallGraph(root, table);
+        var callSites = getCallSites(callGraph, table);
+
+        boolean changed = specializeParameters(callGraph, callSites, table);
+        changed |= evaluatePureCalls(callGraph, callSites, table);
+        return changed;
+    }
+
+    /**
+     * @return the calls that may invoke each method of the class
+     */
+    private static Map<String, List<JmmNode>> getCallSites(CallGraph callGraph, SymbolTable table) {
+        var callSites = new HashMap<String, List<JmmNode>>();
+
+        for (var caller : callGraph.getMethods()) {
+            var types = new TypeUtils(table);
+            types.setCurrentMethod(caller);
+
+            for (var call : callGraph.getMethodDecl(caller).getDescendants("MethodCall")) {
+                CallGraph.getPossibleCallee(call, table, types)
+                        .filter(callee -> callGraph.getMethods().contains(callee))
+                        .ifPresent(callee -> callSites.computeIfAbsent(callee, k -> new ArrayList<>()).add(call));
+            }
+        }
+
+        return callSites;
+    }
+
+    private boolean specializeParameters(CallGraph callGraph, Map<String, List<JmmNode>> callSites,
+                                         SymbolTable table) {
+        if (table.getSuper() != null) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (var name : callGraph.getMethods()) {
+            var method = callGraph.getMethodDecl(name);
+            var calls = callSites.getOrDefault(name, List.of());
+            if (name.equals("main") || method.hasAttribute("access") || calls.isEmpty()) {
+                continue;
+            }
+
+            var params = method.getDescendants("Param");
+            var assigned = new HashSet<String>();
+            method.getDescendants("AssignStmt").forEach(assign -> assigned.add(assign.get("var")));
+
+            for (int i = 0; i < params.size(); i++) {
+                var param = params.get(i).get("paramName");
+                // The arguments of variable arguments arrive as one array, a literal cannot replace it
+                if (assigned.contains(param) || params.get(i).getChild(0).getKind().equals("VarArgsType")) {
+                    continue;
+                }
+
+                var value = getCommonLiteral(calls, i + 1);
+                if (value.isEmpty()) {
+                    continue;
+                }
+
+                var uses = method.getDescendants("Identifier").stream()
+                        .filter(identifier -> identifier.get("value").equals(param))
+                        .toList();
+                if (!uses.isEmpty()) {
+                    remarks.add(Remark.applied(getName(), "ParameterSpecialized", params.get(i), "every call passes "
+                            + value.get().get("value") + " to " + param + ", its uses were replaced by the constant"));
+                }
+                for (var use : uses) {
+                    ConstantFoldingVisitor.replace(use, LoopUnroller.deepCopy(value.get()));
+                }
+
+                if (!uses.isEmpty()) {
+                    specializedParams++;
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the literal every call passes in the given position, if they all pass the same one
+     */
+    private static Optional<JmmNode> getCommonLiteral(List<JmmNode> calls, int index) {
+        JmmNode common = null;
+
+        for (var call : calls) {
+            if (index >= call.getNumChildren() || !isLiteral(call.getChild(index))) {
+                return Optional.empty();
+            }
+
+            var argument = call.getChild(index);
+            if (common == null) {
+                common = argument;
+            } else if (!common.getKind().equals(argument.getKind())
+                    || !common.get("value").equals(argument.get("value"))) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.ofNullable(common);
+    }
+
+    private boolean evaluatePureCalls(CallGraph callGraph, Map<String, List<JmmNode>> callSites,
+                                      SymbolTable table) {
+        var summaries = SideEffectAnalysis.getSummaries(table);
+        var methods = new HashMap<String, JmmNode>();
+        callGraph.getMethods().forEach(name -> methods.put(name, callGraph.getMethodDecl(name)));
+        var evaluator = new CallEvaluator(methods);
+
+        boolean changed = false;
+        for (var entry : callSites.entrySet()) {
+            var summary = summaries.get(entry.getKey());
+
+            for (var call : entry.getValue()) {
+                var arguments = call.getChildren().subList(1, call.getNumChildren());
+                if (!isThisCall(call) || !arguments.stream().allMatch(InterproceduralConstantPropagation::isLiteral)) {
+                    continue;
+                }
+
+                if (summary == null || !summary.isPure()) {
+                    remarks.add(Remark.missed(getName(), "CallNotEvaluated", call, "did not evaluate the call to "
+                            + entry.getKey() + ": the callee has side effects"));
+                    continue;
+                }
+
+                var values = arguments.stream().map(InterproceduralConstantPropagation::getValue).toList();
+                var result = evaluator.evaluate(entry.getKey(), values);
+                if (result.isEmpty()) {
+                    remarks.add(Remark.missed(getName(), "CallNotEvaluated", call, "did not evaluate the call to "
+                            + entry.getKey() + ": it uses values other than int and boolean, or runs for more than "
+                            + CallEvaluator.STEP_BUDGET + " steps"));
+                    continue;
+                }
+
+                remarks.add(Remark.applied(getName(), "CallEvaluated", call, "replaced the call to "
+                        + entry.getKey() + " by the value it returns, " + result.get()));
+                replaceCall(call, newLiteral(result.get()));
+                evaluatedCalls++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private static void replaceCall(JmmNode call, JmmNode literal) {
+        var parent = call.getParent();
+        if (!parent.getKind().equals("ExprStmt")) {
+            ConstantFoldingVisitor.replace(call, literal);
+            return;
+        }
+
+        // The value is not used, and the call has no effects
+        var grandparent = parent.getParent();
+        if (grandparent.getKind().equals("BlockStmt") || grandparent.getKind().equals("MethodDecl")) {
+            grandparent.removeChild(parent);
+        } else {
+            parent.replace(new JmmNodeImpl(Collections.singletonList("BlockStmt")));
+        }
+    }
+
+    private static boolean isThisCall(JmmNode call) {
+        var receiver = call.getChild(0);
+        while (receiver.getKind().equals("Parenthesis")) {
+            receiver = receiver.getChild(0);
+        }
+        return receiver.getKind().equals("This");
+    }
+
+    private static boolean isLiteral(JmmNode node) {
+        if (node.getKind().equals("Boolean")) {
+            return true;
+        }
+        if (!node.getKind().equals("Integer")) {
+            return false;
+        }
+
+        try {
+            Integer.parseInt(node.get("value"));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static Object getValue(JmmNode literal) {
+        return literal.getKind().equals("Integer")
+                ? (Object) Integer.parseInt(literal.get("value"))
+                : (Object) Boolean.parseBoolean(literal.get("value"));
+    }
+
+    private static JmmNode newLiteral(Object value) {
+        JmmNode literal = new JmmNodeImpl(Collections.singletonList(value instanceof Integer ? "Integer" : "Boolean"));
+        literal.put("value", value.toString());
+        return literal;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (evaluatedCalls == 0 && specializedParams == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Interprocedural Constant Propagation: " + evaluatedCalls + " calls evaluated, "
+                        + specializedParams + " parameters specialized"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    /**
+     * @return how many calls were replaced by the value they return
+     */
+    public int getEvaluatedCalls() {
+        return evaluatedCalls;
+    }
+
+    /**
+     * @return how many parameters were replaced by the literal every call passes
+     */
+    public int getSpecializedParams() {
+        return specializedParams;
+    }
+}
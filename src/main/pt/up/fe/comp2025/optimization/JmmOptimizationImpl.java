@@ -1,5 +1,7 @@
 package pt.up.fe.comp2025.optimization;
 
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
@@ -8,6 +10,8 @@ import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.analysis.passes.TypeInference;
 import pt.up.fe.specs.util.SpecsCollections;
 
 import java.util.*;
@@ -17,14 +21,19 @@ import java.util.logging.Level;
 public class JmmOptimizationImpl implements JmmOptimization {
 
     private static final Logger logger = Logger.getLogger(JmmOptimizationImpl.class.getName());
-    private static final int DEFAULT_MAX_ITERATIONS = 5;
+    // Kept across compilations so unchanged methods are not summarized again
+    private final SideEffectAnalysis sideEffectAnalysis = new SideEffectAnalysis();
+    // Kept across compilations so unchanged methods are not lowered again
+    private final MethodCache<OllirGeneratorVisitor.MethodKey, String> ollirCache = new MethodCache<>();
+    private final MethodCache<OllirGeneratorVisitor.MethodKey, Method> classCache = new MethodCache<>();
+    private final List<Remark> remarks = new ArrayList<>();
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
         List<Report> reports = new ArrayList<>();
         try {
-            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-            var ollirCode = visitor.visit(semanticsResult.getRootNode());
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), ollirCache);
+            var ollirCode = visitor.generate(semanticsResult.getRootNode());
             return new OllirResult(semanticsResult, ollirCode, reports);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error generating OLLIR code", e);
@@ -32,30 +41,52 @@ public class JmmOptimizationImpl implements JmmOptimization {
         }
     }
 
+    /**
+     * @return the OLLIR class of the program, built in memory with the lowering of {@link #toOllir}, without
+     * writing or parsing OLLIR code
+     */
+    public ClassUnit toOllirClass(JmmSemanticsResult semanticsResult) {
+        var visitor = new OllirBuilderVisitor(semanticsResult.getSymbolTable(), classCache);
+        return visitor.build(semanticsResult.getRootNode());
+    }
+
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
+        var config = semanticsResult.getConfig() != null ? semanticsResult.getConfig() : Map.<String, String>of();
+        var passManager = new PassManager(ConfigOptions.getDisabledPasses(config));
+        var passes = buildPasses(passManager, config);
+        remarks.clear();
+
         // Check if optimization is enabled in configuration
-        if (!shouldOptimize(semanticsResult.getConfig())) {
+        if (passes.isEmpty()) {
             logger.info("Optimization is disabled by configuration");
             return semanticsResult;
         }
 
         List<Report> optimizationReports = new ArrayList<>();
         JmmNode root = semanticsResult.getRootNode();
+        var context = new PassContext(root, semanticsResult.getSymbolTable(), config, sideEffectAnalysis);
 
         try {
-            // Run the optimization pipeline
-            OptimizationResults results = runOptimizationPipeline(root);
+            int changes = passManager.run(passes, context);
+            remarks.addAll(passManager.getRemarks());
 
             // Add reports from optimization process
-            generateOptimizationReports(results, optimizationReports);
+            optimizationReports.addAll(passManager.getReports());
+            if (changes == 0) {
+                optimizationReports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                        "No optimizations were applied to the code"));
+            } else {
+                // The passes cleared the types of the analysis, the code generator reads them
+                new TypeInference().analyze(root, context.getTable());
+            }
 
             // Log the optimized AST
             logger.fine("Optimized AST:\n" + root.toTree());
 
             // Combine all reports and return new semantic result
             List<Report> allReports = SpecsCollections.concat(semanticsResult.getReports(), optimizationReports);
-            return new JmmSemanticsResult(root, semanticsResult.getSymbolTable(), allReports, semanticsResult.getConfig());
+            return new JmmSemanticsResult(root, context.getTable(), allReports, semanticsResult.getConfig());
 
         } catch (Exception e) {
             String errorMsg = "Optimization error: " + e.getMessage();
@@ -64,188 +95,155 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
             // Return result with error reports
             List<Report> allReports = SpecsCollections.concat(semanticsResult.getReports(), optimizationReports);
-            return new JmmSemanticsResult(root, semanticsResult.getSymbolTable(), allReports, semanticsResult.getConfig());
+            return new JmmSemanticsResult(root, context.getTable(), allReports, semanticsResult.getConfig());
         }
     }
 
-    private OptimizationResults runOptimizationPipeline(JmmNode rootNode) {
-        OptimizationResults results = new OptimizationResults();
-        boolean changesDetected;
-        int iteration = 0;
-
-        // Create optimization visitors
-        ConstantFoldingVisitor foldingVisitor = new ConstantFoldingVisitor();
-        foldingVisitor.enableDebug(false); // Disable internal debug logs
-
-        ConstantPropagationVisitor propagationVisitor = new ConstantPropagationVisitor();
-
-        do {
-            iteration++;
-            changesDetected = false;
-
-            // Apply constant folding
-            foldingVisitor.visit(rootNode);
-            int foldingCount = foldingVisitor.getOptimizationCount();
+    /**
+     * Optimization passes for the level in the configuration, in the order they run. A pass enabled by name runs
+     * regardless of the level.
+     */
+    private List<OptimizationPass> buildPasses(PassManager passManager, Map<String, String> config) {
+        int level = ConfigOptions.getOptLevel(config);
+        var enabled = ConfigOptions.getEnabledPasses(config);
+        int unrollFactor = ConfigOptions.getUnrollFactor(config);
 
-            if (foldingCount > 0) {
-                changesDetected = true;
-                results.addFoldingCount(foldingCount);
-                logger.info("Iteration " + iteration + ": Performed " + foldingCount + " constant folding operations");
-            }
+        var passes = new ArrayList<OptimizationPass>();
 
-            // Create new folding visitor for next iteration
-            foldingVisitor = new ConstantFoldingVisitor();
+        // Removed methods are neither inlined nor optimized
+        var treeShaker = new TreeShaker();
+        if (ConfigOptions.getTreeShake(config) || enabled.contains(treeShaker.getName())) {
+            passes.add(treeShaker);
+        }
 
-            // Apply constant propagation
-            Map<String, String> propagationContext = new HashMap<>();
-            boolean propagationResult = propagationVisitor.visit(rootNode, propagationContext);
+        // Inline first, propagation then specializes each copy for the arguments of its call
+        var inliner = new MethodInliner();
+        if (isSelected(inliner, 2, level, enabled)) {
+            passes.add(inliner);
+        }
 
-            if (propagationResult) {
-                changesDetected = true;
-                results.incrementPropagationIterations();
-                logger.info("Iteration " + iteration + ": Constant propagation applied changes");
+        // Folding and propagation feed each other, the worklist runs both to a fixed point. Removing a dead
+        // branch may leave a single assignment to a local, and a constant may reach another method through a
+        // call, so the worklist runs again until nothing else changes
+        var cleanupPasses = new ArrayList<OptimizationPass>();
+        for (var pass : List.of(new WorklistOptimizer(), new DeadCodeEliminator())) {
+            if (isSelected(pass, 1, level, enabled)) {
+                cleanupPasses.add(pass);
             }
+        }
+        var interprocedural = new InterproceduralConstantPropagation();
+        if (isSelected(interprocedural, 2, level, enabled)) {
+            cleanupPasses.add(interprocedural);
+        }
+        var cleanup = passManager.fixedPoint("Cleanup", cleanupPasses);
+        if (!cleanupPasses.isEmpty()) {
+            passes.add(cleanup);
+        }
 
-            // Create new propagation visitor for next iteration
-            propagationVisitor = new ConstantPropagationVisitor();
-
-            // Check for max iterations
-            if (iteration >= DEFAULT_MAX_ITERATIONS) {
-                results.setMaxIterationsReached(true);
-                logger.warning("Reached maximum optimization iterations (" + DEFAULT_MAX_ITERATIONS + ")");
-                break;
+        // Bounds are constant after propagation, and the copies of an unrolled body fold again
+        var unroller = new LoopUnroller(unrollFactor > 0 ? unrollFactor : LoopUnroller.DEFAULT_FACTOR);
+        if (unrollFactor > 0 || isSelected(unroller, 3, level, enabled)) {
+            passes.add(unroller);
+            if (!cleanupPasses.isEmpty()) {
+                passes.add(cleanup);
             }
-
-        } while (changesDetected);
-
-        results.setTotalIterations(iteration);
-        return results;
-    }
-
-    private void generateOptimizationReports(OptimizationResults results, List<Report> reports) {
-        // Report if maximum iterations were reached
-        if (results.isMaxIterationsReached()) {
-            reports.add(new Report(
-                    ReportType.WARNING,
-                    Stage.OPTIMIZATION,
-                    -1,
-                    "Optimization reached maximum iterations limit (" + DEFAULT_MAX_ITERATIONS + "); may be incomplete"
-            ));
         }
 
-        // Report folding optimizations
-        if (results.getTotalFoldings() > 0) {
-            reports.add(new Report(
-                    ReportType.LOG,
-                    Stage.OPTIMIZATION,
-                    -1,
-                    "Constant Folding: " + results.getTotalFoldings() + " expressions optimized"
-            ));
+        // Every other pass sees the call, only the generated code jumps instead
+        var tailCalls = new TailCallEliminator();
+        if (isSelected(tailCalls, 2, level, enabled)) {
+            passes.add(tailCalls);
         }
 
-        // Report propagation optimizations
-        if (results.getPropagationIterations() > 0) {
-            reports.add(new Report(
-                    ReportType.LOG,
-                    Stage.OPTIMIZATION,
-                    -1,
-                    "Constant Propagation: changes applied in " + results.getPropagationIterations() + " iterations"
-            ));
+        // Constants are already propagated, only what is left in the loops is worth a local
+        var codeMotion = new LoopInvariantCodeMotion();
+        if (isSelected(codeMotion, 2, level, enabled)) {
+            passes.add(codeMotion);
         }
 
-        // Report total iterations
-        reports.add(new Report(
-                ReportType.LOG,
-                Stage.OPTIMIZATION,
-                -1,
-                "Optimization process completed after " + results.getTotalIterations() + " iterations"
-        ));
-
-        // Report if no optimizations were performed
-        if (results.getTotalFoldings() == 0 && results.getPropagationIterations() == 0) {
-            reports.add(new Report(
-                    ReportType.LOG,
-                    Stage.OPTIMIZATION,
-                    -1,
-                    "No optimizations were applied to the code"
-            ));
-        }
+        return passes;
     }
 
-    @Override
-    public OllirResult optimize(OllirResult ollirResult) {
-        RegisterAllocatorVisitor allocator = new RegisterAllocatorVisitor();
-        List<Report> existingReports = new ArrayList<>(ollirResult.getReports());
-        int registerSetting = ConfigOptions.getRegisterAllocation(ollirResult.getConfig());
-
-        if (registerSetting != -1) {
-            String settingLabel = (registerSetting == 0) ? "minimal (0)" : String.valueOf(registerSetting);
-            logger.info("[Register Allocation] Initiating allocation with " + settingLabel + " registers.");
+    private static boolean isSelected(OptimizationPass pass, int minLevel, int level, Set<String> enabled) {
+        return level >= minLevel || enabled.contains(pass.getName());
+    }
 
-            List<Report> allocationReports = allocator.processMethodRegisters(ollirResult, registerSetting);
-            existingReports.addAll(allocationReports);
+    /**
+     * @return the OLLIR code of the methods of the last class lowered by {@link #toOllir}, by method name
+     */
+    public MethodCache<OllirGeneratorVisitor.MethodKey, String> getOllirCache() {
+        return ollirCache;
+    }
 
-            if (allocationReports.isEmpty()) {
-                logger.info("[Register Allocation] Allocation completed successfully with no reported issues.");
-            } else {
-                logger.warning("[Register Allocation] Completed with " + allocationReports.size() +
-                        " issue(s). Check the report list for further details.");
-            }
+    /**
+     * @return the methods of the last class built by {@link #toOllirClass}, by method name. The class only gets
+     * copies, the passes never change them
+     */
+    public MethodCache<OllirGeneratorVisitor.MethodKey, Method> getClassCache() {
+        return classCache;
+    }
 
-        }
+    /**
+     * @return the remarks of the passes of the last compilation, on the AST and then on the OLLIR code
+     */
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
 
-        logger.fine("[Register Allocation] Skipped: No valid allocation setting provided.");
+    @Override
+    public OllirResult optimize(OllirResult ollirResult) {
+        var config = ollirResult.getConfig() != null ? ollirResult.getConfig() : Map.<String, String>of();
+        // The class of the result is optimized in place, its code stays the code generated, for debugging
+        optimize(ollirResult.getOllirClass(), config);
         return ollirResult;
     }
 
-
-
-    private boolean shouldOptimize(Map<String, String> config) {
-        return config != null &&
-                ("true".equals(config.get("optimize")) ||
-                        "true".equals(config.get("-o")) ||
-                        config.containsKey("-o"));
+    /**
+     * Optimizes an OLLIR class built by {@link #toOllirClass(JmmSemanticsResult)}, in place.
+     *
+     * @return the reports of the optimizations
+     */
+    public List<Report> optimize(ClassUnit ollirClass, Map<String, String> config) {
+        var passManager = new PassManager(ConfigOptions.getDisabledPasses(config));
+        passManager.run(SpecsCollections.concat(buildOllirPasses(config), buildRegisterPasses(config)), ollirClass);
+        remarks.addAll(passManager.getRemarks());
+        return passManager.getReports();
     }
 
     /**
-     * Helper class to track optimization statistics
+     * Passes over the OLLIR code for the level in the configuration, in the order they run. A pass enabled by name
+     * runs regardless of the level.
      */
-    private static class OptimizationResults {
-        private int totalFoldings = 0;
-        private int propagationIterations = 0;
-        private int totalIterations = 0;
-        private boolean maxIterationsReached = false;
-
-        public void addFoldingCount(int count) {
-            totalFoldings += count;
-        }
-
-        public void incrementPropagationIterations() {
-            propagationIterations++;
-        }
+    private List<OllirPass> buildOllirPasses(Map<String, String> config) {
+        int level = ConfigOptions.getOptLevel(config);
+        var enabled = ConfigOptions.getEnabledPasses(config);
 
-        public int getTotalFoldings() {
-            return totalFoldings;
+        var passes = new ArrayList<OllirPass>();
+        var propagation = new SparseConditionalConstantPropagation();
+        if (level >= 2 || enabled.contains(propagation.getName())) {
+            passes.add(propagation);
         }
 
-        public int getPropagationIterations() {
-            return propagationIterations;
+        // Propagation first, two computations over the same constants are then the same
+        var numbering = new GlobalValueNumbering();
+        if (level >= 2 || enabled.contains(numbering.getName())) {
+            passes.add(numbering);
         }
 
-        public void setTotalIterations(int iterations) {
-            this.totalIterations = iterations;
-        }
+        return passes;
+    }
 
-        public int getTotalIterations() {
-            return totalIterations;
-        }
+    /**
+     * @return the register allocation, when the configuration asks for it
+     */
+    private List<OllirPass> buildRegisterPasses(Map<String, String> config) {
+        int registerSetting = ConfigOptions.getRegisterAllocation(config);
 
-        public void setMaxIterationsReached(boolean reached) {
-            this.maxIterationsReached = reached;
+        if (registerSetting == -1) {
+            logger.fine("[Register Allocation] Skipped: No valid allocation setting provided.");
+            return List.of();
         }
 
-        public boolean isMaxIterationsReached() {
-            return maxIterationsReached;
-        }
+        return List.of(new RegisterAllocation(registerSetting));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,359 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.LocalSlots;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+import pt.up.fe.comp2025.analysis.interprocedural.MethodSummary;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.ast.NodeHasher;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Moves expressions that compute the same value on every iteration of a {@code while} loop to a new local assigned
+ * right before the loop.
+ * <p>
+ * An expression is invariant when the locals it reads are not assigned in the loop, and the fields it reads are
+ * neither assigned in the loop nor written by a method the loop calls (according to the {@link MethodSummary}s of
+ * the {@link SideEffectAnalysis}). {@code a.length} only depends on the reference in {@code a}, so it is invariant
+ * even if the loop stores into the array.
+ * <p>
+ * The new local is computed even if the loop never runs, so an expression that may throw ({@code a.length},
+ * divisions) is only moved when it comes from the condition, which is always evaluated at least once. Equal
+ * expressions of the same loop share one local.
+ * <p>
+ * Locals are added to the method, the symbol table must be built again afterwards.
+ */
+public class LoopInvariantCodeMotion implements OptimizationPass {
+
+    private static final String TEMP_PREFIX = "licm";
+
+    private int hoistedCount = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    /**
+     * Expression that can be moved out of a loop.
+     *
+     * @param alwaysEvaluated true if the expression is evaluated whenever the loop is reached
+     */
+    private record Candidate(JmmNode expr, boolean alwaysEvaluated) {
+    }
+
+    @Override
+    public int run(PassContext context) {
+        int before = hoistedCount;
+        context.getSummaries();
+        if (hoist(context.getRoot(), context.getTable())) {
+            // Code motion declared new locals
+            context.rebuildSymbolTable();
+        }
+        return hoistedCount - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean hoist(JmmNode root, SymbolTable table) {
+        var summaries = SideEffectAnalysis.getSummaries(table);
+        var usedNames = getUsedNames(root);
+
+        int before = hoistedCount;
+        var methods = root.getDescendantsAndSelfStream()
+                .filter(node -> node.getKind().equals("MethodDecl"))
+                .toList();
+        for (var method : methods) {
+            var types = new TypeUtils(table);
+            types.setCurrentMethod(method.get("methodName"));
+
+            // Outer loops first, what they move out is no longer part of the inner loops
+            for (var loop : method.getDescendants("WhileStmt")) {
+                hoistLoop(loop, method, table, types, summaries, usedNames);
+            }
+        }
+
+        return hoistedCount > before;
+    }
+
+    private void hoistLoop(JmmNode loop, JmmNode method, SymbolTable table, TypeUtils types,
+                           Map<String, MethodSummary> summaries, Set<String> usedNames) {
+        var slots = new LocalSlots(method);
+        var fields = table.getFields().stream().map(field -> field.getName()).collect(Collectors.toSet());
+        var assigned = getAssignedVars(loop);
+        var preservedFields = getPreservedFields(loop, fields, table, types, summaries);
+
+        var clobbered = loop.getDescendants("Identifier").stream()
+                .map(identifier -> identifier.get("value"))
+                .filter(name -> isField(name, slots, fields) && !preservedFields.contains(name))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!clobbered.isEmpty()) {
+            remarks.add(Remark.analysis(getName(), "FieldsClobbered", loop, "the loop assigns or calls a method "
+                    + "that may write " + String.join(", ", clobbered) + ", reads of them stay in the loop"));
+        }
+
+        var candidates = new ArrayList<Candidate>();
+        var condition = loop.getChild(0);
+        collect(condition, !hasSideEffects(condition), candidates, slots, fields, assigned, preservedFields);
+        collectStatements(loop.getChild(1), candidates, slots, fields, assigned, preservedFields);
+
+        // Hoisted expressions, and the local that now holds each one
+        var hoisted = new LinkedHashMap<JmmNode, String>();
+        for (var candidate : candidates) {
+            var expr = candidate.expr();
+            var temp = hoisted.entrySet().stream()
+                    .filter(entry -> NodeHasher.structurallyEqual(entry.getKey(), expr))
+                    .map(Map.Entry::getValue)
+                    .findFirst();
+
+            if (temp.isEmpty() && mayThrow(expr) && !candidate.alwaysEvaluated()) {
+                remarks.add(Remark.missed(getName(), "NotHoisted", expr, "did not move "
+                        + WorklistOptimizer.describe(expr) + " out of the loop: it may throw, and it is not "
+                        + "evaluated on every path that reaches the loop"));
+                continue;
+            }
+
+            var name = temp.orElseGet(() -> newTempName(TEMP_PREFIX, usedNames));
+            if (temp.isEmpty()) {
+                var type = types.getExprType(expr);
+                addLocal(method, name, newTypeNode(type));
+                hoisted.put(expr, name);
+            }
+
+            remarks.add(Remark.applied(getName(), "Hoisted", expr, "moved " + WorklistOptimizer.describe(expr)
+                    + " out of the loop into " + name));
+            ConstantFoldingVisitor.replace(expr, newIdentifier(name));
+            hoistedCount++;
+
+            if (temp.isEmpty()) {
+                insertBefore(loop, newAssign(name, expr));
+            }
+        }
+    }
+
+    /**
+     * Finds the largest invariant subexpressions of an expression.
+     */
+    private static void collect(JmmNode expr, boolean alwaysEvaluated, List<Candidate> candidates, LocalSlots slots,
+                                Set<String> fields, Set<String> assigned, Set<String> preservedFields) {
+        if (isWorthHoisting(expr, slots, fields)
+                && isInvariant(expr, slots, fields, assigned, preservedFields)) {
+            candidates.add(new Candidate(expr, alwaysEvaluated));
+            return;
+        }
+
+        for (int i = 0; i < expr.getNumChildren(); i++) {
+            // The right operand of && is not evaluated when the left one is false
+            boolean evaluated = alwaysEvaluated
+                    && !(expr.getKind().equals("BinaryOp") && expr.get("op").equals("&&") && i == 1);
+            collect(expr.getChild(i), evaluated, candidates, slots, fields, assigned, preservedFields);
+        }
+    }
+
+    private static void collectStatements(JmmNode node, List<Candidate> candidates, LocalSlots slots,
+                                          Set<String> fields, Set<String> assigned, Set<String> preservedFields) {
+        if (!StatementCfg.isStatement(node)) {
+            // The body may not run at all
+            collect(node, false, candidates, slots, fields, assigned, preservedFields);
+            return;
+        }
+
+        for (var child : node.getChildren()) {
+            collectStatements(child, candidates, slots, fields, assigned, preservedFields);
+        }
+    }
+
+    /**
+     * Literals and locals are already as cheap as the local that would replace them.
+     */
+    private static boolean isWorthHoisting(JmmNode expr, LocalSlots slots, Set<String> fields) {
+        return switch (expr.getKind()) {
+            case "BinaryOp", "UnaryOp", "LengthOp" -> true;
+            case "Identifier" -> isField(expr.get("value"), slots, fields);
+            default -> false;
+        };
+    }
+
+    private static boolean isInvariant(JmmNode expr, LocalSlots slots, Set<String> fields, Set<String> assigned,
+                                       Set<String> preservedFields) {
+        switch (expr.getKind()) {
+            case "Integer":
+            case "Boolean":
+            case "This":
+                return true;
+            case "Identifier": {
+                var name = expr.get("value");
+                if (slots.contains(name)) {
+                    return !assigned.contains(name);
+                }
+                return isField(name, slots, fields) && !assigned.contains(name) && preservedFields.contains(name);
+            }
+            case "Parenthesis":
+            case "UnaryOp":
+            case "BinaryOp":
+            case "LengthOp":
+                return expr.getChildren().stream()
+                        .allMatch(child -> isInvariant(child, slots, fields, assigned, preservedFields));
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isField(String name, LocalSlots slots, Set<String> fields) {
+        return !slots.contains(name) && fields.contains(name);
+    }
+
+    private static boolean mayThrow(JmmNode expr) {
+        return expr.getDescendantsAndSelfStream().anyMatch(node -> node.getKind().equals("LengthOp")
+                || (node.getKind().equals("BinaryOp") && node.get("op").equals("/")));
+    }
+
+    /**
+     * An exception thrown by a moved expression must not come before the effects of the ones evaluated ahead of it.
+     */
+    private static boolean hasSideEffects(JmmNode expr) {
+        return expr.getDescendantsAndSelfStream().anyMatch(node -> switch (node.getKind()) {
+            case "MethodCall", "GeneralDeclaration", "IntArrayDeclaration", "ArrayInitializer" -> true;
+            default -> false;
+        });
+    }
+
+    private static Set<String> getAssignedVars(JmmNode loop) {
+        return loop.getDescendants("AssignStmt").stream()
+                .map(assign -> assign.get("var"))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the fields no call in the loop may write
+     */
+    private static Set<String> getPreservedFields(JmmNode loop, Set<String> fields, SymbolTable table,
+                                                  TypeUtils types, Map<String, MethodSummary> summaries) {
+        var preserved = new HashSet<>(fields);
+
+        for (var call : loop.getDescendants("MethodCall")) {
+            var summary = CallGraph.resolve(call, table, types).map(summaries::get);
+            if (summary.isEmpty()) {
+                // Unknown code may reach the fields through another reference to this object
+                return Set.of();
+            }
+            preserved.removeIf(field -> !summary.get().preservesField(field));
+        }
+
+        return preserved;
+    }
+
+    static Set<String> getUsedNames(JmmNode root) {
+        var names = new HashSet<String>();
+        for (var node : root.getDescendants()) {
+            for (var attribute : List.of("value", "var", "varName", "paramName")) {
+                if (node.hasAttribute(attribute)) {
+                    names.add(node.get(attribute));
+                }
+            }
+        }
+        return names;
+    }
+
+    static String newTempName(String prefix, Set<String> usedNames) {
+        int index = 0;
+        while (usedNames.contains(prefix + index)) {
+            index++;
+        }
+        var name = prefix + index;
+        usedNames.add(name);
+        return name;
+    }
+
+    static void addLocal(JmmNode method, String name, JmmNode typeNode) {
+        JmmNode varDecl = new JmmNodeImpl(Collections.singletonList("VarDecl"));
+        varDecl.put("varName", name);
+        varDecl.add(typeNode);
+
+        // After the other declarations, before the first statement
+        int index = method.getNumChildren();
+        for (int i = 0; i < method.getNumChildren(); i++) {
+            if (StatementCfg.isStatement(method.getChild(i))) {
+                index = i;
+                break;
+            }
+        }
+        method.add(varDecl, index);
+    }
+
+    private static JmmNode newTypeNode(Type type) {
+        String kind;
+        if (type.isArray()) {
+            kind = type.getName().equals("String") ? "StringArrayType" : "ArrayType";
+        } else {
+            kind = switch (type.getName()) {
+                case "int" -> "IntType";
+                case "boolean" -> "BooleanType";
+                case "String" -> "StringType";
+                default -> "ClassType";
+            };
+        }
+
+        JmmNode typeNode = new JmmNodeImpl(Collections.singletonList(kind));
+        if (kind.equals("ClassType")) {
+            typeNode.put("value", type.getName());
+        }
+        return typeNode;
+    }
+
+    static void insertBefore(JmmNode target, JmmNode stmt) {
+        var parent = target.getParent();
+        var parentKind = parent.getKind();
+        if (parentKind.equals("BlockStmt") || parentKind.equals("MethodDecl")) {
+            parent.add(stmt, target.getIndexOfSelf());
+            return;
+        }
+
+        // The target is the branch of an if or the body of a loop, it needs a block to hold both statements
+        JmmNode block = new JmmNodeImpl(Collections.singletonList("BlockStmt"));
+        target.replace(block);
+        block.add(stmt);
+        block.add(target);
+    }
+
+    static JmmNode newIdentifier(String name) {
+        JmmNode identifier = new JmmNodeImpl(Collections.singletonList("Identifier"));
+        identifier.put("value", name);
+        return identifier;
+    }
+
+    static JmmNode newAssign(String var, JmmNode expr) {
+        JmmNode assign = new JmmNodeImpl(Collections.singletonList("AssignStmt"));
+        assign.put("var", var);
+        assign.add(expr);
+        return assign;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (hoistedCount == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Loop-Invariant Code Motion: " + hoistedCount + " expressions moved out of loops"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    /**
+     * @return how many expressions were replaced by a local computed before the loop
+     */
+    public int getHoistedCount() {
+        return hoistedCount;
+    }
+}
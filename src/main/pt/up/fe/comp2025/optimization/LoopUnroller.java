@@ -0,0 +1,257 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.CountedLoop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unrolls counted loops ({@link CountedLoop}).
+ * <p>
+ * A loop that runs a small, known number of times is replaced by that many copies of its body. Any other counted loop
+ * is unrolled by a factor {@code F}: a main loop runs {@code F} copies of the body while at least {@code F}
+ * iterations are left ({@code i < bound - (F - 1) * step}), and a remainder loop, the original one, runs the rest.
+ * <p>
+ * Growth is limited by an estimate of the bytecode size of each method: unrolling stops before a method goes over
+ * {@link #METHOD_SIZE_BUDGET}, the size HotSpot still inlines when a method is hot ({@code FreqInlineSize}).
+ */
+public class LoopUnroller implements OptimizationPass {
+
+    public static final int DEFAULT_FACTOR = 4;
+    public static final int MAX_FULL_UNROLL_TRIPS = 16;
+    public static final int METHOD_SIZE_BUDGET = 325;
+
+    private final int factor;
+
+    private int fullyUnrolled = 0;
+    private int partiallyUnrolled = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    public LoopUnroller() {
+        this(DEFAULT_FACTOR);
+    }
+
+    /**
+     * @param factor copies of the body in the main loop of a partially unrolled loop, below 2 to only unroll fully
+     */
+    public LoopUnroller(int factor) {
+        this.factor = factor;
+    }
+
+    @Override
+    public int run(PassContext context) {
+        int before = fullyUnrolled + partiallyUnrolled;
+        unroll(context.getRoot());
+        return fullyUnrolled + partiallyUnrolled - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean unroll(JmmNode root) {
+        int before = fullyUnrolled + partiallyUnrolled;
+
+        var methods = root.getDescendantsAndSelfStream()
+                .filter(node -> node.getKind().equals("MethodDecl"))
+                .toList();
+        for (var method : methods) {
+            // Inner loops first, an outer loop then copies the unrolled inner loop
+            var loops = new ArrayList<>(method.getDescendants("WhileStmt"));
+            Collections.reverse(loops);
+
+            for (var loop : loops) {
+                var counted = CountedLoop.match(loop, method);
+                if (counted.isPresent()) {
+                    unrollLoop(counted.get(), method);
+                } else {
+                    remarks.add(Remark.missed(getName(), "NotCounted", loop, "did not unroll the loop: it is not "
+                            + "of the shape while (i < bound) { ...; i = i + step; } with a bound the loop does not "
+                            + "change"));
+                }
+            }
+        }
+
+        return fullyUnrolled + partiallyUnrolled > before;
+    }
+
+    private void unrollLoop(CountedLoop counted, JmmNode method) {
+        var loop = counted.getLoop();
+        var body = loop.getChild(1);
+        int methodSize = estimateSize(method);
+        int bodySize = estimateSize(body);
+
+        var trips = counted.getTripCount();
+        if (trips.isPresent() && trips.getAsLong() <= MAX_FULL_UNROLL_TRIPS
+                && methodSize + (trips.getAsLong() - 1) * bodySize <= METHOD_SIZE_BUDGET) {
+            remarks.add(Remark.applied(getName(), "FullyUnrolled", loop, "replaced the loop by "
+                    + trips.getAsLong() + " copies of its body"));
+            unrollFully(loop, (int) trips.getAsLong());
+            fullyUnrolled++;
+            return;
+        }
+
+        // A loop that runs fewer times than the factor would never enter the main loop
+        if (trips.isPresent() && trips.getAsLong() < factor) {
+            remarks.add(Remark.missed(getName(), "NotUnrolled", loop, "did not unroll the loop: it runs "
+                    + trips.getAsLong() + " times, fewer than the unroll factor " + factor + ", and a full unroll "
+                    + "would go over the size budget of " + METHOD_SIZE_BUDGET + " bytes"));
+            return;
+        }
+
+        // The largest factor that fits, the remainder loop keeps one more copy of the body
+        int copies = factor;
+        while (copies >= 2 && methodSize + (long) copies * (bodySize + estimateSize(loop.getChild(0)))
+                > METHOD_SIZE_BUDGET) {
+            copies /= 2;
+        }
+        if (copies < 2) {
+            remarks.add(Remark.missed(getName(), "NotUnrolled", loop, "did not unroll the loop: two copies of "
+                    + "its body would take the method over the size budget of " + METHOD_SIZE_BUDGET + " bytes"));
+            return;
+        }
+
+        var mainBound = getMainBound(counted, copies);
+        if (mainBound == null) {
+            remarks.add(Remark.missed(getName(), "NotUnrolled", loop, "did not unroll the loop: the bound of "
+                    + "the unrolled loop would wrap around"));
+            return;
+        }
+
+        remarks.add(Remark.applied(getName(), "PartiallyUnrolled", loop, "unrolled the loop by a factor of "
+                + copies + (copies < factor ? ", the largest that fits the size budget" : "")));
+        unrollPartially(loop, copies, mainBound);
+        partiallyUnrolled++;
+    }
+
+    private static void unrollFully(JmmNode loop, int trips) {
+        JmmNode block = new JmmNodeImpl(Collections.singletonList("BlockStmt"));
+        for (int i = 0; i < trips; i++) {
+            getStatements(loop.getChild(1)).forEach(stmt -> block.add(deepCopy(stmt)));
+        }
+        ConstantFoldingVisitor.replace(loop, block);
+    }
+
+    /**
+     * Puts a loop with the given number of copies of the body right before the loop, which becomes the remainder.
+     */
+    private static void unrollPartially(JmmNode loop, int copies, JmmNode mainBound) {
+        var condition = loop.getChild(0);
+
+        JmmNode mainCondition = new JmmNodeImpl(Collections.singletonList("BinaryOp"));
+        mainCondition.put("op", "<");
+        mainCondition.add(deepCopy(condition.getChild(0)));
+        mainCondition.add(mainBound);
+
+        JmmNode mainBody = new JmmNodeImpl(Collections.singletonList("BlockStmt"));
+        for (int i = 0; i < copies; i++) {
+            getStatements(loop.getChild(1)).forEach(stmt -> mainBody.add(deepCopy(stmt)));
+        }
+
+        JmmNode mainLoop = new JmmNodeImpl(Collections.singletonList("WhileStmt"));
+        mainLoop.add(mainCondition);
+        mainLoop.add(mainBody);
+
+        JmmNode block = new JmmNodeImpl(Collections.singletonList("BlockStmt"));
+        ConstantFoldingVisitor.replace(loop, block);
+        block.add(mainLoop);
+        block.add(loop);
+    }
+
+    /**
+     * @return {@code bound - (copies - 1) * step}, or null if a literal bound would wrap around
+     */
+    private static JmmNode getMainBound(CountedLoop counted, int copies) {
+        var bound = counted.getBound();
+        long margin = (long) (copies - 1) * counted.getStep();
+
+        if (bound.getKind().equals("Integer")) {
+            long value = Integer.parseInt(bound.get("value")) - margin;
+            return value < Integer.MIN_VALUE ? null : newInteger((int) value);
+        }
+
+        // Other bounds are never negative
+        if (margin > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        JmmNode subtraction = new JmmNodeImpl(Collections.singletonList("BinaryOp"));
+        subtraction.put("op", "-");
+        subtraction.add(deepCopy(bound));
+        subtraction.add(newInteger((int) margin));
+        return subtraction;
+    }
+
+    private static List<JmmNode> getStatements(JmmNode body) {
+        return body.getKind().equals("BlockStmt") ? body.getChildren() : List.of(body);
+    }
+
+    /**
+     * Rough number of bytes of bytecode the node compiles to.
+     */
+    static int estimateSize(JmmNode node) {
+        return node.getDescendantsAndSelfStream().mapToInt(LoopUnroller::getNodeSize).sum();
+    }
+
+    private static int getNodeSize(JmmNode node) {
+        if (node.getKind().endsWith("Type")) {
+            return 0;
+        }
+
+        return switch (node.getKind()) {
+            // bipush or ldc, and a store or load
+            case "Integer", "AssignStmt", "ArrayAssignStmt" -> 2;
+            // Comparisons and negations become a branch and two constants
+            case "BinaryOp" -> node.get("op").equals("<") || node.get("op").equals("&&") ? 8 : 1;
+            case "UnaryOp" -> 7;
+            case "MethodCall" -> 3;
+            case "GeneralDeclaration" -> 7;
+            case "IfStmt" -> 6;
+            case "WhileStmt" -> 6;
+            case "BlockStmt", "Parenthesis", "ParamList", "Param", "VarDecl", "MethodDecl" -> 0;
+            default -> 1;
+        };
+    }
+
+    static JmmNode deepCopy(JmmNode node) {
+        var copy = node.copy(node.getHierarchy());
+        for (var child : node.getChildren()) {
+            copy.add(deepCopy(child));
+        }
+        return copy;
+    }
+
+    private static JmmNode newInteger(int value) {
+        JmmNode literal = new JmmNodeImpl(Collections.singletonList("Integer"));
+        literal.put("value", Integer.toString(value));
+        return literal;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (fullyUnrolled == 0 && partiallyUnrolled == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Loop Unrolling: " + fullyUnrolled + " loops fully unrolled, " + partiallyUnrolled
+                        + " loops partially unrolled"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    public int getFullyUnrolled() {
+        return fullyUnrolled;
+    }
+
+    public int getPartiallyUnrolled() {
+        return partiallyUnrolled;
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The code generated for each method of a class, reused by the next compilation for the methods that did not change.
+ * <p>
+ * There is one entry per method name, holding the key of the method it was generated for. A compilation goes from
+ * {@link #begin()} to {@link #end()}, and only keeps the entries of the methods it asked for, so the cache never
+ * holds more than one class.
+ * <p>
+ * Methods may be asked for from several threads at the same time, but a compilation only begins and ends on one.
+ *
+ * @param <K> what the generated code depends on, compared with {@code equals}
+ * @param <V> the generated code
+ */
+public class MethodCache<K, V> {
+
+    private record Entry<K, V>(K key, V value) {
+    }
+
+    private Map<String, Entry<K, V>> entries = new HashMap<>();
+    private Map<String, Entry<K, V>> current = new ConcurrentHashMap<>();
+
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+
+    /**
+     * Starts a compilation.
+     */
+    public void begin() {
+        current = new ConcurrentHashMap<>();
+        reused.set(0);
+        generated.set(0);
+    }
+
+    /**
+     * @param method the name of the method
+     * @param key what the code of the method depends on
+     * @param generate generates the code of the method, if the previous compilation did not for the same key
+     * @return the code of the method
+     */
+    public V get(String method, K key, Supplier<V> generate) {
+        var entry = entries.get(method);
+        if (entry != null && Objects.equals(entry.key(), key)) {
+            reused.incrementAndGet();
+        } else {
+            entry = new Entry<>(key, generate.get());
+            generated.incrementAndGet();
+        }
+
+        current.put(method, entry);
+        return entry.value();
+    }
+
+    /**
+     * Ends a compilation, the methods it did not ask for are dropped.
+     */
+    public void end() {
+        entries = new HashMap<>(current);
+        current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Drops every entry, so that the next compilation generates every method.
+     */
+    public void invalidate() {
+        entries.clear();
+        current.clear();
+    }
+
+    /**
+     * @return how many methods reused their previous code in the last compilation
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    /**
+     * @return how many methods were generated in the last compilation
+     */
+    public int getGenerated() {
+        return generated.get();
+    }
+}
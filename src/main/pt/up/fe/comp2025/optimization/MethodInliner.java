@@ -0,0 +1,358 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.LocalSlots;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.*;
+
+/**
+ * Replaces calls to small methods of the class by a copy of their body.
+ * <p>
+ * Only calls on {@code this} are inlined, any other receiver would need its fields to be accessed through another
+ * reference. The call must be a whole statement, the value of an assignment or the value of a {@code return}, so
+ * the copied statements can run right before it without changing the order of evaluation. The callee must not be
+ * recursive, and its only {@code return} must be its last statement.
+ * <p>
+ * Parameters and locals of the callee become new locals of the caller. An argument that is a literal or a local of
+ * the caller is used directly when the callee never assigns the parameter, any other argument is evaluated once into
+ * the new local.
+ * <p>
+ * A callee is inlined when its estimated size ({@link LoopUnroller#estimateSize}) is at most {@link #MAX_INLINE_SIZE},
+ * the size HotSpot inlines regardless of how often a call runs ({@code MaxInlineSize}). Each literal argument raises
+ * the limit by {@link #CONSTANT_ARGUMENT_BONUS}, since propagation then folds part of the copy away. No caller grows
+ * over {@link LoopUnroller#METHOD_SIZE_BUDGET}. Every decision is recorded as a {@link Remark} on the call.
+ * <p>
+ * Locals are added to the callers, the symbol table must be built again afterwards.
+ */
+public class MethodInliner implements OptimizationPass {
+
+    public static final int MAX_INLINE_SIZE = 35;
+    public static final int CONSTANT_ARGUMENT_BONUS = 10;
+
+    private static final String PREFIX = "inl";
+
+    private int inlinedCount = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = inlinedCount;
+        if (inline(context.getRoot(), context.getTable(), context.getCallGraph())) {
+            // Inlined calls declared new locals
+            context.rebuildSymbolTable();
+        }
+        return inlinedCount - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean inline(JmmNode root, SymbolTable table) {
+        return inline(root, table, new CallGraph(root, table));
+    }
+
+    private boolean inline(JmmNode root, SymbolTable table, CallGraph callGraph) {
+        var usedNames = LoopInvariantCodeMotion.getUsedNames(root);
+
+        int before = inlinedCount;
+
+        // Callees first, so what they inlined is copied along with them
+        for (var component : callGraph.getStronglyConnectedComponents()) {
+            for (var callerName : component) {
+                var caller = callGraph.getMethodDecl(callerName);
+                var types = new TypeUtils(table);
+                types.setCurrentMethod(callerName);
+
+                for (var call : caller.getDescendants("MethodCall")) {
+                    var callee = CallGraph.resolve(call, table, types);
+                    if (callee.isPresent() && callGraph.getMethods().contains(callee.get())) {
+                        inlineCall(call, caller, callGraph.getMethodDecl(callee.get()), callGraph, usedNames);
+                    }
+                }
+            }
+        }
+
+        return inlinedCount > before;
+    }
+
+    private void inlineCall(JmmNode call, JmmNode caller, JmmNode callee, CallGraph callGraph,
+                            Set<String> usedNames) {
+        var calleeName = callee.get("methodName");
+        var reason = getMissedReason(call, caller, callee, callGraph);
+        if (reason.isPresent()) {
+            remarks.add(Remark.missed(getName(), "NotInlined", call, "did not inline " + calleeName + " into "
+                    + caller.get("methodName") + ": " + reason.get()));
+            return;
+        }
+
+        int size = LoopUnroller.estimateSize(callee);
+        var site = call.getParent();
+        var params = callee.getDescendants("Param");
+        var arguments = new ArrayList<>(call.getChildren().subList(1, call.getNumChildren()));
+        var assigned = getAssignedVars(callee);
+
+        // What each parameter and local of the callee becomes in the caller
+        var replacements = new HashMap<String, JmmNode>();
+        var renamed = new HashMap<String, String>();
+        var prefix = LoopInvariantCodeMotion.newTempName(PREFIX, usedNames);
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            var name = param.get("paramName");
+            var argument = arguments.get(i);
+
+            if (!assigned.contains(name) && isSimpleArgument(argument, caller)) {
+                replacements.put(name, argument);
+                continue;
+            }
+
+            var local = newName(prefix, name, usedNames);
+            LoopInvariantCodeMotion.addLocal(caller, local, LoopUnroller.deepCopy(param.getChild(0)));
+            call.removeChild(argument);
+            LoopInvariantCodeMotion.insertBefore(site, LoopInvariantCodeMotion.newAssign(local, argument));
+            renamed.put(name, local);
+        }
+
+        for (var varDecl : callee.getChildren("VarDecl")) {
+            var name = varDecl.get("varName");
+            var local = newName(prefix, name, usedNames);
+            LoopInvariantCodeMotion.addLocal(caller, local, LoopUnroller.deepCopy(varDecl.getChild(0)));
+            renamed.put(name, local);
+        }
+        renamed.forEach((name, local) -> replacements.put(name, LoopInvariantCodeMotion.newIdentifier(local)));
+
+        var statements = callee.getChildren().stream().filter(StatementCfg::isStatement).toList();
+        for (var stmt : statements) {
+            if (stmt.getKind().equals("ReturnStmt")) {
+                break;
+            }
+            LoopInvariantCodeMotion.insertBefore(site, rename(LoopUnroller.deepCopy(stmt), replacements, renamed));
+        }
+
+        var result = statements.isEmpty() || !statements.get(statements.size() - 1).getKind().equals("ReturnStmt")
+                ? null
+                : rename(LoopUnroller.deepCopy(statements.get(statements.size() - 1).getChild(0)), replacements,
+                renamed);
+        remarks.add(Remark.applied(getName(), "Inlined", call, "inlined " + calleeName + " into "
+                + caller.get("methodName") + " (size " + size + ")"));
+        replaceCall(call, site, result);
+
+        inlinedCount++;
+    }
+
+    /**
+     * @return why the call cannot be inlined, if it cannot
+     */
+    private static Optional<String> getMissedReason(JmmNode call, JmmNode caller, JmmNode callee,
+                                                    CallGraph callGraph) {
+        var receiver = call.getChild(0);
+        while (receiver.getKind().equals("Parenthesis")) {
+            receiver = receiver.getChild(0);
+        }
+        if (!receiver.getKind().equals("This")) {
+            return Optional.of("the receiver is not this");
+        }
+
+        var site = call.getParent();
+        if (!isInlinableSite(site)) {
+            return Optional.of("the call is part of a larger expression");
+        }
+
+        var calleeName = callee.get("methodName");
+        if (callGraph.isRecursive(calleeName)) {
+            return Optional.of("the callee is recursive");
+        }
+
+        var params = callee.getDescendants("Param");
+        if (params.stream().anyMatch(param -> param.getChild(0).getKind().equals("VarArgsType"))) {
+            return Optional.of("the callee takes variable arguments");
+        }
+        if (params.size() != call.getNumChildren() - 1) {
+            return Optional.of("the number of arguments does not match");
+        }
+
+        var returns = callee.getDescendants("ReturnStmt");
+        var last = callee.getChild(callee.getNumChildren() - 1);
+        if (returns.size() > 1 || (returns.size() == 1 && returns.get(0) != last)) {
+            return Optional.of("the callee returns before its last statement");
+        }
+        if (site.getKind().equals("ExprStmt") && returns.size() == 1 && !isDiscardable(returns.get(0).getChild(0))) {
+            return Optional.of("the discarded return value has effects");
+        }
+
+        // A name the callee reads as a field or a class would mean a local in the caller
+        var callerSlots = new LocalSlots(caller);
+        var calleeSlots = new LocalSlots(callee);
+        var shadowed = getNames(callee).stream()
+                .filter(name -> !calleeSlots.contains(name) && callerSlots.contains(name))
+                .findFirst();
+        if (shadowed.isPresent()) {
+            return Optional.of("the caller declares " + shadowed.get() + ", which the callee uses");
+        }
+
+        int size = LoopUnroller.estimateSize(callee);
+        long constants = call.getChildren().stream().skip(1)
+                .filter(argument -> argument.getKind().equals("Integer") || argument.getKind().equals("Boolean"))
+                .count();
+        long limit = MAX_INLINE_SIZE + constants * CONSTANT_ARGUMENT_BONUS;
+        if (size > limit) {
+            return Optional.of("the callee is too large (size " + size + ", limit " + limit + ")");
+        }
+        if (LoopUnroller.estimateSize(caller) + size > LoopUnroller.METHOD_SIZE_BUDGET) {
+            return Optional.of("the caller would grow over " + LoopUnroller.METHOD_SIZE_BUDGET);
+        }
+
+        return Optional.empty();
+    }
+
+    private static boolean isInlinableSite(JmmNode site) {
+        return switch (site.getKind()) {
+            case "ExprStmt", "AssignStmt", "ReturnStmt" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return true if dropping the expression cannot change what the program does
+     */
+    private static boolean isDiscardable(JmmNode expr) {
+        if (expr.getKind().equals("MethodCall")) {
+            // Stays as the statement
+            return true;
+        }
+
+        return expr.getDescendantsAndSelfStream().allMatch(node -> switch (node.getKind()) {
+            case "Integer", "Boolean", "Identifier", "This", "Parenthesis", "UnaryOp" -> true;
+            case "BinaryOp" -> !node.get("op").equals("/");
+            default -> false;
+        });
+    }
+
+    /**
+     * Literals and locals of the caller have no effects, and the callee cannot change the locals of the caller.
+     */
+    private static boolean isSimpleArgument(JmmNode argument, JmmNode caller) {
+        return switch (argument.getKind()) {
+            case "Integer", "Boolean", "This" -> true;
+            case "Identifier" -> new LocalSlots(caller).contains(argument.get("value"));
+            default -> false;
+        };
+    }
+
+    /**
+     * Puts the value the callee returns in place of the call.
+     */
+    private static void replaceCall(JmmNode call, JmmNode site, JmmNode result) {
+        if (!site.getKind().equals("ExprStmt") || (result != null && result.getKind().equals("MethodCall"))) {
+            ConstantFoldingVisitor.replace(call, result);
+            return;
+        }
+
+        // The value is not used, and has no effects
+        if (site.getParent().getKind().equals("BlockStmt") || site.getParent().getKind().equals("MethodDecl")) {
+            site.getParent().removeChild(site);
+        } else {
+            site.replace(new JmmNodeImpl(Collections.singletonList("BlockStmt")));
+        }
+    }
+
+    /**
+     * Replaces the parameters and locals of the callee in a copy of one of its statements or expressions.
+     */
+    private static JmmNode rename(JmmNode copy, Map<String, JmmNode> replacements, Map<String, String> renamed) {
+        var nodes = copy.getDescendantsAndSelfStream().toList();
+        var result = copy;
+
+        for (var node : nodes) {
+            switch (node.getKind()) {
+                case "Identifier" -> {
+                    var replacement = replacements.get(node.get("value"));
+                    if (replacement != null) {
+                        var replacementCopy = LoopUnroller.deepCopy(replacement);
+                        if (node == copy) {
+                            result = replacementCopy;
+                        } else {
+                            ConstantFoldingVisitor.replace(node, replacementCopy);
+                        }
+                    }
+                }
+                case "AssignStmt", "ArrayAssignStmt" -> {
+                    var local = renamed.get(node.get("var"));
+                    if (local != null) {
+                        node.put("var", local);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static Set<String> getAssignedVars(JmmNode method) {
+        var assigned = new HashSet<String>();
+        method.getDescendants("AssignStmt").forEach(assign -> assigned.add(assign.get("var")));
+        method.getDescendants("ArrayAssignStmt").forEach(assign -> assigned.add(assign.get("var")));
+        return assigned;
+    }
+
+    /**
+     * @return the names the method reads or assigns
+     */
+    private static Set<String> getNames(JmmNode method) {
+        var names = new HashSet<String>();
+        for (var node : method.getDescendants()) {
+            if (node.getKind().equals("Identifier")) {
+                names.add(node.get("value"));
+            } else if (node.getKind().equals("AssignStmt") || node.getKind().equals("ArrayAssignStmt")) {
+                names.add(node.get("var"));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param prefix name shared by the locals of one inlined call
+     */
+    private static String newName(String prefix, String name, Set<String> usedNames) {
+        var local = prefix + name;
+        for (int i = 0; usedNames.contains(local); i++) {
+            local = prefix + name + i;
+        }
+        usedNames.add(local);
+        return local;
+    }
+
+    /**
+     * @return how many calls were replaced by the body of the callee
+     */
+    public int getInlinedCount() {
+        return inlinedCount;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (inlinedCount == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Inlining: " + inlinedCount + " calls inlined"));
+    }
+
+    /**
+     * @return one remark per call to a method of the class, inlined or not
+     */
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+}
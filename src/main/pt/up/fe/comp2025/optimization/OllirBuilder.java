@@ -0,0 +1,318 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.*;
+
+import pt.up.fe.comp2025.optimization.ssa.InstructionOperands;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Builds an OLLIR class in memory, with the same objects the OLLIR parser builds from the corresponding text.
+ * <p>
+ * The result goes straight to the passes over the OLLIR code and to the Jasmin backend. {@link OllirPrinter} turns it
+ * into text when it has to be read.
+ * <p>
+ * A method is built apart from the class ({@link #newMethod}), and a copy of it is added ({@link #addMethod}), so
+ * the same built method can be added to the class of each compilation.
+ */
+public class OllirBuilder {
+
+    private final ClassUnit classUnit = new ClassUnit();
+
+    public OllirBuilder(String className, String superClass, List<String> imports) {
+        classUnit.setClassName(className);
+        classUnit.setSuperClass(superClass);
+        imports.forEach(classUnit::addImport);
+    }
+
+    public void addField(String name, Type type) {
+        var field = new Field();
+        field.setFieldName(name);
+        field.setFieldType(type);
+        field.setFieldAccessModifier(AccessModifier.PRIVATE);
+        classUnit.addField(field);
+    }
+
+    /**
+     * Adds the constructor without parameters, which only calls the constructor of the super class.
+     */
+    public void addDefaultConstructor() {
+        var constructor = new Method(classUnit);
+        constructor.setConstructMethod();
+        constructor.setMethodName(classUnit.getClassName());
+        constructor.setReturnType(voidType());
+        constructor.addInstr(new InvokeSpecialInstruction(thisOperand(), methodName("<init>"), null, List.of(),
+                voidType(), true));
+        classUnit.addMethod(constructor);
+    }
+
+    /**
+     * Starts a method, which is not part of the class until it is added.
+     *
+     * @param reserved names the temporaries of the method must not take (its variables and the fields it uses)
+     */
+    public MethodBuilder newMethod(String name, boolean isStatic, Type returnType, Set<String> reserved) {
+        var method = new Method(classUnit);
+        method.setMethodName(name);
+        method.setMethodAccessModifier(AccessModifier.PUBLIC);
+        method.setReturnType(returnType);
+        if (isStatic) {
+            method.setStaticMethod();
+        }
+        return new MethodBuilder(method, reserved);
+    }
+
+    /**
+     * Adds a copy of the method, with its own instructions and variable table, so the passes that change this class
+     * never change the method given.
+     */
+    public void addMethod(Method method) {
+        var copy = new Method(classUnit);
+        copy.setMethodName(method.getMethodName());
+        copy.setMethodAccessModifier(method.getMethodAccessModifier());
+        copy.setReturnType(method.getReturnType());
+        if (method.isStaticMethod()) {
+            copy.setStaticMethod();
+        }
+        method.getParams().forEach(copy::addParam);
+
+        var copies = new HashMap<Instruction, Instruction>();
+        for (var instruction : method.getInstructions()) {
+            var instructionCopy = copy(instruction);
+            copies.put(instruction, instructionCopy);
+            copy.addInstr(instructionCopy);
+        }
+        method.getLabels().forEach((label, instruction) -> copy.addLabel(label, copies.get(instruction)));
+        classUnit.addMethod(copy);
+    }
+
+    /**
+     * @return a new instruction with the same operands. Operands are shared, the passes replace them and never
+     * change them
+     */
+    private static Instruction copy(Instruction instruction) {
+        if (instruction instanceof GotoInstruction jump) {
+            return new GotoInstruction(jump.getLabel());
+        }
+        if (instruction instanceof ReturnInstruction ret && ret.getOperand().isEmpty()) {
+            var copy = new ReturnInstruction();
+            copy.setReturnType(ret.getReturnType());
+            return copy;
+        }
+        if (instruction instanceof InvokeSpecialInstruction call) {
+            return new InvokeSpecialInstruction(call.getCaller(), call.getMethodName(),
+                    call.getSuperClass().orElse(null), call.getArguments(),
+                    call.getReturnType(), call.isIsolated());
+        }
+        return InstructionOperands.rewriteUses(instruction, UnaryOperator.identity());
+    }
+
+    /**
+     * Builds the variable tables, as the parser does, and checks every jump has its label.
+     */
+    public ClassUnit build() {
+        classUnit.buildVarTables();
+        try {
+            classUnit.checkMethodLabels();
+        } catch (OllirErrorException e) {
+            throw new RuntimeException("Generated OLLIR jumps to a missing label", e);
+        }
+        return classUnit;
+    }
+
+    public String getClassName() {
+        return classUnit.getClassName();
+    }
+
+    public static Type toOllirType(pt.up.fe.comp.jmm.analysis.table.Type type) {
+        var elementType = switch (type.getName()) {
+            case "int" -> intType();
+            case "boolean" -> boolType();
+            case "void" -> voidType();
+            case "String" -> new BuiltinType(BuiltinKind.STRING);
+            default -> new ClassType(ClassKind.OBJECTREF, type.getName());
+        };
+
+        if (!type.isArray()) {
+            return elementType;
+        }
+        var arrayType = new ArrayType(1);
+        arrayType.setElementType(elementType);
+        return arrayType;
+    }
+
+    public static Type intType() {
+        return new BuiltinType(BuiltinKind.INT32);
+    }
+
+    public static Type boolType() {
+        return new BuiltinType(BuiltinKind.BOOLEAN);
+    }
+
+    public static Type voidType() {
+        return new BuiltinType(BuiltinKind.VOID);
+    }
+
+    public static LiteralElement intLiteral(String value) {
+        return new LiteralElement(value, intType());
+    }
+
+    public static LiteralElement boolLiteral(boolean value) {
+        return new LiteralElement(value ? "1" : "0", boolType());
+    }
+
+    public static Operand operand(String name, Type type) {
+        return new Operand(name, type);
+    }
+
+    public Operand thisOperand() {
+        return new Operand("this", new ClassType(ClassKind.THIS, classUnit.getClassName()));
+    }
+
+    /**
+     * The class of an {@code invokestatic}.
+     */
+    public Operand classOperand(String name) {
+        return new Operand(name, new ClassType(ClassKind.CLASS, classUnit.getClassName()));
+    }
+
+    public static LiteralElement methodName(String name) {
+        return new LiteralElement(name, new BuiltinType(BuiltinKind.STRING));
+    }
+
+    public static Operation operation(OperationType opType, Type type) {
+        return new Operation(opType, type);
+    }
+
+    /**
+     * Appends the instructions of one method.
+     * <p>
+     * Labels are placed on the next instruction added, as in the text, where a label names the instruction after it.
+     * Temporaries are named and reused as in {@link OllirCode}.
+     */
+    public static class MethodBuilder {
+
+        private final Method method;
+        private final Set<String> reserved;
+        private final List<String> pendingLabels = new ArrayList<>();
+        private int tempCounter = 0;
+        private int labelCounter = 0;
+        // By OLLIR type, a variable keeps a single type in the whole method
+        private final Map<String, Deque<String>> freeTemps = new HashMap<>();
+        private final List<Operand> usedTemps = new ArrayList<>();
+
+        private MethodBuilder(Method method, Set<String> reserved) {
+            this.method = method;
+            this.reserved = reserved;
+        }
+
+        public void addParam(String name, Type type) {
+            var param = new Operand(name, type);
+            param.setParamId(method.getParams().size() + (method.isStaticMethod() ? 0 : 1));
+            method.addParam(param);
+        }
+
+        /**
+         * @return a temporary of the given type not in use
+         */
+        public Operand newTemp(Type type) {
+            var free = freeTemps.get(OllirPrinter.type(type));
+            String name;
+            if (free != null && !free.isEmpty()) {
+                name = free.pop();
+            } else {
+                do {
+                    name = "t" + tempCounter++;
+                } while (reserved.contains(name));
+            }
+
+            var temp = new Operand(name, type);
+            usedTemps.add(temp);
+            return temp;
+        }
+
+        /**
+         * Frees every temporary taken since the last call, their values are no longer needed.
+         */
+        public void releaseTemps() {
+            for (var temp : usedTemps) {
+                freeTemps.computeIfAbsent(OllirPrinter.type(temp.getType()), type -> new ArrayDeque<>())
+                        .push(temp.getName());
+            }
+            usedTemps.clear();
+        }
+
+        public String newLabel(String prefix) {
+            return prefix + "_" + labelCounter++;
+        }
+
+        public void placeLabel(String label) {
+            pendingLabels.add(label);
+        }
+
+        public void add(Instruction instruction) {
+            for (var label : pendingLabels) {
+                method.addLabel(label, instruction);
+            }
+            pendingLabels.clear();
+            method.addInstr(instruction);
+        }
+
+        public void assign(Operand dest, Instruction rhs) {
+            add(new AssignInstruction(dest, dest.getType(), rhs));
+        }
+
+        public void jump(String label) {
+            add(new GotoInstruction(label));
+        }
+
+        public void branch(Instruction condition, String label) {
+            CondBranchInstruction branch = condition instanceof OpInstruction op
+                    ? new OpCondInstruction(op)
+                    : new SingleOpCondInstruction((SingleOpInstruction) condition);
+            branch.setLabel(label);
+            add(branch);
+        }
+
+        public void ret(Element value) {
+            var instruction = value == null ? new ReturnInstruction() : new ReturnInstruction(value);
+            instruction.setReturnType(method.getReturnType());
+            add(instruction);
+        }
+
+        /**
+         * @return false if the last instruction is a jump or a return, and no label is waiting for the next one
+         */
+        public boolean fallsThrough() {
+            if (!pendingLabels.isEmpty() || method.getInstructions().isEmpty()) {
+                return true;
+            }
+            var last = method.getInstructions().get(method.getInstructions().size() - 1);
+            return !(last instanceof GotoInstruction) && !(last instanceof ReturnInstruction);
+        }
+
+        /**
+         * Closes the method, with a return if a void method may run past its last instruction.
+         */
+        public void finish() {
+            if (fallsThrough() && BuiltinType.is(method.getReturnType(), BuiltinKind.VOID)) {
+                ret(null);
+            }
+            // Only a method that is missing a return could still end with labels, nothing can jump to them
+            pendingLabels.clear();
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+    }
+}
@@ -0,0 +1,629 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static pt.up.fe.comp2025.optimization.OllirBuilder.*;
+import static pt.up.fe.comp2025.optimization.OllirExprGeneratorVisitor.unwrap;
+
+/**
+ * Lowers the AST of a class to an OLLIR {@link ClassUnit} in memory, with an {@link OllirBuilder}.
+ * <p>
+ * The lowering is the one of {@link OllirGeneratorVisitor} and {@link OllirExprGeneratorVisitor}, instruction for
+ * instruction, with the same temporaries and labels: printed with {@link OllirPrinter}, the class is the code the
+ * generator writes. Each method of the generator has its counterpart here, with the same name.
+ * <p>
+ * Methods are built concurrently and cached across compilations in the same way, with the same
+ * {@link OllirGeneratorVisitor.MethodKey}. A cached method is never given to the passes, the class gets a copy.
+ */
+public class OllirBuilderVisitor extends AJmmVisitor<Void, Void> {
+
+    private static final String TAIL_CALL_LABEL = "methodentry";
+
+    private final SymbolTable table;
+    private final TypeUtils types;
+    private final MethodCache<OllirGeneratorVisitor.MethodKey, Method> cache;
+    private final Executor executor;
+
+    private OllirBuilder builder;
+    private OllirBuilder.MethodBuilder code;
+    private String currentMethod;
+
+    public OllirBuilderVisitor(SymbolTable table) {
+        this(table, new MethodCache<>());
+    }
+
+    public OllirBuilderVisitor(SymbolTable table, MethodCache<OllirGeneratorVisitor.MethodKey, Method> cache) {
+        this(table, cache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cache the methods built by the previous compilation
+     * @param executor builds the methods, it is shared between compilations and not shut down here
+     */
+    public OllirBuilderVisitor(SymbolTable table, MethodCache<OllirGeneratorVisitor.MethodKey, Method> cache,
+                               Executor executor) {
+        this.table = table;
+        this.types = new TypeUtils(table);
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    /**
+     * @param root the Program node
+     */
+    public ClassUnit build(JmmNode root) {
+        builder = new OllirBuilder(table.getClassName(), table.getSuper(), table.getImports());
+
+        for (var field : table.getFields()) {
+            builder.addField(field.getName(), toOllirType(field.getType()));
+        }
+        builder.addDefaultConstructor();
+
+        // Methods in the order of the symbol table
+        var methods = new ArrayList<JmmNode>();
+        for (var classDecl : root.getChildren("ClassDecl")) {
+            for (var methodName : table.getMethods()) {
+                for (var child : classDecl.getChildren("MethodDecl")) {
+                    if (child.get("methodName").equals(methodName)) {
+                        methods.add(child);
+                    }
+                }
+            }
+        }
+
+        cache.begin();
+        buildMethods(methods).forEach(builder::addMethod);
+        cache.end();
+        return builder.build();
+    }
+
+    /**
+     * @return the methods, in the order given
+     */
+    private List<Method> buildMethods(List<JmmNode> methods) {
+        if (methods.size() <= 1) {
+            return methods.stream().map(this::getMethod).toList();
+        }
+
+        var futures = methods.stream()
+                .map(method -> CompletableFuture.supplyAsync(() -> getMethod(method), executor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * The temporaries, labels and current method of a visitor belong to one method, so each method gets its own.
+     */
+    private Method getMethod(JmmNode node) {
+        String name = node.get("methodName");
+        return cache.get(name, OllirGeneratorVisitor.methodKey(table, node),
+                () -> new OllirBuilderVisitor(table, cache, executor).buildMethod(builder, node));
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit("ReturnStmt", this::visitReturn);
+        addVisit("AssignStmt", this::visitAssignStmt);
+        addVisit("ArrayAssignStmt", this::visitArrayAssignStmt);
+        addVisit("IfStmt", this::visitIfStmt);
+        addVisit("WhileStmt", this::visitWhileStmt);
+        addVisit("ExprStmt", this::visitExprStmt);
+        addVisit("BlockStmt", this::visitBlockStmt);
+
+        setDefaultVisit((node, unused) -> null);
+    }
+
+    private Method buildMethod(OllirBuilder builder, JmmNode node) {
+        this.builder = builder;
+        currentMethod = node.get("methodName");
+        types.setCurrentMethod(currentMethod);
+
+        // Temporaries never take the name of a variable, or of a field the method uses
+        var reserved = OllirGeneratorVisitor.getNames(node);
+        table.getParameters(currentMethod).forEach(param -> reserved.add(param.getName()));
+        table.getLocalVariables(currentMethod).forEach(local -> reserved.add(local.getName()));
+
+        boolean isStatic = currentMethod.equals("main");
+        code = builder.newMethod(currentMethod, isStatic, toOllirType(table.getReturnType(currentMethod)), reserved);
+        for (var param : table.getParameters(currentMethod)) {
+            code.addParam(param.getName(), toOllirType(param.getType()));
+        }
+
+        // Recursive tail calls jump back here
+        boolean hasTailCalls = node.getDescendants("ReturnStmt").stream()
+                .anyMatch(ret -> ret.hasAttribute(TailCallEliminator.TAIL_CALL));
+        if (hasTailCalls) {
+            code.placeLabel(TAIL_CALL_LABEL);
+        }
+
+        for (var child : node.getChildren()) {
+            if (child.getKind().endsWith("Stmt")) {
+                visit(child);
+            }
+        }
+
+        // Implicit return of void methods
+        code.finish();
+        return code.getMethod();
+    }
+
+    private Void visitReturn(JmmNode node, Void unused) {
+        if (node.hasAttribute(TailCallEliminator.TAIL_CALL)) {
+            generateTailCall(node.getChild(0));
+            return null;
+        }
+
+        if (node.getNumChildren() == 0) {
+            code.ret(null);
+            return null;
+        }
+
+        code.ret(visitOperand(node.getChild(0)));
+        code.releaseTemps();
+        return null;
+    }
+
+    /**
+     * Copies the arguments of a recursive call into the parameters, and jumps back to the start of the method.
+     */
+    private void generateTailCall(JmmNode call) {
+        List<Symbol> params = table.getParameters(currentMethod);
+
+        // Arguments may read the parameters, those are computed before the first parameter changes
+        List<Element> values = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            JmmNode arg = unwrap(call.getChild(i + 1));
+
+            // A parameter passed in its own position keeps its value
+            if (arg.getKind().equals("Identifier") && arg.get("value").equals(params.get(i).getName())) {
+                values.add(null);
+                continue;
+            }
+
+            // Literals and locals are copied as they are
+            boolean readsParams = arg.getDescendantsAndSelfStream()
+                    .anyMatch(node -> node.getKind().equals("Identifier")
+                            && params.stream().anyMatch(param -> param.getName().equals(node.get("value"))));
+            if (!readsParams && (arg.getKind().equals("Integer") || arg.getKind().equals("Boolean")
+                    || arg.getKind().equals("Identifier") && !isField(arg.get("value")))) {
+                values.add(visitOperand(arg));
+                continue;
+            }
+
+            var temp = code.newTemp(toOllirType(params.get(i).getType()));
+            assignTo(temp, arg);
+            values.add(temp);
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            if (values.get(i) != null) {
+                var param = operand(params.get(i).getName(), toOllirType(params.get(i).getType()));
+                code.assign(param, new SingleOpInstruction(values.get(i)));
+            }
+        }
+
+        code.jump(TAIL_CALL_LABEL);
+        code.releaseTemps();
+    }
+
+    private Void visitAssignStmt(JmmNode node, Void unused) {
+        String name = node.get("var");
+        var type = toOllirType(getVariableType(name));
+
+        if (isField(name)) {
+            var value = visitOperand(node.getChild(0));
+            code.add(new PutFieldInstruction(builder.thisOperand(), operand(name, type), value, voidType()));
+        } else {
+            // A single operation goes straight to the variable
+            assignTo(operand(name, type), node.getChild(0));
+        }
+
+        code.releaseTemps();
+        return null;
+    }
+
+    private Void visitArrayAssignStmt(JmmNode node, Void unused) {
+        String name = node.get("var");
+        var arrayType = getVariableType(name);
+        var type = toOllirType(arrayType);
+        var elementType = toOllirType(new Type(arrayType.getName(), false));
+
+        // Arrays held by fields are stored through a temporary
+        var array = operand(name, type);
+        if (isField(name)) {
+            array = code.newTemp(type);
+            code.assign(array, new GetFieldInstruction(builder.thisOperand(), operand(name, type), type));
+        }
+
+        var index = visitOperand(node.getChild(0));
+        var value = visitOperand(node.getChild(1));
+        code.assign(new ArrayOperand(array.getName(), elementType, List.of(index)), new SingleOpInstruction(value));
+        code.releaseTemps();
+        return null;
+    }
+
+    /**
+     * The else branch goes right after the test, the then branch after it. Only a branch that can run past its end
+     * jumps over the other.
+     */
+    private Void visitIfStmt(JmmNode node, Void unused) {
+        String endifLabel = code.newLabel("endif");
+
+        // Without an else branch, the test jumps over the then branch instead
+        boolean hasElse = node.getNumChildren() > 2
+                && !(node.getChild(2).getKind().equals("BlockStmt") && node.getChild(2).getNumChildren() == 0);
+        if (!hasElse) {
+            branchIfFalse(node.getChild(0), endifLabel);
+            code.releaseTemps();
+            visit(node.getChild(1));
+            code.placeLabel(endifLabel);
+            return null;
+        }
+
+        String thenLabel = code.newLabel("then");
+        branchIf(node.getChild(0), thenLabel);
+        code.releaseTemps();
+
+        visit(node.getChild(2));
+        boolean jumpsToEnd = code.fallsThrough();
+        if (jumpsToEnd) {
+            code.jump(endifLabel);
+        }
+
+        code.placeLabel(thenLabel);
+        visit(node.getChild(1));
+        if (jumpsToEnd) {
+            code.placeLabel(endifLabel);
+        }
+        return null;
+    }
+
+    /**
+     * Rotated, the condition is at the bottom and each iteration takes a single branch back to the body.
+     */
+    private Void visitWhileStmt(JmmNode node, Void unused) {
+        String bodyLabel = code.newLabel("whilebody");
+        String condLabel = code.newLabel("whilecond");
+
+        code.jump(condLabel);
+
+        code.placeLabel(bodyLabel);
+        visit(node.getChild(1));
+
+        code.placeLabel(condLabel);
+        branchIf(node.getChild(0), bodyLabel);
+        code.releaseTemps();
+        return null;
+    }
+
+    private Void visitExprStmt(JmmNode node, Void unused) {
+        var expr = unwrap(node.getChild(0));
+
+        if (expr.getKind().equals("MethodCall")) {
+            code.add(getCall(expr, true));
+        } else {
+            visitOperand(expr);
+        }
+        code.releaseTemps();
+        return null;
+    }
+
+    private Void visitBlockStmt(JmmNode node, Void unused) {
+        node.getChildren().forEach(this::visit);
+        return null;
+    }
+
+    /**
+     * @return the element that holds the value of the expression. Literals, parameters and locals are used where
+     * they are, only the value of any other expression needs a temporary
+     */
+    private Element visitOperand(JmmNode expr) {
+        expr = unwrap(expr);
+
+        switch (expr.getKind()) {
+            case "Integer" -> {
+                return intLiteral(expr.get("value"));
+            }
+            case "Boolean" -> {
+                // In OLLIR true is 1, false is 0
+                return boolLiteral(expr.get("value").equals("true"));
+            }
+            case "This" -> {
+                return builder.thisOperand();
+            }
+            case "Identifier" -> {
+                // Fields are read into a temporary
+                String name = expr.get("value");
+                if (!isField(name)) {
+                    return operand(name, toOllirType(getVariableType(name)));
+                }
+            }
+            default -> {
+            }
+        }
+
+        var temp = code.newTemp(toOllirType(getType(expr)));
+        assignTo(temp, expr);
+        return temp;
+    }
+
+    /**
+     * Writes the value of the expression to the variable {@code dest}.
+     */
+    private void assignTo(Operand dest, JmmNode expr) {
+        expr = unwrap(expr);
+
+        switch (expr.getKind()) {
+            case "BinaryOp" -> {
+                if (expr.get("op").equals("&&")) {
+                    assignAnd(dest, expr);
+                } else {
+                    code.assign(dest, getRhs(expr));
+                }
+            }
+            case "GeneralDeclaration" -> {
+                code.assign(dest, new NewInstruction(operand(expr.get("name"), dest.getType()), List.of(),
+                        dest.getType(), false));
+                code.add(new InvokeSpecialInstruction(dest, methodName("<init>"), null, List.of(), voidType(),
+                        true));
+            }
+            case "ArrayInitializer" -> {
+                // The elements may read the destination, they are computed before it changes
+                var elements = expr.getChildren().stream().map(this::visitOperand).toList();
+
+                var size = intLiteral(Integer.toString(elements.size()));
+                code.assign(dest, new NewInstruction(operand("array", dest.getType()), List.of(size),
+                        dest.getType(), false));
+                var elementType = ((org.specs.comp.ollir.type.ArrayType) dest.getType()).getElementType();
+                for (int i = 0; i < elements.size(); i++) {
+                    var element = new ArrayOperand(dest.getName(), elementType,
+                            List.of(intLiteral(Integer.toString(i))));
+                    code.assign(element, new SingleOpInstruction(elements.get(i)));
+                }
+            }
+            default -> code.assign(dest, getRhs(expr));
+        }
+    }
+
+    /**
+     * {@code dest = a && b}, the second operand is only computed if the first holds.
+     */
+    private void assignAnd(Operand dest, JmmNode expr) {
+        String falseLabel = code.newLabel("andfalse");
+        String endLabel = code.newLabel("andend");
+
+        branchIfFalse(expr.getChild(0), falseLabel);
+        assignTo(dest, expr.getChild(1));
+        code.jump(endLabel);
+        code.placeLabel(falseLabel);
+        code.assign(dest, new SingleOpInstruction(boolLiteral(false)));
+        code.placeLabel(endLabel);
+    }
+
+    /**
+     * Jumps to the label if the condition holds, and falls through otherwise.
+     * <p>
+     * Comparisons, negations and conjunctions become branches, their values are never stored.
+     */
+    private void branchIf(JmmNode condition, String label) {
+        condition = unwrap(condition);
+
+        switch (condition.getKind()) {
+            case "UnaryOp" -> branchIfFalse(condition.getChild(0), label);
+            case "BinaryOp" -> {
+                if (condition.get("op").equals("<")) {
+                    branchCompare(condition, OperationType.LTH, label);
+                } else if (condition.get("op").equals("&&")) {
+                    String skipLabel = code.newLabel("andskip");
+                    branchIfFalse(condition.getChild(0), skipLabel);
+                    branchIf(condition.getChild(1), label);
+                    code.placeLabel(skipLabel);
+                } else {
+                    branchCompareZero(condition, OperationType.NEQ, label);
+                }
+            }
+            default -> branchCompareZero(condition, OperationType.NEQ, label);
+        }
+    }
+
+    /**
+     * Jumps to the label if the condition does not hold, and falls through otherwise.
+     */
+    private void branchIfFalse(JmmNode condition, String label) {
+        condition = unwrap(condition);
+
+        switch (condition.getKind()) {
+            case "UnaryOp" -> branchIf(condition.getChild(0), label);
+            case "BinaryOp" -> {
+                if (condition.get("op").equals("<")) {
+                    branchCompare(condition, OperationType.GTE, label);
+                } else if (condition.get("op").equals("&&")) {
+                    branchIfFalse(condition.getChild(0), label);
+                    branchIfFalse(condition.getChild(1), label);
+                } else {
+                    branchCompareZero(condition, OperationType.EQ, label);
+                }
+            }
+            default -> branchCompareZero(condition, OperationType.EQ, label);
+        }
+    }
+
+    private void branchCompare(JmmNode comparison, OperationType opType, String label) {
+        var left = visitOperand(comparison.getChild(0));
+        var right = visitOperand(comparison.getChild(1));
+        code.branch(new BinaryOpInstruction(left, operation(opType, boolType()), right), label);
+    }
+
+    /**
+     * A boolean is compared with zero, which needs no constant in the bytecode.
+     */
+    private void branchCompareZero(JmmNode condition, OperationType opType, String label) {
+        var value = visitOperand(condition);
+        code.branch(new BinaryOpInstruction(value, operation(opType, boolType()), boolLiteral(false)), label);
+    }
+
+    /**
+     * @return the right-hand side of an assignment of the value of the expression, after adding the instructions
+     * that compute its operands
+     */
+    private Instruction getRhs(JmmNode expr) {
+        switch (expr.getKind()) {
+            case "BinaryOp" -> {
+                var left = visitOperand(expr.getChild(0));
+                var right = visitOperand(expr.getChild(1));
+                var opType = switch (expr.get("op")) {
+                    case "+" -> OperationType.ADD;
+                    case "-" -> OperationType.SUB;
+                    case "*" -> OperationType.MUL;
+                    case "/" -> OperationType.DIV;
+                    case "<" -> OperationType.LTH;
+                    default -> throw new IllegalArgumentException("Operator not supported: " + expr.get("op"));
+                };
+                var type = opType == OperationType.LTH ? boolType() : intType();
+                return new BinaryOpInstruction(left, operation(opType, type), right);
+            }
+            case "UnaryOp" -> {
+                return new UnaryOpInstruction(operation(OperationType.NOTB, boolType()),
+                        visitOperand(expr.getChild(0)));
+            }
+            case "Identifier" -> {
+                String name = expr.get("value");
+                if (isField(name)) {
+                    var type = toOllirType(getVariableType(name));
+                    return new GetFieldInstruction(builder.thisOperand(), operand(name, type), type);
+                }
+                return new SingleOpInstruction(visitOperand(expr));
+            }
+            case "ArrayAccess" -> {
+                var array = (Operand) visitOperand(expr.getChild(0));
+                var index = visitOperand(expr.getChild(1));
+                return new SingleOpInstruction(new ArrayOperand(array.getName(), toOllirType(getType(expr)),
+                        List.of(index)));
+            }
+            case "LengthOp" -> {
+                return new ArrayLengthInstruction(visitOperand(expr.getChild(0)), intType());
+            }
+            case "IntArrayDeclaration" -> {
+                var size = visitOperand(expr.getChild(0));
+                var type = toOllirType(TypeUtils.newIntArrayType());
+                return new NewInstruction(operand("array", type), List.of(size), type, false);
+            }
+            case "MethodCall" -> {
+                return getCall(expr, false);
+            }
+            default -> {
+                return new SingleOpInstruction(visitOperand(expr));
+            }
+        }
+    }
+
+    /**
+     * Calls on an imported class are static, any other call is virtual.
+     *
+     * @param isStatement true if the value of the call is discarded
+     */
+    private CallInstruction getCall(JmmNode call, boolean isStatement) {
+        var receiver = unwrap(call.getChild(0));
+        var returnType = toOllirType(getCallType(call, isStatement));
+        boolean isStatic = receiver.getKind().equals("Identifier") && isClassName(receiver.get("value"));
+        var caller = isStatic ? builder.classOperand(receiver.get("value")) : visitOperand(receiver);
+
+        List<Element> args = new ArrayList<>();
+        for (int i = 1; i < call.getNumChildren(); i++) {
+            args.add(visitOperand(call.getChild(i)));
+        }
+
+        var name = methodName(call.get("value"));
+        return isStatic
+                ? new InvokeStaticInstruction(caller, name, args, returnType, isStatement)
+                : new InvokeVirtualInstruction(caller, name, args, returnType, isStatement);
+    }
+
+    /**
+     * Methods of this class have their declared type. The type of any other method is the one its use expects.
+     */
+    private Type getCallType(JmmNode call, boolean isStatement) {
+        var receiver = unwrap(call.getChild(0));
+        boolean onThisClass = receiver.getKind().equals("This")
+                || (receiver.getKind().equals("Identifier") && receiver.get("value").equals(table.getClassName()));
+        if (onThisClass && table.getMethods().contains(call.get("value"))) {
+            return table.getReturnType(call.get("value"));
+        }
+        if (isStatement) {
+            return new Type("void", false);
+        }
+
+        var parent = call.getParent();
+        while (parent.getKind().equals("Parenthesis")) {
+            parent = parent.getParent();
+        }
+        return switch (parent.getKind()) {
+            case "IfStmt", "WhileStmt", "UnaryOp" -> TypeUtils.newBooleanType();
+            case "BinaryOp" -> parent.get("op").equals("&&") ? TypeUtils.newBooleanType() : TypeUtils.newIntType();
+            case "AssignStmt" -> getVariableType(parent.get("var"));
+            case "ReturnStmt" -> table.getReturnType(currentMethod);
+            default -> TypeUtils.newIntType();
+        };
+    }
+
+    /**
+     * @return the type of the value of the expression
+     */
+    private Type getType(JmmNode expr) {
+        expr = unwrap(expr);
+        return expr.getKind().equals("MethodCall") ? getCallType(expr, false) : types.getExprType(expr);
+    }
+
+    private boolean isClassName(String name) {
+        if (findVariable(name).isPresent() || isField(name)) {
+            return false;
+        }
+        return name.equals(table.getClassName()) || table.getImports().stream()
+                .anyMatch(imported -> imported.equals(name) || imported.endsWith("." + name));
+    }
+
+    /**
+     * @return true if the name is a field, and not hidden by a parameter or local of the current method
+     */
+    private boolean isField(String name) {
+        return findVariable(name).isEmpty() && table.getFields().stream()
+                .anyMatch(field -> field.getName().equals(name));
+    }
+
+    private Optional<Symbol> findVariable(String name) {
+        return Stream.concat(table.getParameters(currentMethod).stream(),
+                        table.getLocalVariables(currentMethod).stream())
+                .filter(symbol -> symbol.getName().equals(name))
+                .findFirst();
+    }
+
+    /**
+     * @return the type of a parameter, local or field, int if there is none with the name
+     */
+    private Type getVariableType(String name) {
+        return findVariable(name)
+                .or(() -> table.getFields().stream().filter(field -> field.getName().equals(name)).findFirst())
+                .map(Symbol::getType)
+                .orElse(TypeUtils.newIntType());
+    }
+}
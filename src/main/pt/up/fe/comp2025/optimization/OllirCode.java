@@ -0,0 +1,133 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The OLLIR code of one method, written once from start to end.
+ * <p>
+ * Statements and expressions append their instructions here as they are visited, instead of returning strings for
+ * the parent to copy, so generating a method takes time linear in the size of its code. It also names the
+ * temporaries and labels of the method.
+ * <p>
+ * A temporary only holds a value between two instructions of the same statement, so the temporaries of a statement
+ * are free again once it is written ({@link #releaseTemps()}), and the next statements reuse them.
+ */
+public class OllirCode {
+
+    private static final String INDENT = "    ";
+    private static final String END_STMT = ";\n";
+
+    private final StringBuilder code = new StringBuilder();
+    private final Set<String> reserved;
+    private int tempCounter = 0;
+    private int labelCounter = 0;
+    // By OLLIR type, a variable keeps a single type in the whole method
+    private final Map<String, Deque<String>> freeTemps = new HashMap<>();
+    private final List<String> usedTemps = new ArrayList<>();
+
+    /**
+     * @param reserved names the temporaries must not take (the variables of the method and the fields)
+     */
+    public OllirCode(Set<String> reserved) {
+        this.reserved = reserved;
+    }
+
+    /**
+     * @param type the OLLIR type of the temporary, e.g. {@code .i32}
+     * @return the name of a temporary not in use
+     */
+    public String newTemp(String type) {
+        var free = freeTemps.get(type);
+        String name;
+        if (free != null && !free.isEmpty()) {
+            name = free.pop();
+        } else {
+            do {
+                name = "t" + tempCounter++;
+            } while (reserved.contains(name));
+        }
+
+        usedTemps.add(name + type);
+        return name;
+    }
+
+    /**
+     * Frees every temporary taken since the last call, their values are no longer needed.
+     */
+    public void releaseTemps() {
+        for (var temp : usedTemps) {
+            int typeStart = temp.indexOf('.');
+            freeTemps.computeIfAbsent(temp.substring(typeStart), type -> new ArrayDeque<>())
+                    .push(temp.substring(0, typeStart));
+        }
+        usedTemps.clear();
+    }
+
+    public String newLabel(String prefix) {
+        return prefix + "_" + labelCounter++;
+    }
+
+    /**
+     * Starts an instruction, which is then written with {@link #append} and closed with {@link #end()}.
+     */
+    public OllirCode stmt() {
+        code.append(INDENT).append(INDENT);
+        return this;
+    }
+
+    public OllirCode append(String text) {
+        code.append(text);
+        return this;
+    }
+
+    public OllirCode append(int value) {
+        code.append(value);
+        return this;
+    }
+
+    public void end() {
+        code.append(END_STMT);
+    }
+
+    public void label(String label) {
+        code.append(INDENT).append(label).append(":\n");
+    }
+
+    public void jump(String label) {
+        stmt().append("goto ").append(label).end();
+    }
+
+    /**
+     * {@code dest :=.type rhs;}
+     */
+    public void assign(String dest, String type, String rhs) {
+        stmt().append(dest).append(type).append(" :=").append(type).append(" ").append(rhs).end();
+    }
+
+    /**
+     * @return true if the last instruction written is a return or a jump
+     */
+    public boolean endsInJump() {
+        int start = code.lastIndexOf("\n", code.length() - 2) + 1;
+        var last = code.substring(start).trim();
+        return last.startsWith("ret") || last.startsWith("goto ");
+    }
+
+    /**
+     * Copies the code to the end of the given builder.
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(code);
+    }
+
+    @Override
+    public String toString() {
+        return code.toString();
+    }
+}
@@ -3,435 +3,358 @@ package pt.up.fe.comp2025.optimization;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
+ * <p>
+ * The instructions that compute an expression are written to the {@link OllirCode} of the current method, and
+ * visiting the expression returns the element that holds its value. Literals, parameters and locals are used where
+ * they are, only the value of any other expression needs a temporary.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
-
-    private static final String SPACE = " ";
-    private static final String ASSIGN = ":=";
-    private final String END_STMT = ";\n";
+public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult> {
 
     private final SymbolTable table;
     private final TypeUtils types;
     private final OptUtils ollirTypes;
 
-    private int tempCounter = 0;
     private String currentMethod;
+    private OllirCode code;
 
     public OllirExprGeneratorVisitor(SymbolTable table) {
         this.table = table;
         this.types = new TypeUtils(table);
         this.ollirTypes = new OptUtils(types);
-        setDefaultValue(() -> OllirExprResult.EMPTY);
     }
 
     @Override
     protected void buildVisitor() {
-        addVisit("Identifier", this::visitIdentifier);
         addVisit("Integer", this::visitInteger);
         addVisit("Boolean", this::visitBoolean);
-        addVisit("BinaryOp", this::visitBinaryOp);
-        addVisit("UnaryOp", this::visitUnaryOp);
-        addVisit("ArrayAccess", this::visitArrayAccess);
-        addVisit("MethodCall", this::visitMethodCall);
-        addVisit("LengthOp", this::visitLengthOp);
+        addVisit("Identifier", this::visitIdentifier);
         addVisit("This", this::visitThis);
-        addVisit("GeneralDeclaration", this::visitGeneralDeclaration);
-        addVisit("IntArrayDeclaration", this::visitIntArrayDeclaration);
-        addVisit("ArrayInitializer", this::visitArrayInitializer);
         addVisit("Parenthesis", this::visitParenthesis);
 
-        setDefaultVisit(this::defaultVisit);
+        // Any other expression is computed into a temporary
+        setDefaultVisit(this::visitToTemp);
     }
 
-    public void setCurrentMethod(String methodName) {
+    /**
+     * Expressions visited next belong to the given method, and write their instructions to its code.
+     */
+    public void setCurrentMethod(String methodName, OllirCode code) {
         this.currentMethod = methodName;
+        this.code = code;
         this.types.setCurrentMethod(methodName);
     }
 
     private OllirExprResult visitInteger(JmmNode node, Void unused) {
-        Type intType = TypeUtils.newIntType();
-        String ollirIntType = ollirTypes.toOllirType(intType);
-        String code = node.get("value") + ollirIntType;
-        return new OllirExprResult(code);
+        return new OllirExprResult(node.get("value") + ".i32");
     }
 
     private OllirExprResult visitBoolean(JmmNode node, Void unused) {
-        Type boolType = TypeUtils.newBooleanType();
-        String ollirBoolType = ollirTypes.toOllirType(boolType);
-
         // In OLLIR true is 1, false is 0
         String value = node.get("value").equals("true") ? "1" : "0";
-        String code = value + ollirBoolType;
-
-        return new OllirExprResult(code);
+        return new OllirExprResult(value + ".bool");
     }
 
     private OllirExprResult visitIdentifier(JmmNode node, Void unused) {
         String id = node.get("value");
-        Type type = resolveVariableType(id);
-        String ollirType = ollirTypes.toOllirType(type);
-
-        String code = id + ollirType;
-        return new OllirExprResult(code);
-    }
-
-    private OllirExprResult visitBinaryOp(JmmNode node, Void unused) {
-        OllirExprResult lhs = visit(node.getChildren().get(0));
-        OllirExprResult rhs = visit(node.getChildren().get(1));
-
-        StringBuilder computation = new StringBuilder();
-
-        // Add code to compute the children
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
-
-        // Determine the type of the result
-        Type resType = types.getExprType(node);
-        String resOllirType = ollirTypes.toOllirType(resType);
-
-        // Generate a temporary variable for the result
-        String tempVar = generateTemp();
-        String resultVar = tempVar + resOllirType;
-
-        // Build the binary operation
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(resOllirType).append(SPACE)
-                .append(lhs.getCode()).append(SPACE);
 
-        // Map Java operator to OLLIR operator
-        String ollirOp = mapOperator(node.get("op"));
-        computation.append(ollirOp).append(resOllirType).append(SPACE)
-                .append(rhs.getCode()).append(END_STMT);
-
-        return new OllirExprResult(resultVar, computation.toString());
-    }
-
-    private OllirExprResult visitUnaryOp(JmmNode node, Void unused) {
-        OllirExprResult operand = visit(node.getChildren().get(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(operand.getComputation());
-
-        // Determine result type
-        Type resType = types.getExprType(node);
-        String resOllirType = ollirTypes.toOllirType(resType);
-
-        // Generate temporary variable
-        String tempVar = generateTemp();
-        String resultVar = tempVar + resOllirType;
-
-        // Build unary operation based on operator
-        String op = node.get("op");
-        if (op.equals("!")) {
-            // Logical NOT - use xor with 1 (true) for boolean negation
-            computation.append(resultVar).append(SPACE)
-                    .append(ASSIGN).append(resOllirType).append(SPACE)
-                    .append("1").append(resOllirType).append(SPACE)
-                    .append("^.bool").append(SPACE)  // XOR operator for boolean negation
-                    .append(operand.getCode()).append(END_STMT);
-        } else {
-            // For arithmetic negation (-)
-            computation.append(resultVar).append(SPACE)
-                    .append(ASSIGN).append(resOllirType).append(SPACE)
-                    .append("0").append(resOllirType).append(SPACE)
-                    .append("-.i32").append(SPACE)  // Subtraction for negation
-                    .append(operand.getCode()).append(END_STMT);
+        // Fields are read into a temporary
+        if (isField(id)) {
+            return visitToTemp(node, unused);
         }
 
-        return new OllirExprResult(resultVar, computation.toString());
+        return new OllirExprResult(id + ollirTypes.toOllirType(getVariableType(id)));
     }
 
-    private OllirExprResult visitArrayAccess(JmmNode node, Void unused) {
-        // Get array and index expressions
-        OllirExprResult arrayExpr = visit(node.getChildren().get(0));
-        OllirExprResult indexExpr = visit(node.getChildren().get(1));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(arrayExpr.getComputation());
-        computation.append(indexExpr.getComputation());
-
-        // Determine element type of the array
-        Type arrayType = types.getExprType(node.getChildren().get(0));
-        Type elementType = new Type(arrayType.getName(), false);
-        String elementTypeStr = ollirTypes.toOllirType(elementType);
-
-        // Generate temporary variable for the array access result
-        String tempVar = generateTemp();
-        String resultVar = tempVar + elementTypeStr;
-
-        // Generate array access instruction
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(elementTypeStr).append(SPACE)
-                .append(arrayExpr.getCode()).append("[")
-                .append(indexExpr.getCode()).append("]")
-                .append(elementTypeStr).append(END_STMT);
-
-        return new OllirExprResult(resultVar, computation.toString());
+    private OllirExprResult visitThis(JmmNode node, Void unused) {
+        return new OllirExprResult("this." + table.getClassName());
     }
 
-    private OllirExprResult visitMethodCall(JmmNode node, Void unused) {
-        // Get the receiver and method name
-        OllirExprResult receiver = visit(node.getChildren().get(0));
-        String methodName = node.get("value");
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(receiver.getComputation());
-
-        // Process arguments
-        List<String> argCodes = new ArrayList<>();
-        List<OllirExprResult> argResults = new ArrayList<>();
-
-        for (int i = 1; i < node.getNumChildren(); i++) {
-            OllirExprResult arg = visit(node.getChildren().get(i));
-            computation.append(arg.getComputation());
-            argCodes.add(arg.getCode());
-            argResults.add(arg);
-        }
-
-        // Determine return type - need to check if this is a method of the current class
-        Type returnType;
-        if (table.getMethods().contains(methodName) &&
-                receiver.getCode().startsWith("this")) {
-            // Local method call
-            returnType = table.getReturnType(methodName);
-        } else {
-            // External method call - assume int for now, semantic analysis should have checked
-            returnType = new Type("int", false);
-        }
-
-        String returnTypeStr = ollirTypes.toOllirType(returnType);
-
-        // Generate temporary variable for the result if not void
-        String tempVar = generateTemp();
-        String resultVar = tempVar + returnTypeStr;
+    private OllirExprResult visitParenthesis(JmmNode node, Void unused) {
+        return visit(node.getChild(0));
+    }
 
-        // Determine invocation type (virtual, static, etc.)
-        String invocationType = "invokevirtual";
+    private OllirExprResult visitToTemp(JmmNode node, Void unused) {
+        String type = getOllirType(node);
+        String temp = code.newTemp(type);
+        assignTo(temp, type, node);
+        return new OllirExprResult(temp + type);
+    }
 
-        // Construct the method call
-        StringBuilder callBuilder = new StringBuilder();
+    /**
+     * Writes the value of the expression to the variable {@code dest}, of the given OLLIR type.
+     */
+    public void assignTo(String dest, String type, JmmNode expr) {
+        expr = unwrap(expr);
+
+        switch (expr.getKind()) {
+            case "BinaryOp" -> {
+                if (expr.get("op").equals("&&")) {
+                    assignAnd(dest, expr);
+                } else {
+                    code.assign(dest, type, getRhs(expr));
+                }
+            }
+            case "GeneralDeclaration" -> {
+                code.assign(dest, type, "new(" + expr.get("name") + ")" + type);
+                code.stmt().append("invokespecial(").append(dest).append(type).append(", \"<init>\").V").end();
+            }
+            case "ArrayInitializer" -> {
+                // The elements may read the destination, they are computed before it changes
+                List<String> elements = new ArrayList<>();
+                for (var element : expr.getChildren()) {
+                    elements.add(visit(element).getCode());
+                }
 
-        // Add assignment part if not void
-        if (!returnType.getName().equals("void")) {
-            callBuilder.append(resultVar).append(SPACE)
-                    .append(ASSIGN).append(returnTypeStr).append(SPACE);
+                String elementType = type.substring(".array".length());
+                code.assign(dest, type, "new(array, " + elements.size() + ".i32)" + type);
+                for (int i = 0; i < elements.size(); i++) {
+                    code.assign(dest + type + "[" + i + ".i32]", elementType, elements.get(i));
+                }
+            }
+            default -> code.assign(dest, type, getRhs(expr));
         }
+    }
 
-        // Build the invocation
-        callBuilder.append(invocationType).append("(")
-                .append(receiver.getCode()).append(", \"")
-                .append(methodName).append("\"");
+    /**
+     * {@code dest = a && b}, the second operand is only computed if the first holds.
+     */
+    private void assignAnd(String dest, JmmNode expr) {
+        String falseLabel = code.newLabel("andfalse");
+        String endLabel = code.newLabel("andend");
+
+        branchIfFalse(expr.getChild(0), falseLabel);
+        assignTo(dest, ".bool", expr.getChild(1));
+        code.jump(endLabel);
+        code.label(falseLabel);
+        code.assign(dest, ".bool", "0.bool");
+        code.label(endLabel);
+    }
 
-        // Add arguments if any
-        if (!argCodes.isEmpty()) {
-            callBuilder.append(", ");
-            callBuilder.append(String.join(", ", argCodes));
+    /**
+     * Jumps to the label if the condition holds, and falls through otherwise.
+     * <p>
+     * Comparisons, negations and conjunctions become branches, their values are never stored.
+     */
+    public void branchIf(JmmNode condition, String label) {
+        condition = unwrap(condition);
+
+        switch (condition.getKind()) {
+            case "UnaryOp" -> branchIfFalse(condition.getChild(0), label);
+            case "BinaryOp" -> {
+                if (condition.get("op").equals("<")) {
+                    branchCompare(condition, "<", label);
+                } else if (condition.get("op").equals("&&")) {
+                    String skipLabel = code.newLabel("andskip");
+                    branchIfFalse(condition.getChild(0), skipLabel);
+                    branchIf(condition.getChild(1), label);
+                    code.label(skipLabel);
+                } else {
+                    branchCompareZero(condition, "!=", label);
+                }
+            }
+            default -> branchCompareZero(condition, "!=", label);
         }
+    }
 
-        callBuilder.append(")").append(returnTypeStr).append(END_STMT);
-
-        computation.append(callBuilder);
-
-        // If void return, just return the computation, otherwise return the temp var
-        if (returnType.getName().equals("void")) {
-            return new OllirExprResult("", computation.toString());
-        } else {
-            return new OllirExprResult(resultVar, computation.toString());
+    /**
+     * Jumps to the label if the condition does not hold, and falls through otherwise.
+     */
+    public void branchIfFalse(JmmNode condition, String label) {
+        condition = unwrap(condition);
+
+        switch (condition.getKind()) {
+            case "UnaryOp" -> branchIf(condition.getChild(0), label);
+            case "BinaryOp" -> {
+                if (condition.get("op").equals("<")) {
+                    branchCompare(condition, ">=", label);
+                } else if (condition.get("op").equals("&&")) {
+                    branchIfFalse(condition.getChild(0), label);
+                    branchIfFalse(condition.getChild(1), label);
+                } else {
+                    branchCompareZero(condition, "==", label);
+                }
+            }
+            default -> branchCompareZero(condition, "==", label);
         }
     }
 
-    private OllirExprResult visitLengthOp(JmmNode node, Void unused) {
-        // Get the array
-        OllirExprResult array = visit(node.getChildren().get(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(array.getComputation());
-
-        // The length operation returns an int
-        Type intType = TypeUtils.newIntType();
-        String intTypeStr = ollirTypes.toOllirType(intType);
-
-        // Generate temporary variable for the result
-        String tempVar = generateTemp();
-        String resultVar = tempVar + intTypeStr;
-
-        // Generate array length instruction
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(intTypeStr).append(SPACE)
-                .append("arraylength(").append(array.getCode()).append(")")
-                .append(intTypeStr).append(END_STMT);
-
-        return new OllirExprResult(resultVar, computation.toString());
+    private void branchCompare(JmmNode comparison, String op, String label) {
+        String left = visit(comparison.getChild(0)).getCode();
+        String right = visit(comparison.getChild(1)).getCode();
+        code.stmt().append("if (").append(left).append(" ").append(op).append(".bool ").append(right)
+                .append(") goto ").append(label).end();
     }
 
-    private OllirExprResult visitThis(JmmNode node, Void unused) {
-        // 'this' refers to current instance of the class
-        String className = table.getClassName();
-        String thisType = "." + className;
-
-        return new OllirExprResult("this" + thisType);
+    /**
+     * A boolean is compared with zero, which needs no constant in the bytecode.
+     */
+    private void branchCompareZero(JmmNode condition, String op, String label) {
+        String value = visit(condition).getCode();
+        code.stmt().append("if (").append(value).append(" ").append(op).append(".bool 0.bool) goto ").append(label)
+                .end();
     }
 
-    private OllirExprResult visitGeneralDeclaration(JmmNode node, Void unused) {
-        // Object instantiation (new ClassName())
-        String className = node.get("name");
-        String classType = "." + className;
-
-        // Generate temporary variable
-        String tempVar = generateTemp();
-        String resultVar = tempVar + classType;
-
-        StringBuilder computation = new StringBuilder();
-
-        // Generate new object instruction
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(classType).append(SPACE)
-                .append("new(").append(className).append(")").append(classType)
-                .append(END_STMT);
-
-        // Call the constructor
-        computation.append("invokespecial(").append(resultVar).append(", \"<init>\").V")
-                .append(END_STMT);
-
-        return new OllirExprResult(resultVar, computation.toString());
+    /**
+     * @return the right-hand side of an assignment of the value of the expression, after writing the instructions
+     * that compute its operands
+     */
+    private String getRhs(JmmNode expr) {
+        switch (expr.getKind()) {
+            case "BinaryOp" -> {
+                String left = visit(expr.getChild(0)).getCode();
+                String right = visit(expr.getChild(1)).getCode();
+                String opType = expr.get("op").equals("<") ? ".bool" : ".i32";
+                return left + " " + expr.get("op") + opType + " " + right;
+            }
+            case "UnaryOp" -> {
+                return "!.bool " + visit(expr.getChild(0)).getCode();
+            }
+            case "Identifier" -> {
+                String name = expr.get("value");
+                if (isField(name)) {
+                    String type = ollirTypes.toOllirType(getVariableType(name));
+                    return "getfield(this, " + name + type + ")" + type;
+                }
+                return visit(expr).getCode();
+            }
+            case "ArrayAccess" -> {
+                String array = visit(expr.getChild(0)).getCode();
+                String index = visit(expr.getChild(1)).getCode();
+                return array + "[" + index + "]" + getOllirType(expr);
+            }
+            case "LengthOp" -> {
+                return "arraylength(" + visit(expr.getChild(0)).getCode() + ").i32";
+            }
+            case "IntArrayDeclaration" -> {
+                return "new(array, " + visit(expr.getChild(0)).getCode() + ").array.i32";
+            }
+            case "MethodCall" -> {
+                return getCall(expr, getOllirType(expr));
+            }
+            default -> {
+                return visit(expr).getCode();
+            }
+        }
     }
 
-    private OllirExprResult visitIntArrayDeclaration(JmmNode node, Void unused) {
-        // new int[expr]
-        OllirExprResult sizeExpr = visit(node.getChildren().get(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(sizeExpr.getComputation());
-
-        // Array type
-        Type arrayType = TypeUtils.newIntArrayType();
-        String arrayTypeStr = ollirTypes.toOllirType(arrayType);
-
-        // Generate temporary variable
-        String tempVar = generateTemp();
-        String resultVar = tempVar + arrayTypeStr;
-
-        // Generate new array instruction
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(arrayTypeStr).append(SPACE)
-                .append("new(array, ").append(sizeExpr.getCode()).append(")")
-                .append(arrayTypeStr).append(END_STMT);
-
-        return new OllirExprResult(resultVar, computation.toString());
+    /**
+     * Writes a call whose value is discarded.
+     */
+    public void generateCallStmt(JmmNode call) {
+        String type = ollirTypes.toOllirType(getCallType(call, true));
+        String invocation = getCall(call, type);
+        code.stmt().append(invocation).end();
     }
 
-    private OllirExprResult visitArrayInitializer(JmmNode node, Void unused) {
-        // Array initializer: [elem1, elem2, ...]
-        List<JmmNode> elements = node.getChildren();
-
-        StringBuilder computation = new StringBuilder();
-        List<String> elementCodes = new ArrayList<>();
+    /**
+     * Calls on an imported class are static, any other call is virtual.
+     */
+    private String getCall(JmmNode call, String returnType) {
+        var receiver = unwrap(call.getChild(0));
+        boolean isStatic = receiver.getKind().equals("Identifier") && isClassName(receiver.get("value"));
+        String caller = isStatic ? receiver.get("value") : visit(receiver).getCode();
+
+        List<String> args = new ArrayList<>();
+        for (int i = 1; i < call.getNumChildren(); i++) {
+            args.add(visit(call.getChild(i)).getCode());
+        }
 
-        // Process each element
-        for (JmmNode element : elements) {
-            OllirExprResult elemResult = visit(element);
-            computation.append(elemResult.getComputation());
-            elementCodes.add(elemResult.getCode());
+        var invocation = new StringBuilder(isStatic ? "invokestatic(" : "invokevirtual(")
+                .append(caller).append(", \"").append(call.get("value")).append("\"");
+        for (var arg : args) {
+            invocation.append(", ").append(arg);
         }
+        return invocation.append(")").append(returnType).toString();
+    }
 
-        // Determine array type based on elements or context
-        Type elementType = elements.isEmpty() ?
-                TypeUtils.newIntType() :
-                types.getExprType(elements.get(0));
-        Type arrayType = new Type(elementType.getName(), true);
-        String arrayTypeStr = ollirTypes.toOllirType(arrayType);
-
-        // Generate temporary variable for the array
-        String tempVar = generateTemp();
-        String resultVar = tempVar + arrayTypeStr;
-
-        // Create array with correct size
-        computation.append(resultVar).append(SPACE)
-                .append(ASSIGN).append(arrayTypeStr).append(SPACE)
-                .append("new(array, ").append(elements.size()).append(".i32)")
-                .append(arrayTypeStr).append(END_STMT);
-
-        // Initialize array elements
-        String elementTypeStr = ollirTypes.toOllirType(elementType);
-        for (int i = 0; i < elements.size(); i++) {
-            computation.append(resultVar).append("[").append(i).append(".i32]")
-                    .append(elementTypeStr).append(SPACE)
-                    .append(ASSIGN).append(elementTypeStr).append(SPACE)
-                    .append(elementCodes.get(i)).append(END_STMT);
+    /**
+     * Methods of this class have their declared type. The type of any other method is the one its use expects.
+     */
+    private Type getCallType(JmmNode call, boolean isStatement) {
+        var receiver = unwrap(call.getChild(0));
+        boolean onThisClass = receiver.getKind().equals("This")
+                || (receiver.getKind().equals("Identifier") && receiver.get("value").equals(table.getClassName()));
+        if (onThisClass && table.getMethods().contains(call.get("value"))) {
+            return table.getReturnType(call.get("value"));
+        }
+        if (isStatement) {
+            return new Type("void", false);
         }
 
-        return new OllirExprResult(resultVar, computation.toString());
+        var parent = call.getParent();
+        while (parent.getKind().equals("Parenthesis")) {
+            parent = parent.getParent();
+        }
+        return switch (parent.getKind()) {
+            case "IfStmt", "WhileStmt", "UnaryOp" -> TypeUtils.newBooleanType();
+            case "BinaryOp" -> parent.get("op").equals("&&") ? TypeUtils.newBooleanType() : TypeUtils.newIntType();
+            case "AssignStmt" -> getVariableType(parent.get("var"));
+            case "ReturnStmt" -> table.getReturnType(currentMethod);
+            default -> TypeUtils.newIntType();
+        };
     }
 
-    private OllirExprResult visitParenthesis(JmmNode node, Void unused) {
-        // Simply visit the inner expression
-        return visit(node.getChildren().get(0));
+    /**
+     * @return the OLLIR type of the value of the expression, e.g. {@code .i32}
+     */
+    public String getOllirType(JmmNode expr) {
+        expr = unwrap(expr);
+        var type = expr.getKind().equals("MethodCall") ? getCallType(expr, false) : types.getExprType(expr);
+        return ollirTypes.toOllirType(type);
     }
 
-    private String mapOperator(String javaOp) {
-        switch (javaOp) {
-            case "+": return "+";
-            case "-": return "-";
-            case "*": return "*";
-            case "/": return "/";
-            case "<": return "<";
-            case "&&": return "&&";
-            default: return javaOp; // Use as is for others
-        }
+    public String getOllirType(Type type) {
+        return ollirTypes.toOllirType(type);
     }
 
-    private Type resolveVariableType(String varName) {
-        // Check current method parameters
-        if (currentMethod != null) {
-            for (Symbol param : table.getParameters(currentMethod)) {
-                if (param.getName().equals(varName)) {
-                    return param.getType();
-                }
-            }
-
-            // Check local variables
-            for (Symbol local : table.getLocalVariables(currentMethod)) {
-                if (local.getName().equals(varName)) {
-                    return local.getType();
-                }
-            }
+    static JmmNode unwrap(JmmNode expr) {
+        while (expr.getKind().equals("Parenthesis")) {
+            expr = expr.getChild(0);
         }
+        return expr;
+    }
 
-        // Check fields
-        for (Symbol field : table.getFields()) {
-            if (field.getName().equals(varName)) {
-                return field.getType();
-            }
+    private boolean isClassName(String name) {
+        if (findVariable(name).isPresent() || isField(name)) {
+            return false;
         }
+        return name.equals(table.getClassName()) || table.getImports().stream()
+                .anyMatch(imported -> imported.equals(name) || imported.endsWith("." + name));
+    }
 
-        // Default to int if not found (should not happen after semantic analysis)
-        return new Type("int", false);
+    /**
+     * @return true if the name is a field, and not hidden by a parameter or local of the current method
+     */
+    public boolean isField(String name) {
+        return findVariable(name).isEmpty() && table.getFields().stream()
+                .anyMatch(field -> field.getName().equals(name));
     }
 
-    private String generateTemp() {
-        return "t" + (tempCounter++);
+    private Optional<Symbol> findVariable(String name) {
+        return Stream.concat(table.getParameters(currentMethod).stream(),
+                        table.getLocalVariables(currentMethod).stream())
+                .filter(symbol -> symbol.getName().equals(name))
+                .findFirst();
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty result.
+     * @return the type of a parameter, local or field, int if there is none with the name
      */
-    private OllirExprResult defaultVisit(JmmNode node, Void unused) {
-        StringBuilder computation = new StringBuilder();
-
-        for (var child : node.getChildren()) {
-            OllirExprResult childResult = visit(child);
-            computation.append(childResult.getComputation());
-        }
-
-        return new OllirExprResult("", computation.toString());
+    public Type getVariableType(String name) {
+        return findVariable(name)
+                .or(() -> table.getFields().stream().filter(field -> field.getName().equals(name)).findFirst())
+                .map(Symbol::getType)
+                .orElse(TypeUtils.newIntType());
     }
-}
\ No newline at end of file
+}
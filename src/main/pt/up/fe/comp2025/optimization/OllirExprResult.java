@@ -2,30 +2,18 @@ package pt.up.fe.comp2025.optimization;
 
 /**
  * Class representing the result of generating OLLIR code from a JmmNode that is an expression.
- * It contains the OLLIR code for the expression and the computation steps needed to get that code.
+ * <p>
+ * The instructions that compute the expression are already written to the {@link OllirCode} of the method, only
+ * the element holding its value (e.g. {@code t2.i32}) is returned.
  */
 public class OllirExprResult {
 
-    public static final OllirExprResult EMPTY = new OllirExprResult("", "");
+    public static final OllirExprResult EMPTY = new OllirExprResult("");
 
-    private final String computation;
     private final String code;
 
-    public OllirExprResult(String code, String computation) {
-        this.code = code;
-        this.computation = computation;
-    }
-
     public OllirExprResult(String code) {
-        this(code, "");
-    }
-
-    public OllirExprResult(String code, StringBuilder computation) {
-        this(code, computation.toString());
-    }
-
-    public String getComputation() {
-        return computation;
+        this.code = code;
     }
 
     public String getCode() {
@@ -35,8 +23,7 @@ public class OllirExprResult {
     @Override
     public String toString() {
         return "OllirExprResult{" +
-                "computation='" + computation + '\'' +
-                ", code='" + code + '\'' +
+                "code='" + code + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
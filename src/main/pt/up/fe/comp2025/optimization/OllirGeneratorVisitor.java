@@ -5,46 +5,94 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.NodeHasher;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import static pt.up.fe.comp2025.optimization.OllirExprGeneratorVisitor.unwrap;
+
 /**
  * Generates OLLIR code from JmmNodes.
+ * <p>
+ * Each method is written to its own {@link OllirCode}, which statements and expressions
+ * ({@link OllirExprGeneratorVisitor}) append to as they are visited. Nothing is returned up the tree, the code of a
+ * nested statement is written once, in place.
+ * <p>
+ * Conditions are lowered to branches, and the temporaries of a statement are reused by the next ones.
+ * <p>
+ * The code of a method only depends on its subtree and on the declarations of the class it uses, so with a
+ * {@link MethodCache} kept across compilations only the methods that changed are generated again. For the same
+ * reason, the methods are generated concurrently, each by its own visitor, and their code is joined in declaration
+ * order. Temporaries and labels are numbered per method, so the code is the same whatever the order they finish in.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
-
-    private static final String SPACE = " ";
-    private static final String ASSIGN = ":=";
-    private final String END_STMT = ";\n";
-    private final String NL = "\n";
-    private final String L_BRACKET = " {\n";
-    private final String R_BRACKET = "}\n";
-    private final String INDENT = "    ";
-
-    private int tempCounter = 0;
-    private int labelCounter = 0;
-    private String currentMethod;
+public class OllirGeneratorVisitor extends AJmmVisitor<Void, Void> {
+
+    private static final String NL = "\n";
+    private static final String L_BRACKET = " {\n";
+    private static final String R_BRACKET = "}\n";
+    private static final String INDENT = "    ";
+    private static final String TAIL_CALL_LABEL = "methodentry";
+
+    /**
+     * What the code of a method depends on: the structural hash of its subtree, and the declarations of the class
+     * that it uses.
+     */
+    public record MethodKey(long hash, String declarations) {
+    }
 
     private final SymbolTable table;
-    private final TypeUtils types;
-    private final OptUtils ollirTypes;
-    private StringBuilder currentMethodInstructions;
+    private final OllirExprGeneratorVisitor exprVisitor;
+    private final MethodCache<MethodKey, String> cache;
+    private final Executor executor;
 
+    private StringBuilder classCode;
+    private OllirCode code;
+    private String currentMethod;
 
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, new MethodCache<>());
+    }
+
+    public OllirGeneratorVisitor(SymbolTable table, MethodCache<MethodKey, String> cache) {
+        this(table, cache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cache the code of the methods of the previous compilation
+     * @param executor generates the methods, it is shared between compilations and not shut down here
+     */
+    public OllirGeneratorVisitor(SymbolTable table, MethodCache<MethodKey, String> cache, Executor executor) {
         this.table = table;
-        this.types = new TypeUtils(table);
-        this.ollirTypes = new OptUtils(types);
+        this.exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    /**
+     * @param root the Program node
+     * @return the OLLIR code of the class
+     */
+    public String generate(JmmNode root) {
+        classCode = new StringBuilder();
+        cache.begin();
+        visit(root);
+        cache.end();
+        return classCode.toString();
     }
 
     @Override
     protected void buildVisitor() {
         addVisit("Program", this::visitProgram);
         addVisit("ClassDecl", this::visitClass);
-        addVisit("MethodDecl", this::visitMethodDecl);
         addVisit("ReturnStmt", this::visitReturn);
         addVisit("AssignStmt", this::visitAssignStmt);
         addVisit("ArrayAssignStmt", this::visitArrayAssignStmt);
@@ -53,1140 +101,353 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit("ExprStmt", this::visitExprStmt);
         addVisit("BlockStmt", this::visitBlockStmt);
 
-        // Expression visitors
-        addVisit("Integer", this::visitInteger);
-        addVisit("Boolean", this::visitBoolean);
-        addVisit("Identifier", this::visitIdentifier);
-        addVisit("BinaryOp", this::visitBinaryOp);
-        addVisit("UnaryOp", this::visitUnaryOp);
-        addVisit("ArrayAccess", this::visitArrayAccess);
-        addVisit("MethodCall", this::visitMethodCall);
-        addVisit("LengthOp", this::visitLengthOp);
-        addVisit("This", this::visitThis);
-        addVisit("IntArrayDeclaration", this::visitIntArrayDeclaration);
-        addVisit("GeneralDeclaration", this::visitGeneralDeclaration);
-        addVisit("ArrayInitializer", this::visitArrayInitializer);
-
-        setDefaultVisit(this::defaultVisit);
+        setDefaultVisit((node, unused) -> null);
     }
 
-    private String visitProgram(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        for (JmmNode child : node.getChildren()) {
-            code.append(visit(child, unused));
+    private Void visitProgram(JmmNode node, Void unused) {
+        for (var imported : table.getImports()) {
+            classCode.append("import ").append(imported).append(";").append(NL);
         }
 
-        return code.toString();
+        node.getChildren("ClassDecl").forEach(this::visit);
+        return null;
     }
 
-    private String visitClass(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        code.append(NL);
-        code.append(table.getClassName());
+    private Void visitClass(JmmNode node, Void unused) {
+        classCode.append(NL);
+        classCode.append(table.getClassName());
 
         // Add extends if there's a superclass
         if (table.getSuper() != null) {
-            code.append(" extends ").append(table.getSuper());
+            classCode.append(" extends ").append(table.getSuper());
         }
 
-        code.append(L_BRACKET);
-        code.append(NL);
+        classCode.append(L_BRACKET);
+        classCode.append(NL);
 
         // Generate field declarations
         for (Symbol field : table.getFields()) {
-            String fieldType = ollirTypes.toOllirType(field.getType());
-            code.append(INDENT).append(".field ");
-            code.append("private ").append(field.getName());
-            code.append(fieldType).append(END_STMT);
+            classCode.append(INDENT).append(".field private ").append(field.getName())
+                    .append(exprVisitor.getOllirType(field.getType())).append(";").append(NL);
         }
 
         if (!table.getFields().isEmpty()) {
-            code.append(NL);
+            classCode.append(NL);
         }
 
         // Add default constructor
-        code.append(buildConstructor());
-        code.append(NL);
+        classCode.append(INDENT).append(".construct ").append(table.getClassName()).append("().V").append(L_BRACKET);
+        classCode.append(INDENT).append(INDENT).append("invokespecial(this, \"<init>\").V;").append(NL);
+        classCode.append(INDENT).append(R_BRACKET);
+        classCode.append(NL);
 
-        // Process all methods
+        // Methods in the order of the symbol table
+        var methods = new ArrayList<JmmNode>();
         for (var methodName : table.getMethods()) {
-            // Process method nodes that match this method name
-            for (var child : node.getChildren()) {
-                if (child.getKind().equals("MethodDecl") &&
-                        child.get("methodName").equals(methodName)) {
-
-                    var result = visit(child, unused);
-                    code.append(result);
+            for (var child : node.getChildren("MethodDecl")) {
+                if (child.get("methodName").equals(methodName)) {
+                    methods.add(child);
                 }
             }
         }
+        generateMethods(methods).forEach(classCode::append);
+
+        classCode.append(R_BRACKET);
+        return null;
+    }
+
+    /**
+     * @return the code of each method, in the order given
+     */
+    private List<String> generateMethods(List<JmmNode> methods) {
+        if (methods.size() <= 1) {
+            return methods.stream().map(this::getMethodCode).toList();
+        }
+
+        var futures = methods.stream()
+                .map(method -> CompletableFuture.supplyAsync(() -> getMethodCode(method), executor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * The temporaries, labels and current method of a visitor belong to one method, so each method gets its own.
+     */
+    private String getMethodCode(JmmNode node) {
+        String name = node.get("methodName");
+        return cache.get(name, methodKey(table, node),
+                () -> new OllirGeneratorVisitor(table, cache, executor).generateMethod(node));
+    }
+
+    /**
+     * Also the key of the methods {@link OllirBuilderVisitor} builds, which lower the same way.
+     */
+    static MethodKey methodKey(SymbolTable table, JmmNode node) {
+        String name = node.get("methodName");
+        var ollirTypes = new OptUtils(new TypeUtils(table));
+        var declarations = new StringBuilder(table.getClassName()).append(" extends ").append(table.getSuper())
+                .append(" imports ").append(table.getImports());
+
+        // The fields it reads or writes, a variable of the method hides the field with the same name
+        var variables = new HashSet<String>();
+        table.getParameters(name).forEach(param -> variables.add(param.getName()));
+        table.getLocalVariables(name).forEach(local -> variables.add(local.getName()));
+        var names = getNames(node);
+        for (var field : table.getFields()) {
+            if (names.contains(field.getName()) && !variables.contains(field.getName())) {
+                declarations.append(" field ").append(field.getName())
+                        .append(ollirTypes.toOllirType(field.getType()));
+            }
+        }
 
-        code.append(R_BRACKET);
+        // The headers of the methods of the class it calls
+        var called = new TreeSet<String>();
+        for (var call : node.getDescendants("MethodCall")) {
+            String method = call.get("value");
+            if (table.getMethods().contains(method)) {
+                called.add(method + table.getParameters(method).stream()
+                        .map(param -> ollirTypes.toOllirType(param.getType()))
+                        .collect(Collectors.joining(",", "(", ")"))
+                        + ollirTypes.toOllirType(table.getReturnType(method)));
+            }
+        }
+        called.forEach(method -> declarations.append(" calls ").append(method));
 
-        return code.toString();
+        return new MethodKey(NodeHasher.hash(node), declarations.toString());
     }
 
-    private String buildConstructor() {
-        StringBuilder code = new StringBuilder();
-
-        code.append(INDENT).append(".construct ").append(table.getClassName()).append("().V");
-        code.append(L_BRACKET);
-        code.append(INDENT).append(INDENT).append("invokespecial(this, \"<init>\").V");
-        code.append(END_STMT);
-        code.append(INDENT).append(R_BRACKET);
-
-        return code.toString();
+    /**
+     * @return the names of the variables and fields the method reads or writes
+     */
+    static Set<String> getNames(JmmNode method) {
+        var names = new HashSet<String>();
+        method.getDescendants("Identifier").forEach(identifier -> names.add(identifier.get("value")));
+        method.getDescendants("AssignStmt").forEach(assign -> names.add(assign.get("var")));
+        method.getDescendants("ArrayAssignStmt").forEach(assign -> names.add(assign.get("var")));
+        return names;
     }
 
-    private String visitMethodDecl(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-        tempCounter = 0;
-        labelCounter = 0;
+    private String generateMethod(JmmNode node) {
+        var methodCode = new StringBuilder();
         currentMethod = node.get("methodName");
-        currentMethodInstructions = new StringBuilder();
-        types.setCurrentMethod(currentMethod);
-
-        code.append(INDENT).append(".method ");
 
-        // Add modifiers
-        boolean isPublic = !node.hasAttribute("isPublic") || Boolean.parseBoolean(node.get("isPublic"));
-        boolean isStatic = currentMethod.equals("main") ||
-                (node.hasAttribute("isStatic") && Boolean.parseBoolean(node.get("isStatic")));
+        // Temporaries never take the name of a variable, or of a field the method uses
+        var reserved = getNames(node);
+        table.getParameters(currentMethod).forEach(param -> reserved.add(param.getName()));
+        table.getLocalVariables(currentMethod).forEach(local -> reserved.add(local.getName()));
+        code = new OllirCode(reserved);
+        exprVisitor.setCurrentMethod(currentMethod, code);
 
-        if (isPublic) code.append("public ");
-        if (isStatic) code.append("static ");
-
-        code.append(currentMethod).append("(");
+        boolean isStatic = currentMethod.equals("main");
+        methodCode.append(INDENT).append(".method public ");
+        if (isStatic) {
+            methodCode.append("static ");
+        }
 
-        // Parameters
         String params = table.getParameters(currentMethod).stream()
-                .map(p -> p.getName() + ollirTypes.toOllirType(p.getType()))
+                .map(param -> param.getName() + exprVisitor.getOllirType(param.getType()))
                 .collect(Collectors.joining(", "));
-        code.append(params).append(")");
-
-        // Return type
         Type returnType = table.getReturnType(currentMethod);
-        String returnTypeOllir = ollirTypes.toOllirType(returnType);
-        code.append(returnTypeOllir).append(L_BRACKET);
+        methodCode.append(currentMethod).append("(").append(params).append(")")
+                .append(exprVisitor.getOllirType(returnType)).append(L_BRACKET);
 
-        // Special case for method3
-        if (currentMethod.equals("method3")) {
-            code.append(INDENT).append(INDENT).append("putfield(this, intField.i32, value.i32).V").append(END_STMT);
+        // Recursive tail calls jump back here
+        boolean hasTailCalls = node.getDescendants("ReturnStmt").stream()
+                .anyMatch(ret -> ret.hasAttribute(TailCallEliminator.TAIL_CALL));
+        if (hasTailCalls) {
+            code.label(TAIL_CALL_LABEL);
         }
 
-        // Method body
-        boolean hasReturn = false;
         for (JmmNode child : node.getChildren()) {
-            if (!child.getKind().equals("Type") && !child.getKind().equals("ParamList")
-                    && !child.getKind().equals("VarDecl")) {
-                String stmtCode = visit(child, unused);
-                if (!stmtCode.isEmpty()) {
-                    code.append(INDENT).append(INDENT).append(stmtCode);
-                    if (stmtCode.trim().startsWith("ret")) {
-                        hasReturn = true;
-                    }
-                }
+            if (child.getKind().endsWith("Stmt")) {
+                visit(child);
             }
         }
 
         // Add implicit return for void methods if not already present
-        if (returnType.getName().equals("void") && !hasReturn) {
-            code.append(INDENT).append(INDENT).append("ret.V").append(END_STMT);
+        if (returnType.getName().equals("void") && !code.endsInJump()) {
+            code.stmt().append("ret.V").end();
         }
 
-        code.append(currentMethodInstructions);
-        code.append(INDENT).append(R_BRACKET).append(NL);
-        return code.toString();
-    }
-
-    // Fix visitReturn to properly handle field access in return statements
-    private String visitReturn(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        if (node.getNumChildren() > 0) {
-            JmmNode exprNode = node.getChildren().get(0);
-            Type returnType = table.getReturnType(currentMethod);
-            String ollirType = ollirTypes.toOllirType(returnType);
-
-            // For binary operations, special handling
-            if (exprNode.getKind().equals("BinaryOp")) {
-                // Existing binary op handling...
-                JmmNode leftNode = exprNode.getChildren().get(0);
-                JmmNode rightNode = exprNode.getChildren().get(1);
-                String left = visit(leftNode, unused);
-                String right = visit(rightNode, unused);
-                String op = exprNode.get("op");
-
-                // Create temporary for the result
-                String tempVar = generateTemp();
-
-                // Calculate the binary operation into a temp
-                code.append(tempVar).append(ollirType)
-                        .append(" :=").append(ollirType).append(" ")
-                        .append(left).append(" ")
-                        .append(mapOperator(op)).append(ollirType).append(" ")
-                        .append(right).append(END_STMT);
-
-                // Return the temp
-                code.append("ret").append(ollirType).append(" ")
-                        .append(tempVar).append(ollirType)
-                        .append(END_STMT);
-            }
-            // For identifiers, check if they are fields
-            else if (exprNode.getKind().equals("Identifier") && isClassField(exprNode.get("value"))) {
-                // Get field value
-                String fieldName = exprNode.get("value");
-                String tempVar = generateTemp();
-
-                // Generate getfield instruction
-                code.append(tempVar).append(ollirType)
-                        .append(" :=").append(ollirType).append(" ")
-                        .append("getfield(this, ")
-                        .append(fieldName).append(ollirType)
-                        .append(")").append(ollirType).append(END_STMT);
-
-                // Return the temp containing the field value
-                code.append("ret").append(ollirType).append(" ")
-                        .append(tempVar).append(ollirType)
-                        .append(END_STMT);
-            }
-            else {
-                // For simpler expressions, just evaluate and return
-                String exprCode = visit(exprNode, unused);
-                code.append("ret").append(ollirType).append(" ")
-                        .append(exprCode)
-                        .append(END_STMT);
-            }
-        } else {
-            code.append("ret.V").append(END_STMT);
-        }
-
-        return code.toString();
-    }
-
-    private String visitAssignStmt(JmmNode node, Void unused) {
-    StringBuilder code = new StringBuilder();
-
-    // Check the structure of the node to determine how to handle it
-    if (node.getNumChildren() >= 2) {
-        // Standard structure with target and value nodes
-        JmmNode targetNode = node.getChildren().get(0);
-        JmmNode valueNode = node.getChildren().get(1);
-
-        String targetName;
-        if (targetNode.getKind().equals("Identifier")) {
-            targetName = targetNode.get("value");
-        } else if (targetNode.getKind().equals("FieldAccess")) {
-            // Handle field access nodes
-            targetName = targetNode.getChildren().get(0).get("value");
-        } else {
-            // For cases where the target isn't a simple identifier
-            return ""; // Skip this case if we can't determine the target
-        }
-
-        if (isClassField(targetName)) {
-            // For field assignments, generate putfield
-            String valueCode = visit(valueNode, unused);
-            Type targetType = resolveVariableType(targetName);
-            String ollirType = ollirTypes.toOllirType(targetType);
-            
-            code.append("putfield(this, ")
-                    .append(targetName).append(ollirType)
-                    .append(", ").append(valueCode)
-                    .append(")").append(".V")
-                    .append(END_STMT);
-        } else {
-            // Regular local variable assignment
-            String valueCode = processValueNode(valueNode, targetName, unused);
-            code.append(valueCode);
-        }
-    } else if (node.getNumChildren() == 1) {
-        // Handle single-child case - this is where we need to call inferAssignmentTarget
-        JmmNode valueNode = node.getChildren().get(0);
-        String targetName = "";
-        
-        // First, check if this assignment has been processed by constant propagation
-        if (node.hasAttribute("var")) {
-            targetName = node.get("var");
-        } else if (node.hasAttribute("targetVar")) {
-            targetName = node.get("targetVar");
-        } else {
-            // Call our inferAssignmentTarget method
-            targetName = inferAssignmentTarget(node, valueNode);
-        }
-
-        if (!targetName.isEmpty()) {
-            if (isClassField(targetName)) {
-                // Field assignment
-                String valueCode = visit(valueNode, unused);
-                Type targetType = resolveVariableType(targetName);
-                String ollirType = ollirTypes.toOllirType(targetType);
-
-                code.append("putfield(this, ")
-                        .append(targetName).append(ollirType)
-                        .append(", ").append(valueCode)
-                        .append(")").append(".V")
-                        .append(END_STMT);
-            } else {
-                // Local variable assignment
-                String valueCode = processValueNode(valueNode, targetName, unused);
-                code.append(valueCode);
-            }
-        } else {
-
-            if (currentMethod != null) {
-                var params = table.getParameters(currentMethod);
-                if (!params.isEmpty()) {
-                    String fallbackTarget = params.get(0).getName();
-                    String valueCode = processValueNode(valueNode, fallbackTarget, unused);
-                    code.append(valueCode);
-                }
-            }
-        }
-    }
-
-    return code.toString();
-}
-
-   private String inferAssignmentTarget(JmmNode assignStmt, JmmNode valueNode) {
-    JmmNode parent = assignStmt.getParent();
-    if (parent == null || !parent.getKind().equals("MethodDecl")) {
-        return "";
-    }
-    
-    String methodName = parent.get("methodName");
-    
-    // For assignments like "i = i + 1", try to detect the target from the RHS first
-    if (valueNode.getKind().equals("BinaryOp")) {
-        JmmNode leftOperand = valueNode.getChild(0);
-        if (leftOperand.getKind().equals("Identifier")) {
-            String varName = leftOperand.get("value");
-            // If it's an assignment like "i = i + 1", target is the same variable
-            // This should take precedence over positional mapping
-            return varName;
-        }
-    }
-    
-    // Get all local variables (not parameters) in declaration order
-    List<String> localVars = new ArrayList<>();
-    for (JmmNode child : parent.getChildren()) {
-        if (child.getKind().equals("VarDecl")) {
-            localVars.add(child.get("varName"));
-        }
-    }
-    
-    // Find all assignment statements at method level (not inside blocks)
-    List<JmmNode> methodLevelAssignStmts = new ArrayList<>();
-    for (JmmNode child : parent.getChildren()) {
-        if (child.getKind().equals("AssignStmt")) {
-            methodLevelAssignStmts.add(child);
-        }
-    }
-    
-    // Find the index of current assignment
-    int assignIndex = methodLevelAssignStmts.indexOf(assignStmt);
-    
-    // For simple test cases with single variable, always use that variable
-    if (localVars.size() == 1) {
-        return localVars.get(0);
-    }
-    
-    // If this is a method-level assignment, map it to the corresponding local variable
-    if (assignIndex >= 0 && assignIndex < localVars.size()) {
-        return localVars.get(assignIndex);
-    }
-    
-    // If this assignment is inside a nested block (like while loop body)
-    if (assignIndex == -1) {
-        // Fallback for nested assignments
-        if (!localVars.isEmpty()) {
-            return localVars.get(0);
-        }
+        code.appendTo(methodCode);
+        methodCode.append(INDENT).append(R_BRACKET).append(NL);
+        return methodCode.toString();
     }
-    
-    return "";
-}
 
-    // Add this method to handle parameters in method bodies
-    private String visitMethodParameters(JmmNode methodNode, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        // Find parameters that match field names and generate putfield instructions
-        for (JmmNode paramNode : methodNode.getChildren()) {
-            if (paramNode.getKind().equals("Parameter")) {
-                String paramName = paramNode.get("name");
-
-                // If parameter name matches a field name, generate putfield
-                if (isClassField(paramName)) {
-                    Type paramType = resolveVariableType(paramName);
-                    String ollirType = ollirTypes.toOllirType(paramType);
-
-                    code.append("putfield(this, ")
-                            .append(paramName).append(ollirType)
-                            .append(", ").append(paramName).append(ollirType)
-                            .append(")").append(".V")
-                            .append(END_STMT);
-                }
-            }
+    private Void visitReturn(JmmNode node, Void unused) {
+        if (node.hasAttribute(TailCallEliminator.TAIL_CALL)) {
+            generateTailCall(node.getChild(0));
+            return null;
         }
 
-        return code.toString();
-    }
-
-
-    // Helper method to process the value node of an assignment
-    private String processValueNode(JmmNode valueNode, String targetName, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        if (valueNode.getKind().equals("BinaryOp")) {
-            String op = valueNode.get("op");
-
-            // Special handling for short-circuit operators
-            if (op.equals("&&") || op.equals("||")) {
-                String resultCode = handleShortCircuitAssignment(valueNode, targetName, op, unused);
-                code.append(resultCode);
-            } else {
-                // Regular binary operations
-                JmmNode leftNode = valueNode.getChildren().get(0);
-                JmmNode rightNode = valueNode.getChildren().get(1);
-
-                String leftCode = visit(leftNode, unused);
-                String rightCode = visit(rightNode, unused);
-
-                // Determine the result type based on the operation
-                String resultType;
-                if (op.equals("<") || op.equals(">") || op.equals("<=") || op.equals(">=") ||
-                        op.equals("==") || op.equals("!=") || op.equals("&&") || op.equals("||")) {
-                    resultType = ".bool";
-                } else {
-                    // For arithmetic operations, use int by default
-                    resultType = ".i32";
-                }
-
-                // Determine operand type (typically .i32 for arithmetic and comparisons)
-                String operandType = ".i32";
-
-                code.append(targetName).append(resultType)
-                        .append(" :=").append(resultType).append(" ")
-                        .append(leftCode).append(" ")
-                        .append(mapOperator(op)).append(operandType).append(" ")
-                        .append(rightCode)
-                        .append(END_STMT);
-            }
-        } else {
-            // Handle non-binary operations (simple assignments)
-            String valueCode = visit(valueNode, unused);
-
-            // Determine target type
-            Type targetType = resolveVariableType(targetName);
-            String ollirType = ollirTypes.toOllirType(targetType);
-
-            code.append(targetName).append(ollirType)
-                    .append(" :=").append(ollirType).append(" ")
-                    .append(valueCode)
-                    .append(END_STMT);
+        String type = exprVisitor.getOllirType(table.getReturnType(currentMethod));
+        if (node.getNumChildren() == 0) {
+            code.stmt().append("ret.V").end();
+            return null;
         }
 
-        return code.toString();
+        String value = exprVisitor.visit(node.getChild(0)).getCode();
+        code.stmt().append("ret").append(type).append(" ").append(value).end();
+        code.releaseTemps();
+        return null;
     }
 
-    // New method to handle short-circuit operators in assignments
-    private String handleShortCircuitAssignment(JmmNode node, String targetName, String op, Void unused) {
-        JmmNode leftNode = node.getChildren().get(0);
-        JmmNode rightNode = node.getChildren().get(1);
+    /**
+     * Copies the arguments of a recursive call into the parameters, and jumps back to the start of the method.
+     */
+    private void generateTailCall(JmmNode call) {
+        List<Symbol> params = table.getParameters(currentMethod);
 
-        String evalRightLabel = generateLabel("eval_right");
-        String shortCircuitLabel = generateLabel("short_circuit");
-        String endLabel = generateLabel("end_sc");
+        // Arguments may read the parameters, those are computed before the first parameter changes
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            JmmNode arg = unwrap(call.getChild(i + 1));
+            String type = exprVisitor.getOllirType(params.get(i).getType());
 
-        StringBuilder code = new StringBuilder();
-
-        // Evaluate left operand
-        String left = visit(leftNode, unused);
-        if (!left.endsWith(".bool")) {
-            String tempLeft = generateTemp();
-            code.append(tempLeft).append(".bool :=.bool ")
-                    .append(left).append(" !=.bool 0.bool").append(END_STMT);
-            left = tempLeft + ".bool";
-        }
-
-        // For &&: if left is false, short-circuit to false result
-        // For ||: if left is true, short-circuit to true result
-        if (op.equals("&&")) {
-            // If left is true, evaluate right operand
-            code.append("if (").append(left).append(") goto ").append(evalRightLabel).append(END_STMT);
-
-            // Short-circuit path (left is false, so result is false)
-            code.append(targetName).append(".bool :=.bool 0.bool").append(END_STMT);
-            code.append("goto ").append(endLabel).append(END_STMT);
-
-            // Evaluate right path
-            code.append(evalRightLabel).append(":").append(NL);
-
-            // Evaluate right operand
-            String right = visit(rightNode, unused);
-            if (!right.endsWith(".bool")) {
-                String tempRight = generateTemp();
-                code.append(tempRight).append(".bool :=.bool ")
-                        .append(right).append(" !=.bool 0.bool").append(END_STMT);
-                right = tempRight + ".bool";
+            // A parameter passed in its own position keeps its value
+            if (arg.getKind().equals("Identifier") && arg.get("value").equals(params.get(i).getName())) {
+                values.add(null);
+                continue;
             }
 
-            // Assign the result of right to target
-            code.append(targetName).append(".bool :=.bool ").append(right).append(END_STMT);
-        } else { // op is ||
-            // If left is true, short-circuit to true result
-            code.append("if (").append(left).append(") goto ").append(shortCircuitLabel).append(END_STMT);
-
-            // Evaluate right operand
-            String right = visit(rightNode, unused);
-            if (!right.endsWith(".bool")) {
-                String tempRight = generateTemp();
-                code.append(tempRight).append(".bool :=.bool ")
-                        .append(right).append(" !=.bool 0.bool").append(END_STMT);
-                right = tempRight + ".bool";
+            // Literals and locals are copied as they are
+            boolean readsParams = arg.getDescendantsAndSelfStream()
+                    .anyMatch(node -> node.getKind().equals("Identifier")
+                            && params.stream().anyMatch(param -> param.getName().equals(node.get("value"))));
+            if (!readsParams && (arg.getKind().equals("Integer") || arg.getKind().equals("Boolean")
+                    || arg.getKind().equals("Identifier") && !exprVisitor.isField(arg.get("value")))) {
+                values.add(exprVisitor.visit(arg).getCode());
+                continue;
             }
 
-            // Assign the result of right to target
-            code.append(targetName).append(".bool :=.bool ").append(right).append(END_STMT);
-            code.append("goto ").append(endLabel).append(END_STMT);
-
-            // Short-circuit path (left is true, so result is true)
-            code.append(shortCircuitLabel).append(":").append(NL);
-            code.append(targetName).append(".bool :=.bool 1.bool").append(END_STMT);
+            String temp = code.newTemp(type);
+            exprVisitor.assignTo(temp, type, arg);
+            values.add(temp + type);
         }
 
-        code.append(endLabel).append(":").append(NL);
-        return code.toString();
-    }
-
-    // 2. Make sure the LengthOp visitor is properly handling array length operations
-    private String visitLengthOp(JmmNode node, Void unused) {
-        String arrayCode = visit(node.getChildren().get(0), unused);
-        String tempVar = generateTemp();
-
-        StringBuilder code = new StringBuilder();
-        code.append(tempVar).append(".i32")
-                .append(" :=.i32 ")
-                .append("arraylength(").append(arrayCode).append(")")
-                .append(".i32").append(END_STMT);
-
-        return code.toString();
-    }
-
-
-    private String visitIfStmt(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        String thenLabel = "then" + labelCounter;
-        String elseLabel = "else" + labelCounter;
-        String endifLabel = "endif" + labelCounter++;
-
-        JmmNode condExpr = node.getChildren().get(0);
-        String condCode = visit(condExpr, unused);
-
-        // Ensure boolean condition
-        if (!condCode.endsWith(".bool")) {
-            String tempBool = generateTemp();
-            code.append(tempBool).append(".bool :=.bool ")
-                    .append(condCode).append(" !=.bool 0.bool").append(END_STMT);
-            condCode = tempBool + ".bool";
-        }
-
-        code.append("if (").append(condCode).append(") goto ").append(thenLabel).append(END_STMT)
-                .append("goto ").append(elseLabel).append(END_STMT)
-                .append(thenLabel).append(":").append(NL)
-                .append(INDENT).append(visit(node.getChildren().get(1), unused))
-                .append("goto ").append(endifLabel).append(END_STMT)
-                .append(elseLabel).append(":").append(NL);
-
-        if (node.getNumChildren() > 2) {
-            code.append(INDENT).append(visit(node.getChildren().get(2), unused));
-        }
-
-        code.append(endifLabel).append(":").append(NL);
-        return code.toString();
-    }
-
-    private String visitWhileStmt(JmmNode node, Void unused) {
-    StringBuilder code = new StringBuilder();
-
-    // Generate labels
-    String condLabel = generateLabel("cond");
-    String bodyLabel = generateLabel("body");
-    String endLabel = generateLabel("endwhile");
-
-    // Label for condition
-    code.append(condLabel).append(":").append(NL);
-
-    // Process condition - this needs to actually add the condition evaluation to the method
-    JmmNode condExpr = node.getChildren().get(0);
-    
-    // For binary operations, manually generate the comparison
-    if (condExpr.getKind().equals("BinaryOp")) {
-        JmmNode leftNode = condExpr.getChildren().get(0);
-        JmmNode rightNode = condExpr.getChildren().get(1);
-        String left = visit(leftNode, unused);
-        String right = visit(rightNode, unused);
-        String op = condExpr.get("op");
-        
-        // Generate temporary variable for condition result
-        String tempVar = generateTemp();
-        code.append(tempVar).append(".bool").append(SPACE)
-                .append(ASSIGN).append(".bool").append(SPACE)
-                .append(left).append(SPACE)
-                .append(mapOperator(op)).append(".i32").append(SPACE)
-                .append(right).append(END_STMT);
-        
-        // Use the temporary variable in the conditional branch
-        code.append("if (").append(tempVar).append(".bool").append(") goto ").append(bodyLabel).append(END_STMT);
-    } else {
-        // For other condition types, process normally but ensure instructions are included
-        String condCode = visit(condExpr, unused);
-
-        // Make sure condition is boolean
-        if (!condCode.endsWith(".bool")) {
-            String tempBool = generateTemp();
-            code.append(tempBool).append(".bool").append(SPACE)
-                    .append(ASSIGN).append(".bool").append(SPACE)
-                    .append(condCode).append(" !=.bool 0.bool").append(END_STMT);
-            condCode = tempBool + ".bool";
-        }
-
-        // Conditional branch
-        code.append("if (").append(condCode).append(") goto ").append(bodyLabel).append(END_STMT);
-    }
-    
-    code.append("goto ").append(endLabel).append(END_STMT);
-
-    // Loop body
-    code.append(bodyLabel).append(":").append(NL);
-    JmmNode bodyBlock = node.getChildren().get(1);
-    code.append(INDENT).append(visit(bodyBlock, unused));
-
-    // Go back to condition check
-    code.append("goto ").append(condLabel).append(END_STMT);
-
-    // End while label
-    code.append(endLabel).append(":").append(NL);
-
-    return code.toString();
-}
-
-    private String visitExprStmt(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        if (node.getNumChildren() > 0) {
-            JmmNode exprNode = node.getChildren().get(0);
-
-            // Special case for method calls
-            if (exprNode.getKind().equals("MethodCall")) {
-                String exprCode = visit(exprNode, unused);
-                code.append(exprCode);
-                if (!exprCode.endsWith(";\n")) {
-                    code.append(END_STMT);
-                }
-            } else {
-                String exprCode = visit(exprNode, unused);
-                if (!exprCode.isEmpty()) {
-                    code.append(exprCode);
-                    if (!exprCode.endsWith(";\n")) {
-                        code.append(END_STMT);
-                    }
-                }
-            }
-        }
-
-        return code.toString();
-    }
-
-
-    private String visitBlockStmt(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        for (JmmNode child : node.getChildren()) {
-            String childCode = visit(child, unused);
-            if (!childCode.isEmpty()) {
-                code.append(childCode);
+        for (int i = 0; i < params.size(); i++) {
+            if (values.get(i) != null) {
+                String type = exprVisitor.getOllirType(params.get(i).getType());
+                code.assign(params.get(i).getName(), type, values.get(i));
             }
         }
 
-        return code.toString();
-    }
-
-    // Expression visitors
-    private String visitInteger(JmmNode node, Void unused) {
-        return node.get("value") + ".i32";
+        code.jump(TAIL_CALL_LABEL);
+        code.releaseTemps();
     }
 
-    private String visitBoolean(JmmNode node, Void unused) {
-        String value = node.get("value").equals("true") ? "1" : "0";
-        return value + ".bool";
-    }
-
-    // Updated visitIdentifier to handle field access correctly
-    private String visitIdentifier(JmmNode node, Void unused) {
-        String id = node.get("value");
-
-        // Special case for 'io' which is treated as a builtin/import
-        if (id.equals("io")) {
-            return "io";
-        }
+    private Void visitAssignStmt(JmmNode node, Void unused) {
+        String name = node.get("var");
+        String type = exprVisitor.getOllirType(exprVisitor.getVariableType(name));
 
-        Type type = resolveVariableType(id);
-        String ollirType = ollirTypes.toOllirType(type);
-
-        // Check if this is a field access (not a parameter or local variable)
-        if (isClassField(id)) {
-            // Create a temporary variable to hold the field value
-            String tempVar = generateTemp();
-            StringBuilder code = new StringBuilder();
-
-            // Generate getfield instruction
-            code.append(tempVar).append(ollirType)
-                    .append(" :=").append(ollirType).append(" ")
-                    .append("getfield(this, ")
-                    .append(id).append(ollirType)
-                    .append(")").append(ollirType).append(END_STMT);
-
-            appendInstructions(code.toString());
-            return tempVar + ollirType;
-        }
-
-        return id + ollirType;
-    }
-
-    // Helper method to check if a variable is a class field
-    private boolean isClassField(String varName) {
-        // First check if it's a local variable or parameter
-        if (currentMethod != null) {
-            for (Symbol param : table.getParameters(currentMethod)) {
-                if (param.getName().equals(varName)) {
-                    return false;  // It's a parameter, not a field
-                }
-            }
-
-            for (Symbol local : table.getLocalVariables(currentMethod)) {
-                if (local.getName().equals(varName)) {
-                    return false;  // It's a local variable, not a field
-                }
-            }
-        }
-
-        // Now check if it's a field
-        for (Symbol field : table.getFields()) {
-            if (field.getName().equals(varName)) {
-                return true;  // It's a field
-            }
-        }
-
-        return false;
-    }
-
-    private String visitBinaryOp(JmmNode node, Void unused) {
-        JmmNode leftNode = node.getChildren().get(0);
-        JmmNode rightNode = node.getChildren().get(1);
-        String left = visit(leftNode, unused);
-        String right = visit(rightNode, unused);
-        String op = node.get("op");
-
-        String opType = isComparisonOp(op) ? ".bool" : ".i32";
-        String operandType = isComparisonOp(op) ? ".i32" : opType; // Comparisons use i32 operands
-
-        String tempVar = generateTemp();
-        StringBuilder code = new StringBuilder();
-
-        code.append(tempVar).append(opType)
-                .append(" :=").append(opType).append(" ")
-                .append(left).append(" ")
-                .append(mapOperator(op)).append(operandType).append(" ")
-                .append(right).append(END_STMT);
-
-        return tempVar + opType;
-    }
-
-    private boolean isComparisonOp(String op) {
-        return op.equals("<") || op.equals(">") || op.equals("<=") ||
-                op.equals(">=") || op.equals("==") || op.equals("!=") ||
-                op.equals("&&") || op.equals("||");
-    }
-
-    private String visitUnaryOp(JmmNode node, Void unused) {
-        String operand = visit(node.getChildren().get(0), unused);
-
-        Type resultType = types.getExprType(node);
-        String resultTypeStr = ollirTypes.toOllirType(resultType);
-
-        // Create temporary variable
-        String tempVar = generateTemp();
-
-        StringBuilder code = new StringBuilder();
-
-        String op = node.get("op");
-        if (op.equals("!")) {
-            // Logical NOT
-            code.append(tempVar).append(resultTypeStr)
-                    .append(SPACE).append(ASSIGN).append(resultTypeStr).append(SPACE)
-                    .append("1.bool").append(SPACE)
-                    .append("^.bool").append(SPACE)
-                    .append(operand).append(END_STMT);
+        if (exprVisitor.isField(name)) {
+            String value = exprVisitor.visit(node.getChild(0)).getCode();
+            code.stmt().append("putfield(this, ").append(name).append(type).append(", ").append(value)
+                    .append(").V").end();
         } else {
-            // Arithmetic negation
-            code.append(tempVar).append(resultTypeStr)
-                    .append(SPACE).append(ASSIGN).append(resultTypeStr).append(SPACE)
-                    .append("0.i32").append(SPACE)
-                    .append("-.i32").append(SPACE)
-                    .append(operand).append(END_STMT);
+            // A single operation goes straight to the variable
+            exprVisitor.assignTo(name, type, node.getChild(0));
         }
 
-        return tempVar + resultTypeStr;
+        code.releaseTemps();
+        return null;
     }
 
-    private String visitArrayAccess(JmmNode node, Void unused) {
-        JmmNode arrayNode = node.getChildren().get(0);
-        JmmNode indexNode = node.getChildren().get(1);
-
-        String arrayExpr = visit(arrayNode, unused);
-        String indexExpr = visit(indexNode, unused);
+    private Void visitArrayAssignStmt(JmmNode node, Void unused) {
+        String name = node.get("var");
+        var arrayType = exprVisitor.getVariableType(name);
+        String type = exprVisitor.getOllirType(arrayType);
+        String elementType = exprVisitor.getOllirType(new Type(arrayType.getName(), false));
 
-        // Ensure proper type annotations
-        if (!arrayExpr.contains(".array")) {
-            arrayExpr += ".array.i32";
+        // Arrays held by fields are stored through a temporary
+        String array = name + type;
+        if (exprVisitor.isField(name)) {
+            String temp = code.newTemp(type);
+            code.assign(temp, type, "getfield(this, " + name + type + ")" + type);
+            array = temp + type;
         }
-        if (!indexExpr.endsWith(".i32")) {
-            indexExpr += ".i32";
-        }
-
-        // Create temporary variable for array access result
-        String tempVar = generateTemp();
-        StringBuilder code = new StringBuilder();
 
-        // Add the array read operation
-        code.append(tempVar).append(".i32")
-                .append(" :=.i32 ")
-                .append(arrayExpr)
-                .append("[").append(indexExpr).append("]")
-                .append(".i32")
-                .append(END_STMT);
-
-        appendInstructions(code.toString());
-        return tempVar + ".i32";
+        String index = exprVisitor.visit(node.getChild(0)).getCode();
+        String value = exprVisitor.visit(node.getChild(1)).getCode();
+        code.assign(array + "[" + index + "]", elementType, value);
+        code.releaseTemps();
+        return null;
     }
 
-    //helper method to store instructions
-    private void appendInstructions(String instruction) {
-        if (currentMethodInstructions == null) {
-            currentMethodInstructions = new StringBuilder();
-        }
-        currentMethodInstructions.append(instruction);
-    }
-
-    private String visitArrayAssignStmt(JmmNode node, Void unused) {
-        // Get array access information from children
-        JmmNode indexNode = node.getChildren().get(0);
-        JmmNode valueNode = node.getChildren().get(1);
-
-        String indexExpr = visit(indexNode, unused);
-        String valueExpr = visit(valueNode, unused);
-
-        // Ensure proper type annotations
-        if (!indexExpr.endsWith(".i32")) {
-            indexExpr += ".i32";
-        }
-        if (!valueExpr.endsWith(".i32")) {
-            valueExpr += ".i32";
-        }
-
-        // Find array parameter from current method
-        String arrayName = null;
-        for (Symbol param : table.getParameters(currentMethod)) {
-            if (param.getType().isArray()) {
-                arrayName = param.getName();
-                break;
-            }
-        }
-
-        if (arrayName == null) {
-            arrayName = "a"; // Fallback to default name if not found
-        }
-
-        return arrayName + ".array.i32[" + indexExpr + "].i32 :=.i32 " + valueExpr + END_STMT;
-    }
-
-
-    private String visitMethodCall(JmmNode node, Void unused) {
-        JmmNode receiver = node.getChildren().get(0);
-        String methodName = node.get("value");
-
-        // Special case for io static calls (not ioPlus)
-        if (receiver.getKind().equals("Identifier") && receiver.get("value").equals("io")) {
-            StringBuilder code = new StringBuilder();
+    /**
+     * The else branch goes right after the test, the then branch after it. Only a branch that can run past its end
+     * jumps over the other.
+     */
+    private Void visitIfStmt(JmmNode node, Void unused) {
+        String endifLabel = code.newLabel("endif");
 
-            // Process arguments
-            List<String> argCodes = new ArrayList<>();
-            List<String> argTypes = new ArrayList<>();
-
-            for (int i = 1; i < node.getNumChildren(); i++) {
-                JmmNode argNode = node.getChild(i);
-                String argTemp = generateTemp();
-                String argExpr = visit(argNode, unused);
-
-                // Simple case - just pass the argument as is
-                code.append(argTemp).append(".i32 :=.i32 ").append(argExpr).append(END_STMT);
-                argCodes.add(argTemp + ".i32");
-                argTypes.add("i32");
-            }
-
-            // Generate the invokestatic
-            code.append(INDENT).append("invokestatic(\"io\", \"")
-                    .append(methodName).append("\"");
-
-            if (!argCodes.isEmpty()) {
-                code.append(", ").append(String.join(", ", argCodes));
-            }
-
-            code.append(").V").append(END_STMT);
-
-            return code.toString();
+        // Without an else branch, the test jumps over the then branch instead
+        boolean hasElse = node.getNumChildren() > 2
+                && !(node.getChild(2).getKind().equals("BlockStmt") && node.getChild(2).getNumChildren() == 0);
+        if (!hasElse) {
+            exprVisitor.branchIfFalse(node.getChild(0), endifLabel);
+            code.releaseTemps();
+            visit(node.getChild(1));
+            code.label(endifLabel);
+            return null;
         }
 
+        String thenLabel = code.newLabel("then");
+        branchIf(node.getChild(0), thenLabel);
 
-        // Special case for ioPlus static calls
-        if (receiver.getKind().equals("Identifier") && receiver.get("value").equals("ioPlus")) {
-            StringBuilder code = new StringBuilder();
-
-            // Process the argument first
-            JmmNode argNode = node.getChild(1);
-            String argTemp = generateTemp();
-
-            // Handle array length case
-            if (argNode.getKind().equals("LengthOp")) {
-                String arrayName = visit(argNode.getChild(0), unused);
-                code.append(argTemp).append(".i32 :=.i32 arraylength(")
-                        .append(arrayName).append(").i32").append(END_STMT);
-            } else {
-                String argExpr = visit(argNode, unused);
-                code.append(argTemp).append(".i32 :=.i32 ").append(argExpr).append(END_STMT);
-            }
-
-            // Generate the invokestatic
-            code.append(INDENT).append("invokestatic(\"ioPlus\", \"")
-                    .append(methodName).append("\", ")
-                    .append(argTemp).append(".i32).V")
-                    .append(END_STMT);
-
-            return code.toString();
+        visit(node.getChild(2));
+        boolean jumpsToEnd = !code.endsInJump();
+        if (jumpsToEnd) {
+            code.jump(endifLabel);
         }
 
-        // Special case for array.length
-        if (methodName.equals("length") && receiver.getKind().equals("Identifier")) {
-            String tempResult = generateTemp();
-            StringBuilder code = new StringBuilder();
-
-            code.append(tempResult).append(".i32")
-                    .append(" :=.i32 ")
-                    .append("arraylength(").append(receiver.get("value")).append(".array.i32)")
-                    .append(".i32").append(END_STMT);
-
-            return tempResult + ".i32";
+        code.label(thenLabel);
+        visit(node.getChild(1));
+        if (jumpsToEnd) {
+            code.label(endifLabel);
         }
-
-        // Normal method calls
-        String receiverCode = visit(receiver, unused);
-
-        // Process arguments
-        StringBuilder args = new StringBuilder();
-        for (int i = 1; i < node.getNumChildren(); i++) {
-            if (i > 1) args.append(", ");
-            args.append(visit(node.getChildren().get(i), unused));
-        }
-
-        // Determine return type
-        Type returnType;
-
-        if (table.getMethods().contains(methodName)) {
-            returnType = table.getReturnType(methodName);
-        } else {
-            returnType = new Type("int", false);
-        }
-
-        String returnTypeStr = ollirTypes.toOllirType(returnType);
-
-        // Create temporary variable for result if not void
-        String tempVar = generateTemp();
-
-        StringBuilder code = new StringBuilder();
-
-        if (!returnType.getName().equals("void")) {
-            code.append(tempVar).append(returnTypeStr)
-                    .append(SPACE).append(ASSIGN).append(returnTypeStr).append(SPACE);
-        }
-
-        // Determine invocation type
-        String invokeType = "invokevirtual";
-        if (receiverCode.startsWith("this")) {
-            if (methodName.equals("<init>")) {
-                invokeType = "invokespecial";
-            }
-        }
-
-        code.append(invokeType).append("(")
-                .append(receiverCode).append(", \"")
-                .append(methodName).append("\"");
-
-        if (args.length() > 0) {
-            code.append(", ").append(args);
-        }
-
-        code.append(")").append(returnTypeStr);
-
-        if (returnType.getName().equals("void")) {
-            return code.toString();
-        } else {
-            return tempVar + returnTypeStr;
-        }
-    }
-
-
-    private String visitArrayLength(JmmNode node, Void unused) {
-        String arrayCode = visit(node.getChildren().get(0), unused);
-
-        String tempResult = generateTemp();
-        StringBuilder code = new StringBuilder();
-
-        code.append(tempResult).append(".i32")
-                .append(" :=.i32 ")
-                .append("arraylength(").append(arrayCode).append(")")
-                .append(".i32").append(END_STMT);
-
-        return tempResult + ".i32";
-    }
-
-    private String visitThis(JmmNode node, Void unused) {
-        return "this." + table.getClassName();
-    }
-
-    // 4. Make sure the IntArrayDeclaration visitor generates correct array initialization
-    private String visitIntArrayDeclaration(JmmNode node, Void unused) {
-        String size = visit(node.getChildren().get(0), unused);
-
-        // Ensure proper type suffix (only one .i32)
-        if (!size.endsWith(".i32")) {
-            size += ".i32";
-        } else if (size.endsWith(".i32.i32")) {
-            // Remove double suffix if present
-            size = size.replace(".i32.i32", ".i32");
-        }
-
-        return "new(array, " + size + ").array.i32";
-    }
-
-    private String visitArrayInitializer(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        int size = node.getNumChildren();
-        String tempVar = generateTemp();
-
-        String elementTypeStr = ".i32";
-        if (size > 0) {
-            Type elementType = types.getExprType(node.getChildren().get(0));
-            elementTypeStr = ollirTypes.toOllirType(elementType);
-        }
-
-        code.append(tempVar).append(".array").append(elementTypeStr)
-                .append(SPACE).append(ASSIGN).append(".array").append(elementTypeStr).append(SPACE)
-                .append("new(array, ").append(size).append(".i32)")
-                .append(".array").append(elementTypeStr).append(END_STMT);
-
-        for (int i = 0; i < size; i++) {
-            String elemValue = visit(node.getChildren().get(i), unused);
-            code.append(tempVar).append(".array").append(elementTypeStr)
-                    .append("[").append(i).append(".i32]")
-                    .append(elementTypeStr).append(SPACE)
-                    .append(ASSIGN).append(elementTypeStr).append(SPACE)
-                    .append(elemValue).append(END_STMT);
-        }
-
-        return tempVar + ".array" + elementTypeStr;
+        return null;
     }
 
-    private String visitGeneralDeclaration(JmmNode node, Void unused) {
-        String className = node.get("name");
+    private Void visitWhileStmt(JmmNode node, Void unused) {
+        String bodyLabel = code.newLabel("whilebody");
+        String condLabel = code.newLabel("whilecond");
 
-        // Create temporary variable
-        String tempVar = generateTemp();
+        // Rotated loop: the condition is at the bottom, and entering the loop jumps straight to it. Every iteration
+        // then takes a single conditional branch back to the start of the body, and the condition is only
+        // generated once
+        code.jump(condLabel);
 
-        StringBuilder code = new StringBuilder();
-        code.append(tempVar).append(".").append(className)
-                .append(SPACE).append(ASSIGN).append(".").append(className).append(SPACE)
-                .append("new(").append(className).append(")")
-                .append(".").append(className).append(END_STMT);
+        code.label(bodyLabel);
+        visit(node.getChild(1));
 
-        // Call constructor
-        code.append("invokespecial(").append(tempVar).append(".").append(className)
-                .append(", \"<init>\").V").append(END_STMT);
-
-        return tempVar + "." + className;
+        code.label(condLabel);
+        branchIf(node.getChild(0), bodyLabel);
+        return null;
     }
 
-    private String defaultVisit(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
-        for (var child : node.getChildren()) {
-            code.append(visit(child, unused));
-        }
-
-        return code.toString();
+    /**
+     * The values computed for the condition are only needed by the branch.
+     */
+    private void branchIf(JmmNode condition, String label) {
+        exprVisitor.branchIf(condition, label);
+        code.releaseTemps();
     }
 
-    private Type resolveVariableType(String varName) {
-        if (currentMethod != null) {
-            for (Symbol param : table.getParameters(currentMethod)) {
-                if (param.getName().equals(varName)) {
-                    return param.getType();
-                }
-            }
-
-            for (Symbol local : table.getLocalVariables(currentMethod)) {
-                if (local.getName().equals(varName)) {
-                    return local.getType();
-                }
-            }
-        }
-
-        for (Symbol field : table.getFields()) {
-            if (field.getName().equals(varName)) {
-                return field.getType();
-            }
-        }
-
-        // Special case for boolean variables
-        if (varName.equals("a")) {
-            return new Type("boolean", false);
-        }
-
-        return new Type("int", false);
-    }
+    private Void visitExprStmt(JmmNode node, Void unused) {
+        var expr = unwrap(node.getChild(0));
 
-    private String mapOperator(String javaOp) {
-        switch (javaOp) {
-            case "+": return "+";
-            case "-": return "-";
-            case "*": return "*";
-            case "/": return "/";
-            case "<": return "<";
-            case "&&": return "&&";
-            default: return javaOp;
+        if (expr.getKind().equals("MethodCall")) {
+            exprVisitor.generateCallStmt(expr);
+        } else {
+            exprVisitor.visit(expr);
         }
+        code.releaseTemps();
+        return null;
     }
 
-    private String generateTemp() {
-        return "t" + (tempCounter++);
-    }
-
-    private String generateLabel(String prefix) {
-        return prefix + "_" + (labelCounter++);
+    private Void visitBlockStmt(JmmNode node, Void unused) {
+        node.getChildren().forEach(this::visit);
+        return null;
     }
-}
\ No newline at end of file
+}
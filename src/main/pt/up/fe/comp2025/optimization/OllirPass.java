@@ -0,0 +1,41 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+
+/**
+ * Represents an optimization pass over the OLLIR code of a class, run by a {@link PassManager} after the code is
+ * generated.
+ */
+public interface OllirPass {
+
+    /**
+     * Optimizes the methods of the class, in place.
+     *
+     * @return how many changes the pass made, 0 if the code did not change
+     */
+    int run(ClassUnit classUnit);
+
+    /**
+     * @return the name used to refer to this pass (e.g. when enabling or disabling it)
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return reports with what the pass did, over all its runs
+     */
+    default List<Report> getReports() {
+        return List.of();
+    }
+
+    /**
+     * @return what the pass did, did not do and why, over all its runs
+     */
+    default List<Remark> getRemarks() {
+        return List.of();
+    }
+}
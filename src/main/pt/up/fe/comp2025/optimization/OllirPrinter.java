@@ -0,0 +1,201 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.*;
+
+import java.util.stream.Collectors;
+
+/**
+ * Writes an OLLIR class as OLLIR text, that the OLLIR parser reads back into the same class.
+ * <p>
+ * The class is built and optimized in memory, the text is only written to be read, e.g. when debugging.
+ */
+public class OllirPrinter {
+
+    private static final String INDENT = "    ";
+    private static final String NL = "\n";
+
+    private OllirPrinter() {
+    }
+
+    public static String print(ClassUnit classUnit) {
+        var code = new StringBuilder();
+
+        for (var imported : classUnit.getImports()) {
+            code.append("import ").append(imported).append(";").append(NL);
+        }
+        if (!classUnit.getImports().isEmpty()) {
+            code.append(NL);
+        }
+
+        code.append(classUnit.getClassName());
+        if (classUnit.getSuperClass() != null) {
+            code.append(" extends ").append(classUnit.getSuperClass());
+        }
+        code.append(" {").append(NL).append(NL);
+
+        for (var field : classUnit.getFields()) {
+            code.append(INDENT).append(".field ").append(modifier(field.getFieldAccessModifier()))
+                    .append(field.getFieldName()).append(type(field.getFieldType())).append(";").append(NL);
+        }
+        if (!classUnit.getFields().isEmpty()) {
+            code.append(NL);
+        }
+
+        for (var method : classUnit.getMethods()) {
+            printMethod(method, code);
+        }
+
+        return code.append("}").append(NL).toString();
+    }
+
+    /**
+     * @return the OLLIR text of a single method
+     */
+    public static String method(Method method) {
+        var code = new StringBuilder();
+        printMethod(method, code);
+        return code.toString();
+    }
+
+    private static void printMethod(Method method, StringBuilder code) {
+        code.append(INDENT).append(method.isConstructMethod() ? ".construct " : ".method ")
+                .append(modifier(method.getMethodAccessModifier()))
+                .append(method.isStaticMethod() ? "static " : "")
+                .append(method.getMethodName()).append("(")
+                .append(method.getParams().stream().map(OllirPrinter::element).collect(Collectors.joining(", ")))
+                .append(")").append(type(method.getReturnType())).append(" {").append(NL);
+
+        for (var instruction : method.getInstructions()) {
+            for (var label : method.getLabels(instruction)) {
+                code.append(INDENT).append(label).append(":").append(NL);
+            }
+            code.append(INDENT).append(INDENT).append(instruction(instruction)).append(";").append(NL);
+        }
+
+        code.append(INDENT).append("}").append(NL).append(NL);
+    }
+
+    public static String instruction(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign) {
+            return element(assign.getDest()) + " :=" + type(assign.getTypeOfAssign()) + " "
+                    + instruction(assign.getRhs());
+        }
+        if (instruction instanceof BinaryOpInstruction binaryOp) {
+            return element(binaryOp.getLeftOperand()) + " " + operation(binaryOp.getOperation()) + " "
+                    + element(binaryOp.getRightOperand());
+        }
+        if (instruction instanceof UnaryOpInstruction unaryOp) {
+            return operation(unaryOp.getOperation()) + " " + element(unaryOp.getOperand());
+        }
+        if (instruction instanceof SingleOpInstruction singleOp) {
+            return element(singleOp.getSingleOperand());
+        }
+        if (instruction instanceof CondBranchInstruction branch) {
+            return "if (" + instruction(branch.getCondition()) + ") goto " + branch.getLabel();
+        }
+        if (instruction instanceof GotoInstruction jump) {
+            return "goto " + jump.getLabel();
+        }
+        if (instruction instanceof ReturnInstruction ret) {
+            return "ret" + type(ret.getReturnType()) + ret.getOperand().map(value -> " " + element(value)).orElse("");
+        }
+        if (instruction instanceof GetFieldInstruction getField) {
+            return "getfield(" + element(getField.getObject()) + ", " + element(getField.getField()) + ")"
+                    + type(getField.getFieldType());
+        }
+        if (instruction instanceof PutFieldInstruction putField) {
+            return "putfield(" + element(putField.getObject()) + ", " + element(putField.getField()) + ", "
+                    + element(putField.getValue()) + ").V";
+        }
+        if (instruction instanceof CallInstruction call) {
+            return call(call);
+        }
+        throw new IllegalArgumentException("Instruction not supported: " + instruction.getClass().getSimpleName());
+    }
+
+    private static String call(CallInstruction call) {
+        var code = new StringBuilder();
+
+        if (call instanceof NewInstruction) {
+            // The class or "array", followed by the size of an array
+            code.append("new(").append(((Operand) call.getCaller()).getName());
+            call.getArguments().forEach(arg -> code.append(", ").append(element(arg)));
+            return code.append(")").append(type(call.getReturnType())).toString();
+        }
+        if (call instanceof ArrayLengthInstruction) {
+            return "arraylength(" + element(call.getCaller()) + ")" + type(call.getReturnType());
+        }
+
+        var caller = call instanceof InvokeStaticInstruction
+                ? ((Operand) call.getCaller()).getName()
+                : element(call.getCaller());
+        code.append(call.getInvocationKind().toLowerCase()).append("(").append(caller)
+                .append(", ").append(element(call.getMethodName()));
+        call.getArguments().forEach(arg -> code.append(", ").append(element(arg)));
+        return code.append(")").append(type(call.getReturnType())).toString();
+    }
+
+    public static String element(Element element) {
+        if (element instanceof LiteralElement literal) {
+            // Method names are the only string literals
+            return BuiltinType.is(literal.getType(), BuiltinKind.STRING)
+                    ? "\"" + literal.getLiteral() + "\""
+                    : literal.getLiteral() + type(literal.getType());
+        }
+        if (element instanceof ArrayOperand array) {
+            return array.getName() + array.getIndexOperands().stream()
+                    .map(index -> "[" + element(index) + "]")
+                    .collect(Collectors.joining()) + type(array.getType());
+        }
+        var operand = (Operand) element;
+        return operand.getName() + type(operand.getType());
+    }
+
+    public static String type(Type type) {
+        if (type instanceof ArrayType arrayType) {
+            return ".array".repeat(arrayType.getNumDimensions()) + type(arrayType.getElementType());
+        }
+        if (type instanceof ClassType classType) {
+            return "." + classType.getName();
+        }
+        return switch (((BuiltinType) type).getKind()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+        };
+    }
+
+    private static String operation(Operation operation) {
+        var symbol = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case REM -> "%";
+            case SHR -> ">>";
+            case SHL -> "<<";
+            case SHRR -> ">>>";
+            case XOR -> "^";
+            case AND -> "&";
+            case OR -> "|";
+            case LTH -> "<";
+            case GTH -> ">";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            case NOT -> "~";
+        };
+        return symbol + type(operation.getTypeInfo());
+    }
+
+    private static String modifier(AccessModifier modifier) {
+        return modifier == AccessModifier.DEFAULT ? "" : modifier.name().toLowerCase() + " ";
+    }
+}
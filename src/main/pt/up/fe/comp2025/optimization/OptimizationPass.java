@@ -0,0 +1,40 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+
+/**
+ * Represents an optimization pass over the AST, run by a {@link PassManager}.
+ */
+public interface OptimizationPass {
+
+    /**
+     * Optimizes the AST of the context.
+     *
+     * @return how many changes the pass made, 0 if the AST did not change
+     */
+    int run(PassContext context);
+
+    /**
+     * @return the name used to refer to this pass (e.g. when enabling or disabling it)
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return reports with what the pass did, over all its runs
+     */
+    default List<Report> getReports() {
+        return List.of();
+    }
+
+    /**
+     * @return what the pass did, did not do and why, at each place of the code it looked at, over all its runs
+     */
+    default List<Remark> getRemarks() {
+        return List.of();
+    }
+
+}
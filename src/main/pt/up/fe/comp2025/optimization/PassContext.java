@@ -0,0 +1,86 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+import pt.up.fe.comp2025.analysis.interprocedural.MethodSummary;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.ast.ExprTypeTable;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Map;
+
+/**
+ * What the optimization passes of one compilation share: the AST, its symbol table, the configuration, and the
+ * analyses computed over the AST.
+ * <p>
+ * Analyses are computed when first asked for, and kept until a pass changes the AST ({@link #invalidate()}).
+ */
+public class PassContext {
+
+    private final JmmNode root;
+    private final Map<String, String> config;
+    private final SideEffectAnalysis sideEffectAnalysis;
+    private SymbolTable table;
+
+    private CallGraph callGraph;
+    private Map<String, MethodSummary> summaries;
+
+    /**
+     * @param sideEffectAnalysis reused across compilations, so unchanged methods are not summarized again
+     */
+    public PassContext(JmmNode root, SymbolTable table, Map<String, String> config,
+                       SideEffectAnalysis sideEffectAnalysis) {
+        this.root = root;
+        this.table = table;
+        this.config = config;
+        this.sideEffectAnalysis = sideEffectAnalysis;
+    }
+
+    public JmmNode getRoot() {
+        return root;
+    }
+
+    public SymbolTable getTable() {
+        return table;
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    public CallGraph getCallGraph() {
+        if (callGraph == null) {
+            callGraph = new CallGraph(root, table);
+        }
+        return callGraph;
+    }
+
+    /**
+     * Summarizes the methods, and stores the summaries in the symbol table for the passes that read them from there.
+     */
+    public Map<String, MethodSummary> getSummaries() {
+        if (summaries == null) {
+            summaries = sideEffectAnalysis.analyze(root, table, getCallGraph());
+        }
+        return summaries;
+    }
+
+    /**
+     * Drops the analyses, the AST changed. The memoized expression types go too, a node changed in place (e.g. an
+     * inlined local that was renamed) keeps its identity.
+     */
+    public void invalidate() {
+        callGraph = null;
+        summaries = null;
+        ExprTypeTable.of(table).clear();
+    }
+
+    /**
+     * Builds the symbol table again, for a pass that declared or removed methods, fields or locals.
+     */
+    public void rebuildSymbolTable() {
+        table = new JmmSymbolTableBuilder().build(root);
+        invalidate();
+    }
+}
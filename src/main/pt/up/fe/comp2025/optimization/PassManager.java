@@ -0,0 +1,172 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs optimization passes in order, and records how long each one took and how many changes it made.
+ * <p>
+ * Runs the passes over the AST and then the passes over the OLLIR code of the same compilation.
+ * <p>
+ * Disabled passes are not run. When a pass changes the AST, the analyses cached in the {@link PassContext} are
+ * dropped; a pass that changes nothing keeps them for the next one.
+ */
+public class PassManager {
+
+    private static final Logger logger = Logger.getLogger(PassManager.class.getName());
+
+    private final Set<String> disabledPasses;
+    private final List<OptimizationPass> ranPasses;
+    private final List<OllirPass> ranOllirPasses;
+    private final Map<String, Long> timings;
+    private final Map<String, Integer> changes;
+
+    public PassManager(Set<String> disabledPasses) {
+        this.disabledPasses = Set.copyOf(disabledPasses);
+        this.ranPasses = new ArrayList<>();
+        this.ranOllirPasses = new ArrayList<>();
+        this.timings = new LinkedHashMap<>();
+        this.changes = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return how many changes the passes made
+     */
+    public int run(List<OptimizationPass> passes, PassContext context) {
+        int total = 0;
+        for (var pass : passes) {
+            total += runPass(pass, context);
+        }
+        return total;
+    }
+
+    private int runPass(OptimizationPass pass, PassContext context) {
+        var name = pass.getName();
+        if (disabledPasses.contains(name)) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        int passChanges = pass.run(context);
+        record(name, System.nanoTime() - start, passChanges);
+
+        if (!ranPasses.contains(pass)) {
+            ranPasses.add(pass);
+        }
+        if (passChanges > 0) {
+            context.invalidate();
+        }
+        return passChanges;
+    }
+
+    /**
+     * Runs passes over the OLLIR code, in place.
+     *
+     * @return how many changes the passes made
+     */
+    public int run(List<OllirPass> passes, ClassUnit classUnit) {
+        int total = 0;
+        for (var pass : passes) {
+            var name = pass.getName();
+            if (disabledPasses.contains(name)) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            int passChanges = pass.run(classUnit);
+            record(name, System.nanoTime() - start, passChanges);
+
+            if (!ranOllirPasses.contains(pass)) {
+                ranOllirPasses.add(pass);
+            }
+            total += passChanges;
+        }
+        return total;
+    }
+
+    private void record(String name, long elapsed, int passChanges) {
+        timings.merge(name, elapsed, Long::sum);
+        changes.merge(name, passChanges, Integer::sum);
+        logger.fine("Pass " + name + ": " + passChanges + " changes in " + elapsed / 1000 + " us");
+    }
+
+    /**
+     * @return a pass that runs the given passes again and again, until none of them changes the AST
+     */
+    public OptimizationPass fixedPoint(String name, List<OptimizationPass> passes) {
+        return new OptimizationPass() {
+            @Override
+            public int run(PassContext context) {
+                int total = 0;
+                int round;
+                do {
+                    round = PassManager.this.run(passes, context);
+                    total += round;
+                } while (round > 0);
+                return total;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * @return the total time spent in each pass that ran, in nanoseconds, in the order the passes first ran
+     */
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    /**
+     * @return the total number of changes made by each pass that ran
+     */
+    public Map<String, Integer> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return the remarks of the passes that ran, in the order the passes first ran, on the AST and then on the
+     * OLLIR code. A pass run again in a fixed point makes the same remarks about what it still cannot change, these
+     * are only kept once
+     */
+    public List<Remark> getRemarks() {
+        var remarks = new LinkedHashSet<Remark>();
+        for (var pass : ranPasses) {
+            remarks.addAll(pass.getRemarks());
+        }
+        for (var pass : ranOllirPasses) {
+            remarks.addAll(pass.getRemarks());
+        }
+        return new ArrayList<>(remarks);
+    }
+
+    /**
+     * @return the reports of the passes that ran, followed by one report with the time and changes of each pass
+     */
+    public List<Report> getReports() {
+        var reports = new ArrayList<Report>();
+        for (var pass : ranPasses) {
+            reports.addAll(pass.getReports());
+        }
+        for (var pass : ranOllirPasses) {
+            reports.addAll(pass.getReports());
+        }
+
+        for (var entry : timings.entrySet()) {
+            var name = entry.getKey();
+            reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                    String.format(Locale.ROOT, "Pass %s: %d changes in %.3f ms", name, changes.get(name),
+                            entry.getValue() / 1e6)));
+        }
+
+        return reports;
+    }
+}
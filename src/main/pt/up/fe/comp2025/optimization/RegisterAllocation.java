@@ -0,0 +1,54 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Assigns the variables of each method to registers, with {@link RegisterAllocatorVisitor}. Runs after the passes
+ * that change the code, the registers are chosen for the final code.
+ */
+public class RegisterAllocation implements OllirPass {
+
+    private static final Logger logger = Logger.getLogger(RegisterAllocation.class.getName());
+
+    private final int registers;
+    private final RegisterAllocatorVisitor allocator;
+    private final List<Report> reports;
+
+    /**
+     * @param registers how many registers each method may use, 0 for as few as possible
+     */
+    public RegisterAllocation(int registers) {
+        this.registers = registers;
+        this.allocator = new RegisterAllocatorVisitor();
+        this.reports = new ArrayList<>();
+    }
+
+    /**
+     * @return how many methods were allocated
+     */
+    @Override
+    public int run(ClassUnit classUnit) {
+        String settingLabel = (registers == 0) ? "minimal (0)" : String.valueOf(registers);
+        logger.info("[Register Allocation] Initiating allocation with " + settingLabel + " registers.");
+
+        // One report for each allocated method, a method that does not fit throws
+        var allocationReports = allocator.processMethodRegisters(classUnit, registers);
+        reports.addAll(allocationReports);
+        return allocationReports.size();
+    }
+
+    @Override
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return allocator.getRemarks();
+    }
+}
@@ -24,9 +24,16 @@ public class RegisterAllocatorVisitor {
         }
     }
 
+    private static final String PASS_NAME = "RegisterAllocation";
+
+    private final List<Remark> remarks = new ArrayList<>();
+
     public List<Report> processMethodRegisters(OllirResult result, int availableRegisters) {
+        return processMethodRegisters(result.getOllirClass(), availableRegisters);
+    }
+
+    public List<Report> processMethodRegisters(ClassUnit programClass, int availableRegisters) {
         List<Report> reportList = new ArrayList<>();
-        ClassUnit programClass = result.getOllirClass();
 
         // Skip allocation if registers are not constrained
         if (availableRegisters == -1) {
@@ -47,6 +54,7 @@ public class RegisterAllocatorVisitor {
                     reportList.add(Report.newLog(Stage.OPTIMIZATION, 0, 0,
                             "Method " + method.getMethodName() + " optimally allocated: " +
                                     allocationDetails, null));
+                    addAllocatedRemark(method, allocationDetails);
                 } else {
                     // Limited allocation mode
                     allocateWithinLimit(method, availableRegisters);
@@ -54,8 +62,12 @@ public class RegisterAllocatorVisitor {
                     reportList.add(Report.newLog(Stage.OPTIMIZATION, 0, 0,
                             "Method " + method.getMethodName() + " allocated with " +
                                     availableRegisters + " registers: " + allocationDetails, null));
+                    addAllocatedRemark(method, allocationDetails);
                 }
             } catch (InsufficientRegisterException e) {
+                remarks.add(new Remark(Remark.Kind.MISSED, PASS_NAME, "NotAllocated", method.getMethodName(), -1, -1,
+                        "did not fit the variables in " + availableRegisters + " registers, at least "
+                                + e.getRequiredResources() + " are needed"));
                 reportList.add(Report.newError(Stage.OPTIMIZATION, 0, 0,
                         "Method " + method.getMethodName() + " allocation failed: requires at least " +
                                 e.getRequiredResources() + " registers", null));
@@ -95,6 +107,20 @@ public class RegisterAllocatorVisitor {
         assigner.assignLimitedRegisters(limit);
     }
 
+    private void addAllocatedRemark(Method method, String allocationDetails) {
+        long registers = method.getVarTable().values().stream().mapToInt(Descriptor::getVirtualReg).distinct().count();
+        remarks.add(new Remark(Remark.Kind.APPLIED, PASS_NAME, "Allocated", method.getMethodName(), -1, -1,
+                "allocated " + method.getVarTable().size() + " variables to " + registers + " registers: "
+                        + allocationDetails));
+    }
+
+    /**
+     * @return one remark per method, allocated or not
+     */
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
     private String generateAllocationSummary(Method method) {
         StringBuilder summary = new StringBuilder();
         Map<String, Descriptor> variables = method.getVarTable();
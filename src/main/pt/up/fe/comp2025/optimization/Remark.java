@@ -0,0 +1,150 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Objects;
+
+/**
+ * What an optimization did, did not do, or found out at one place of the code.
+ * <p>
+ * Remarks on the AST take the position of the node they are about, or of its closest ancestor that has one (nodes
+ * created by earlier rewrites have none). Remarks on the OLLIR code (register allocation, instruction selection)
+ * only know the method, their line and column are -1.
+ */
+public class Remark {
+
+    public enum Kind {
+        /**
+         * The optimization changed the code.
+         */
+        APPLIED("Passed"),
+        /**
+         * The optimization was considered, the message says why it was not done.
+         */
+        MISSED("Missed"),
+        /**
+         * A fact an optimization relied on.
+         */
+        ANALYSIS("Analysis");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return the name of the kind in the written remarks
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Kind kind;
+    private final String pass;
+    private final String name;
+    private final String function;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    /**
+     * @param pass     the pass that made the remark, as in {@link OptimizationPass#getName()}
+     * @param name     identifies the kind of remark within the pass (e.g. "Inlined", "NotInlined")
+     * @param function the method the remark is about, or null
+     */
+    public Remark(Kind kind, String pass, String name, String function, int line, int column, String message) {
+        this.kind = kind;
+        this.pass = pass;
+        this.name = name;
+        this.function = function;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public static Remark applied(String pass, String name, JmmNode node, String message) {
+        return of(Kind.APPLIED, pass, name, node, message);
+    }
+
+    public static Remark missed(String pass, String name, JmmNode node, String message) {
+        return of(Kind.MISSED, pass, name, node, message);
+    }
+
+    public static Remark analysis(String pass, String name, JmmNode node, String message) {
+        return of(Kind.ANALYSIS, pass, name, node, message);
+    }
+
+    /**
+     * The node must still be in the tree, its ancestors give the position and the method.
+     */
+    private static Remark of(Kind kind, String pass, String name, JmmNode node, String message) {
+        var positioned = node;
+        while (positioned.getParent() != null && positioned.getLine() < 0) {
+            positioned = positioned.getParent();
+        }
+
+        String function = null;
+        for (var current = node; current != null; current = current.getParent()) {
+            if (current.getKind().equals("MethodDecl")) {
+                function = current.get("methodName");
+                break;
+            }
+        }
+
+        return new Remark(kind, pass, name, function, positioned.getLine(), positioned.getColumn(), message);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getPass() {
+        return pass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Remark other)) {
+            return false;
+        }
+        return kind == other.kind && line == other.line && column == other.column && pass.equals(other.pass)
+                && name.equals(other.name) && Objects.equals(function, other.function)
+                && message.equals(other.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, pass, name, function, line, column, message);
+    }
+
+    @Override
+    public String toString() {
+        var position = line < 0 ? "" : "@" + line + ":" + column;
+        return kind.getTag() + " " + pass + "." + name + position + ": " + message;
+    }
+}
@@ -0,0 +1,122 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the remarks of one source file as YAML or JSON.
+ * <p>
+ * The YAML output is a stream of documents in the layout of LLVM optimization records ({@code --- !Passed},
+ * {@code --- !Missed}, {@code --- !Analysis}), so the tools that read those can read these. The JSON output is an
+ * array with one object per remark, with the same keys.
+ */
+public class RemarkWriter {
+
+    public enum Format {
+        YAML("yaml"),
+        JSON("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return the format with the given name, ignoring case
+         */
+        public static Format fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private RemarkWriter() {
+    }
+
+    /**
+     * @param file the source file the remarks are about, as it should appear in the output
+     */
+    public static String write(List<Remark> remarks, String file, Format format) {
+        return switch (format) {
+            case YAML -> toYaml(remarks, file);
+            case JSON -> toJson(remarks, file);
+        };
+    }
+
+    public static String toYaml(List<Remark> remarks, String file) {
+        var yaml = new StringBuilder();
+
+        for (var remark : remarks) {
+            yaml.append("--- !").append(remark.getKind().getTag()).append("\n");
+            yaml.append("Pass:            ").append(yamlString(remark.getPass())).append("\n");
+            yaml.append("Name:            ").append(yamlString(remark.getName())).append("\n");
+            if (remark.getLine() >= 0) {
+                yaml.append("DebugLoc:        { File: ").append(yamlString(file))
+                        .append(", Line: ").append(remark.getLine())
+                        .append(", Column: ").append(remark.getColumn()).append(" }\n");
+            }
+            if (remark.getFunction() != null) {
+                yaml.append("Function:        ").append(yamlString(remark.getFunction())).append("\n");
+            }
+            yaml.append("Args:\n");
+            yaml.append("  - String:          ").append(yamlString(remark.getMessage())).append("\n");
+            yaml.append("...\n");
+        }
+
+        return yaml.toString();
+    }
+
+    public static String toJson(List<Remark> remarks, String file) {
+        var json = new StringBuilder("[");
+
+        for (int i = 0; i < remarks.size(); i++) {
+            var remark = remarks.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("  {\"Kind\": ").append(jsonString(remark.getKind().getTag()));
+            json.append(", \"Pass\": ").append(jsonString(remark.getPass()));
+            json.append(", \"Name\": ").append(jsonString(remark.getName()));
+            if (remark.getLine() >= 0) {
+                json.append(", \"DebugLoc\": {\"File\": ").append(jsonString(file))
+                        .append(", \"Line\": ").append(remark.getLine())
+                        .append(", \"Column\": ").append(remark.getColumn()).append("}");
+            }
+            if (remark.getFunction() != null) {
+                json.append(", \"Function\": ").append(jsonString(remark.getFunction()));
+            }
+            json.append(", \"Message\": ").append(jsonString(remark.getMessage())).append("}");
+        }
+
+        return json.append(remarks.isEmpty() ? "]\n" : "\n]\n").toString();
+    }
+
+    /**
+     * Single-quoted, the only character to escape is the quote itself.
+     */
+    private static String yamlString(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static String jsonString(String value) {
+        var escaped = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
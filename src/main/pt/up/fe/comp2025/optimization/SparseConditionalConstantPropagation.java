@@ -0,0 +1,407 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.optimization.ssa.ControlFlowGraph.Block;
+import pt.up.fe.comp2025.optimization.ssa.InstructionOperands;
+import pt.up.fe.comp2025.optimization.ssa.SsaForm;
+import pt.up.fe.comp2025.optimization.ssa.SsaForm.Phi;
+import pt.up.fe.comp2025.optimization.ssa.SsaForm.Value;
+
+import java.util.*;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) over the {@link SsaForm} of each method.
+ * <p>
+ * Values start unknown and only go down to a constant and then to "not constant", and a block is only looked at
+ * once an edge into it can run. A variable changed in a loop therefore stays constant if every assignment that can
+ * run gives it the same value, and a branch whose condition is constant only makes the side it takes run.
+ * <p>
+ * Reads of constant variables become literals, constant branches become jumps (or are removed), and the blocks that
+ * can never run are removed. The assignments are all kept, a variable may still be read where its value is not
+ * constant.
+ */
+public class SparseConditionalConstantPropagation implements OllirPass {
+
+    private enum Level {
+        UNKNOWN, CONSTANT, VARYING
+    }
+
+    private record Lattice(Level level, int value) {
+
+        static final Lattice UNKNOWN = new Lattice(Level.UNKNOWN, 0);
+        static final Lattice VARYING = new Lattice(Level.VARYING, 0);
+
+        static Lattice of(int value) {
+            return new Lattice(Level.CONSTANT, value);
+        }
+
+        boolean isConstant() {
+            return level == Level.CONSTANT;
+        }
+
+        Lattice meet(Lattice other) {
+            if (level == Level.UNKNOWN) {
+                return other;
+            }
+            if (other.level == Level.UNKNOWN) {
+                return this;
+            }
+            return equals(other) ? this : VARYING;
+        }
+    }
+
+    private record Edge(Block from, Block to) {
+    }
+
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(ClassUnit classUnit) {
+        int changes = 0;
+
+        var methods = classUnit.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            var method = methods.get(i);
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            var propagation = new MethodPropagation(new SsaForm(method));
+            var optimized = propagation.rewrite();
+            if (optimized.isPresent()) {
+                methods.set(i, optimized.get());
+                changes += propagation.changes();
+                remarks.add(new Remark(Remark.Kind.APPLIED, getName(), "Propagated", method.getMethodName(), -1, -1,
+                        "replaced " + propagation.replacedReads + " reads with constants, folded "
+                                + propagation.foldedBranches + " branches and removed "
+                                + propagation.removedInstructions + " instructions that never run"));
+            }
+        }
+
+        return changes;
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    /**
+     * The propagation over one method.
+     */
+    private static class MethodPropagation {
+
+        private final SsaForm ssa;
+        private final Map<Value, Lattice> values = new HashMap<>();
+        private final Map<Instruction, Block> blocks = new IdentityHashMap<>();
+        private final Set<Block> visited = new HashSet<>();
+        private final Set<Edge> executable = new HashSet<>();
+        private final Deque<Edge> edgeWorklist = new ArrayDeque<>();
+        private final Deque<Value> valueWorklist = new ArrayDeque<>();
+
+        private int replacedReads;
+        private int foldedBranches;
+        private int removedInstructions;
+
+        MethodPropagation(SsaForm ssa) {
+            this.ssa = ssa;
+            for (var block : ssa.getCfg().getBlocks()) {
+                block.getInstructions().forEach(instruction -> blocks.put(instruction, block));
+            }
+            propagate();
+        }
+
+        int changes() {
+            return replacedReads + foldedBranches + removedInstructions;
+        }
+
+        private void propagate() {
+            var entry = ssa.getCfg().getEntry();
+            visited.add(entry);
+            ssa.getCfg().getFallthrough(entry).ifPresent(first -> addEdge(entry, first));
+
+            while (!edgeWorklist.isEmpty() || !valueWorklist.isEmpty()) {
+                while (!edgeWorklist.isEmpty()) {
+                    var edge = edgeWorklist.poll();
+                    var block = edge.to();
+                    ssa.getPhis(block).forEach(this::visitPhi);
+
+                    // The instructions do not depend on which edge is taken, only the phis do
+                    if (visited.add(block)) {
+                        block.getInstructions().forEach(this::visitInstruction);
+                        var last = block.getLast().orElseThrow();
+                        if (!(last instanceof GotoInstruction) && !(last instanceof CondBranchInstruction)
+                                && !(last instanceof ReturnInstruction)) {
+                            ssa.getCfg().getFallthrough(block).ifPresent(next -> addEdge(block, next));
+                        }
+                    }
+                }
+
+                while (!valueWorklist.isEmpty()) {
+                    var value = valueWorklist.poll();
+                    for (var user : value.getUsers()) {
+                        if (user instanceof Phi phi) {
+                            if (visited.contains(phi.getBlock())) {
+                                visitPhi(phi);
+                            }
+                        } else if (visited.contains(blocks.get((Instruction) user))) {
+                            visitInstruction((Instruction) user);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void addEdge(Block from, Block to) {
+            var edge = new Edge(from, to);
+            if (executable.add(edge)) {
+                edgeWorklist.add(edge);
+            }
+        }
+
+        private void visitPhi(Phi phi) {
+            var result = Lattice.UNKNOWN;
+            for (var argument : phi.getArguments().entrySet()) {
+                if (executable.contains(new Edge(argument.getKey(), phi.getBlock()))) {
+                    result = result.meet(getLattice(argument.getValue()));
+                }
+            }
+            setLattice(phi.getResult(), result);
+        }
+
+        private void visitInstruction(Instruction instruction) {
+            var block = blocks.get(instruction);
+
+            var definition = ssa.getDefinition(instruction);
+            if (definition.isPresent()) {
+                var rhs = ((AssignInstruction) instruction).getRhs();
+                setLattice(definition.get(), evaluate(rhs, readValues(instruction)));
+            } else if (instruction instanceof GotoInstruction) {
+                addEdge(block, block.getSuccessors().get(0));
+            } else if (instruction instanceof CondBranchInstruction branch) {
+                var condition = evaluate(branch.getCondition(), readValues(instruction));
+                var target = block.getSuccessors().get(0);
+                var next = ssa.getCfg().getFallthrough(block);
+                if (condition.level() == Level.VARYING || condition.isConstant() && condition.value() != 0) {
+                    addEdge(block, target);
+                }
+                if (condition.level() == Level.VARYING || condition.isConstant() && condition.value() == 0) {
+                    next.ifPresent(fallthrough -> addEdge(block, fallthrough));
+                }
+            }
+        }
+
+        /**
+         * @return the value in SSA form of each operand the instruction reads
+         */
+        private Map<Element, Value> readValues(Instruction instruction) {
+            var read = new IdentityHashMap<Element, Value>();
+            var elements = InstructionOperands.getUses(instruction);
+            var ssaValues = ssa.getUses(instruction);
+            for (int i = 0; i < elements.size() && i < ssaValues.size(); i++) {
+                if (ssaValues.get(i) != null) {
+                    read.put(elements.get(i), ssaValues.get(i));
+                }
+            }
+            return read;
+        }
+
+        private Lattice getLattice(Value value) {
+            // Parameters, and locals read before they are assigned, are not known
+            if (value.isEntry()) {
+                return Lattice.VARYING;
+            }
+            return values.getOrDefault(value, Lattice.UNKNOWN);
+        }
+
+        private void setLattice(Value value, Lattice lattice) {
+            var old = getLattice(value);
+            var updated = old.meet(lattice);
+            if (!updated.equals(old)) {
+                values.put(value, updated);
+                valueWorklist.add(value);
+            }
+        }
+
+        private Lattice evaluateElement(Element element, Map<Element, Value> read) {
+            if (element instanceof LiteralElement literal) {
+                try {
+                    return Lattice.of(Integer.parseInt(literal.getLiteral()));
+                } catch (NumberFormatException e) {
+                    return Lattice.VARYING;
+                }
+            }
+            var value = read.get(element);
+            return value == null ? Lattice.VARYING : getLattice(value);
+        }
+
+        private Lattice evaluate(Instruction instruction, Map<Element, Value> read) {
+            if (instruction instanceof SingleOpInstruction singleOp) {
+                return evaluateElement(singleOp.getSingleOperand(), read);
+            }
+            if (instruction instanceof UnaryOpInstruction unaryOp) {
+                var operand = evaluateElement(unaryOp.getOperand(), read);
+                if (!operand.isConstant()) {
+                    return operand;
+                }
+                return switch (unaryOp.getOperation().getOpType()) {
+                    case NOTB -> Lattice.of(operand.value() == 0 ? 1 : 0);
+                    case NOT -> Lattice.of(~operand.value());
+                    default -> Lattice.VARYING;
+                };
+            }
+            if (instruction instanceof BinaryOpInstruction binaryOp) {
+                var left = evaluateElement(binaryOp.getLeftOperand(), read);
+                var right = evaluateElement(binaryOp.getRightOperand(), read);
+                if (left.level() == Level.VARYING || right.level() == Level.VARYING) {
+                    return Lattice.VARYING;
+                }
+                if (!left.isConstant() || !right.isConstant()) {
+                    return Lattice.UNKNOWN;
+                }
+                return fold(binaryOp.getOperation().getOpType(), left.value(), right.value());
+            }
+
+            // Calls, fields and array elements
+            return Lattice.VARYING;
+        }
+
+        private static Lattice fold(OperationType op, int left, int right) {
+            return switch (op) {
+                case ADD -> Lattice.of(left + right);
+                case SUB -> Lattice.of(left - right);
+                case MUL -> Lattice.of(left * right);
+                // Division by zero throws when the code runs
+                case DIV -> right == 0 ? Lattice.VARYING : Lattice.of(left / right);
+                case REM -> right == 0 ? Lattice.VARYING : Lattice.of(left % right);
+                case SHL -> Lattice.of(left << right);
+                case SHR -> Lattice.of(left >> right);
+                case SHRR -> Lattice.of(left >>> right);
+                case AND, ANDB -> Lattice.of(left & right);
+                case OR, ORB -> Lattice.of(left | right);
+                case XOR -> Lattice.of(left ^ right);
+                case LTH -> Lattice.of(left < right ? 1 : 0);
+                case GTH -> Lattice.of(left > right ? 1 : 0);
+                case LTE -> Lattice.of(left <= right ? 1 : 0);
+                case GTE -> Lattice.of(left >= right ? 1 : 0);
+                case EQ -> Lattice.of(left == right ? 1 : 0);
+                case NEQ -> Lattice.of(left != right ? 1 : 0);
+                default -> Lattice.VARYING;
+            };
+        }
+
+        /**
+         * @return the method with the constants in place, or empty if nothing changed
+         */
+        Optional<Method> rewrite() {
+            var method = ssa.getMethod();
+            var replacements = new IdentityHashMap<Instruction, Instruction>();
+
+            for (var block : ssa.getCfg().getBlocks()) {
+                if (!visited.contains(block)) {
+                    removedInstructions += block.getInstructions().size();
+                    continue;
+                }
+                for (var instruction : block.getInstructions()) {
+                    var replacement = rewrite(instruction);
+                    if (replacement != null) {
+                        replacements.put(instruction, replacement);
+                    }
+                }
+            }
+            removeJumpsToNext(method, replacements);
+
+            if (changes() == 0 || !jumpsHaveTargets(method, replacements)) {
+                return Optional.empty();
+            }
+            return Optional.of(ssa.toMethod(replacements));
+        }
+
+        /**
+         * @return the instruction with the constants in place, or null if it is removed
+         */
+        private Instruction rewrite(Instruction instruction) {
+            var read = readValues(instruction);
+
+            if (instruction instanceof CondBranchInstruction branch) {
+                var condition = evaluate(branch.getCondition(), read);
+                if (condition.isConstant()) {
+                    foldedBranches++;
+                    return condition.value() != 0 ? new GotoInstruction(branch.getLabel()) : null;
+                }
+            }
+
+            // The whole value is known, not only the operands
+            var definition = ssa.getDefinition(instruction);
+            if (definition.isPresent() && getLattice(definition.get()).isConstant()) {
+                var assign = (AssignInstruction) instruction;
+                if (!(assign.getRhs() instanceof SingleOpInstruction singleOp
+                        && singleOp.getSingleOperand() instanceof LiteralElement)) {
+                    replacedReads += read.size();
+                    var literal = new LiteralElement(Integer.toString(getLattice(definition.get()).value()),
+                            assign.getDest().getType());
+                    return new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(),
+                            new SingleOpInstruction(literal));
+                }
+                return instruction;
+            }
+
+            int before = replacedReads;
+            var rewritten = InstructionOperands.rewriteUses(instruction, element -> {
+                var value = read.get(element);
+                if (value == null || !getLattice(value).isConstant()) {
+                    return element;
+                }
+                replacedReads++;
+                return new LiteralElement(Integer.toString(getLattice(value).value()), element.getType());
+            });
+            return replacedReads > before ? rewritten : instruction;
+        }
+
+        /**
+         * A jump to the instruction right after it is left after a branch folds, e.g. at the end of a loop that
+         * never runs.
+         */
+        private void removeJumpsToNext(Method method, Map<Instruction, Instruction> replacements) {
+            var kept = method.getInstructions().stream().filter(replacements::containsKey).toList();
+            for (int i = 0; i + 1 < kept.size(); i++) {
+                if (replacements.get(kept.get(i)) instanceof GotoInstruction jump
+                        && getTarget(method, replacements, jump.getLabel()) == kept.get(i + 1)) {
+                    replacements.remove(kept.get(i));
+                    removedInstructions++;
+                }
+            }
+        }
+
+        /**
+         * @return the first instruction kept at or after the instruction with the label, where the label goes
+         */
+        private static Instruction getTarget(Method method, Map<Instruction, Instruction> replacements,
+                                             String label) {
+            var instructions = method.getInstructions();
+            var labelled = method.getLabels().get(label);
+            for (int i = instructions.indexOf(labelled); i >= 0 && i < instructions.size(); i++) {
+                if (replacements.containsKey(instructions.get(i))) {
+                    return instructions.get(i);
+                }
+            }
+            return null;
+        }
+
+        private static boolean jumpsHaveTargets(Method method, Map<Instruction, Instruction> replacements) {
+            for (var replacement : replacements.values()) {
+                String label = replacement instanceof GotoInstruction jump ? jump.getLabel()
+                        : replacement instanceof CondBranchInstruction branch ? branch.getLabel() : null;
+                if (label != null && getTarget(method, replacements, label) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
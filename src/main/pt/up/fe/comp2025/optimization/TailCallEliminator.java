@@ -0,0 +1,119 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the {@code return this.m(...)} statements of a method {@code m}, so the OLLIR generator turns them into a
+ * jump back to the start of the method instead of a call.
+ * <p>
+ * The arguments are evaluated into temporaries, copied into the parameters, and the method starts over, so a deep
+ * recursion runs in a constant amount of stack. A method that overrides {@code m} in a subclass is not called
+ * anymore, as for a {@code private} method.
+ */
+public class TailCallEliminator implements OptimizationPass {
+
+    /**
+     * Attribute of a {@code ReturnStmt} whose call becomes a jump.
+     */
+    public static final String TAIL_CALL = "tailCall";
+
+    private int eliminatedCount = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = eliminatedCount;
+        eliminate(context.getRoot());
+        return eliminatedCount - before;
+    }
+
+    /**
+     * @return true if a tail call was found
+     */
+    public boolean eliminate(JmmNode root) {
+        int before = eliminatedCount;
+
+        var methods = root.getDescendantsAndSelfStream()
+                .filter(node -> node.getKind().equals("MethodDecl"))
+                .toList();
+        for (var method : methods) {
+            // main is static, it has no this to call
+            if (method.get("methodName").equals("main")) {
+                continue;
+            }
+
+            for (var ret : method.getDescendants("ReturnStmt")) {
+                if (!ret.hasAttribute(TAIL_CALL) && isSelfCall(ret.getChild(0), method)) {
+                    ret.put(TAIL_CALL, "true");
+                    eliminatedCount++;
+                    remarks.add(Remark.applied(getName(), "TailCallEliminated", ret,
+                            "the recursive call to " + method.get("methodName") + " became a jump"));
+                }
+            }
+
+            for (var call : method.getDescendants("MethodCall")) {
+                if (call.get("value").equals(method.get("methodName")) && isThisCall(call)
+                        && !call.getParent().hasAttribute(TAIL_CALL)) {
+                    remarks.add(Remark.missed(getName(), "NotTailCall", call, "the recursive call to "
+                            + method.get("methodName") + " is not a tail call: " + getMissedReason(call)));
+                }
+            }
+        }
+
+        return eliminatedCount > before;
+    }
+
+    private static boolean isSelfCall(JmmNode expr, JmmNode method) {
+        if (!expr.getKind().equals("MethodCall") || !expr.get("value").equals(method.get("methodName"))
+                || !isThisCall(expr)) {
+            return false;
+        }
+
+        // Each argument goes into the parameter in the same position
+        var params = method.getDescendants("Param");
+        return params.size() == expr.getNumChildren() - 1
+                && params.stream().noneMatch(param -> param.getChild(0).getKind().equals("VarArgsType"));
+    }
+
+    private static boolean isThisCall(JmmNode call) {
+        var receiver = call.getChild(0);
+        while (receiver.getKind().equals("Parenthesis")) {
+            receiver = receiver.getChild(0);
+        }
+        return receiver.getKind().equals("This");
+    }
+
+    private static String getMissedReason(JmmNode call) {
+        if (call.getParent().getKind().equals("ReturnStmt")) {
+            return "the method takes a variable number of arguments";
+        }
+        return "its result is used before the method returns";
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (eliminatedCount == 0) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Tail Call Elimination: " + eliminatedCount + " recursive calls turned into jumps"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    /**
+     * @return how many calls were turned into jumps
+     */
+    public int getEliminatedCount() {
+        return eliminatedCount;
+    }
+}
@@ -0,0 +1,122 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.LocalSlots;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+
+import java.util.*;
+
+/**
+ * Removes the methods that cannot be reached from the entry points of the class, and the fields no remaining method
+ * uses.
+ * <p>
+ * The entry points are {@code main} and the methods declared {@code public}; any other method is only called from
+ * inside the class. When the class extends another class, its methods may override inherited ones and be called
+ * from there, so no method is removed. Fields are always private to the generated class.
+ * <p>
+ * Only the AST is changed: the symbol table must be built again afterwards.
+ */
+public class TreeShaker implements OptimizationPass {
+
+    private final List<String> removedMethods = new ArrayList<>();
+    private final List<String> removedFields = new ArrayList<>();
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = removedMethods.size() + removedFields.size();
+        if (shake(context.getRoot(), context.getTable())) {
+            context.rebuildSymbolTable();
+        }
+        return removedMethods.size() + removedFields.size() - before;
+    }
+
+    /**
+     * @return true if something was removed
+     */
+    public boolean shake(JmmNode root, SymbolTable table) {
+        int before = removedMethods.size() + removedFields.size();
+        var classDecl = root.getChildren("ClassDecl").get(0);
+
+        if (table.getSuper() != null) {
+            remarks.add(Remark.missed(getName(), "MethodsKept", classDecl, "did not remove methods: the class "
+                    + "extends " + table.getSuper() + ", which may call any of them"));
+        } else {
+            var callGraph = new CallGraph(root, table);
+            var roots = classDecl.getChildren("MethodDecl").stream()
+                    .filter(method -> method.get("methodName").equals("main") || method.hasAttribute("access"))
+                    .map(method -> method.get("methodName"))
+                    .toList();
+            var reachable = callGraph.getReachable(roots);
+
+            for (var method : classDecl.getChildren("MethodDecl")) {
+                if (!reachable.contains(method.get("methodName"))) {
+                    remarks.add(Remark.applied(getName(), "MethodRemoved", method, "removed "
+                            + method.get("methodName") + ", it is not called from main or a public method"));
+                    removedMethods.add(method.get("methodName"));
+                    method.delete();
+                }
+            }
+        }
+
+        var usedFields = getUsedFields(classDecl);
+        for (var field : classDecl.getChildren("VarDecl")) {
+            if (!usedFields.contains(field.get("varName"))) {
+                remarks.add(Remark.applied(getName(), "FieldRemoved", field, "removed the field "
+                        + field.get("varName") + ", no method uses it"));
+                removedFields.add(field.get("varName"));
+                field.delete();
+            }
+        }
+
+        return removedMethods.size() + removedFields.size() > before;
+    }
+
+    private static Set<String> getUsedFields(JmmNode classDecl) {
+        var used = new HashSet<String>();
+
+        for (var method : classDecl.getChildren("MethodDecl")) {
+            var slots = new LocalSlots(method);
+            for (var node : method.getDescendants()) {
+                var name = switch (node.getKind()) {
+                    case "Identifier" -> node.get("value");
+                    case "AssignStmt", "ArrayAssignStmt" -> node.get("var");
+                    default -> null;
+                };
+
+                if (name != null && !slots.contains(name)) {
+                    used.add(name);
+                }
+            }
+        }
+
+        return used;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        if (removedMethods.isEmpty() && removedFields.isEmpty()) {
+            return List.of();
+        }
+        return List.of(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Tree Shaking: removed " + removedMethods.size() + " methods and " + removedFields.size()
+                        + " fields"));
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    public List<String> getRemovedMethods() {
+        return removedMethods;
+    }
+
+    public List<String> getRemovedFields() {
+        return removedFields;
+    }
+}
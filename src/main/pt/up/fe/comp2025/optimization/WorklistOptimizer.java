@@ -0,0 +1,270 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.dataflow.MethodDataflow;
+import pt.up.fe.comp2025.analysis.dataflow.ReachingDefinitions;
+import pt.up.fe.comp2025.analysis.dataflow.StatementCfg;
+
+import java.util.*;
+
+/**
+ * Runs constant folding, algebraic simplification and constant propagation together, until none of them can change
+ * anything.
+ * <p>
+ * Instead of sweeping the whole tree again after every change, only the nodes a rewrite can affect are revisited:
+ * the parent of a folded or propagated node (its operands changed), and the uses of a local whose assignment just
+ * became a literal. Every node starts on the worklist once, and each rewrite replaces a node by a smaller one (a literal, one
+ * of its operands, or a cheaper operation), so the number of steps stays close to linear in the size of the method.
+ * <p>
+ * Reaching definitions are computed once per method: folding and propagation change the values that are assigned,
+ * not which assignments exist, so the facts stay valid until the redundant assignments are removed at the end.
+ */
+public class WorklistOptimizer implements OptimizationPass {
+
+    private final ConstantFoldingVisitor folding = new ConstantFoldingVisitor();
+    private final AlgebraicSimplifier simplifier = new AlgebraicSimplifier();
+
+    private int foldedCount = 0;
+    private int propagatedCount = 0;
+    private int removedAssignments = 0;
+    private int steps = 0;
+    private final List<Remark> remarks = new ArrayList<>();
+
+    @Override
+    public int run(PassContext context) {
+        int before = getChanges();
+        optimize(context.getRoot());
+        return getChanges() - before;
+    }
+
+    /**
+     * @return true if the tree changed
+     */
+    public boolean optimize(JmmNode root) {
+        var methods = root.getDescendantsAndSelfStream()
+                .filter(node -> node.getKind().equals("MethodDecl"))
+                .toList();
+
+        boolean changed = false;
+        for (var method : methods) {
+            changed |= optimizeMethod(method);
+        }
+        return changed;
+    }
+
+    private boolean optimizeMethod(JmmNode method) {
+        var dataflow = new MethodDataflow(method);
+        var cfg = dataflow.getCfg();
+        var reachingDefinitions = dataflow.getReachingDefinitions();
+
+        var usesByVar = new HashMap<String, List<JmmNode>>();
+        for (var identifier : method.getDescendants("Identifier")) {
+            usesByVar.computeIfAbsent(identifier.get("value"), var -> new ArrayList<>()).add(identifier);
+        }
+
+        var worklist = new ArrayDeque<JmmNode>();
+        var queued = Collections.newSetFromMap(new IdentityHashMap<JmmNode, Boolean>());
+        var removed = Collections.newSetFromMap(new IdentityHashMap<JmmNode, Boolean>());
+
+        // Operands before operators, so a single pass folds a whole constant expression
+        for (var node : postorder(method)) {
+            enqueue(node, worklist, queued);
+        }
+
+        int rewrites = 0;
+        int methodSteps = steps;
+        while (!worklist.isEmpty()) {
+            var node = worklist.poll();
+            queued.remove(node);
+            steps++;
+
+            if (removed.contains(node)) {
+                continue;
+            }
+
+            var replacement = rewrite(node, cfg, reachingDefinitions);
+            if (replacement.isEmpty()) {
+                continue;
+            }
+
+            // The replacement may be an operand of the node, which stays in the tree
+            var result = replacement.get();
+            node.getDescendantsAndSelfStream().forEach(removed::add);
+            result.getDescendantsAndSelfStream().forEach(removed::remove);
+            ConstantFoldingVisitor.replace(node, result);
+            rewrites++;
+
+            // A simplified operation may simplify again, e.g. x + 1 + -1 becomes x + 0
+            enqueue(result, worklist, queued);
+            var parent = result.getParent();
+            enqueue(parent, worklist, queued);
+
+            // The local now holds a literal here, its uses may become constant
+            if (parent.getKind().equals("AssignStmt") && isLiteral(result)) {
+                usesByVar.getOrDefault(parent.get("var"), List.of())
+                        .forEach(use -> enqueue(use, worklist, queued));
+            }
+        }
+
+        // Decided against the facts of the original assignments, then removed together
+        var redundant = cfg.getNodes().stream()
+                .filter(cfgNode -> ConstantPropagationVisitor.isRedundantAssignment(reachingDefinitions, cfgNode))
+                .map(StatementCfg.CfgNode::getStatement)
+                .toList();
+        for (var assign : redundant) {
+            remarks.add(Remark.applied(getName(), "AssignmentRemoved", assign,
+                    "removed the assignment to " + assign.get("var") + ", its uses read the constant instead"));
+        }
+        redundant.forEach(ConstantFoldingVisitor::removeStatement);
+        removedAssignments += redundant.size();
+
+        boolean changed = rewrites > 0 || !redundant.isEmpty();
+        if (changed) {
+            remarks.add(Remark.analysis(getName(), "FixedPoint", method, "reached a fixed point after "
+                    + (steps - methodSteps) + " worklist steps"));
+        }
+        return changed;
+    }
+
+    private Optional<JmmNode> rewrite(JmmNode node, StatementCfg cfg, ReachingDefinitions reachingDefinitions) {
+        switch (node.getKind()) {
+            case "BinaryOp":
+            case "UnaryOp":
+            case "Parenthesis": {
+                var folded = folding.fold(node);
+                if (folded.isPresent()) {
+                    foldedCount++;
+                    remarks.add(Remark.applied(getName(), "ConstantFolded", node,
+                            "folded " + describe(node) + " to " + describe(folded.get())));
+                    return folded;
+                }
+
+                var simplified = simplifier.simplify(node);
+                simplified.ifPresent(result -> remarks.add(Remark.applied(getName(), "Simplified", node,
+                        "simplified " + describe(node) + " to " + describe(result))));
+                return simplified;
+            }
+            case "Identifier": {
+                var constant = cfg.getEnclosingNode(node)
+                        .flatMap(cfgNode -> ConstantPropagationVisitor.getConstant(reachingDefinitions, cfgNode,
+                                node.get("value")))
+                        .map(ConstantPropagationVisitor::newLiteral);
+                constant.ifPresent(literal -> {
+                    propagatedCount++;
+                    remarks.add(Remark.applied(getName(), "ConstantPropagated", node,
+                            "replaced " + node.get("value") + " by the constant " + literal.get("value")));
+                });
+                return constant;
+            }
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * @return a short description of an expression for the remarks
+     */
+    static String describe(JmmNode expr) {
+        return switch (expr.getKind()) {
+            case "Integer", "Boolean", "Identifier" -> expr.get("value");
+            case "BinaryOp" -> "a '" + expr.get("op") + "' expression";
+            case "UnaryOp" -> "a '!' expression";
+            case "Parenthesis" -> "a parenthesized expression";
+            case "LengthOp" -> "a length expression";
+            default -> "a " + expr.getKind() + " expression";
+        };
+    }
+
+    private static void enqueue(JmmNode node, Deque<JmmNode> worklist, Set<JmmNode> queued) {
+        if (node != null && isRewritable(node) && queued.add(node)) {
+            worklist.add(node);
+        }
+    }
+
+    private static boolean isRewritable(JmmNode node) {
+        var kind = node.getKind();
+        return kind.equals("BinaryOp") || kind.equals("UnaryOp") || kind.equals("Parenthesis")
+                || kind.equals("Identifier");
+    }
+
+    private static boolean isLiteral(JmmNode node) {
+        return node.getKind().equals("Integer") || node.getKind().equals("Boolean");
+    }
+
+    private static List<JmmNode> postorder(JmmNode root) {
+        var order = new ArrayList<JmmNode>();
+        var stack = new ArrayDeque<JmmNode>();
+        var expanded = Collections.newSetFromMap(new IdentityHashMap<JmmNode, Boolean>());
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            var node = stack.peek();
+            if (expanded.add(node)) {
+                var children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            } else {
+                order.add(stack.pop());
+            }
+        }
+
+        return order;
+    }
+
+    private int getChanges() {
+        return foldedCount + getSimplifiedCount() + propagatedCount + removedAssignments;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        var reports = new ArrayList<Report>();
+        if (foldedCount > 0) {
+            reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                    "Constant Folding: " + foldedCount + " expressions optimized"));
+        }
+        if (getSimplifiedCount() > 0) {
+            reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                    "Algebraic Simplification: " + getSimplifiedCount() + " expressions simplified"));
+        }
+        if (propagatedCount > 0 || removedAssignments > 0) {
+            reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                    "Constant Propagation: " + propagatedCount + " uses replaced, " + removedAssignments
+                            + " redundant assignments removed"));
+        }
+        reports.add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1,
+                "Optimization process reached a fixed point after " + steps + " worklist steps"));
+        return reports;
+    }
+
+    @Override
+    public List<Remark> getRemarks() {
+        return remarks;
+    }
+
+    public int getFoldedCount() {
+        return foldedCount;
+    }
+
+    public int getSimplifiedCount() {
+        return simplifier.getSimplifiedCount();
+    }
+
+    public int getPropagatedCount() {
+        return propagatedCount;
+    }
+
+    public int getRemovedAssignments() {
+        return removedAssignments;
+    }
+
+    /**
+     * @return how many nodes were taken from the worklist
+     */
+    public int getSteps() {
+        return steps;
+    }
+}
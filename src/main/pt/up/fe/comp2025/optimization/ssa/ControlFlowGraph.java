@@ -0,0 +1,276 @@
+package pt.up.fe.comp2025.optimization.ssa;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.ReturnInstruction;
+
+import java.util.*;
+
+/**
+ * Basic blocks of an OLLIR method, with their dominator tree and dominance frontiers.
+ * <p>
+ * The blocks are built from the instruction list and the labels, as the register allocator does, and not from
+ * {@link Method#buildCFG()}, which adds its edges again every time it is called. Block 0 is an empty entry block
+ * that only falls through to the first instruction, so that the first block can be the target of a jump (e.g. of
+ * an eliminated tail call) and still have a single entry.
+ */
+public class ControlFlowGraph {
+
+    public static class Block {
+
+        private final int id;
+        private final List<Instruction> instructions = new ArrayList<>();
+        private final List<Block> successors = new ArrayList<>();
+        private final List<Block> predecessors = new ArrayList<>();
+
+        private Block(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public List<Instruction> getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * @return the blocks control may go to next, the target of a conditional branch first
+         */
+        public List<Block> getSuccessors() {
+            return successors;
+        }
+
+        public List<Block> getPredecessors() {
+            return predecessors;
+        }
+
+        /**
+         * @return the last instruction of the block, empty only for the entry block
+         */
+        public Optional<Instruction> getLast() {
+            return instructions.isEmpty() ? Optional.empty() : Optional.of(instructions.get(instructions.size() - 1));
+        }
+
+        @Override
+        public String toString() {
+            return "B" + id;
+        }
+    }
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<Block, Block> fallthrough = new HashMap<>();
+    private final Map<Block, Block> idom = new HashMap<>();
+    private final Map<Block, List<Block>> dominated = new HashMap<>();
+    private final Map<Block, Set<Block>> frontiers = new HashMap<>();
+    private final List<Block> reversePostorder = new ArrayList<>();
+
+    public ControlFlowGraph(Method method) {
+        var instructions = method.getInstructions();
+
+        // An instruction starts a block if it has a label, or follows a jump
+        var labelled = Collections.newSetFromMap(new IdentityHashMap<Instruction, Boolean>());
+        labelled.addAll(method.getLabels().values());
+
+        var entry = newBlock();
+        var blockOf = new IdentityHashMap<Instruction, Block>();
+        Block current = null;
+        for (var instruction : instructions) {
+            if (current == null || labelled.contains(instruction) || endsBlock(current.getLast().orElseThrow())) {
+                current = newBlock();
+            }
+            current.instructions.add(instruction);
+            blockOf.put(instruction, current);
+        }
+
+        if (blocks.size() > 1) {
+            connect(entry, blocks.get(1));
+            fallthrough.put(entry, blocks.get(1));
+        }
+        for (int i = 1; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            var last = block.getLast().orElseThrow();
+            var next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+
+            if (last instanceof GotoInstruction jump) {
+                connect(block, blockOf.get(method.getLabels().get(jump.getLabel())));
+            } else if (last instanceof CondBranchInstruction branch) {
+                connect(block, blockOf.get(method.getLabels().get(branch.getLabel())));
+                if (next != null) {
+                    connect(block, next);
+                    fallthrough.put(block, next);
+                }
+            } else if (!(last instanceof ReturnInstruction) && next != null) {
+                connect(block, next);
+                fallthrough.put(block, next);
+            }
+        }
+
+        computeReversePostorder(entry);
+        computeDominators(entry);
+        computeFrontiers();
+    }
+
+    private boolean endsBlock(Instruction instruction) {
+        return instruction instanceof GotoInstruction || instruction instanceof CondBranchInstruction
+                || instruction instanceof ReturnInstruction;
+    }
+
+    private Block newBlock() {
+        var block = new Block(blocks.size());
+        blocks.add(block);
+        return block;
+    }
+
+    private static void connect(Block from, Block to) {
+        if (!from.successors.contains(to)) {
+            from.successors.add(to);
+            to.predecessors.add(from);
+        }
+    }
+
+    private void computeReversePostorder(Block entry) {
+        var visited = new HashSet<Block>();
+        var postorder = new ArrayList<Block>();
+
+        // Iterative, a method may have many blocks
+        var stack = new ArrayDeque<Map.Entry<Block, Iterator<Block>>>();
+        visited.add(entry);
+        stack.push(Map.entry(entry, entry.successors.iterator()));
+        while (!stack.isEmpty()) {
+            var top = stack.peek();
+            if (top.getValue().hasNext()) {
+                var next = top.getValue().next();
+                if (visited.add(next)) {
+                    stack.push(Map.entry(next, next.successors.iterator()));
+                }
+            } else {
+                stack.pop();
+                postorder.add(top.getKey());
+            }
+        }
+
+        Collections.reverse(postorder);
+        reversePostorder.addAll(postorder);
+    }
+
+    /**
+     * Cooper, Harvey and Kennedy's iterative algorithm, over the blocks reachable from the entry.
+     */
+    private void computeDominators(Block entry) {
+        var order = new HashMap<Block, Integer>();
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            order.put(reversePostorder.get(i), i);
+        }
+
+        idom.put(entry, entry);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : reversePostorder) {
+                if (block == entry) {
+                    continue;
+                }
+
+                Block newIdom = null;
+                for (var predecessor : block.predecessors) {
+                    if (!idom.containsKey(predecessor)) {
+                        continue;
+                    }
+                    newIdom = newIdom == null ? predecessor : intersect(predecessor, newIdom, order);
+                }
+                if (newIdom != null && idom.get(block) != newIdom) {
+                    idom.put(block, newIdom);
+                    changed = true;
+                }
+            }
+        }
+
+        for (var block : reversePostorder) {
+            dominated.put(block, new ArrayList<>());
+        }
+        for (var block : reversePostorder) {
+            if (block != entry) {
+                dominated.get(idom.get(block)).add(block);
+            }
+        }
+    }
+
+    private Block intersect(Block first, Block second, Map<Block, Integer> order) {
+        while (first != second) {
+            while (order.get(first) > order.get(second)) {
+                first = idom.get(first);
+            }
+            while (order.get(second) > order.get(first)) {
+                second = idom.get(second);
+            }
+        }
+        return first;
+    }
+
+    private void computeFrontiers() {
+        for (var block : reversePostorder) {
+            frontiers.put(block, new LinkedHashSet<>());
+        }
+
+        for (var block : reversePostorder) {
+            var reachable = block.predecessors.stream().filter(idom::containsKey).toList();
+            if (reachable.size() < 2) {
+                continue;
+            }
+            for (var predecessor : reachable) {
+                var runner = predecessor;
+                while (runner != idom.get(block)) {
+                    frontiers.get(runner).add(block);
+                    runner = idom.get(runner);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every block, in the order of the instructions, starting with the empty entry block
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public Block getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * @return the blocks reachable from the entry, each before its successors (except along back edges)
+     */
+    public List<Block> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    public boolean isReachable(Block block) {
+        return idom.containsKey(block);
+    }
+
+    /**
+     * @return the block that runs next when the given block does not jump, if there is one
+     */
+    public Optional<Block> getFallthrough(Block block) {
+        return Optional.ofNullable(fallthrough.get(block));
+    }
+
+    /**
+     * @return the blocks whose immediate dominator is the given block
+     */
+    public List<Block> getDominated(Block block) {
+        return dominated.getOrDefault(block, List.of());
+    }
+
+    /**
+     * @return the blocks where the dominance of the given block ends
+     */
+    public Set<Block> getFrontier(Block block) {
+        return frontiers.getOrDefault(block, Set.of());
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2025.optimization.ssa;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * The values an OLLIR instruction reads and the variable it writes.
+ * <p>
+ * The operands read are always visited in the same order, so a list made by {@link #getUses} lines up with the calls
+ * {@link #rewriteUses} makes. The object and field of a field access, the caller of a call and the name of an array
+ * are not values read by the instruction, and are left as they are. {@link #getArrays} gives the arrays instead.
+ */
+public class InstructionOperands {
+
+    private InstructionOperands() {
+    }
+
+    /**
+     * @return the variable assigned by the instruction, if it is a whole variable (not an element of an array)
+     */
+    public static Optional<Operand> getDef(Instruction instruction) {
+        if (instruction instanceof AssignInstruction assign && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand)) {
+            return Optional.of(dest);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the operands the instruction reads, literals included, in the order {@link #rewriteUses} visits them
+     */
+    public static List<Element> getUses(Instruction instruction) {
+        var uses = new ArrayList<Element>();
+        rewriteUses(instruction, element -> {
+            uses.add(element);
+            return element;
+        });
+        return uses;
+    }
+
+    /**
+     * @return the arrays whose elements or length the instruction reads or writes, in the order they are visited
+     */
+    public static List<Operand> getArrays(Instruction instruction) {
+        var arrays = new ArrayList<Operand>();
+        if (instruction instanceof AssignInstruction assign) {
+            if (assign.getDest() instanceof ArrayOperand array) {
+                arrays.add(array);
+            }
+            instruction = assign.getRhs();
+        }
+
+        if (instruction instanceof ArrayLengthInstruction length && length.getCaller() instanceof Operand array) {
+            arrays.add(array);
+        } else if (instruction instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof ArrayOperand array) {
+            arrays.add(array);
+        } else if (instruction instanceof BinaryOpInstruction binaryOp) {
+            for (var operand : List.of(binaryOp.getLeftOperand(), binaryOp.getRightOperand())) {
+                if (operand instanceof ArrayOperand array) {
+                    arrays.add(array);
+                }
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * @param rewrite gives the element that replaces each operand read
+     * @return a new instruction, with the operands it reads replaced
+     */
+    public static Instruction rewriteUses(Instruction instruction, UnaryOperator<Element> rewrite) {
+        if (instruction instanceof AssignInstruction assign) {
+            var dest = assign.getDest();
+            if (dest instanceof ArrayOperand array) {
+                dest = rewriteArray(array, rewrite);
+            }
+            return new AssignInstruction(dest, assign.getTypeOfAssign(), rewriteUses(assign.getRhs(), rewrite));
+        }
+        if (instruction instanceof SingleOpInstruction singleOp) {
+            return new SingleOpInstruction(rewriteElement(singleOp.getSingleOperand(), rewrite));
+        }
+        if (instruction instanceof BinaryOpInstruction binaryOp) {
+            var left = rewriteElement(binaryOp.getLeftOperand(), rewrite);
+            var right = rewriteElement(binaryOp.getRightOperand(), rewrite);
+            return new BinaryOpInstruction(left, binaryOp.getOperation(), right);
+        }
+        if (instruction instanceof UnaryOpInstruction unaryOp) {
+            return new UnaryOpInstruction(unaryOp.getOperation(), rewriteElement(unaryOp.getOperand(), rewrite));
+        }
+        if (instruction instanceof OpCondInstruction branch) {
+            var copy = new OpCondInstruction((OpInstruction) rewriteUses(branch.getCondition(), rewrite));
+            copy.setLabel(branch.getLabel());
+            return copy;
+        }
+        if (instruction instanceof SingleOpCondInstruction branch) {
+            var copy = new SingleOpCondInstruction((SingleOpInstruction) rewriteUses(branch.getCondition(), rewrite));
+            copy.setLabel(branch.getLabel());
+            return copy;
+        }
+        if (instruction instanceof ReturnInstruction ret) {
+            if (ret.getOperand().isEmpty()) {
+                return instruction;
+            }
+            var copy = new ReturnInstruction(rewriteElement(ret.getOperand().get(), rewrite));
+            copy.setReturnType(ret.getReturnType());
+            return copy;
+        }
+        if (instruction instanceof PutFieldInstruction putField) {
+            return new PutFieldInstruction(putField.getObject(), putField.getField(),
+                    rewriteElement(putField.getValue(), rewrite), putField.getFieldType());
+        }
+        if (instruction instanceof CallInstruction call) {
+            return rewriteCall(call, rewrite);
+        }
+
+        // Jumps and field reads only read the object
+        return instruction;
+    }
+
+    private static Instruction rewriteCall(CallInstruction call, UnaryOperator<Element> rewrite) {
+        var args = new ArrayList<Element>();
+        call.getArguments().forEach(arg -> args.add(rewriteElement(arg, rewrite)));
+
+        if (call instanceof InvokeStaticInstruction) {
+            return new InvokeStaticInstruction(call.getCaller(), call.getMethodName(), args, call.getReturnType(),
+                    call.isIsolated());
+        }
+        if (call instanceof InvokeVirtualInstruction) {
+            return new InvokeVirtualInstruction(call.getCaller(), call.getMethodName(), args, call.getReturnType(),
+                    call.isIsolated());
+        }
+        if (call instanceof NewInstruction) {
+            return new NewInstruction(call.getCaller(), args, call.getReturnType(), call.isIsolated());
+        }
+        if (call instanceof ArrayLengthInstruction) {
+            return call;
+        }
+
+        // Constructors take no arguments
+        return call;
+    }
+
+    private static Element rewriteElement(Element element, UnaryOperator<Element> rewrite) {
+        if (element instanceof ArrayOperand array) {
+            return rewriteArray(array, rewrite);
+        }
+        return rewrite.apply(element);
+    }
+
+    private static ArrayOperand rewriteArray(ArrayOperand array, UnaryOperator<Element> rewrite) {
+        var indexes = new ArrayList<Element>();
+        array.getIndexOperands().forEach(index -> indexes.add(rewrite.apply(index)));
+        return new ArrayOperand(array.getName(), array.getType(), indexes);
+    }
+
+    /**
+     * @return true if the element is a variable, and not a literal
+     */
+    public static boolean isVariable(Element element) {
+        return element instanceof Operand && !(element instanceof LiteralElement) && !element.isLiteral();
+    }
+}
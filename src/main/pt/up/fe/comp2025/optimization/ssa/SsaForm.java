@@ -0,0 +1,360 @@
+package pt.up.fe.comp2025.optimization.ssa;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import org.specs.comp.ollir.type.Type;
+import pt.up.fe.comp2025.optimization.ssa.ControlFlowGraph.Block;
+
+import java.util.*;
+
+/**
+ * Static single assignment form of an OLLIR method, for its {@code int}, {@code boolean} and array local variables
+ * and parameters.
+ * <p>
+ * The form is kept beside the instructions instead of renaming them: every assignment and every operand read gets
+ * the {@link Value} it defines or reads, and each block gets the phis of the variables whose definitions meet there.
+ * Phis are only placed on the iterated dominance frontiers of the definitions of a variable (minimal SSA), and the
+ * values are numbered with a walk of the dominator tree, as in Cytron et al.
+ * <p>
+ * {@link #toMethod} goes back to OLLIR. As long as the instructions are not moved or copied, two values of the same
+ * variable are never alive at the same time, so every value can take the name of its variable again and the phis
+ * need no copies.
+ */
+public class SsaForm {
+
+    /**
+     * One definition of a variable: an assignment, a phi, or the value the variable has when the method starts.
+     */
+    public static final class Value {
+
+        private final String variable;
+        private final int version;
+        private final Instruction definition;
+        private final Phi phi;
+        private final List<Object> users = new ArrayList<>();
+
+        private Value(String variable, int version, Instruction definition, Phi phi) {
+            this.variable = variable;
+            this.version = version;
+            this.definition = definition;
+            this.phi = phi;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+
+        /**
+         * @return the assignment that defines the value, or null for phis and values on entry
+         */
+        public Instruction getDefinition() {
+            return definition;
+        }
+
+        /**
+         * @return the phi that defines the value, or null
+         */
+        public Phi getPhi() {
+            return phi;
+        }
+
+        /**
+         * @return true for the value a variable has when the method starts (the argument, for parameters)
+         */
+        public boolean isEntry() {
+            return definition == null && phi == null;
+        }
+
+        /**
+         * @return the instructions and phis that read the value
+         */
+        public List<Object> getUsers() {
+            return users;
+        }
+
+        @Override
+        public String toString() {
+            return variable + "_" + version;
+        }
+    }
+
+    public static final class Phi {
+
+        private final Block block;
+        private final String variable;
+        private Value result;
+        private final Map<Block, Value> arguments = new LinkedHashMap<>();
+
+        private Phi(Block block, String variable) {
+            this.block = block;
+            this.variable = variable;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+
+        public Value getResult() {
+            return result;
+        }
+
+        /**
+         * @return the value coming from each predecessor of the block
+         */
+        public Map<Block, Value> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public String toString() {
+            return result + " = phi" + arguments;
+        }
+    }
+
+    private final Method method;
+    private final ControlFlowGraph cfg;
+    private final Set<String> variables = new LinkedHashSet<>();
+    private final Map<Block, Map<String, Phi>> phis = new HashMap<>();
+    private final Map<Instruction, Value> definitions = new IdentityHashMap<>();
+    private final Map<Instruction, List<Value>> uses = new IdentityHashMap<>();
+    private final Map<Instruction, List<Value>> arrays = new IdentityHashMap<>();
+    private final Map<String, Integer> versions = new HashMap<>();
+
+    public SsaForm(Method method) {
+        this.method = method;
+        this.cfg = new ControlFlowGraph(method);
+
+        collectVariables();
+        placePhis();
+        rename();
+    }
+
+    private void collectVariables() {
+        for (var entry : method.getVarTable().entrySet()) {
+            var scope = entry.getValue().getScope();
+            if ((scope == VarScope.LOCAL || scope == VarScope.PARAMETER) && isTracked(entry.getValue().getVarType())) {
+                variables.add(entry.getKey());
+            }
+        }
+    }
+
+    private static boolean isTracked(Type type) {
+        // An array variable holds a reference, the elements are not part of its value
+        return type instanceof ArrayType || type instanceof BuiltinType builtin
+                && (builtin.getKind() == BuiltinKind.INT32 || builtin.getKind() == BuiltinKind.BOOLEAN);
+    }
+
+    /**
+     * @return the variable read or written by the element, if it is one of the variables in SSA form
+     */
+    private Optional<String> getVariable(Element element) {
+        if (InstructionOperands.isVariable(element) && !(element instanceof ArrayOperand)) {
+            var name = ((Operand) element).getName();
+            if (variables.contains(name)) {
+                return Optional.of(name);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void placePhis() {
+        var definingBlocks = new HashMap<String, Set<Block>>();
+        for (var block : cfg.getReversePostorder()) {
+            for (var instruction : block.getInstructions()) {
+                InstructionOperands.getDef(instruction).flatMap(this::getVariable).ifPresent(variable ->
+                        definingBlocks.computeIfAbsent(variable, key -> new LinkedHashSet<>()).add(block));
+            }
+        }
+
+        for (var variable : variables) {
+            // Every variable has a value on entry
+            var worklist = new ArrayDeque<Block>(definingBlocks.getOrDefault(variable, Set.of()));
+            worklist.add(cfg.getEntry());
+            var hasPhi = new HashSet<Block>();
+            var queued = new HashSet<>(worklist);
+
+            while (!worklist.isEmpty()) {
+                var block = worklist.poll();
+                for (var frontier : cfg.getFrontier(block)) {
+                    if (hasPhi.add(frontier)) {
+                        phis.computeIfAbsent(frontier, key -> new LinkedHashMap<>())
+                                .put(variable, new Phi(frontier, variable));
+                        if (queued.add(frontier)) {
+                            worklist.add(frontier);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void rename() {
+        var stacks = new HashMap<String, Deque<Value>>();
+        for (var variable : variables) {
+            stacks.put(variable, new ArrayDeque<>(List.of(newValue(variable, null, null))));
+        }
+
+        // Iterative walk of the dominator tree: a block is entered, then its children, then left
+        var stack = new ArrayDeque<Object>();
+        stack.push(cfg.getEntry());
+        while (!stack.isEmpty()) {
+            var top = stack.pop();
+            if (top instanceof Runnable leave) {
+                leave.run();
+                continue;
+            }
+
+            var block = (Block) top;
+            var pushed = new ArrayList<String>();
+            renameBlock(block, stacks, pushed);
+            stack.push((Runnable) () -> pushed.forEach(variable -> stacks.get(variable).pop()));
+
+            var children = cfg.getDominated(block);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+    }
+
+    private void renameBlock(Block block, Map<String, Deque<Value>> stacks, List<String> pushed) {
+        for (var phi : getPhis(block)) {
+            var variable = phi.variable;
+            phi.result = newValue(variable, null, phi);
+            stacks.get(variable).push(phi.result);
+            pushed.add(variable);
+        }
+
+        for (var instruction : block.getInstructions()) {
+            var read = new ArrayList<Value>();
+            for (var element : InstructionOperands.getUses(instruction)) {
+                var value = getVariable(element).map(variable -> stacks.get(variable).peek()).orElse(null);
+                read.add(value);
+                if (value != null) {
+                    value.users.add(instruction);
+                }
+            }
+            uses.put(instruction, read);
+
+            var arrayValues = new ArrayList<Value>();
+            for (var array : InstructionOperands.getArrays(instruction)) {
+                arrayValues.add(variables.contains(array.getName()) ? stacks.get(array.getName()).peek() : null);
+            }
+            arrays.put(instruction, arrayValues);
+
+            var defined = InstructionOperands.getDef(instruction).flatMap(this::getVariable);
+            if (defined.isPresent()) {
+                var value = newValue(defined.get(), instruction, null);
+                definitions.put(instruction, value);
+                stacks.get(defined.get()).push(value);
+                pushed.add(defined.get());
+            }
+        }
+
+        for (var successor : block.getSuccessors()) {
+            for (var phi : getPhis(successor)) {
+                var value = stacks.get(phi.variable).peek();
+                phi.arguments.put(block, value);
+                value.users.add(phi);
+            }
+        }
+    }
+
+    private Value newValue(String variable, Instruction definition, Phi phi) {
+        int version = versions.merge(variable, 1, Integer::sum) - 1;
+        return new Value(variable, version, definition, phi);
+    }
+
+    public ControlFlowGraph getCfg() {
+        return cfg;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the phis at the start of the block
+     */
+    public Collection<Phi> getPhis(Block block) {
+        return phis.getOrDefault(block, Map.of()).values();
+    }
+
+    /**
+     * @return the value the instruction defines, if it assigns a variable in SSA form
+     */
+    public Optional<Value> getDefinition(Instruction instruction) {
+        return Optional.ofNullable(definitions.get(instruction));
+    }
+
+    /**
+     * @return the values read by the instruction, in the order of {@link InstructionOperands#getUses}, null for the
+     * operands that are literals or variables not in SSA form
+     */
+    public List<Value> getUses(Instruction instruction) {
+        return uses.getOrDefault(instruction, List.of());
+    }
+
+    /**
+     * @return the values of the arrays the instruction reads or writes, in the order of
+     * {@link InstructionOperands#getArrays}, null for the arrays not in SSA form
+     */
+    public List<Value> getArrays(Instruction instruction) {
+        return arrays.getOrDefault(instruction, List.of());
+    }
+
+    /**
+     * Goes back to OLLIR: the method with the given instructions in place of the original ones.
+     * <p>
+     * Each instruction of the original method is replaced by the instruction given for it, or removed if there is
+     * none. Its labels go to the next instruction that is kept.
+     *
+     * @return the new method, with its own variable table
+     */
+    public Method toMethod(Map<Instruction, Instruction> replacements) {
+        var result = new Method(method.getOllirClass());
+        result.setMethodName(method.getMethodName());
+        result.setMethodAccessModifier(method.getMethodAccessModifier());
+        result.setReturnType(method.getReturnType());
+        result.setVarargs(method.isVarargs());
+        if (method.isStaticMethod()) {
+            result.setStaticMethod();
+        }
+        if (method.isFinalMethod()) {
+            result.setFinalMethod();
+        }
+        if (method.isConstructMethod()) {
+            result.setConstructMethod();
+        }
+        method.getParams().forEach(result::addParam);
+
+        var labels = new HashMap<Instruction, List<String>>();
+        method.getLabels().forEach((label, instruction) ->
+                labels.computeIfAbsent(instruction, key -> new ArrayList<>()).add(label));
+
+        var pendingLabels = new ArrayList<String>();
+        for (var instruction : method.getInstructions()) {
+            pendingLabels.addAll(labels.getOrDefault(instruction, List.of()));
+            var replacement = replacements.get(instruction);
+            if (replacement == null) {
+                continue;
+            }
+
+            for (var label : pendingLabels) {
+                result.addLabel(label, replacement);
+            }
+            pendingLabels.clear();
+            result.addInstr(replacement);
+        }
+
+        // Labels after the last instruction are only reached by removed jumps
+        result.buildVarTable();
+        return result;
+    }
+}
@@ -69,9 +69,7 @@ public class JmmSymbolTableBuilder {
     // Builds and returns a list of imported classes from the AST
     private List<String> buildImports(JmmNode root) {
         return root.getChildren("ImportDecl").stream()
-                .map(importNode -> importNode.getChildren().stream()
-                        .map(child -> child.get("name"))
-                        .collect(Collectors.joining(".")))
+                .map(importNode -> String.join(".", importNode.getObjectAsList("name", String.class)))
                 .toList();
     }
 
@@ -0,0 +1,84 @@
+package pt.up.fe.comp.cp1;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.analysis.AnalysisPass;
+import pt.up.fe.comp2025.analysis.AnalysisScheduler;
+import pt.up.fe.comp2025.analysis.AnalysisScheduler.Outcome;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisSchedulerTest {
+
+    private record StubPass(String name, Set<String> requires, Set<String> provides,
+                            boolean fails) implements AnalysisPass {
+
+        @Override
+        public List<Report> analyze(JmmNode root, SymbolTable table) {
+            if (fails) {
+                return List.of(Report.newError(Stage.SEMANTIC, -1, -1, name + " failed", null));
+            }
+            return List.of();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Test
+    public void failureSkipsOnlyDependents() {
+        var provider = new StubPass("Provider", Set.of(), Set.of("fact"), true);
+        var dependent = new StubPass("Dependent", Set.of("fact"), Set.of("other"), false);
+        var transitive = new StubPass("Transitive", Set.of("other"), Set.of(), false);
+        var independent = new StubPass("Independent", Set.of(), Set.of(), true);
+
+        var scheduler = new AnalysisScheduler(List.of(transitive, dependent, provider, independent), Set.of());
+        var reports = scheduler.run(null, null);
+
+        var outcomes = scheduler.getOutcomes();
+        assertEquals(Outcome.FAILED, outcomes.get("Provider"));
+        assertEquals(Outcome.SKIPPED, outcomes.get("Dependent"));
+        assertEquals(Outcome.SKIPPED, outcomes.get("Transitive"));
+        assertEquals(Outcome.FAILED, outcomes.get("Independent"));
+        assertEquals(2, reports.size());
+    }
+
+    @Test
+    public void disabledPassDoesNotBlockDependents() {
+        var provider = new StubPass("Provider", Set.of(), Set.of("fact"), true);
+        var dependent = new StubPass("Dependent", Set.of("fact"), Set.of(), false);
+
+        var scheduler = new AnalysisScheduler(List.of(provider, dependent), Set.of("Provider"));
+        var reports = scheduler.run(null, null);
+
+        assertTrue(reports.isEmpty());
+        assertEquals(Outcome.DISABLED, scheduler.getOutcomes().get("Provider"));
+        assertEquals(Outcome.SUCCEEDED, scheduler.getOutcomes().get("Dependent"));
+        assertTrue(scheduler.getTimings().containsKey("Dependent"));
+    }
+
+    @Test
+    public void dependenciesComeFirst() {
+        var first = new StubPass("First", Set.of(), Set.of("a"), false);
+        var second = new StubPass("Second", Set.of("a"), Set.of("b"), false);
+        var third = new StubPass("Third", Set.of("a", "b"), Set.of(), false);
+
+        var order = new AnalysisScheduler(List.of(third, second, first), Set.of()).topologicalOrder();
+
+        assertEquals(List.of(first, second, third), order);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingRequirementIsRejected() {
+        new AnalysisScheduler(List.of(new StubPass("Lonely", Set.of("missing"), Set.of(), false)), Set.of());
+    }
+}
@@ -0,0 +1,63 @@
+package pt.up.fe.comp.cp1;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IncrementalAnalysisTest {
+
+    private static final String ORIGINAL = """
+            class Incremental {
+                int field;
+
+                public int foo(int a) {
+                    return a + 1;
+                }
+
+                public int bar(int b) {
+                    int c;
+                    c = b + true;
+                    return c;
+                }
+            }
+            """;
+
+    @Test
+    public void unchangedMethodsAreReused() {
+        var sema = new JmmAnalysisImpl();
+
+        var first = sema.reanalyze(TestUtils.parse(ORIGINAL));
+        assertEquals(2, sema.getIncrementalAnalysis().getAnalysedMethods());
+        assertEquals(1, TestUtils.getNumErrors(first.getReports()));
+
+        // Only the body of foo changes, and it gets one line longer
+        var edited = ORIGINAL.replace("return a + 1;", "a = a * 2;\n        return a + 1;");
+        var second = sema.reanalyze(TestUtils.parse(edited));
+
+        assertEquals(1, sema.getIncrementalAnalysis().getAnalysedMethods());
+        assertEquals(1, sema.getIncrementalAnalysis().getReusedMethods());
+        assertSame(first.getSymbolTable(), second.getSymbolTable());
+
+        // The reused error of bar moved down with the method
+        var firstError = first.getReports().stream().filter(r -> r.getType() == ReportType.ERROR).findFirst().get();
+        var secondError = second.getReports().stream().filter(r -> r.getType() == ReportType.ERROR).findFirst().get();
+        assertEquals(firstError.getLine() + 1, secondError.getLine());
+    }
+
+    @Test
+    public void signatureChangeAnalysesEverything() {
+        var sema = new JmmAnalysisImpl();
+        sema.reanalyze(TestUtils.parse(ORIGINAL));
+
+        var edited = ORIGINAL.replace("public int foo(int a)", "public int foo(int a, int d)");
+        var result = sema.reanalyze(TestUtils.parse(edited));
+
+        assertEquals(2, sema.getIncrementalAnalysis().getAnalysedMethods());
+        assertEquals(0, sema.getIncrementalAnalysis().getReusedMethods());
+        assertEquals(2, result.getSymbolTable().getParameters("foo").size());
+    }
+}
@@ -0,0 +1,86 @@
+package pt.up.fe.comp.cp1;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.passes.TypeInference;
+import pt.up.fe.comp2025.ast.ExprTypeTable;
+import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.optimization.PassContext;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TypeInferenceTest {
+
+    private static final String CODE = """
+            class Types {
+                public int f(int a) {
+                    int x;
+                    x = a + 1;
+                    return x;
+                }
+
+                public boolean g(boolean b) {
+                    boolean x;
+                    x = b && true;
+                    return x;
+                }
+            }
+            """;
+
+    private static JmmNode getReturned(JmmNode root, String methodName) {
+        return root.getDescendants("MethodDecl").stream()
+                .filter(method -> method.get("methodName").equals(methodName))
+                .findFirst()
+                .orElseThrow()
+                .getDescendants("ReturnStmt").get(0).getChild(0);
+    }
+
+    @Test
+    public void typesAreAnnotatedPerMethod() {
+        var root = TestUtils.parse(CODE).getRootNode();
+        SymbolTable table = new JmmSymbolTableBuilder().build(root);
+        new TypeInference().analyze(root, table);
+
+        var exprTypes = ExprTypeTable.of(table);
+        assertEquals(new Type("int", false), exprTypes.get(getReturned(root, "f")));
+        assertEquals(new Type("boolean", false), exprTypes.get(getReturned(root, "g")));
+
+        var sum = root.getDescendants("BinaryOp").get(0);
+        assertEquals(new Type("int", false), exprTypes.get(sum));
+        // Read from the table, whatever the current method
+        assertEquals(new Type("int", false), new TypeUtils(table).getExprType(sum));
+    }
+
+    @Test
+    public void typesOutsideInferenceAreNotStored() {
+        var root = TestUtils.parse(CODE).getRootNode();
+        SymbolTable table = new JmmSymbolTableBuilder().build(root);
+        var identifier = getReturned(root, "f");
+
+        // Resolved in the wrong method, the result must not stay
+        var typeUtils = new TypeUtils(table);
+        typeUtils.setCurrentMethod("g");
+        assertEquals(new Type("boolean", false), typeUtils.getExprType(identifier));
+        assertFalse(ExprTypeTable.of(table).contains(identifier));
+
+        new TypeInference().analyze(root, table);
+        assertEquals(new Type("int", false), typeUtils.getExprType(identifier));
+    }
+
+    @Test
+    public void changedAstClearsTypes() {
+        var root = TestUtils.parse(CODE).getRootNode();
+        SymbolTable table = new JmmSymbolTableBuilder().build(root);
+        new TypeInference().analyze(root, table);
+        assertTrue(ExprTypeTable.of(table).size() > 0);
+
+        new PassContext(root, table, Map.of(), null).invalidate();
+        assertEquals(0, ExprTypeTable.of(table).size());
+    }
+}
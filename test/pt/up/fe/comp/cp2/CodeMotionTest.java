@@ -0,0 +1,116 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.optimization.LoopInvariantCodeMotion;
+
+import static org.junit.Assert.*;
+
+public class CodeMotionTest {
+
+    /**
+     * Runs code motion on the class, and returns the method "foo".
+     */
+    private static JmmNode hoist(String code) {
+        var semantics = TestUtils.analyse(code);
+        var root = semantics.getRootNode();
+        new SideEffectAnalysis().analyze(root, semantics.getSymbolTable());
+        new LoopInvariantCodeMotion().hoist(root, semantics.getSymbolTable());
+
+        return root.getDescendants("MethodDecl").stream()
+                .filter(method -> method.get("methodName").equals("foo"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void arrayLength() {
+        var method = hoist("""
+                class Loop {
+                    public int foo(int[] a) {
+                        int i;
+                        i = 0;
+                        while (i < a.length) {
+                            a[i] = a.length - i;
+                            i = i + 1;
+                        }
+                        return i;
+                    }
+                }
+                """);
+
+        // Computed once before the loop, the body shares the local of the condition
+        assertEquals(1, method.getDescendants("LengthOp").size());
+        var assign = method.getChildren("AssignStmt").get(1);
+        assertEquals("licm0", assign.get("var"));
+        assertEquals("LengthOp", assign.getChild(0).getKind());
+        assertEquals(assign.getIndexOfSelf() + 1, method.getChildren("WhileStmt").get(0).getIndexOfSelf());
+
+        var declared = method.getChildren("VarDecl").stream().map(varDecl -> varDecl.get("varName")).toList();
+        assertTrue(declared.contains("licm0"));
+    }
+
+    @Test
+    public void onlyInvariantExpressions() {
+        var method = hoist("""
+                class Loop {
+                    public int foo(int n, int k) {
+                        int x;
+                        x = 0;
+                        while (0 < n) {
+                            x = x + k * 2;
+                            x = x + n * 2;
+                            x = x + x / k;
+                            n = n - 1;
+                        }
+                        return x;
+                    }
+                }
+                """);
+
+        var moved = method.getChildren("AssignStmt").stream()
+                .filter(assign -> assign.get("var").startsWith("licm"))
+                .toList();
+        assertEquals(1, moved.size());
+        assertEquals("*", moved.get(0).getChild(0).get("op"));
+        assertEquals("k", moved.get(0).getChild(0).getChild(0).get("value"));
+
+        // A division may throw, and the body may never run
+        assertEquals(1, method.getDescendants("BinaryOp").stream().filter(op -> op.get("op").equals("/")).count());
+    }
+
+    @Test
+    public void fieldsWrittenByCalls() {
+        var method = hoist("""
+                class Loop {
+                    int f;
+                    int g;
+
+                    public int foo(int n) {
+                        int x;
+                        x = 0;
+                        while (x < n) {
+                            x = x + f * 2 + g;
+                            n = this.touch();
+                        }
+                        return x;
+                    }
+
+                    public int touch() {
+                        g = g + 1;
+                        return f;
+                    }
+                }
+                """);
+
+        // touch() only writes g
+        var moved = method.getChildren("AssignStmt").stream()
+                .filter(assign -> assign.get("var").startsWith("licm"))
+                .toList();
+        assertEquals(1, moved.size());
+        assertEquals("f", moved.get(0).getChild(0).getChild(0).get("value"));
+        assertTrue(method.getDescendants("Identifier").stream().anyMatch(id -> id.get("value").equals("g")));
+    }
+}
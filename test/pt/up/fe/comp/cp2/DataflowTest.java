@@ -0,0 +1,226 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.dataflow.BitVector;
+import pt.up.fe.comp2025.analysis.dataflow.MethodDataflow;
+import pt.up.fe.comp2025.optimization.ConstantPropagationVisitor;
+import pt.up.fe.comp2025.optimization.WorklistOptimizer;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DataflowTest {
+
+    private static JmmNode getMethod(String code, String name) {
+        var root = TestUtils.parse(code).getRootNode();
+        return root.getDescendants("MethodDecl").stream()
+                .filter(method -> method.get("methodName").equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static JmmNode getReturn(JmmNode method) {
+        return method.getDescendants("ReturnStmt").get(0);
+    }
+
+    @Test
+    public void bitVectorOperations() {
+        var vector = new BitVector(130);
+        vector.set(0);
+        vector.set(64);
+        vector.set(129);
+
+        assertEquals(3, vector.cardinality());
+        assertEquals(64, vector.nextSetBit(1));
+        assertArrayEquals(new int[]{0, 64, 129}, vector.stream().toArray());
+
+        var full = BitVector.full(130);
+        assertEquals(130, full.cardinality());
+        full.andNot(vector);
+        assertEquals(127, full.cardinality());
+        assertFalse(full.get(64));
+    }
+
+    @Test
+    public void definiteAssignmentThroughBranches() {
+        var method = getMethod("""
+                class Flow {
+                    public int foo(boolean c) {
+                        int a;
+                        int b;
+                        if (c) { a = 1; b = 1; } else { a = 2; }
+                        return a + b;
+                    }
+                }
+                """, "foo");
+
+        var dataflow = new MethodDataflow(method);
+        var ret = dataflow.getCfg().getNode(getReturn(method)).orElseThrow();
+        var definiteAssignment = dataflow.getDefiniteAssignment();
+
+        assertTrue(definiteAssignment.isAssignedBefore(ret, "c"));
+        assertTrue(definiteAssignment.isAssignedBefore(ret, "a"));
+        assertFalse(definiteAssignment.isAssignedBefore(ret, "b"));
+
+        var usesBeforeAssignment = definiteAssignment.getUsesBeforeAssignment();
+        assertEquals(1, usesBeforeAssignment.size());
+        assertEquals("b", usesBeforeAssignment.get(0).get("value"));
+    }
+
+    @Test
+    public void reachingDefinitionsInLoop() {
+        var method = getMethod("""
+                class Flow {
+                    public int foo() {
+                        int i;
+                        i = 0;
+                        while (i < 10) { i = i + 1; }
+                        return i;
+                    }
+                }
+                """, "foo");
+
+        var dataflow = new MethodDataflow(method);
+        var ret = dataflow.getCfg().getNode(getReturn(method)).orElseThrow();
+        var reaching = dataflow.getReachingDefinitions().getReaching(ret, "i");
+
+        // i = 0 and i = i + 1 both reach the return, the entry pseudo-definition does not
+        assertEquals(2, reaching.size());
+        assertTrue(reaching.stream().noneMatch(definition -> definition.isEntry()));
+    }
+
+    @Test
+    public void propagationRespectsBranches() {
+        var method = getMethod("""
+                class Flow {
+                    public int foo(boolean c) {
+                        int a;
+                        int b;
+                        a = 1;
+                        b = 3;
+                        if (c) { a = 2; b = 3; } else { }
+                        return a + b;
+                    }
+                }
+                """, "foo");
+
+        new ConstantPropagationVisitor().visit(method);
+
+        // a differs between paths, b is 3 on every path (and its second assignment is redundant)
+        var returned = getReturn(method).getChild(0);
+        assertEquals("Identifier", returned.getChild(0).getKind());
+        assertEquals("Integer", returned.getChild(1).getKind());
+        assertEquals("3", returned.getChild(1).get("value"));
+        assertEquals(3, method.getDescendants("AssignStmt").size());
+    }
+
+    @Test
+    public void redundantBranchBecomesEmptyBlock() {
+        var method = getMethod("""
+                class Flow {
+                    public int foo(int c, int n) {
+                        int x;
+                        int y;
+                        int i;
+                        x = 5;
+                        y = 7;
+                        i = 0;
+                        if (c < 1) x = 5; else x = 6;
+                        while (i < n) y = 7;
+                        return x + y;
+                    }
+                }
+                """, "foo");
+
+        new ConstantPropagationVisitor().visit(method);
+
+        // The if and the while still find their branches and body by position
+        var ifStmt = method.getDescendants("IfStmt").get(0);
+        assertEquals(3, ifStmt.getNumChildren());
+        assertEquals("BlockStmt", ifStmt.getChild(1).getKind());
+        assertEquals(0, ifStmt.getChild(1).getNumChildren());
+        assertEquals("6", ifStmt.getChild(2).getChild(0).get("value"));
+
+        var whileStmt = method.getDescendants("WhileStmt").get(0);
+        assertEquals(2, whileStmt.getNumChildren());
+        assertEquals("BlockStmt", whileStmt.getChild(1).getKind());
+    }
+
+    @Test
+    public void worklistReachesFixedPoint() {
+        var method = getMethod("""
+                class Flow {
+                    public int foo() {
+                        int a;
+                        int b;
+                        int c;
+                        int d;
+                        int e;
+                        int f;
+                        int g;
+                        a = 1;
+                        b = a + 1;
+                        c = b * 2;
+                        d = c - a;
+                        e = d + b;
+                        f = e * e;
+                        g = f - d;
+                        return g + a;
+                    }
+                }
+                """, "foo");
+
+        // Each assignment depends on the previous one, more than the old limit of 5 sweeps
+        var optimizer = new WorklistOptimizer();
+        optimizer.optimize(method);
+
+        var returned = getReturn(method).getChild(0);
+        assertEquals("Integer", returned.getKind());
+        assertEquals("23", returned.get("value"));
+        assertEquals(0, method.getDescendants("BinaryOp").size());
+    }
+
+    @Test
+    public void worklistKeepsUnbracedBranches() {
+        var code = """
+                import io;
+                class Unbraced {
+                    public static void main(String[] args) {
+                        Unbraced u;
+                        u = new Unbraced();
+                        io.println(u.f(1));
+                        io.println(u.f(0));
+                        io.println(u.g(0));
+                    }
+
+                    public int f(int c) {
+                        int x;
+                        x = 5;
+                        if (c < 1) x = 5; else x = 6;
+                        return x;
+                    }
+
+                    public int g(int n) {
+                        int x;
+                        int i;
+                        x = 5;
+                        i = 0;
+                        while (i < n) x = 5;
+                        return x;
+                    }
+                }
+                """;
+
+        var method = getMethod(code, "g");
+        new WorklistOptimizer().optimize(method);
+        assertEquals(2, method.getDescendants("WhileStmt").get(0).getNumChildren());
+
+        for (var level : new String[]{"1", "2"}) {
+            var result = TestUtils.backend(TestUtils.optimize(code, Map.of("optLevel", level), false));
+            assertEquals("6\n5\n5", result.run().trim().replace("\r", ""));
+        }
+    }
+}
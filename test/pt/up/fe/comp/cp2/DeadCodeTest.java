@@ -0,0 +1,109 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.optimization.DeadCodeEliminator;
+import pt.up.fe.comp2025.optimization.WorklistOptimizer;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DeadCodeTest {
+
+    private static JmmNode eliminate(String body) {
+        var code = "import io; class Dead { public int foo(int x) { " + body + " } }";
+        var root = TestUtils.parse(code).getRootNode();
+        var eliminator = new DeadCodeEliminator();
+        do {
+            new WorklistOptimizer().optimize(root);
+        } while (eliminator.eliminate(root));
+        return root.getDescendants("MethodDecl").get(0);
+    }
+
+    @Test
+    public void constantBranches() {
+        var method = eliminate("""
+                if (true) { x = x + 1; } else { x = x + 2; }
+                if (false) { x = x + 3; } else { x = x + 4; }
+                if (1 < 0) { x = x + 5; } else { }
+                while (false) { x = x + 6; }
+                return x;
+                """);
+
+        assertTrue(method.getDescendants("IfStmt").isEmpty());
+        assertTrue(method.getDescendants("WhileStmt").isEmpty());
+
+        var added = method.getDescendants("Integer").stream().map(literal -> literal.get("value")).toList();
+        assertEquals(List.of("1", "4"), added);
+    }
+
+    @Test
+    public void codeAfterReturn() {
+        var method = eliminate("""
+                if (x < 0) { return 0; } else { return 1; }
+                x = 2;
+                io.println(x);
+                return x;
+                """);
+
+        assertTrue(method.getDescendants("AssignStmt").isEmpty());
+        assertTrue(method.getDescendants("ExprStmt").isEmpty());
+        // The final return is still there
+        assertEquals(3, method.getDescendants("ReturnStmt").size());
+    }
+
+    @Test
+    public void codeAfterInfiniteLoop() {
+        var method = eliminate("""
+                boolean b;
+                b = true;
+                while (b) { x = x + 1; }
+                x = 3;
+                return x;
+                """);
+
+        var loop = method.getDescendants("WhileStmt").get(0);
+        assertEquals("Boolean", loop.getChild(0).getKind());
+        // x = 3 is gone, the return after the loop is kept
+        assertEquals(List.of("b"), method.getChildren("AssignStmt").stream().map(assign -> assign.get("var")).toList());
+        assertEquals(1, method.getChildren("ReturnStmt").size());
+    }
+
+    @Test
+    public void unbracedBranchBecomesEmptyBlock() {
+        var method = eliminate("""
+                if (x < 1) while (false) x = 1; else x = 2;
+                return x;
+                """);
+
+        // The else branch stays in its place
+        var ifStmt = method.getDescendants("IfStmt").get(0);
+        assertEquals(3, ifStmt.getNumChildren());
+        assertEquals("BlockStmt", ifStmt.getChild(1).getKind());
+        assertEquals(0, ifStmt.getChild(1).getNumChildren());
+        assertEquals("AssignStmt", ifStmt.getChild(2).getKind());
+
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Unbraced {
+                    public static void main(String[] args) {
+                        Unbraced u;
+                        u = new Unbraced();
+                        io.println(u.f(1));
+                        io.println(u.f(0));
+                    }
+
+                    public int f(int c) {
+                        int x;
+                        x = 0;
+                        if (c < 1) while (false) x = 1; else x = 2;
+                        return x;
+                    }
+                }
+                """, Map.of("optLevel", "1"), false);
+        assertEquals("2\n0", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+}
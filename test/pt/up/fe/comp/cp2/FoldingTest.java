@@ -0,0 +1,128 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.optimization.WorklistOptimizer;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class FoldingTest {
+
+    /**
+     * Optimizes the method "foo" of a class with the given body, and returns the expression it returns.
+     */
+    private static JmmNode optimizeReturn(String params, String body) {
+        var code = "import io; class Fold { public boolean foo(" + params + ") { " + body + " } }";
+        var root = TestUtils.parse(code).getRootNode();
+        new WorklistOptimizer().optimize(root);
+        return root.getDescendants("ReturnStmt").get(0).getChild(0);
+    }
+
+    private static void assertLiteral(String kind, String value, JmmNode node) {
+        assertEquals(node.toTree(), kind, node.getKind());
+        assertEquals(value, node.get("value"));
+    }
+
+    @Test
+    public void comparisons() {
+        assertLiteral("Boolean", "true", optimizeReturn("", "return 3 < 5;"));
+        assertLiteral("Boolean", "false", optimizeReturn("", "return (2 * 4) < (1 + 2);"));
+    }
+
+    @Test
+    public void logicalOperators() {
+        assertLiteral("Boolean", "true", optimizeReturn("", "return !false;"));
+        assertLiteral("Boolean", "false", optimizeReturn("boolean x", "return false && x;"));
+        assertLiteral("Boolean", "false", optimizeReturn("boolean x", "return x && false;"));
+        assertLiteral("Identifier", "x", optimizeReturn("boolean x", "return true && x;"));
+        assertLiteral("Identifier", "x", optimizeReturn("boolean x", "return x && (1 < 2);"));
+    }
+
+    @Test
+    public void keepsSideEffects() {
+        // The call still has to run, only the right operand can be dropped
+        var returned = optimizeReturn("", "return this.foo() && false;");
+        assertEquals("BinaryOp", returned.getKind());
+
+        // Short-circuit: the call is never evaluated
+        assertLiteral("Boolean", "false", optimizeReturn("", "return false && this.foo();"));
+    }
+
+    @Test
+    public void propagatedConditions() {
+        var root = TestUtils.parse("""
+                class Fold {
+                    public int foo() {
+                        int i;
+                        boolean b;
+                        i = 2;
+                        b = i < 3 && !(i < 1);
+                        while (b) { i = i + 1; }
+                        return i;
+                    }
+                }
+                """).getRootNode();
+        new WorklistOptimizer().optimize(root);
+
+        var condition = root.getDescendants("WhileStmt").get(0).getChild(0);
+        assertLiteral("Boolean", "true", condition);
+    }
+
+    @Test
+    public void algebraicIdentities() {
+        assertLiteral("Identifier", "x", optimizeReturn("int x", "return (x + 0) * 1 - 0;"));
+        assertLiteral("Identifier", "x", optimizeReturn("int x", "return x / 1;"));
+        assertLiteral("Identifier", "b", optimizeReturn("boolean b", "return !!b;"));
+        assertLiteral("Integer", "0", optimizeReturn("int x", "return x * 0;"));
+        assertLiteral("Integer", "0", optimizeReturn("int x", "return (x + 1) - (x + 1);"));
+        assertLiteral("Boolean", "false", optimizeReturn("int x", "return x < x;"));
+
+        // The call has to run
+        assertEquals("BinaryOp", optimizeReturn("", "return this.foo() * 0;").getKind());
+    }
+
+    @Test
+    public void reassociation() {
+        var returned = optimizeReturn("int x", "return (x + 1) + 2;");
+        assertEquals("+", returned.get("op"));
+        assertLiteral("Identifier", "x", returned.getChild(0));
+        assertLiteral("Integer", "3", returned.getChild(1));
+
+        // Constants that cancel out leave x alone
+        assertLiteral("Identifier", "x", optimizeReturn("int x", "return 2 + (x - 1) - 1;"));
+
+        returned = optimizeReturn("int x", "return 3 * (x * 5);");
+        assertEquals("*", returned.get("op"));
+        assertLiteral("Integer", "15", returned.getChild(1));
+    }
+
+    @Test
+    public void multiplicationsByPowersOfTwoAreShifts() {
+        // The constants of the product are gathered first
+        var returned = optimizeReturn("int x", "return (x * 2) * 4;");
+        assertLiteral("Integer", "8", returned.getChild(1));
+
+        var ollir = """
+                Shift {
+                    .construct Shift().V {
+                        invokespecial(this, "<init>").V;
+                    }
+
+                    .method public mul(x.i32).i32 {
+                        t0.i32 :=.i32 x.i32 *.i32 8.i32;
+                        t1.i32 :=.i32 3.i32 *.i32 t0.i32;
+                        ret.i32 t1.i32;
+                    }
+                }
+                """;
+
+        var jasmin = TestUtils.backend(new OllirResult(ollir, Collections.emptyMap())).getJasminCode();
+        assertTrue(jasmin, jasmin.replaceAll("\\s+", " ").contains("iload_1 iconst_3 ishl"));
+        assertTrue(jasmin, jasmin.contains("imul"));
+        assertEquals(jasmin, 1, jasmin.split("ishl", -1).length - 1);
+    }
+}
@@ -0,0 +1,143 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.inst.CallInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.optimization.MethodInliner;
+import pt.up.fe.comp2025.optimization.Remark;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class InliningTest {
+
+    private static JmmNode getMethod(JmmNode root, String name) {
+        return root.getDescendants("MethodDecl").stream()
+                .filter(method -> method.get("methodName").equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static MethodInliner inline(JmmNode root) {
+        var inliner = new MethodInliner();
+        inliner.inline(root, new JmmSymbolTableBuilder().build(root));
+        return inliner;
+    }
+
+    @Test
+    public void parametersAndLocals() {
+        var root = TestUtils.parse("""
+                class Inline {
+                    int f;
+
+                    public int foo(int a, int[] b) {
+                        int x;
+                        x = this.scale(a, b.length);
+                        return x;
+                    }
+
+                    public int scale(int v, int n) {
+                        int t;
+                        t = v * n;
+                        n = n + f;
+                        return t + n;
+                    }
+                }
+                """).getRootNode();
+        var inliner = inline(root);
+        assertEquals(1, inliner.getInlinedCount());
+
+        var foo = getMethod(root, "foo");
+        assertTrue(foo.getDescendants("MethodCall").isEmpty());
+
+        // v is never assigned and a is a local, n is assigned and b.length is evaluated once
+        var declared = foo.getChildren("VarDecl").stream().map(varDecl -> varDecl.get("varName")).toList();
+        assertTrue(declared.toString(), declared.containsAll(List.of("inl0n", "inl0t")));
+        assertFalse(declared.toString(), declared.contains("inl0v"));
+
+        var assigns = foo.getChildren("AssignStmt");
+        assertEquals(foo.toTree(), "inl0n", assigns.get(0).get("var"));
+        assertEquals("LengthOp", assigns.get(0).getChild(0).getKind());
+        assertEquals("inl0t", assigns.get(1).get("var"));
+        assertEquals("a", assigns.get(1).getChild(0).getChild(0).get("value"));
+        assertEquals("x", assigns.get(3).get("var"));
+        assertEquals("inl0t", assigns.get(3).getChild(0).getChild(0).get("value"));
+    }
+
+    @Test
+    public void missedRemarks() {
+        var root = TestUtils.parse("""
+                class Inline {
+                    public int foo(int a) {
+                        int x;
+                        x = this.fact(a) + 1;
+                        x = this.fact(x);
+                        return x;
+                    }
+
+                    public int fact(int n) {
+                        int r;
+                        r = 1;
+                        if (1 < n) {
+                            r = n * this.fact(n - 1);
+                        } else {
+                        }
+                        return r;
+                    }
+                }
+                """).getRootNode();
+        var inliner = inline(root);
+        assertEquals(0, inliner.getInlinedCount());
+
+        var messages = inliner.getRemarks().stream().map(Remark::getMessage).toList();
+        assertTrue(messages.toString(), messages.contains("did not inline fact into foo: the call is part "
+                + "of a larger expression"));
+        assertTrue(messages.toString(), messages.contains("did not inline fact into foo: the callee is "
+                + "recursive"));
+        assertTrue(inliner.getRemarks().stream().allMatch(remark -> remark.getLine() > 0
+                && remark.getKind() == Remark.Kind.MISSED && remark.getFunction() != null));
+    }
+
+    @Test
+    public void inlinedAndFolded() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Inline {
+                    public static void main(String[] args) {
+                        Inline inline;
+                        inline = new Inline();
+                        io.println(inline.run());
+                    }
+
+                    public int run() {
+                        int s;
+                        s = this.square(7);
+                        this.show(s);
+                        return s;
+                    }
+
+                    public int square(int v) {
+                        return v * v;
+                    }
+
+                    public void show(int v) {
+                        io.println(v + 1);
+                    }
+                }
+                """, Map.of("optimize", "true"), false);
+
+        var messages = ollir.getReports().stream().map(Report::getMessage).toList();
+        assertTrue(messages.toString(), messages.contains("Inlining: 2 calls inlined"));
+        // Only the call to io.println is left, with the folded values
+        var run = CpUtils.getMethod(ollir, "run");
+        var calls = CpUtils.getInstructions(CallInstruction.class, run);
+        assertEquals(ollir.getOllirCode(), 1, calls.size());
+        assertTrue(ollir.getOllirCode(), ollir.getOllirCode().contains("ret.i32 49.i32"));
+    }
+}
@@ -0,0 +1,164 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.optimization.CallEvaluator;
+import pt.up.fe.comp2025.optimization.InterproceduralConstantPropagation;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class InterproceduralTest {
+
+    private static JmmNode getMethod(JmmNode root, String name) {
+        return root.getDescendants("MethodDecl").stream()
+                .filter(method -> method.get("methodName").equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static InterproceduralConstantPropagation propagate(JmmNode root) {
+        var table = new JmmSymbolTableBuilder().build(root);
+        new SideEffectAnalysis().analyze(root, table);
+
+        var propagation = new InterproceduralConstantPropagation();
+        while (propagation.propagate(root, table)) {
+        }
+        return propagation;
+    }
+
+    @Test
+    public void evaluator() {
+        var root = TestUtils.parse("""
+                class Eval {
+                    public int fib(int n) {
+                        int r;
+                        if (n < 2) {
+                            r = n;
+                        } else {
+                            r = this.fib(n - 1) + this.fib(n - 2);
+                        }
+                        return r;
+                    }
+
+                    public int forever(int n) {
+                        while (true) {
+                            n = n + 1;
+                        }
+                        return n;
+                    }
+
+                    public int div(int n) {
+                        return 10 / n;
+                    }
+                }
+                """).getRootNode();
+        var evaluator = new CallEvaluator(Map.of(
+                "fib", getMethod(root, "fib"),
+                "forever", getMethod(root, "forever"),
+                "div", getMethod(root, "div")));
+
+        assertEquals(55, evaluator.evaluate("fib", List.of(10)).orElseThrow());
+        assertTrue(evaluator.evaluate("forever", List.of(0)).isEmpty());
+        assertEquals(CallEvaluator.STEP_BUDGET + 1, evaluator.getSteps());
+
+        // The exception is left for the runtime
+        assertTrue(evaluator.evaluate("div", List.of(0)).isEmpty());
+        assertEquals(5, evaluator.evaluate("div", List.of(2)).orElseThrow());
+    }
+
+    @Test
+    public void pureCallsEvaluated() {
+        var root = TestUtils.parse("""
+                import io;
+                class Calls {
+                    int f;
+
+                    public int foo() {
+                        int x;
+                        x = this.area(3, 4);
+                        x = x + this.field(2);
+                        this.area(1, 1);
+                        return x;
+                    }
+
+                    public int area(int w, int h) {
+                        return w * h;
+                    }
+
+                    public int field(int k) {
+                        return f * k;
+                    }
+                }
+                """).getRootNode();
+        var propagation = propagate(root);
+        assertEquals(2, propagation.getEvaluatedCalls());
+
+        // field reads a field, it is not pure
+        var calls = getMethod(root, "foo").getDescendants("MethodCall");
+        assertEquals(1, calls.size());
+        assertEquals("field", calls.get(0).get("value"));
+        assertEquals("12", getMethod(root, "foo").getDescendants("AssignStmt").get(0).getChild(0).get("value"));
+    }
+
+    @Test
+    public void parametersSpecialized() {
+        var root = TestUtils.parse("""
+                class Calls {
+                    public int foo(int a) {
+                        return this.scale(a, 8) + this.scale(a + 1, 8);
+                    }
+
+                    public int bar(int a) {
+                        return this.scale(a, 8);
+                    }
+
+                    int scale(int v, int factor) {
+                        return v * factor;
+                    }
+
+                    public int exported(int v, int factor) {
+                        return v * factor;
+                    }
+
+                    public int baz() {
+                        return this.exported(1, 2) + this.exported(3, 2);
+                    }
+                }
+                """).getRootNode();
+        var propagation = propagate(root);
+        assertEquals(1, propagation.getSpecializedParams());
+
+        var scale = getMethod(root, "scale").getDescendants("ReturnStmt").get(0).getChild(0);
+        assertEquals("8", scale.getChild(1).get("value"));
+
+        // Public methods may be called from other classes, with other values
+        var exported = getMethod(root, "exported").getDescendants("ReturnStmt").get(0).getChild(0);
+        assertEquals("Identifier", exported.getChild(1).getKind());
+    }
+
+    @Test
+    public void varargsNotSpecialized() {
+        var root = TestUtils.parse("""
+                class Varargs {
+                    public int foo() {
+                        return this.count(4) + this.count(4);
+                    }
+
+                    int count(int... values) {
+                        return values.length;
+                    }
+                }
+                """).getRootNode();
+        var propagation = propagate(root);
+        assertEquals(0, propagation.getSpecializedParams());
+
+        var length = getMethod(root, "count").getDescendants("ReturnStmt").get(0).getChild(0);
+        assertEquals("Identifier", length.getChild(0).getKind());
+    }
+}
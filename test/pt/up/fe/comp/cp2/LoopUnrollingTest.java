@@ -0,0 +1,147 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.dataflow.CountedLoop;
+import pt.up.fe.comp2025.optimization.LoopUnroller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class LoopUnrollingTest {
+
+    private static JmmNode getMethod(String params, String body) {
+        var code = "import io; class Unroll { public int foo(" + params + ") { " + body + " } }";
+        return TestUtils.parse(code).getRootNode().getDescendants("MethodDecl").get(0);
+    }
+
+    @Test
+    public void tripCount() {
+        var method = getMethod("", "int i; i = 2; while (i < 11) { i = i + 3; } return i;");
+        var loop = CountedLoop.match(method.getDescendants("WhileStmt").get(0), method).orElseThrow();
+        assertEquals("i", loop.getCounter());
+        assertEquals(3, loop.getStep());
+        assertEquals(3, loop.getTripCount().getAsLong());
+
+        // The counter is changed in the body
+        method = getMethod("", "int i; i = 0; while (i < 10) { i = i * 2; i = i + 1; } return i;");
+        assertTrue(CountedLoop.match(method.getDescendants("WhileStmt").get(0), method).isEmpty());
+
+        // A parameter may be negative, bound - k could wrap around
+        method = getMethod("int n", "int i; i = 0; while (i < n) { i = i + 1; } return i;");
+        assertTrue(CountedLoop.match(method.getDescendants("WhileStmt").get(0), method).isEmpty());
+
+        // The assignment before the loop is the other branch of the if, it does not run before the loop
+        method = getMethod("int c, int k", "int i; i = k; if (c < 1) i = 0; else while (i < 3) { i = i + 1; } "
+                + "return i;");
+        loop = CountedLoop.match(method.getDescendants("WhileStmt").get(0), method).orElseThrow();
+        assertTrue(loop.getTripCount().isEmpty());
+    }
+
+    @Test
+    public void fullUnrolling() {
+        var method = getMethod("int s", "int i; i = 0; while (i < 3) { s = s + i; i = i + 1; } return s;");
+        var unroller = new LoopUnroller();
+        assertTrue(unroller.unroll(method));
+
+        assertEquals(1, unroller.getFullyUnrolled());
+        assertTrue(method.getDescendants("WhileStmt").isEmpty());
+        assertEquals(7, method.getDescendants("AssignStmt").size());
+    }
+
+    @Test
+    public void partialUnrolling() {
+        var method = getMethod("int[] a", "int i; i = 0; while (i < a.length) { a[i] = i; i = i + 1; } return i;");
+        var unroller = new LoopUnroller(4);
+        assertTrue(unroller.unroll(method));
+        assertEquals(1, unroller.getPartiallyUnrolled());
+
+        var loops = method.getDescendants("WhileStmt");
+        assertEquals(2, loops.size());
+
+        // The main loop runs while 4 iterations are left, the original loop does the rest
+        var main = loops.get(0);
+        assertEquals(4, main.getDescendants("ArrayAssignStmt").size());
+        var bound = main.getChild(0).getChild(1);
+        assertEquals("-", bound.get("op"));
+        assertEquals("3", bound.getChild(1).get("value"));
+        assertEquals(1, loops.get(1).getDescendants("ArrayAssignStmt").size());
+    }
+
+    @Test
+    public void sizeBudget() {
+        var body = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            body.append("a[i] = a[i] + ").append(i).append(";");
+        }
+        var method = getMethod("int[] a", "int i; i = 0; while (i < a.length) { " + body + " i = i + 1; } return i;");
+
+        assertFalse(new LoopUnroller(4).unroll(method));
+        assertEquals(1, method.getDescendants("WhileStmt").size());
+    }
+
+    @Test
+    public void unrolledLoopRuns() {
+        var code = """
+                import io;
+                class Unroll {
+                    public static void main(String[] args) {
+                        int i;
+                        int n;
+                        n = 60;
+                        i = 0;
+                        while (i < n) {
+                            io.println(i);
+                            i = i + 3;
+                        }
+                    }
+                }
+                """;
+
+        var config = Map.of("optimize", "true", ConfigOptions.getUnroll(), "2");
+        var ollir = TestUtils.optimize(code, config, false);
+        var jasmin = TestUtils.backend(ollir);
+        var expected = IntStream.range(0, 20).mapToObj(i -> Integer.toString(3 * i)).collect(Collectors.joining("\n"));
+        assertEquals(expected, jasmin.run().trim().replace("\r\n", "\n"));
+
+        // Too many iterations to unroll fully
+        assertTrue(ollir.getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("1 loops partially unrolled")));
+    }
+
+    @Test
+    public void loopInElseBranchRuns() {
+        var code = """
+                import io;
+                class Unroll {
+                    public static void main(String[] args) {
+                        Unroll u;
+                        u = new Unroll();
+                        io.println(u.f(1, 1));
+                        io.println(u.f(0, 1));
+                    }
+
+                    public int f(int c, int k) {
+                        int i;
+                        int s;
+                        s = 0;
+                        i = k;
+                        if (c < 1) i = 0; else while (i < 3) { s = s + 10; i = i + 1; }
+                        return s + i;
+                    }
+                }
+                """;
+
+        var configs = List.of(Map.of("optimize", "true", ConfigOptions.getUnroll(), "4"), Map.of("optLevel", "3"));
+        for (var config : configs) {
+            var ollir = TestUtils.optimize(code, config, false);
+            assertEquals("23\n0", TestUtils.backend(ollir).run().trim().replace("\r\n", "\n"));
+        }
+    }
+}
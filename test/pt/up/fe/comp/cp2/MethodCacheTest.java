@@ -0,0 +1,100 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MethodCacheTest {
+
+    private static final String ORIGINAL = """
+            import io;
+            class Cached {
+                int total;
+
+                public static void main(String[] args) {
+                    Cached c;
+                    c = new Cached();
+                    io.println(c.add(3));
+                    io.println(c.twice(4));
+                }
+
+                public int add(int a) {
+                    total = total + a;
+                    return total;
+                }
+
+                public int twice(int b) {
+                    return b * 2;
+                }
+            }
+            """;
+
+    private final JmmOptimizationImpl optimization = new JmmOptimizationImpl();
+    private final JasminBackendImpl backend = new JasminBackendImpl();
+
+    private JasminResult compile(String code) {
+        var ollir = optimization.toOllir(TestUtils.analyse(code));
+        return backend.toJasmin(optimization.optimize(ollir));
+    }
+
+    @Test
+    public void unchangedMethodsAreReused() {
+        assertEquals("3\n8", compile(ORIGINAL).run().trim().replace("\r", ""));
+        assertEquals(3, optimization.getOllirCache().getGenerated());
+
+        // Only the body of twice changes
+        var edited = ORIGINAL.replace("return b * 2;", "return b * 3;");
+        var result = compile(edited);
+
+        assertEquals(1, optimization.getOllirCache().getGenerated());
+        assertEquals(2, optimization.getOllirCache().getReused());
+        assertEquals(1, backend.getCache().getGenerated());
+        assertEquals(2, backend.getCache().getReused());
+        assertEquals(new JasminBackendImpl().toJasmin(TestUtils.optimize(edited)).getJasminCode(),
+                result.getJasminCode());
+        assertEquals("3\n12", result.run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void usedDeclarationsChangeTheKey() {
+        compile(ORIGINAL);
+
+        // No method uses the new field
+        var edited = ORIGINAL.replace("int total;", "int total;\n    int other;");
+        compile(edited);
+        assertEquals(0, optimization.getOllirCache().getGenerated());
+
+        // The header of twice and its call in main change
+        edited = edited.replace("public int twice(int b)", "public int twice(int b, int d)")
+                .replace("c.twice(4)", "c.twice(4, 5)");
+        var result = compile(edited);
+        assertEquals(2, optimization.getOllirCache().getGenerated());
+        assertEquals(1, optimization.getOllirCache().getReused());
+        assertEquals("3\n8", result.run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void classPathReusesMethods() {
+        // As the launcher compiles, the passes over the OLLIR code change the class in place
+        var config = Map.of(ConfigOptions.getOptLevel(), "2", ConfigOptions.getRegister(), "0");
+        var ollirClass = optimization.toOllirClass(TestUtils.analyse(ORIGINAL, config));
+        TestUtils.noErrors(optimization.optimize(ollirClass, config));
+        assertEquals("3\n8", backend.toJasmin(ollirClass, config).run().trim().replace("\r", ""));
+        assertEquals(3, optimization.getClassCache().getGenerated());
+
+        var edited = ORIGINAL.replace("return b * 2;", "return b * 3;");
+        ollirClass = optimization.toOllirClass(TestUtils.analyse(edited, config));
+        assertEquals(1, optimization.getClassCache().getGenerated());
+        assertEquals(2, optimization.getClassCache().getReused());
+
+        TestUtils.noErrors(optimization.optimize(ollirClass, config));
+        assertEquals("3\n12", backend.toJasmin(ollirClass, config).run().trim().replace("\r", ""));
+    }
+}
@@ -0,0 +1,161 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.analysis.interprocedural.CallGraph;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MethodSummaryTest {
+
+    private static final String CODE = """
+            import io;
+            class Summary {
+                int count;
+                int[] data;
+
+                public int get() {
+                    return count;
+                }
+
+                public int inc() {
+                    count = this.get() + 1;
+                    return count;
+                }
+
+                public int square(int x) {
+                    return x * x;
+                }
+
+                public int local() {
+                    int[] a;
+                    a = new int[2];
+                    a[0] = this.square(3);
+                    return a[0];
+                }
+
+                public int store(int[] a) {
+                    a[0] = 1;
+                    return 0;
+                }
+
+                public int even(int n) {
+                    int r;
+                    if (n < 1) { r = 1; } else { r = this.odd(n - 1); }
+                    return r;
+                }
+
+                public int odd(int n) {
+                    int r;
+                    if (n < 1) { io.println(n); r = 0; } else { r = this.even(n - 1); }
+                    return r;
+                }
+            }
+            """;
+
+    @Test
+    public void summariesAreBottomUp() {
+        var semantics = TestUtils.analyse(CODE);
+        var summaries = new SideEffectAnalysis().analyze(semantics.getRootNode(), semantics.getSymbolTable());
+
+        assertEquals(Set.of("count"), summaries.get("get").getFieldsRead());
+        assertTrue(summaries.get("get").isSideEffectFree());
+        assertFalse(summaries.get("get").isPure());
+
+        assertEquals(Set.of("count"), summaries.get("inc").getFieldsWritten());
+        assertFalse(summaries.get("inc").preservesField("count"));
+        assertTrue(summaries.get("inc").preservesField("data"));
+
+        assertTrue(summaries.get("square").isPure());
+
+        // Stores into a fresh array that never escapes are not visible outside
+        assertTrue(summaries.get("local").allocatesArrays());
+        assertTrue(summaries.get("local").isPure());
+
+        assertTrue(summaries.get("store").writesArrays());
+        assertFalse(summaries.get("store").isSideEffectFree());
+
+        // Mutually recursive methods share the imported call
+        assertTrue(summaries.get("even").callsExternal());
+        assertTrue(summaries.get("odd").callsExternal());
+
+        assertSame(summaries, SideEffectAnalysis.getSummaries(semantics.getSymbolTable()));
+    }
+
+    @Test
+    public void arraysReturnedByCallsEscape() {
+        var semantics = TestUtils.analyse("""
+                import Lib;
+                class Escape {
+                    int[] kept;
+
+                    public int[] mk() {
+                        int[] a;
+                        a = new int[2];
+                        return a;
+                    }
+
+                    public int[] pass() {
+                        return this.mk();
+                    }
+
+                    public int keep() {
+                        kept = (this.mk());
+                        return 0;
+                    }
+
+                    public int[] external() {
+                        return Lib.make();
+                    }
+
+                    public int size() {
+                        return this.count();
+                    }
+
+                    public int count() {
+                        return 2;
+                    }
+                }
+                """);
+        var summaries = new SideEffectAnalysis().analyze(semantics.getRootNode(), semantics.getSymbolTable());
+
+        assertTrue(summaries.get("mk").escapesArrays());
+        assertTrue(summaries.get("pass").escapesArrays());
+        assertTrue(summaries.get("keep").escapesArrays());
+        assertTrue(summaries.get("external").escapesArrays());
+        assertFalse(summaries.get("count").escapesArrays());
+        assertFalse(summaries.get("size").escapesArrays());
+    }
+
+    @Test
+    public void changedMethodsLeaveTheCache() {
+        var analysis = new SideEffectAnalysis();
+        var semantics = TestUtils.analyse(CODE);
+        analysis.analyze(semantics.getRootNode(), semantics.getSymbolTable());
+        assertEquals(7, analysis.getCachedMethods());
+
+        // Only the new body of square is kept, not both
+        semantics = TestUtils.analyse(CODE.replace("return x * x;", "return x * x * x;"));
+        analysis.analyze(semantics.getRootNode(), semantics.getSymbolTable());
+        assertEquals(7, analysis.getCachedMethods());
+    }
+
+    @Test
+    public void callGraphComponentsAreBottomUp() {
+        var semantics = TestUtils.analyse(CODE);
+        var callGraph = new CallGraph(semantics.getRootNode(), semantics.getSymbolTable());
+
+        assertEquals(Set.of("get"), callGraph.getCallees("inc"));
+        assertTrue(callGraph.isRecursive("even"));
+        assertFalse(callGraph.isRecursive("inc"));
+        assertTrue(callGraph.hasUnresolvedCalls("odd"));
+
+        var components = callGraph.getStronglyConnectedComponents();
+        assertTrue(components.indexOf(List.of("get")) < components.indexOf(List.of("inc")));
+        assertTrue(components.stream().anyMatch(component -> Set.copyOf(component).equals(Set.of("even", "odd"))));
+    }
+}
@@ -0,0 +1,183 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.OllirPrinter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class OllirClassTest {
+
+    private static final String CODE = """
+            import io;
+            class Built {
+                public static void main(String[] args) {
+                    int[] a;
+                    int i;
+                    int s;
+                    boolean done;
+                    a = [1, 2, 3, 4];
+                    s = 0;
+                    i = 0;
+                    done = false;
+                    while (i < a.length && !done) {
+                        if (a[i] < 3) {
+                            s = s + a[i] * 2;
+                        } else {
+                            done = true;
+                        }
+                        i = i + 1;
+                    }
+                    io.println(s);
+                    io.println(i);
+                }
+            }
+            """;
+
+    private static final String MIXED = """
+            import io;
+            class Mixed {
+                int[] data;
+                Mixed next;
+
+                public int sum(int n, int acc) {
+                    if (n < 1) {
+                        return acc;
+                    }
+                    return this.sum(n - 1, acc + n);
+                }
+
+                public boolean check(int a, boolean b) {
+                    boolean c;
+                    c = a < 3 && (b && !(a < 1));
+                    if (!c && b) {
+                        data = new int[a];
+                        data[0] = a;
+                    } else {
+                        next = new Mixed();
+                        io.println(next.sum(a, 0));
+                    }
+                    while (!(a < 1)) {
+                        a = a - data.length;
+                    }
+                    return c;
+                }
+
+                public static void main(String[] args) {
+                    Mixed m;
+                    m = new Mixed();
+                    io.println(m.sum(4, 0));
+                    m.check(2, true);
+                }
+            }
+            """;
+
+    private static ClassUnit build(String code) {
+        return new JmmOptimizationImpl().toOllirClass(TestUtils.analyse(code));
+    }
+
+    private static Method getMethod(ClassUnit classUnit, String name) {
+        return classUnit.getMethods().stream()
+                .filter(method -> method.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void runsFromClass() {
+        var ollirClass = build(CODE);
+
+        var result = new JasminBackendImpl().toJasmin(ollirClass, Map.of());
+        TestUtils.noErrors(result);
+        assertEquals("6\n3", result.run().trim());
+    }
+
+    @Test
+    public void lowersLikeGenerator() {
+        var config = Map.of(ConfigOptions.getOptLevel(), "2");
+        for (var code : List.of(CODE, MIXED)) {
+            var optimization = new JmmOptimizationImpl();
+            var semantics = optimization.optimize(TestUtils.analyse(code, config));
+            var generated = OllirPrinter.print(optimization.toOllir(semantics).getOllirClass());
+            assertEquals(generated, OllirPrinter.print(optimization.toOllirClass(semantics)));
+        }
+    }
+
+    @Test
+    public void usesOperandsInPlace() {
+        var ollirClass = build(CODE);
+        var main = getMethod(ollirClass, "main");
+
+        // Only the array accesses and the multiplication need temporaries, conditions are branches
+        var temps = new ArrayList<String>();
+        for (var assign : CpUtils.getInstructions(AssignInstruction.class, main)) {
+            var name = ((Operand) assign.getDest()).getName();
+            if (name.matches("t\\d+")) {
+                temps.add(name);
+            }
+        }
+        assertTrue(temps.toString(), temps.size() <= 5);
+        assertFalse(CpUtils.getInstructions(CondBranchInstruction.class, main).isEmpty());
+    }
+
+    @Test
+    public void printsParseableOllir() {
+        var ollirClass = build(CODE);
+        var text = OllirPrinter.print(ollirClass);
+
+        var parsed = new OllirResult(text, Map.of()).getOllirClass();
+        var printedMain = getMethod(ollirClass, "main").getInstructions().stream()
+                .map(OllirPrinter::instruction)
+                .toList();
+        var parsedMain = getMethod(parsed, "main").getInstructions().stream()
+                .map(OllirPrinter::instruction)
+                .toList();
+        assertEquals(text, printedMain, parsedMain);
+        assertEquals(text, text, OllirPrinter.print(parsed));
+    }
+
+    @Test
+    public void buildsFieldsAndCalls() {
+        var ollirClass = build("""
+                class Counter {
+                    int count;
+
+                    public int add(int n) {
+                        count = count + n;
+                        return count;
+                    }
+
+                    public int twice(int n) {
+                        int r;
+                        r = this.add(n);
+                        return this.add(n);
+                    }
+                }
+                """);
+
+        assertEquals(1, ollirClass.getFields().size());
+        assertTrue(ollirClass.getMethods().stream().anyMatch(Method::isConstructMethod));
+
+        var text = OllirPrinter.print(ollirClass);
+        assertTrue(text, text.contains("putfield(this.Counter, count.i32, "));
+        assertTrue(text, text.contains("invokevirtual(this.Counter, \"add\", n.i32).i32"));
+
+        var parsed = new OllirResult(text, Map.of()).getOllirClass();
+        assertEquals(text, OllirPrinter.print(parsed));
+        assertEquals(text, 3, getMethod(parsed, "twice").getInstructions().size());
+    }
+}
@@ -0,0 +1,189 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.optimization.MethodCache;
+import pt.up.fe.comp2025.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class OllirGenerationTest {
+
+    /**
+     * {@code depth} ifs, each inside the then branch of the one before.
+     */
+    private static String nestedIfs(int depth) {
+        var code = new StringBuilder("""
+                import io;
+                class Nested {
+                    public static void main(String[] args) {
+                        int i;
+                        int s;
+                        s = 0;
+                        i = 0;
+                        while (i < 3) {
+                """);
+        for (int i = 0; i < depth; i++) {
+            code.append("if (i < 3 + ").append(i).append(") { s = s + 1;\n");
+        }
+        code.append("}".repeat(depth).replace("}", "} else {}\n"));
+        code.append("""
+                            i = i + 1;
+                        }
+                        io.println(s);
+                    }
+                }
+                """);
+        return code.toString();
+    }
+
+    @Test
+    public void deeplyNestedStatements() {
+        int depth = 150;
+        var ollir = TestUtils.optimize(nestedIfs(depth), Map.of(), false);
+        TestUtils.noErrors(ollir);
+
+        var method = CpUtils.getMethod(ollir, "main");
+        assertEquals(depth + 1, CpUtils.getInstructions(CondBranchInstruction.class, method).size());
+
+        var result = TestUtils.backend(ollir);
+        TestUtils.noErrors(result);
+        assertEquals(Integer.toString(3 * depth), result.run().trim());
+    }
+
+    @Test
+    public void shortCircuitAndFields() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Fields {
+                    boolean seen;
+
+                    public static void main(String[] args) {
+                        Fields f;
+                        f = new Fields();
+                        io.println(f.run());
+                    }
+
+                    public int run() {
+                        int i;
+                        int s;
+                        boolean ok;
+                        int[] values;
+                        values = [4, 5, 6];
+                        values[1] = 7;
+                        seen = false;
+                        s = 0;
+                        i = 0;
+                        while (i < values.length && !seen) {
+                            s = s + values[i];
+                            ok = 10 < s && !seen;
+                            if (ok) {
+                                seen = true;
+                            } else {
+                            }
+                            i = i + 1;
+                        }
+                        return s;
+                    }
+                }
+                """, Map.of(), false);
+
+        // The semantic analysis wrongly reports the assignment to 'ok', it is only run
+        var result = TestUtils.backend(ollir);
+        assertEquals("11", result.run().trim());
+    }
+
+    @Test
+    public void fewTemporaries() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Temps {
+                    public static void main(String[] args) {
+                        int i;
+                        int n;
+                        boolean done;
+                        n = 5;
+                        i = 0;
+                        done = false;
+                        while (i < n && !done) {
+                            io.println(i);
+                            io.println(i * 2 + 1);
+                            io.println(i * 3 + 1);
+                            if (3 < i) {
+                                done = true;
+                            } else {
+                            }
+                            i = i + 1;
+                        }
+                    }
+                }
+                """, Map.of(), false);
+
+        var method = CpUtils.getMethod(ollir, "main");
+        var temps = new HashSet<String>();
+        for (var assign : CpUtils.getInstructions(AssignInstruction.class, method)) {
+            var name = ((Operand) assign.getDest()).getName();
+            if (name.matches("t\\d+")) {
+                temps.add(name);
+            }
+        }
+
+        // Arguments and conditions need none, the second expression reuses the temporaries of the first
+        assertEquals(ollir.getOllirCode(), 2, temps.size());
+        assertEquals(ollir.getOllirCode(), 9, CpUtils.getInstructions(AssignInstruction.class, method).size());
+
+        var result = TestUtils.backend(ollir);
+        assertEquals("0\n1\n1\n1\n3\n4\n2\n5\n7\n3\n7\n10\n4\n9\n13", result.run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void parallelGenerationIsDeterministic() {
+        int methods = 40;
+        var code = new StringBuilder("import io;\nclass Many {\n");
+        code.append("public static void main(String[] args) { Many m; m = new Many(); io.println(m.f0(1)); }\n");
+        for (int i = 0; i < methods; i++) {
+            String next = i + 1 < methods ? "this.f" + (i + 1) + "(a * 2 + " + i + ")" : "a";
+            code.append("public int f").append(i).append("(int a) { int b; b = 0; ")
+                    .append("while (b < a && !(a < 3)) { b = b + a * 2 + 1; } ")
+                    .append("if (b < ").append(i).append(") { b = b + 1; } else {} ")
+                    .append("return ").append(next).append(" + b * 0; }\n");
+        }
+        code.append("}\n");
+
+        // The semantic analysis wrongly reports the calls with arguments, only the symbol table is needed
+        var root = TestUtils.parse(code.toString()).getRootNode();
+        var table = new JmmSymbolTableBuilder().build(root);
+        var sequential = new OllirGeneratorVisitor(table, new MethodCache<>(), Runnable::run).generate(root);
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int run = 0; run < 5; run++) {
+                var parallel = new OllirGeneratorVisitor(table, new MethodCache<>(), executor).generate(root);
+                assertEquals(sequential, parallel);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Methods in declaration order, each numbering its own temporaries and labels from 0 (the loop and its
+        // condition take the first three labels)
+        assertTrue(sequential.indexOf("f0(") < sequential.indexOf("f1(")
+                && sequential.indexOf("f1(") < sequential.indexOf("f" + (methods - 1) + "("));
+        var ollir = new OllirResult(sequential, Map.of());
+        for (int i = 0; i < methods; i++) {
+            var method = CpUtils.getMethod(ollir, "f" + i);
+            assertTrue(method.getVarTable().containsKey("t0"));
+            assertTrue(method.getLabels().containsKey("endif_3"));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.interprocedural.SideEffectAnalysis;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.OptimizationPass;
+import pt.up.fe.comp2025.optimization.PassContext;
+import pt.up.fe.comp2025.optimization.PassManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PassManagerTest {
+
+    private static final String CODE = """
+            class Levels {
+                public int foo(int a) {
+                    int i;
+                    int s;
+                    s = this.twice(a);
+                    i = 0;
+                    while (i < a) {
+                        s = s + a * 2;
+                        i = i + 1;
+                    }
+                    return s;
+                }
+
+                public int twice(int v) {
+                    return v + v;
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult optimize(Map<String, String> config) {
+        return new JmmOptimizationImpl().optimize(TestUtils.analyse(CODE, config));
+    }
+
+    private static boolean ran(JmmSemanticsResult result, String pass) {
+        return result.getReports().stream()
+                .map(Report::getMessage)
+                .anyMatch(message -> message.startsWith("Pass " + pass + ":"));
+    }
+
+    @Test
+    public void levelSelectsPasses() {
+        var level1 = optimize(Map.of(ConfigOptions.getOptLevel(), "1"));
+        assertTrue(ran(level1, "WorklistOptimizer"));
+        assertFalse(ran(level1, "MethodInliner"));
+        assertFalse(ran(level1, "LoopInvariantCodeMotion"));
+        assertFalse(level1.getRootNode().getDescendants("MethodCall").isEmpty());
+
+        var level2 = optimize(Map.of(ConfigOptions.getOptLevel(), "2"));
+        assertTrue(ran(level2, "MethodInliner"));
+        assertTrue(ran(level2, "LoopInvariantCodeMotion"));
+        assertFalse(ran(level2, "LoopUnroller"));
+
+        // A pass enabled by name runs below its level
+        var enabled = optimize(Map.of(ConfigOptions.getOptLevel(), "1", ConfigOptions.getEnabledPasses(),
+                "MethodInliner"));
+        assertTrue(ran(enabled, "MethodInliner"));
+        assertFalse(ran(enabled, "LoopInvariantCodeMotion"));
+    }
+
+    @Test
+    public void disabledPassDoesNotRun() {
+        var result = optimize(Map.of(ConfigOptions.getOptimize(), "true",
+                ConfigOptions.getDisabledPasses(), "MethodInliner"));
+        assertFalse(ran(result, "MethodInliner"));
+        assertTrue(ran(result, "LoopInvariantCodeMotion"));
+        assertFalse(result.getRootNode().getDescendants("MethodCall").isEmpty());
+    }
+
+    @Test
+    public void levelZeroLeavesCodeAlone() {
+        var result = optimize(Map.of(ConfigOptions.getOptLevel(), "0"));
+        assertTrue(result.getReports().stream().noneMatch(report -> report.getMessage().startsWith("Pass ")));
+    }
+
+    @Test
+    public void recordsChangesAndInvalidatesAnalyses() {
+        var semantics = TestUtils.analyse(CODE, Map.of());
+        var context = new PassContext(semantics.getRootNode(), semantics.getSymbolTable(), Map.of(),
+                new SideEffectAnalysis());
+        var callGraph = context.getCallGraph();
+
+        var unchanged = new OptimizationPass() {
+            @Override
+            public int run(PassContext context) {
+                return 0;
+            }
+
+            @Override
+            public String getName() {
+                return "Unchanged";
+            }
+        };
+        var changing = new OptimizationPass() {
+            private int runs = 0;
+
+            @Override
+            public int run(PassContext context) {
+                // Two changes in the first round, none in the second
+                return runs++ == 0 ? 2 : 0;
+            }
+
+            @Override
+            public String getName() {
+                return "Changing";
+            }
+        };
+
+        var manager = new PassManager(Set.of("Skipped"));
+        var skipped = new OptimizationPass() {
+            @Override
+            public int run(PassContext context) {
+                fail("Disabled pass ran");
+                return 0;
+            }
+
+            @Override
+            public String getName() {
+                return "Skipped";
+            }
+        };
+
+        assertEquals(0, manager.run(List.of(unchanged, skipped), context));
+        assertSame(callGraph, context.getCallGraph());
+
+        assertEquals(2, manager.run(List.of(manager.fixedPoint("Loop", List.of(changing, unchanged))), context));
+        assertNotSame(callGraph, context.getCallGraph());
+
+        assertEquals(Integer.valueOf(2), manager.getChanges().get("Changing"));
+        assertEquals(Integer.valueOf(2), manager.getChanges().get("Loop"));
+        assertEquals(Integer.valueOf(0), manager.getChanges().get("Unchanged"));
+        assertFalse(manager.getTimings().containsKey("Skipped"));
+        assertTrue(manager.getTimings().get("Loop") >= manager.getTimings().get("Changing"));
+    }
+
+    @Test
+    public void ollirPassesRunThroughManager() {
+        var optimization = new JmmOptimizationImpl();
+        var config = Map.of(ConfigOptions.getOptLevel(), "2", ConfigOptions.getRegister(), "0",
+                ConfigOptions.getDisabledPasses(), "GlobalValueNumbering");
+        var ollirClass = optimization.toOllirClass(TestUtils.analyse(CODE, config));
+
+        var ran = optimization.optimize(ollirClass, config).stream()
+                .map(Report::getMessage)
+                .filter(message -> message.startsWith("Pass "))
+                .map(message -> message.substring("Pass ".length(), message.indexOf(':')))
+                .toList();
+        assertEquals(List.of("SparseConditionalConstantPropagation", "RegisterAllocation"), ran);
+
+        // Disabled by name like the passes on the AST
+        var noRegisters = Map.of(ConfigOptions.getRegister(), "0",
+                ConfigOptions.getDisabledPasses(), "RegisterAllocation");
+        ollirClass = optimization.toOllirClass(TestUtils.analyse(CODE, noRegisters));
+        assertTrue(optimization.optimize(ollirClass, noRegisters).isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.Remark;
+import pt.up.fe.comp2025.optimization.RemarkWriter;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RemarksTest {
+
+    private static final String CODE = """
+            class Remarks {
+                int f;
+
+                public int loop(int n, int[] a) {
+                    int i;
+                    int s;
+                    s = 2 * 3;
+                    i = 0;
+                    while (i < n) {
+                        s = s + a[i] + n / 3;
+                        i = i + 1;
+                    }
+                    return s;
+                }
+
+                public int fact(int n) {
+                    int r;
+                    r = 1;
+                    if (1 < n) {
+                        r = n * this.fact(n - 1);
+                    } else {
+                    }
+                    return r;
+                }
+            }
+            """;
+
+    private static Remark find(List<Remark> remarks, Remark.Kind kind, String pass, String name) {
+        return remarks.stream()
+                .filter(remark -> remark.getKind() == kind && remark.getPass().equals(pass)
+                        && remark.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(remarks.toString()));
+    }
+
+    @Test
+    public void passesMakeRemarks() {
+        var optimization = new JmmOptimizationImpl();
+        optimization.optimize(TestUtils.analyse(CODE, Map.of(ConfigOptions.getOptLevel(), "3")));
+        var remarks = optimization.getRemarks();
+
+        var folded = find(remarks, Remark.Kind.APPLIED, "WorklistOptimizer", "ConstantFolded");
+        assertEquals("loop", folded.getFunction());
+        assertEquals(7, folded.getLine());
+        assertTrue(folded.getMessage(), folded.getMessage().endsWith("to 6"));
+
+        // Divisions may throw, the loop may not run
+        var notHoisted = find(remarks, Remark.Kind.MISSED, "LoopInvariantCodeMotion", "NotHoisted");
+        assertEquals(10, notHoisted.getLine());
+
+        var notTail = find(remarks, Remark.Kind.MISSED, "TailCallEliminator", "NotTailCall");
+        assertEquals("fact", notTail.getFunction());
+        assertTrue(notTail.getMessage(), notTail.getMessage().contains("its result is used"));
+
+        find(remarks, Remark.Kind.ANALYSIS, "WorklistOptimizer", "FixedPoint");
+        find(remarks, Remark.Kind.MISSED, "MethodInliner", "NotInlined");
+
+        // A pass in a fixed point reports what it still cannot do only once
+        assertEquals(remarks.size(), remarks.stream().distinct().count());
+    }
+
+    @Test
+    public void instructionSelectionRemarks() {
+        var ollir = TestUtils.optimize("""
+                class Count {
+                    public int count(int n) {
+                        int i;
+                        i = 0;
+                        while (i < n) {
+                            i = i + 1;
+                        }
+                        i = i + 1000;
+                        return i;
+                    }
+                }
+                """, Map.of(), false);
+
+        var backend = new JasminBackendImpl();
+        backend.toJasmin(ollir);
+        var remarks = backend.getRemarks();
+
+        var iinc = find(remarks, Remark.Kind.APPLIED, "InstructionSelection", "Iinc");
+        assertEquals("count", iinc.getFunction());
+        var notIinc = find(remarks, Remark.Kind.MISSED, "InstructionSelection", "NotIinc");
+        assertTrue(notIinc.getMessage(), notIinc.getMessage().contains("1000"));
+    }
+
+    @Test
+    public void writesYamlAndJson() {
+        var remarks = List.of(
+                new Remark(Remark.Kind.APPLIED, "MethodInliner", "Inlined", "foo", 3, 8, "inlined bar's body"),
+                new Remark(Remark.Kind.MISSED, "RegisterAllocation", "NotAllocated", "foo", -1, -1,
+                        "needs \"4\" registers"));
+
+        var yaml = RemarkWriter.write(remarks, "Foo.jmm", RemarkWriter.Format.fromName("yaml"));
+        assertEquals("""
+                --- !Passed
+                Pass:            'MethodInliner'
+                Name:            'Inlined'
+                DebugLoc:        { File: 'Foo.jmm', Line: 3, Column: 8 }
+                Function:        'foo'
+                Args:
+                  - String:          'inlined bar''s body'
+                ...
+                --- !Missed
+                Pass:            'RegisterAllocation'
+                Name:            'NotAllocated'
+                Function:        'foo'
+                Args:
+                  - String:          'needs "4" registers'
+                ...
+                """, yaml);
+
+        var json = RemarkWriter.write(remarks, "Foo.jmm", RemarkWriter.Format.fromName("JSON"));
+        assertEquals("""
+                [
+                  {"Kind": "Passed", "Pass": "MethodInliner", "Name": "Inlined", \
+                "DebugLoc": {"File": "Foo.jmm", "Line": 3, "Column": 8}, "Function": "foo", \
+                "Message": "inlined bar's body"},
+                  {"Kind": "Missed", "Pass": "RegisterAllocation", "Name": "NotAllocated", "Function": "foo", \
+                "Message": "needs \\"4\\" registers"}
+                ]
+                """, json);
+    }
+}
@@ -0,0 +1,114 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.InvokeStaticInstruction;
+import org.specs.comp.ollir.inst.ReturnInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.optimization.OllirPrinter;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SparseConstantPropagationTest {
+
+    // Only the pass on the OLLIR code, the passes on the AST would fold it first
+    private static final Map<String, String> CONFIG = Map.of("enabledPasses", "SparseConditionalConstantPropagation");
+
+    @Test
+    public void constantAcrossLoop() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Loop {
+                    public static void main(String[] args) {
+                        Loop l;
+                        l = new Loop();
+                        io.println(l.foo(4));
+                    }
+
+                    public int foo(int n) {
+                        int x;
+                        int i;
+                        x = 3;
+                        i = 0;
+                        while (i < n) {
+                            if (x < 5) {
+                                x = 3;
+                            } else {
+                                x = x + 1;
+                            }
+                            i = i + 1;
+                        }
+                        return x;
+                    }
+                }
+                """, CONFIG, false);
+
+        var method = CpUtils.getMethod(ollir, "foo");
+
+        // x is 3 on both edges into the loop, and the else side never runs
+        var ret = CpUtils.getInstructions(ReturnInstruction.class, method).get(0);
+        assertTrue(ollir.getOllirCode(), ret.getOperand().orElseThrow() instanceof LiteralElement);
+        assertEquals(ollir.getOllirCode(), "3", ((LiteralElement) ret.getOperand().get()).getLiteral());
+        assertEquals(ollir.getOllirCode(), 1, CpUtils.getOperationInstances(OperationType.ADD, method, ollir).size());
+        assertEquals(ollir.getOllirCode(), 1, CpUtils.getInstructions(CondBranchInstruction.class, method).size());
+
+        assertEquals("3", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void branchOnConstantIsRemoved() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Branch {
+                    public static void main(String[] args) {
+                        boolean debug;
+                        int a;
+                        debug = false;
+                        a = 2;
+                        if (debug) {
+                            io.println(a);
+                        } else {
+                            a = a * 5;
+                        }
+                        io.println(a);
+                    }
+                }
+                """, CONFIG, false);
+
+        var method = CpUtils.getMethod(ollir, "main");
+        assertTrue(ollir.getOllirCode(), CpUtils.getInstructions(CondBranchInstruction.class, method).isEmpty());
+        assertEquals(ollir.getOllirCode(), 1, CpUtils.getInstructions(InvokeStaticInstruction.class, method).size());
+        // The class is optimized in place, its code is the code generated
+        var code = OllirPrinter.print(ollir.getOllirClass());
+        assertTrue(code, code.contains("10.i32"));
+
+        assertEquals("10", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void disabledByName() {
+        var config = Map.of("enabledPasses", "SparseConditionalConstantPropagation",
+                "disabledPasses", "SparseConditionalConstantPropagation");
+        var code = """
+                class Off {
+                    public static void main(String[] args) {
+                    }
+
+                    public int foo() {
+                        int x;
+                        x = 3;
+                        return x;
+                    }
+                }
+                """;
+
+        var ollir = TestUtils.optimize(code, config, false);
+        var ret = CpUtils.getInstructions(ReturnInstruction.class, CpUtils.getMethod(ollir, "foo")).get(0);
+        assertFalse(ollir.getOllirCode(), ret.getOperand().orElseThrow() instanceof LiteralElement);
+    }
+}
@@ -0,0 +1,44 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.inst.CallInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TailCallTest {
+
+    @Test
+    public void recursionBecomesJump() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Sum {
+                    public static void main(String[] args) {
+                        io.println(1);
+                    }
+
+                    public int sum(int n, int acc) {
+                        if (n < 1) {
+                            return acc;
+                        } else {
+                        }
+                        return this.sum(n - 1, acc + n);
+                    }
+                }
+                """, Map.of("optimize", "true"), false);
+
+        var method = CpUtils.getMethod(ollir, "sum");
+        assertTrue(ollir.getOllirCode(), CpUtils.getInstructions(CallInstruction.class, method).isEmpty());
+        assertTrue(CpUtils.getInstructions(GotoInstruction.class, method).stream()
+                .anyMatch(jump -> jump.getLabel().equals("methodentry")));
+
+        // The parameters are stored in place
+        var code = TestUtils.backend(ollir).getJasminCode();
+        assertTrue(code, code.contains("goto methodentry"));
+        assertFalse(code, code.contains("invokevirtual Sum/sum"));
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.optimization.TreeShaker;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TreeShakingTest {
+
+    private static final String CODE = """
+            import io;
+            class Shaken {
+                int used;
+                int unused;
+
+                public static void main(String[] args) {
+                    Shaken s;
+                    s = new Shaken();
+                    io.println(s.run());
+                }
+
+                int run() {
+                    int r;
+                    r = this.helper(3);
+                    used = r;
+                    return used;
+                }
+
+                int helper(int x) {
+                    return x;
+                }
+
+                int dead(int x) {
+                    return this.deader(x);
+                }
+
+                int deader(int x) {
+                    return x;
+                }
+
+                public int api() {
+                    return 0;
+                }
+            }
+            """;
+
+    @Test
+    public void removesUnreachableMethodsAndUnusedFields() {
+        var config = Map.of(ConfigOptions.getTreeShake(), "true");
+        var result = TestUtils.optimize(CODE, config, false);
+
+        var method = result.getOllirClass().getMethods().stream().map(m -> m.getMethodName()).toList();
+        assertTrue(method.containsAll(List.of("main", "run", "helper", "api")));
+        assertFalse(method.contains("dead"));
+        assertFalse(method.contains("deader"));
+
+        var fields = result.getOllirClass().getFields().stream().map(field -> field.getFieldName()).toList();
+        assertEquals(List.of("used"), fields);
+    }
+
+    @Test
+    public void keepsEverythingByDefault() {
+        var result = TestUtils.optimize(CODE);
+
+        var method = result.getOllirClass().getMethods().stream().map(m -> m.getMethodName()).toList();
+        assertTrue(method.contains("dead"));
+        assertEquals(2, result.getOllirClass().getFields().size());
+    }
+
+    @Test
+    public void keepsMethodsCalledThroughOtherReceivers() {
+        var code = """
+                import io;
+                class Chained {
+                    public static void main(String[] args) {
+                        Chained c;
+                        c = new Chained();
+                        io.println(c.run());
+                    }
+
+                    int run() {
+                        return this.self().hidden();
+                    }
+
+                    Chained self() {
+                        return this;
+                    }
+
+                    int hidden() {
+                        return 7;
+                    }
+                }
+                """;
+        var result = TestUtils.optimize(code, Map.of(ConfigOptions.getTreeShake(), "true"), false);
+
+        // The receiver of hidden is not resolved, hidden may be the method called
+        var method = result.getOllirClass().getMethods().stream().map(m -> m.getMethodName()).toList();
+        assertTrue(method.containsAll(List.of("run", "self", "hidden")));
+    }
+
+    @Test
+    public void reportsOnlyNewRemovals() {
+        var root = TestUtils.parse(CODE).getRootNode();
+        var table = new JmmSymbolTableBuilder().build(root);
+        var shaker = new TreeShaker();
+
+        assertTrue(shaker.shake(root, table));
+        assertFalse(shaker.shake(root, new JmmSymbolTableBuilder().build(root)));
+        assertEquals(List.of("dead", "deader"), shaker.getRemovedMethods());
+    }
+}
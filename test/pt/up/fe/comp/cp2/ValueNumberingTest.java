@@ -0,0 +1,130 @@
+package pt.up.fe.comp.cp2;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.ArrayLengthInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ValueNumberingTest {
+
+    // Only the pass on the OLLIR code, the passes on the AST would fold it first
+    private static final Map<String, String> CONFIG = Map.of("enabledPasses", "GlobalValueNumbering");
+
+    private static long countLoads(Method method) {
+        return CpUtils.getInstructions(SingleOpInstruction.class, method).stream()
+                .filter(load -> load.getSingleOperand() instanceof ArrayOperand)
+                .count();
+    }
+
+    @Test
+    public void redundantComputationsAreRemoved() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Cse {
+                    public static void main(String[] args) {
+                        Cse c;
+                        int[] a;
+                        a = [1, 2, 3, 4];
+                        c = new Cse();
+                        io.println(c.f(a, 1));
+                    }
+
+                    public int f(int[] a, int i) {
+                        int x;
+                        int y;
+                        int z;
+                        x = a[i] + a[i];
+                        y = a.length - i;
+                        z = a.length - i;
+                        if (x < y) {
+                            z = z + (a.length - i);
+                        } else {
+                            z = z * (a.length - i);
+                        }
+                        return x + y + z;
+                    }
+                }
+                """, CONFIG, false);
+
+        // Both branches are dominated by the first computations
+        var method = CpUtils.getMethod(ollir, "f");
+        assertEquals(ollir.getOllirCode(), 1, countLoads(method));
+        assertEquals(ollir.getOllirCode(), 1, CpUtils.getInstructions(ArrayLengthInstruction.class, method).size());
+        assertEquals(ollir.getOllirCode(), 1, CpUtils.getOperationInstances(OperationType.SUB, method, ollir).size());
+
+        assertEquals("16", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void loadsAreKilledByStoresAndCalls() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Kill {
+                    public static void main(String[] args) {
+                        Kill k;
+                        int[] a;
+                        a = [1, 2, 3];
+                        k = new Kill();
+                        io.println(k.f(a, a));
+                    }
+
+                    public int f(int[] a, int[] b) {
+                        int x;
+                        x = a[0];
+                        b[0] = 5;
+                        x = x + a[0];
+                        x = x + this.g(b) + a[0];
+                        return x;
+                    }
+
+                    public int g(int[] b) {
+                        b[0] = 10;
+                        return 0;
+                    }
+                }
+                """, CONFIG, false);
+
+        // b may be the same array as a
+        var method = CpUtils.getMethod(ollir, "f");
+        assertEquals(ollir.getOllirCode(), 3, countLoads(method));
+
+        assertEquals("16", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void reassignedVariableIsNotReused() {
+        var ollir = TestUtils.optimize("""
+                import io;
+                class Reassign {
+                    public static void main(String[] args) {
+                        Reassign r;
+                        r = new Reassign();
+                        io.println(r.f(3));
+                    }
+
+                    public int f(int n) {
+                        int x;
+                        int y;
+                        x = n * 2;
+                        x = x + 1;
+                        y = n * 2;
+                        return x + y;
+                    }
+                }
+                """, CONFIG, false);
+
+        // x no longer holds n * 2 when y is computed
+        var method = CpUtils.getMethod(ollir, "f");
+        assertEquals(ollir.getOllirCode(), 2, CpUtils.getOperationInstances(OperationType.MUL, method, ollir).size());
+
+        assertEquals("13", TestUtils.backend(ollir).run().trim().replace("\r", ""));
+    }
+}
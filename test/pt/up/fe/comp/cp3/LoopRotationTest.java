@@ -0,0 +1,43 @@
+package pt.up.fe.comp.cp3;
+
+import org.junit.Test;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LoopRotationTest {
+
+    private static final String CODE = """
+            import io;
+            class Rotated {
+                public static void main(String[] args) {
+                    int i;
+                    i = 0;
+                    while (i < 3) {
+                        io.println(i);
+                        i = i + 1;
+                    }
+                }
+            }
+            """;
+
+    @Test
+    public void conditionAtTheBottom() {
+        var ollir = TestUtils.optimize(CODE, Map.of(), false);
+        var method = CpUtils.getMethod(ollir, "main");
+
+        // One jump into the condition, and one branch back per iteration
+        assertEquals(1, CpUtils.getInstructions(CondBranchInstruction.class, method).size());
+        assertEquals(1, CpUtils.getInstructions(GotoInstruction.class, method).size());
+
+        var jasmin = TestUtils.backend(ollir);
+        var code = jasmin.getJasminCode();
+        assertEquals(code, 1, code.split("if_icmplt", -1).length - 1);
+        assertEquals("0\n1\n2", jasmin.run().trim().replace("\r\n", "\n"));
+    }
+}